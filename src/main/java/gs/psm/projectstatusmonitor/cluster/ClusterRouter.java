@@ -0,0 +1,501 @@
+package gs.psm.projectstatusmonitor.cluster;
+
+import gs.psm.projectstatusmonitor.exceptions.ClusterNodeUnavailableException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateList;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectTransfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import java.io.Closeable;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Routes requests about a project to the node that owns its code on a
+ * {@link ConsistentHashRing}, and gathers cluster-wide answers from every node. Nodes are
+ * named by their base URL.
+ *
+ * A request is forwarded at most once. The forwarded copy carries {@link #FORWARDED_HEADER},
+ * and a node answers any request with that header itself, so nodes that briefly disagree
+ * about the ring never pass a request back and forth. The header is only honoured next to
+ * {@link #NODE_CREDENTIAL_HEADER}, which is derived from the cluster user's password, so a
+ * client cannot make a node skip routing. Forwarded requests keep the caller's
+ * Authorization and If-Match headers, and the owner's status, body, content type and
+ * entity tag are passed back unchanged. Calls between nodes for joining and handing over
+ * projects authenticate as the configured cluster user.
+ *
+ * When a node joins, each existing node switches to the new ring and then hands over the
+ * projects the new node now owns, with their versions and associated users, removing its
+ * own copy of each once it has arrived. Only those projects move. They are fenced off in
+ * the {@link FencingProjectRepository} before they are copied, so writes already under way
+ * are in the copy and later ones fail with 503 instead of being lost. Requests for them
+ * fail against the new node until they arrive. Job history and summaries are kept by the
+ * node that holds a project, so a moved project starts them afresh.
+ */
+public class ClusterRouter implements Closeable {
+
+    public static final String FORWARDED_HEADER = "X-Cluster-Forwarded-By";
+
+    public static final String NODE_CREDENTIAL_HEADER = "X-Cluster-Node-Credential";
+
+    private static final String CREDENTIAL_ALGORITHM = "HmacSHA256";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterRouter.class);
+
+    private static final List<String> FORWARDED_REQUEST_HEADERS = Arrays.asList(HttpHeaders.AUTHORIZATION, HttpHeaders.IF_MATCH);
+
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = Arrays.asList(HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final String self;
+
+    private final FencingProjectRepository projectRepository;
+
+    private final Supplier<Map<String, ? extends Collection<String>>> userAssociations;
+
+    private final String nodeUsername;
+
+    private final String nodeAuthorization;
+
+    private final String nodeCredential;
+
+    private final RestTemplate restTemplate;
+
+    private final ExecutorService requestExecutor;
+
+    private volatile ConsistentHashRing ring;
+
+    /**
+     * @param userAssociations every user's associated project codes on this node, read
+     *                         when handing projects over
+     */
+    public ClusterRouter(
+            String self,
+            ConsistentHashRing ring,
+            FencingProjectRepository projectRepository,
+            Supplier<Map<String, ? extends Collection<String>>> userAssociations,
+            String username,
+            String password
+    ) {
+        this.self = self;
+        this.ring = ring;
+        this.projectRepository = projectRepository;
+        this.userAssociations = userAssociations;
+        this.nodeUsername = username;
+        this.nodeAuthorization = "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.nodeCredential = username.isEmpty() ? null : nodeCredential(username, password);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        requestFactory.setReadTimeout(READ_TIMEOUT_MILLIS);
+        restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setErrorHandler(new PassThroughErrorHandler());
+
+        requestExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    /**
+     * Whether a request was made by another node, which alone may join nodes and hand over
+     * projects.
+     */
+    public boolean isNode(String username) {
+        return !nodeUsername.isEmpty() && nodeUsername.equals(username);
+    }
+
+    /**
+     * Whether this node should answer a request about the project itself.
+     */
+    public boolean owns(String projectCode, HttpServletRequest request) {
+        return isForwarded(request) || ring.ownerOf(projectCode).equals(self);
+    }
+
+    /**
+     * Whether a cluster-wide request should be answered from every node rather than only
+     * this one.
+     */
+    public boolean gathers(HttpServletRequest request) {
+        return !isForwarded(request) && ring.getNodes().size() > 1;
+    }
+
+    /**
+     * The projects among those held here that this node owns on the current ring. A
+     * project handed over to another node is left out even before its copy here is
+     * removed, so a cluster-wide list has it once, from its new owner when it arrives.
+     */
+    public List<Project> owned(List<Project> projects) {
+        ConsistentHashRing currentRing = ring;
+        if (currentRing.getNodes().size() == 1) {
+            return projects;
+        }
+
+        List<Project> owned = new ArrayList<>(projects.size());
+        for (Project project : projects) {
+            if (currentRing.ownerOf(project.getProjectCode()).equals(self)) {
+                owned.add(project);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Sends the request on to the owner of the project and returns the owner's response.
+     *
+     * @param body the request body, sent as JSON, or null for none
+     */
+    public ResponseEntity<byte[]> forward(String projectCode, HttpServletRequest request, Object body) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String header : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                headers.set(header, value);
+            }
+        }
+        setForwardedBy(headers);
+        if (body != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+
+        ResponseEntity<byte[]> response = exchange(ring.ownerOf(projectCode), HttpMethod.resolve(request.getMethod()),
+                pathAndQueryOf(request), headers, body, new ParameterizedTypeReference<byte[]>() {
+                });
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        for (String header : FORWARDED_RESPONSE_HEADERS) {
+            String value = response.getHeaders().getFirst(header);
+            if (value != null) {
+                responseHeaders.set(header, value);
+            }
+        }
+        return new ResponseEntity<>(response.getBody(), responseHeaders, response.getStatusCode());
+    }
+
+    /**
+     * Sends the same GET request to every other node at once and returns their answers.
+     */
+    public <T> List<T> gather(HttpServletRequest request, ParameterizedTypeReference<T> responseType) {
+        HttpHeaders headers = forwardedHeaders(request.getHeader(HttpHeaders.AUTHORIZATION));
+        String pathAndQuery = pathAndQueryOf(request);
+
+        List<CompletableFuture<T>> answers = new ArrayList<>();
+        for (String node : ring.getNodes()) {
+            if (!node.equals(self)) {
+                answers.add(CompletableFuture.supplyAsync(() ->
+                        successful(exchange(node, HttpMethod.GET, pathAndQuery, headers, null, responseType)), requestExecutor));
+            }
+        }
+        return joinAll(answers);
+    }
+
+    /**
+     * Splits a bulk job update by the owner of each project, applies this node's share
+     * locally and the rest on their owners at the same time, and returns the results in
+     * request order.
+     */
+    public List<JobStatusUpdateResult> updateJobs(
+            List<JobStatusUpdate> jobStatusUpdates,
+            HttpServletRequest request,
+            Function<List<JobStatusUpdate>, List<JobStatusUpdateResult>> localUpdate
+    ) {
+        ConsistentHashRing currentRing = ring;
+        Map<String, List<Integer>> indexesByNode = new LinkedHashMap<>();
+        for (int index = 0; index < jobStatusUpdates.size(); index++) {
+            String owner = currentRing.ownerOf(jobStatusUpdates.get(index).getProjectCode());
+            indexesByNode.computeIfAbsent(owner, node -> new ArrayList<>()).add(index);
+        }
+
+        HttpHeaders headers = forwardedHeaders(request.getHeader(HttpHeaders.AUTHORIZATION));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String pathAndQuery = pathAndQueryOf(request);
+
+        List<List<Integer>> nodeIndexes = new ArrayList<>();
+        List<CompletableFuture<List<JobStatusUpdateResult>>> nodeResults = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> node : indexesByNode.entrySet()) {
+            if (node.getKey().equals(self)) {
+                continue;
+            }
+            nodeIndexes.add(node.getValue());
+            JobStatusUpdateList body = new JobStatusUpdateList(shareOf(jobStatusUpdates, node.getValue()));
+            nodeResults.add(CompletableFuture.supplyAsync(() -> successful(exchange(node.getKey(), HttpMethod.POST,
+                    pathAndQuery, headers, body, new ParameterizedTypeReference<List<JobStatusUpdateResult>>() {
+                    })), requestExecutor));
+        }
+
+        JobStatusUpdateResult[] results = new JobStatusUpdateResult[jobStatusUpdates.size()];
+        List<Integer> localIndexes = indexesByNode.get(self);
+        if (localIndexes != null) {
+            place(results, localIndexes, localUpdate.apply(shareOf(jobStatusUpdates, localIndexes)));
+        }
+        List<List<JobStatusUpdateResult>> remoteResults = joinAll(nodeResults);
+        for (int node = 0; node < nodeIndexes.size(); node++) {
+            place(results, nodeIndexes.get(node), remoteResults.get(node));
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Tells every other node in the ring that this node has joined, so they hand over the
+     * projects it now owns. Nodes that cannot be reached are skipped; they learn of this
+     * node when they start with it in their own list.
+     */
+    public void announce() {
+        for (String node : ring.getNodes()) {
+            if (node.equals(self)) {
+                continue;
+            }
+            try {
+                successful(exchange(node, HttpMethod.POST, "/cluster/join?node=" + self,
+                        forwardedHeaders(nodeAuthorization), null, new ParameterizedTypeReference<Integer>() {
+                        }));
+            } catch (ClusterNodeUnavailableException e) {
+                LOGGER.warn("Could not announce this node to {}", node);
+            }
+        }
+    }
+
+    /**
+     * Adds the node to the ring, if it is not there already, and hands over the projects it
+     * now owns. Joining again retries any handover that failed part way. Projects another
+     * join is already handing over are left to it.
+     *
+     * @return the number of projects handed over
+     */
+    public int join(String node) {
+        ConsistentHashRing joinedRing;
+        synchronized (this) {
+            if (!ring.contains(node)) {
+                ring = ring.withNode(node);
+                LOGGER.info("Node {} joined the cluster", node);
+            }
+            joinedRing = ring;
+        }
+
+        List<String> moving = new ArrayList<>();
+        for (Project project : projectRepository.listProjects()) {
+            if (joinedRing.ownerOf(project.getProjectCode()).equals(node)) {
+                moving.add(project.getProjectCode());
+            }
+        }
+
+        List<String> fenced = projectRepository.fence(moving);
+        int handedOver = 0;
+        try {
+            Map<String, List<String>> usernamesByProject = new HashMap<>();
+            for (Map.Entry<String, ? extends Collection<String>> user : userAssociations.get().entrySet()) {
+                for (String projectCode : user.getValue()) {
+                    usernamesByProject.computeIfAbsent(projectCode, code -> new ArrayList<>()).add(user.getKey());
+                }
+            }
+
+            for (String projectCode : fenced) {
+                Project project = projectRepository.getProject(projectCode);
+                if (project == null) {
+                    continue;
+                }
+
+                ProjectTransfer transfer = new ProjectTransfer(
+                        new Project(projectCode, project.getProjectName(), copyOf(project.getJobStatusList())),
+                        project.getVersion(),
+                        usernamesByProject.getOrDefault(projectCode, Collections.emptyList())
+                );
+                HttpHeaders headers = forwardedHeaders(nodeAuthorization);
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                successful(exchange(node, HttpMethod.POST, "/cluster/transfer", headers, transfer,
+                        new ParameterizedTypeReference<Void>() {
+                        }));
+
+                projectRepository.removeFenced(projectCode);
+                projectRepository.unfence(Collections.singletonList(projectCode));
+                handedOver++;
+            }
+        } finally {
+            projectRepository.unfence(fenced);
+        }
+
+        if (handedOver > 0) {
+            LOGGER.info("Handed {} projects over to {}", handedOver, node);
+        }
+        return handedOver;
+    }
+
+    /**
+     * Takes over a project handed over by another node. A project this node already holds
+     * is kept as it is, since writes have been routed here since the ring changed.
+     */
+    public void receive(ProjectTransfer transfer) {
+        Project project = transfer.getProject();
+        project.setVersion(transfer.getVersion());
+        try {
+            projectRepository.addProject(project);
+        } catch (ProjectAlreadyExistsException e) {
+            // already here, and at least as new as the copy handed over
+        }
+
+        if (transfer.getUsernames() != null) {
+            for (String username : transfer.getUsernames()) {
+                projectRepository.associateUserWithProject(username, project.getProjectCode());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        requestExecutor.shutdownNow();
+    }
+
+    private <T> ResponseEntity<T> exchange(String node, HttpMethod method, String pathAndQuery, HttpHeaders headers,
+                                           Object body, ParameterizedTypeReference<T> responseType) {
+        try {
+            return restTemplate.exchange(URI.create(node + pathAndQuery), method, new HttpEntity<>(body, headers), responseType);
+        } catch (RestClientException e) {
+            LOGGER.warn("Request to cluster node {} failed", node, e);
+            throw new ClusterNodeUnavailableException();
+        }
+    }
+
+    private HttpHeaders forwardedHeaders(String authorization) {
+        HttpHeaders headers = new HttpHeaders();
+        if (authorization != null) {
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        setForwardedBy(headers);
+        return headers;
+    }
+
+    private void setForwardedBy(HttpHeaders headers) {
+        headers.set(FORWARDED_HEADER, self);
+        if (nodeCredential != null) {
+            headers.set(NODE_CREDENTIAL_HEADER, nodeCredential);
+        }
+    }
+
+    /**
+     * Whether the request was forwarded by another node, rather than only claiming to be.
+     */
+    private boolean isForwarded(HttpServletRequest request) {
+        String credential = request.getHeader(NODE_CREDENTIAL_HEADER);
+        return nodeCredential != null && request.getHeader(FORWARDED_HEADER) != null && credential != null
+                && MessageDigest.isEqual(credential.getBytes(StandardCharsets.UTF_8), nodeCredential.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The credential nodes show each other on forwarded requests, which only a holder of the
+     * cluster user's password can work out.
+     */
+    static String nodeCredential(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(CREDENTIAL_ALGORITHM);
+            mac.init(new SecretKeySpec(password.getBytes(StandardCharsets.UTF_8), CREDENTIAL_ALGORITHM));
+            return Base64.getEncoder().encodeToString(mac.doFinal(username.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(CREDENTIAL_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static <T> T successful(ResponseEntity<T> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            LOGGER.warn("Cluster node answered {}", response.getStatusCode());
+            throw new ClusterNodeUnavailableException();
+        }
+        return response.getBody();
+    }
+
+    private static <T> List<T> joinAll(List<CompletableFuture<T>> futures) {
+        List<T> values = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                values.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return values;
+    }
+
+    private static String pathAndQueryOf(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query == null ? request.getRequestURI() : request.getRequestURI() + "?" + query;
+    }
+
+    private static List<JobStatusUpdate> shareOf(List<JobStatusUpdate> jobStatusUpdates, List<Integer> indexes) {
+        List<JobStatusUpdate> share = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            share.add(jobStatusUpdates.get(index));
+        }
+        return share;
+    }
+
+    private static void place(JobStatusUpdateResult[] results, List<Integer> indexes, List<JobStatusUpdateResult> share) {
+        for (int index = 0; index < indexes.size(); index++) {
+            results[indexes.get(index)] = share.get(index);
+        }
+    }
+
+    private static <T> List<T> copyOf(List<T> list) {
+        return list == null ? null : new ArrayList<>(list);
+    }
+
+    /**
+     * Leaves every status to the caller, so an owner's error reaches the client as it is.
+     */
+    private static class PassThroughErrorHandler implements ResponseErrorHandler {
+
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response) {
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package gs.psm.projectstatusmonitor.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Assigns keys to nodes on a consistent-hash ring. Each node is placed on the ring at a
+ * number of virtual points, and a key belongs to the node owning the first point at or
+ * after the key's hash. Adding a node only takes over the keys that now fall just before
+ * its points; every other key keeps its owner.
+ *
+ * The ring is immutable, so lookups need no locking; {@link #withNode} builds a new one.
+ * Points are kept in sorted arrays and found by binary search.
+ */
+public final class ConsistentHashRing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<String> nodes;
+
+    private final int virtualNodes;
+
+    private final long[] points;
+
+    private final String[] owners;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Every node needs at least one virtual node");
+        }
+
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(nodes)));
+        this.virtualNodes = virtualNodes;
+
+        List<Point> ring = new ArrayList<>(this.nodes.size() * virtualNodes);
+        for (String node : this.nodes) {
+            for (int virtualNode = 0; virtualNode < virtualNodes; virtualNode++) {
+                ring.add(new Point(hash(node + "#" + virtualNode), node));
+            }
+        }
+        ring.sort(Comparator.comparingLong((Point point) -> point.hash).thenComparing(point -> point.node));
+
+        points = new long[ring.size()];
+        owners = new String[ring.size()];
+        for (int index = 0; index < ring.size(); index++) {
+            points[index] = ring.get(index).hash;
+            owners[index] = ring.get(index).node;
+        }
+    }
+
+    public String ownerOf(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public boolean contains(String node) {
+        return nodes.contains(node);
+    }
+
+    public ConsistentHashRing withNode(String node) {
+        List<String> joined = new ArrayList<>(nodes);
+        joined.add(node);
+        return new ConsistentHashRing(joined, virtualNodes);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mix so that keys
+     * differing only in their last characters still spread across the ring.
+     */
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Point {
+
+        private final long hash;
+
+        private final String node;
+
+        private Point(long hash, String node) {
+            this.hash = hash;
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package gs.psm.projectstatusmonitor.cluster;
+
+import gs.psm.projectstatusmonitor.exceptions.ClusterNodeUnavailableException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Decorator that lets the {@link ClusterRouter} fence off projects while it hands them
+ * over to another node. Writes to a fenced project fail with a
+ * {@link ClusterNodeUnavailableException}, so the caller can try again once the project
+ * has arrived at its new owner; reads carry on as normal.
+ *
+ * Every write holds a shared lock while it runs, and fencing takes that lock exclusively,
+ * so once {@link #fence} returns no write to the fenced projects is under way and a copy
+ * read afterwards holds every write made to them here.
+ */
+public class FencingProjectRepository implements ProjectRepository, Closeable {
+
+    private final ProjectRepository delegate;
+
+    private final ReadWriteLock writes = new ReentrantReadWriteLock();
+
+    private final Set<String> fencedProjectCodes = ConcurrentHashMap.newKeySet();
+
+    public FencingProjectRepository(ProjectRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Fences off the projects, waiting for writes to them that are under way.
+     *
+     * @return the projects this call fenced; ones another caller has already fenced are left out
+     */
+    public List<String> fence(Collection<String> projectCodes) {
+        List<String> fenced = new ArrayList<>();
+        writes.writeLock().lock();
+        try {
+            for (String projectCode : projectCodes) {
+                if (fencedProjectCodes.add(projectCode)) {
+                    fenced.add(projectCode);
+                }
+            }
+        } finally {
+            writes.writeLock().unlock();
+        }
+        return fenced;
+    }
+
+    public void unfence(Collection<String> projectCodes) {
+        fencedProjectCodes.removeAll(projectCodes);
+    }
+
+    /**
+     * Removes a project that has been handed over, which only the fencing caller may do.
+     */
+    public void removeFenced(String projectCode) {
+        try {
+            delegate.removeProject(projectCode);
+        } catch (ProjectNotFoundException e) {
+            // removed before it was fenced
+        }
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return unfenced(addProject.getProjectCode(), () -> delegate.addProject(addProject));
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return delegate.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return delegate.getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return delegate.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        return unfenced(projectCode, () -> delegate.removeProject(projectCode));
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return unfenced(updateProject.getProjectCode(), () -> delegate.updateProject(updateProject));
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return unfenced(updateProject.getProjectCode(), () -> delegate.updateProject(updateProject, expectedVersion));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return unfenced(projectCode, () -> delegate.updateProjectJobs(projectCode, projectJobStatusList));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return unfenced(projectCode, () -> delegate.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion));
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return unfenced(projectCode, () -> delegate.updateJob(projectCode, jobCode, projectJobStatus));
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        writes.readLock().lock();
+        try {
+            for (JobStatusUpdate update : jobStatusUpdates) {
+                checkUnfenced(update.getProjectCode());
+            }
+            return delegate.updateJobs(jobStatusUpdates);
+        } finally {
+            writes.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        unfenced(projectCode, () -> {
+            delegate.associateUserWithProject(userName, projectCode);
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        return delegate.getUserAssociatedProjectCodes(username);
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return delegate.isUserAssociatedWithProject(username, projectCode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    private <T> T unfenced(String projectCode, Supplier<T> write) {
+        writes.readLock().lock();
+        try {
+            checkUnfenced(projectCode);
+            return write.get();
+        } finally {
+            writes.readLock().unlock();
+        }
+    }
+
+    private void checkUnfenced(String projectCode) {
+        if (fencedProjectCodes.contains(projectCode)) {
+            throw new ClusterNodeUnavailableException();
+        }
+    }
+}
@@ -1,39 +1,454 @@
 package gs.psm.projectstatusmonitor.config;
 
+import gs.psm.projectstatusmonitor.cluster.ClusterRouter;
+import gs.psm.projectstatusmonitor.cluster.ConsistentHashRing;
+import gs.psm.projectstatusmonitor.cluster.FencingProjectRepository;
+import gs.psm.projectstatusmonitor.ports.EstateStatusSummaryRepository;
+import gs.psm.projectstatusmonitor.ports.JobStatusHistoryRepository;
+import gs.psm.projectstatusmonitor.ports.JobStatusIndex;
+import gs.psm.projectstatusmonitor.ports.MemoryUsageRepository;
 import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectStatusSummaryRepository;
 import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.budget.MemoryBudgetProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.budget.ProjectMemoryBudget;
+import gs.psm.projectstatusmonitor.repositories.caching.CachingProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.columnar.ColumnarProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.durable.DurableProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.durable.SnapshotStore;
+import gs.psm.projectstatusmonitor.repositories.durable.WriteAheadLog;
+import gs.psm.projectstatusmonitor.repositories.expiry.ExpiringProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.jdbc.JdbcProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.mapped.MappedProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.replication.FollowerProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.replication.LeaderProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.sharded.ShardedProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.InMemoryEstateStatusSummaryRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.InMemoryJobStatusIndex;
+import gs.psm.projectstatusmonitor.repositories.tracking.InMemoryProjectStatusSummaryRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.JobStatusListener;
+import gs.psm.projectstatusmonitor.repositories.tracking.JobStatusTrackingProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.RingBufferJobStatusHistoryRepository;
+import gs.psm.projectstatusmonitor.repositories.writebehind.WriteBehindProjectRepository;
 import gs.psm.projectstatusmonitor.usecases.ProjectJobStatusHelper;
 import gs.psm.projectstatusmonitor.usecases.ProjectUseCase;
 import gs.psm.projectstatusmonitor.usecases.StatusUseCase;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
 @Configuration
 public class ProjectStatusMonitorApplicationConfig {
 
+    @Value("${repository.backend:in-memory}")
+    private String repositoryBackend;
+
+    @Value("${repository.wal.directory:data/wal}")
+    private String walDirectory;
+
+    @Value("${repository.wal.segment-bytes:67108864}")
+    private long walSegmentBytes;
+
+    @Value("${repository.snapshot.interval-seconds:300}")
+    private long snapshotIntervalSeconds;
+
+    @Value("${repository.mapped.directory:data/mapped}")
+    private String mappedDirectory;
+
+    @Value("${repository.jdbc.url:jdbc:h2:file:./data/h2/projects}")
+    private String jdbcUrl;
+
+    @Value("${repository.sharding.enabled:false}")
+    private boolean shardingEnabled;
+
+    @Value("${repository.sharding.shards:0}")
+    private int shardCount;
+
+    @Value("${repository.cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${repository.cache.max-projects:10000}")
+    private long cacheMaxProjects;
+
+    @Value("${repository.cache.max-users:10000}")
+    private long cacheMaxUsers;
+
+    @Value("${repository.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+
+    @Value("${repository.write-behind.max-pending:10000}")
+    private int writeBehindMaxPending;
+
+    @Value("${repository.write-behind.flush-interval-millis:1000}")
+    private long writeBehindFlushIntervalMillis;
+
+    @Value("${repository.history.capacity:16}")
+    private int historyCapacity;
+
+    @Value("${repository.memory.budget-bytes:0}")
+    private long memoryBudgetBytes;
+
+    @Value("${repository.expiry.enabled:false}")
+    private boolean expiryEnabled;
+
+    @Value("${repository.expiry.time-to-live-seconds:604800}")
+    private long expiryTimeToLiveSeconds;
+
+    @Value("${repository.expiry.sweep-interval-seconds:60}")
+    private long expirySweepIntervalSeconds;
+
+    @Value("${repository.expiry.state-file:data/expiry/last-writes}")
+    private String expiryStateFile;
+
+    @Value("${repository.replication.role:none}")
+    private String replicationRole;
+
+    @Value("${repository.replication.bind-address:127.0.0.1}")
+    private String replicationBindAddress;
+
+    @Value("${repository.replication.port:7171}")
+    private int replicationPort;
+
+    @Value("${repository.replication.secret:}")
+    private String replicationSecret;
+
+    @Value("${repository.replication.leader-host:localhost}")
+    private String replicationLeaderHost;
+
+    @Value("${repository.replication.leader-port:7171}")
+    private int replicationLeaderPort;
+
+    @Value("${repository.replication.log-capacity:100000}")
+    private int replicationLogCapacity;
+
+    @Value("${repository.replication.log-capacity-bytes:67108864}")
+    private long replicationLogCapacityBytes;
+
+    @Value("${cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    @Value("${cluster.self:}")
+    private String clusterSelf;
+
+    @Value("${cluster.nodes:}")
+    private String clusterNodes;
+
+    @Value("${cluster.virtual-nodes:128}")
+    private int clusterVirtualNodes;
+
+    @Value("${cluster.username:}")
+    private String clusterUsername;
+
+    @Value("${cluster.password:}")
+    private String clusterPassword;
+
+    private final List<MeterBinder> repositoryMetrics = new ArrayList<>();
+
+    /**
+     * Every user's associated project codes, when the backend can list them.
+     */
+    private Supplier<Map<String, ? extends Collection<String>>> userAssociations;
+
+    /**
+     * The top of the repository stack in a cluster, where projects are fenced off while
+     * they are handed over to another node.
+     */
+    private FencingProjectRepository fencingProjectRepository;
+
     @Bean
     public ProjectJobStatusHelper projectJobStatusHelper() {
         return new ProjectJobStatusHelper();
     }
 
     @Bean
-    public ProjectRepository projectRepository() {
-        return new InMemoryProjectProjectRepository();
+    public RingBufferJobStatusHistoryRepository jobStatusHistoryRepository() {
+        return new RingBufferJobStatusHistoryRepository(historyCapacity);
+    }
+
+    @Bean
+    public InMemoryJobStatusIndex jobStatusIndex() {
+        return new InMemoryJobStatusIndex();
+    }
+
+    @Bean
+    public InMemoryProjectStatusSummaryRepository projectStatusSummaryRepository() {
+        return new InMemoryProjectStatusSummaryRepository();
+    }
+
+    @Bean
+    public InMemoryEstateStatusSummaryRepository estateStatusSummaryRepository() {
+        return new InMemoryEstateStatusSummaryRepository();
+    }
+
+    /**
+     * A budget of 0 leaves the repository unbounded, but still accounted.
+     */
+    @Bean
+    public ProjectMemoryBudget memoryUsageRepository() {
+        return new ProjectMemoryBudget(memoryBudgetBytes > 0 ? memoryBudgetBytes : Long.MAX_VALUE, historyCapacity);
+    }
+
+    @Bean
+    public ProjectRepository projectRepository(
+            RingBufferJobStatusHistoryRepository jobStatusHistoryRepository,
+            InMemoryJobStatusIndex jobStatusIndex,
+            InMemoryProjectStatusSummaryRepository projectStatusSummaryRepository,
+            InMemoryEstateStatusSummaryRepository estateStatusSummaryRepository,
+            ProjectMemoryBudget memoryBudget
+    ) throws IOException, SQLException {
+        ProjectRepository backend = backendProjectRepository();
+        ProjectRepository repository = backend;
+        if (backend instanceof InMemoryProjectProjectRepository) {
+            userAssociations = ((InMemoryProjectProjectRepository) backend)::getUserAssociations;
+        }
+
+        if (cacheEnabled) {
+            CachingProjectRepository caching = new CachingProjectRepository(repository, cacheMaxProjects, cacheMaxUsers);
+            repositoryMetrics.add(registry -> {
+                CaffeineCacheMetrics.monitor(registry, caching.projectCache(), "repository.projects");
+                CaffeineCacheMetrics.monitor(registry, caching.userProjectCodeCache(), "repository.user.projects");
+            });
+            repository = caching;
+        }
+
+        if (writeBehindEnabled) {
+            WriteBehindProjectRepository writeBehind =
+                    new WriteBehindProjectRepository(repository, writeBehindMaxPending, writeBehindFlushIntervalMillis);
+            repositoryMetrics.add(registry -> {
+                Gauge.builder("repository.write.behind.queue.depth", writeBehind, WriteBehindProjectRepository::pendingMutationCount)
+                        .description("Mutations and dirty jobs waiting to be written to the backing repository")
+                        .register(registry);
+                FunctionTimer.builder("repository.write.behind.flush", writeBehind,
+                        WriteBehindProjectRepository::flushCount, WriteBehindProjectRepository::flushTimeNanos, TimeUnit.NANOSECONDS)
+                        .description("Time spent writing queued mutations to the backing repository")
+                        .register(registry);
+            });
+            repository = writeBehind;
+        }
+
+        List<JobStatusListener> jobStatusListeners = Arrays.asList(
+                jobStatusHistoryRepository,
+                jobStatusIndex,
+                projectStatusSummaryRepository,
+                estateStatusSummaryRepository
+        );
+        JobStatusTrackingProjectRepository tracking =
+                new JobStatusTrackingProjectRepository(repository, jobStatusListeners, Clock.systemUTC());
+        repositoryMetrics.add(registry ->
+                FunctionCounter.builder("repository.updates.unchanged", tracking, JobStatusTrackingProjectRepository::unchangedUpdateCount)
+                        .description("Job updates dropped because they would not have changed anything")
+                        .register(registry));
+
+        repository = tracking;
+
+        if (!replicationRole.equals("none") && replicationSecret.isEmpty()) {
+            throw new IllegalArgumentException("repository.replication.secret must be set for repository.replication.role=" + replicationRole);
+        }
+
+        LeaderProjectRepository leader = null;
+        switch (replicationRole) {
+            case "none":
+                break;
+            case "leader":
+                if (!(backend instanceof InMemoryProjectProjectRepository) || writeBehindEnabled) {
+                    throw new IllegalArgumentException(
+                            "repository.replication.role=leader is only supported for the unsharded in-memory backend without write-behind");
+                }
+                LeaderProjectRepository replicationLeader =
+                        new LeaderProjectRepository(repository, userAssociations, replicationLogCapacity,
+                                replicationLogCapacityBytes, replicationBindAddress, replicationPort, replicationSecret);
+                repositoryMetrics.add(registry -> {
+                    Gauge.builder("repository.replication.sequence", replicationLeader, LeaderProjectRepository::lastSequence)
+                            .description("Mutations appended to the replication log")
+                            .register(registry);
+                    Gauge.builder("repository.replication.log.bytes", replicationLeader, LeaderProjectRepository::logBytes)
+                            .description("Encoded size of the mutations the replication log holds")
+                            .register(registry);
+                    FunctionCounter.builder("repository.replication.snapshots", replicationLeader, LeaderProjectRepository::snapshotCount)
+                            .description("Snapshots sent to followers that could not be caught up from the replication log")
+                            .register(registry);
+                });
+                leader = replicationLeader;
+                repository = replicationLeader;
+                break;
+            case "follower":
+                FollowerProjectRepository follower = new FollowerProjectRepository(
+                        new MemoryBudgetProjectRepository(repository, memoryBudget, false), replicationLeaderHost, replicationLeaderPort,
+                        replicationSecret);
+                repositoryMetrics.add(registry ->
+                        Gauge.builder("repository.replication.lag", follower, replica -> replica.leaderSequence() - replica.appliedSequence())
+                                .description("Mutations logged by the leader that this follower has not applied yet")
+                                .register(registry));
+                repository = follower;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown repository.replication.role: " + replicationRole);
+        }
+
+        // a follower accounts what it replicates beneath itself and leaves admitting writes to its leader
+        if (!replicationRole.equals("follower")) {
+            repository = new MemoryBudgetProjectRepository(repository, memoryBudget);
+        }
+        repositoryMetrics.add(registry -> {
+            Gauge.builder("repository.memory.estimated", memoryBudget, ProjectMemoryBudget::getEstimatedBytes)
+                    .description("Estimated heap held by the projects and their jobs")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("repository.memory.budget", memoryBudget, ProjectMemoryBudget::getBudgetBytes)
+                    .description("Estimated heap the projects may hold before writes that grow them are refused")
+                    .baseUnit("bytes")
+                    .register(registry);
+        });
+
+        if (expiryEnabled && !replicationRole.equals("follower")) {
+            ExpiringProjectRepository expiring = new ExpiringProjectRepository(repository,
+                    TimeUnit.SECONDS.toMillis(expiryTimeToLiveSeconds),
+                    TimeUnit.SECONDS.toMillis(expirySweepIntervalSeconds),
+                    Clock.systemUTC(),
+                    repositoryBackend.equals("in-memory") ? null : Paths.get(expiryStateFile));
+            repositoryMetrics.add(registry -> {
+                FunctionCounter.builder("repository.projects.evicted", expiring, ExpiringProjectRepository::evictedProjectCount)
+                        .description("Projects removed because nothing was written to them within their time-to-live")
+                        .register(registry);
+                Gauge.builder("repository.projects.live", expiring, ExpiringProjectRepository::liveProjectCount)
+                        .description("Projects currently held, each waiting on its time-to-live")
+                        .register(registry);
+                Gauge.builder("repository.projects.live.bytes", memoryBudget, ProjectMemoryBudget::getEstimatedBytes)
+                        .description("Estimated heap held by the projects waiting on their time-to-live")
+                        .baseUnit("bytes")
+                        .register(registry);
+            });
+            repository = expiring;
+        }
+
+        if (clusterEnabled) {
+            fencingProjectRepository = new FencingProjectRepository(repository);
+            repository = fencingProjectRepository;
+        }
+
+        if (leader != null) {
+            leader.forwardWritesTo(repository);
+        }
+        return repository;
+    }
+
+    /**
+     * Outside a cluster, this node is the only one on its ring and owns every project.
+     */
+    @Bean
+    public ClusterRouter clusterRouter(ProjectRepository projectRepository) {
+        if (!clusterEnabled) {
+            return new ClusterRouter("local", new ConsistentHashRing(Collections.singletonList("local"), 1),
+                    new FencingProjectRepository(projectRepository), Collections::emptyMap, "", "");
+        }
+
+        if (userAssociations == null) {
+            throw new IllegalArgumentException("cluster.enabled is only supported for the unsharded in-memory backend");
+        }
+        if (clusterSelf.isEmpty() || clusterUsername.isEmpty()) {
+            throw new IllegalArgumentException("cluster.enabled requires cluster.self and cluster.username");
+        }
+
+        List<String> nodes = new ArrayList<>();
+        for (String node : clusterNodes.split(",")) {
+            if (!node.trim().isEmpty()) {
+                nodes.add(node.trim());
+            }
+        }
+        nodes.add(clusterSelf);
+        return new ClusterRouter(clusterSelf, new ConsistentHashRing(nodes, clusterVirtualNodes),
+                fencingProjectRepository, userAssociations, clusterUsername, clusterPassword);
+    }
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> clusterAnnouncement(ClusterRouter clusterRouter) {
+        return event -> clusterRouter.announce();
+    }
+
+    /**
+     * Binds the metrics of whichever repository decorators {@link #projectRepository} created.
+     */
+    @Bean
+    public MeterBinder projectRepositoryMetrics(ProjectRepository projectRepository) {
+        return registry -> repositoryMetrics.forEach(metrics -> metrics.bindTo(registry));
+    }
+
+    private ProjectRepository backendProjectRepository() throws IOException, SQLException {
+        if (shardingEnabled && !repositoryBackend.equals("in-memory") && !repositoryBackend.equals("columnar")) {
+            throw new IllegalArgumentException("repository.sharding is only supported for the in-memory and columnar backends");
+        }
+
+        switch (repositoryBackend) {
+            case "in-memory":
+                return shardedIfEnabled(shard -> new InMemoryProjectProjectRepository());
+            case "columnar":
+                return shardedIfEnabled(shard -> new ColumnarProjectRepository());
+            case "wal":
+                return new DurableProjectRepository(
+                        new InMemoryProjectProjectRepository(),
+                        new WriteAheadLog(Paths.get(walDirectory), walSegmentBytes),
+                        new SnapshotStore(Paths.get(walDirectory)),
+                        TimeUnit.SECONDS.toMillis(snapshotIntervalSeconds)
+                );
+            case "mapped":
+                return new MappedProjectRepository(Paths.get(mappedDirectory));
+            case "jdbc":
+                return new JdbcProjectRepository(jdbcUrl);
+            default:
+                throw new IllegalArgumentException("Unknown repository.backend: " + repositoryBackend);
+        }
+    }
+
+    private ProjectRepository shardedIfEnabled(IntFunction<ProjectRepository> shardFactory) {
+        if (!shardingEnabled) {
+            return shardFactory.apply(0);
+        }
+        return new ShardedProjectRepository(
+                shardCount > 0 ? shardCount : ShardedProjectRepository.defaultShardCount(),
+                shardFactory
+        );
     }
 
     @Bean
     public ProjectUseCase projectUseCase(
             ProjectRepository projectRepository,
-            ProjectJobStatusHelper projectJobStatusHelper
+            ProjectJobStatusHelper projectJobStatusHelper,
+            MemoryUsageRepository memoryUsageRepository
             ) {
-        return new ProjectUseCase(projectRepository, projectJobStatusHelper);
+        return new ProjectUseCase(projectRepository, projectJobStatusHelper, memoryUsageRepository);
     }
 
     @Bean
     public StatusUseCase statusUseCase(
             ProjectRepository projectRepository,
-            ProjectJobStatusHelper projectJobStatusHelper
+            ProjectJobStatusHelper projectJobStatusHelper,
+            JobStatusHistoryRepository jobStatusHistoryRepository,
+            JobStatusIndex jobStatusIndex,
+            ProjectStatusSummaryRepository projectStatusSummaryRepository,
+            EstateStatusSummaryRepository estateStatusSummaryRepository
     ) {
-        return new StatusUseCase(projectRepository,projectJobStatusHelper);
+        return new StatusUseCase(projectRepository, projectJobStatusHelper, jobStatusHistoryRepository,
+                jobStatusIndex, projectStatusSummaryRepository, estateStatusSummaryRepository);
     }
 }
@@ -0,0 +1,47 @@
+package gs.psm.projectstatusmonitor.controllers;
+
+import gs.psm.projectstatusmonitor.cluster.ClusterRouter;
+import gs.psm.projectstatusmonitor.exceptions.UserActionNotAllowedException;
+import gs.psm.projectstatusmonitor.models.ProjectTransfer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Base64Utils;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+public class ClusterController {
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @GetMapping(value = "/cluster/nodes", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity getNodes() {
+        return new ResponseEntity(clusterRouter.getNodes(), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/cluster/join")
+    public ResponseEntity joinNode(@RequestParam(value = "node") String node,
+                                   @RequestHeader(value="Authorization") String authHeader) {
+        checkNode(authHeader);
+        return new ResponseEntity(clusterRouter.join(node), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/cluster/transfer", consumes = APPLICATION_JSON_VALUE)
+    public ResponseEntity transferProject(@Validated @RequestBody ProjectTransfer request,
+                                          @RequestHeader(value="Authorization") String authHeader) {
+        checkNode(authHeader);
+        clusterRouter.receive(request);
+        return new ResponseEntity(HttpStatus.CREATED);
+    }
+
+    private void checkNode(String authHeader) {
+        String username = new String(Base64Utils.decode(authHeader.split(" ")[1].getBytes())).split(":")[0];
+        if (!clusterRouter.isNode(username)) {
+            throw new UserActionNotAllowedException();
+        }
+    }
+}
@@ -29,7 +29,31 @@ public class ControllerAdvice extends ResponseEntityExceptionHandler {
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     void handleUserActionNotAllowedException() {}
 
+    @ExceptionHandler(value = InvalidPageRequestException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    void handleInvalidPageRequestException() {}
+
+    @ExceptionHandler(value = BulkUpdateTooLargeException.class)
+    @ResponseStatus(value = HttpStatus.PAYLOAD_TOO_LARGE)
+    void handleBulkUpdateTooLargeException() {}
+
+    @ExceptionHandler(value = MemoryBudgetExceededException.class)
+    @ResponseStatus(value = HttpStatus.INSUFFICIENT_STORAGE)
+    void handleMemoryBudgetExceededException() {}
+
+    @ExceptionHandler(value = ProjectVersionMismatchException.class)
+    @ResponseStatus(value = HttpStatus.PRECONDITION_FAILED)
+    void handleProjectVersionMismatchException() {}
+
     @ExceptionHandler(value = DeleteProjectException.class)
     @ResponseStatus(value = HttpStatus.INTERNAL_SERVER_ERROR)
     void handleDeleteProjectException() {}
+
+    @ExceptionHandler(value = ProjectPersistenceException.class)
+    @ResponseStatus(value = HttpStatus.INTERNAL_SERVER_ERROR)
+    void handleProjectPersistenceException() {}
+
+    @ExceptionHandler(value = ClusterNodeUnavailableException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    void handleClusterNodeUnavailableException() {}
 }
@@ -0,0 +1,42 @@
+package gs.psm.projectstatusmonitor.controllers;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.Project;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Maps project versions to and from entity tags. A project's tag is its version in
+ * quotes; If-Match accepts a single tag, weak or strong, or "*" for any version.
+ */
+final class EntityTags {
+
+    static final long ANY_VERSION = -1;
+
+    private EntityTags() {
+    }
+
+    static HttpHeaders headersFor(Project project) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"" + project.getVersion() + "\"");
+        return headers;
+    }
+
+    static long expectedVersion(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return ANY_VERSION;
+        }
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new ProjectVersionMismatchException();
+        }
+
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new ProjectVersionMismatchException();
+        }
+    }
+}
@@ -1,50 +1,117 @@
 package gs.psm.projectstatusmonitor.controllers;
 
+import gs.psm.projectstatusmonitor.cluster.ClusterRouter;
 import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectPage;
 import gs.psm.projectstatusmonitor.usecases.ProjectUseCase;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.Base64Utils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
 public class ProjectController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     @Autowired
     private ProjectUseCase projectUseCase;
 
+    @Autowired
+    private ClusterRouter clusterRouter;
+
     @PostMapping(value = "/project/add", consumes = APPLICATION_JSON_VALUE)
     public ResponseEntity addProject(@Validated @RequestBody Project request,
-                                     @RequestHeader(value="Authorization") String authHeader) {
+                                     @RequestHeader(value="Authorization") String authHeader,
+                                     HttpServletRequest servletRequest) {
+        if (!clusterRouter.owns(request.getProjectCode(), servletRequest)) {
+            return clusterRouter.forward(request.getProjectCode(), servletRequest, request);
+        }
+
         projectUseCase.addProject(request, decodeUsername(authHeader));
         return new ResponseEntity(HttpStatus.CREATED);
     }
 
     @PostMapping(value = "/project/update", consumes = APPLICATION_JSON_VALUE)
     public ResponseEntity updateProject(@Validated @RequestBody Project request,
-                                        @RequestHeader(value="Authorization") String authHeader) {
-        projectUseCase.updateProject(request, decodeUsername(authHeader));
-        return new ResponseEntity(HttpStatus.OK);
+                                        @RequestHeader(value="Authorization") String authHeader,
+                                        @RequestHeader(value="If-Match", required = false) String ifMatch,
+                                        HttpServletRequest servletRequest) {
+        if (!clusterRouter.owns(request.getProjectCode(), servletRequest)) {
+            return clusterRouter.forward(request.getProjectCode(), servletRequest, request);
+        }
+
+        if (ifMatch == null) {
+            projectUseCase.updateProject(request, decodeUsername(authHeader));
+            return new ResponseEntity(HttpStatus.OK);
+        }
+
+        Project updatedProject = projectUseCase.updateProject(request, decodeUsername(authHeader), EntityTags.expectedVersion(ifMatch));
+        return new ResponseEntity(EntityTags.headersFor(updatedProject), HttpStatus.OK);
     }
 
     @GetMapping(value = "/project/list", produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity listProjects() {
-        return new ResponseEntity(projectUseCase.listProjects(), HttpStatus.OK);
+    public ResponseEntity listProjects(@RequestParam(value = "limit", required = false) Integer limit,
+                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                       HttpServletRequest servletRequest) {
+        if (limit == null && cursor == null) {
+            List<Project> projects = clusterRouter.owned(projectUseCase.listProjects());
+            if (clusterRouter.gathers(servletRequest)) {
+                List<List<Project>> projectLists = new ArrayList<>(clusterRouter.gather(servletRequest,
+                        new ParameterizedTypeReference<List<Project>>() {
+                        }));
+                projectLists.add(projects);
+                projects = projectUseCase.mergeProjects(projectLists);
+            }
+            return new ResponseEntity(projects, HttpStatus.OK);
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        ProjectPage page = projectUseCase.listProjects(cursor, pageSize);
+        page = new ProjectPage(clusterRouter.owned(page.getProjects()), page.getNextCursor());
+        if (clusterRouter.gathers(servletRequest)) {
+            List<ProjectPage> pages = new ArrayList<>(clusterRouter.gather(servletRequest, new ParameterizedTypeReference<ProjectPage>() {
+            }));
+            pages.add(page);
+            page = projectUseCase.mergeProjectPages(pages, pageSize);
+        }
+        return new ResponseEntity(page, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/estate/usage", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity getMemoryUsage() {
+        return new ResponseEntity(projectUseCase.getMemoryUsage(), HttpStatus.OK);
     }
 
     @GetMapping(value = "/project/{projectCode}", produces = APPLICATION_JSON_VALUE)
     public ResponseEntity getProject(@PathVariable String projectCode,
-                                     @RequestHeader(value="Authorization") String authHeader) {
-        return new ResponseEntity(projectUseCase.getProject(projectCode, decodeUsername(authHeader)), HttpStatus.OK);
+                                     @RequestHeader(value="Authorization") String authHeader,
+                                     HttpServletRequest servletRequest) {
+        if (!clusterRouter.owns(projectCode, servletRequest)) {
+            return clusterRouter.forward(projectCode, servletRequest, null);
+        }
+
+        Project project = projectUseCase.getProject(projectCode, decodeUsername(authHeader));
+        return new ResponseEntity(project, EntityTags.headersFor(project), HttpStatus.OK);
     }
 
     @DeleteMapping(value = "/project/{projectCode}")
     public ResponseEntity removeProject(@PathVariable String projectCode,
-                                        @RequestHeader(value="Authorization") String authHeader) {
+                                        @RequestHeader(value="Authorization") String authHeader,
+                                        HttpServletRequest servletRequest) {
+        if (!clusterRouter.owns(projectCode, servletRequest)) {
+            return clusterRouter.forward(projectCode, servletRequest, null);
+        }
+
         projectUseCase.removeProject(projectCode, decodeUsername(authHeader));
         return new ResponseEntity(HttpStatus.NO_CONTENT);
     }
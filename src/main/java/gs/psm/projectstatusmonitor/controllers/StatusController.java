@@ -1,14 +1,29 @@
 package gs.psm.projectstatusmonitor.controllers;
 
+import gs.psm.projectstatusmonitor.cluster.ClusterRouter;
+import gs.psm.projectstatusmonitor.exceptions.BulkUpdateTooLargeException;
+import gs.psm.projectstatusmonitor.models.EstateStatusSummary;
+import gs.psm.projectstatusmonitor.models.JobReference;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateList;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatusList;
 import gs.psm.projectstatusmonitor.usecases.StatusUseCase;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
@@ -17,26 +32,109 @@ public class StatusController {
     @Autowired
     private StatusUseCase statusUseCase;
 
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @GetMapping(value = "/estate/summary")
+    public ResponseEntity getEstateStatusSummary(HttpServletRequest servletRequest) {
+        EstateStatusSummary summary = statusUseCase.getEstateStatusSummary();
+        if (clusterRouter.gathers(servletRequest)) {
+            List<EstateStatusSummary> summaries = new ArrayList<>(clusterRouter.gather(servletRequest,
+                    new ParameterizedTypeReference<EstateStatusSummary>() {
+                    }));
+            summaries.add(summary);
+            summary = statusUseCase.mergeEstateStatusSummaries(summaries);
+        }
+        return new ResponseEntity(summary, HttpStatus.OK);
+    }
+
     @GetMapping(value = "/status/{projectCode}")
-    public ResponseEntity getProjectJobStatus(@PathVariable String projectCode) {
-        return new ResponseEntity(statusUseCase.getJobStatus(projectCode), HttpStatus.OK);
+    public ResponseEntity getProjectJobStatus(@PathVariable String projectCode, HttpServletRequest servletRequest) {
+        if (!clusterRouter.owns(projectCode, servletRequest)) {
+            return clusterRouter.forward(projectCode, servletRequest, null);
+        }
+
+        Project project = statusUseCase.getProjectStatus(projectCode);
+        return new ResponseEntity(project.getJobStatusList(), EntityTags.headersFor(project), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/estate/byStatus/{jobStatuses}")
+    public ResponseEntity getJobsByStatus(@PathVariable List<JobStatus> jobStatuses, HttpServletRequest servletRequest) {
+        List<JobReference> jobs = statusUseCase.getJobsByStatus(jobStatuses);
+        if (clusterRouter.gathers(servletRequest)) {
+            jobs = new ArrayList<>(jobs);
+            for (List<JobReference> nodeJobs : clusterRouter.gather(servletRequest, new ParameterizedTypeReference<List<JobReference>>() {
+            })) {
+                jobs.addAll(nodeJobs);
+            }
+        }
+        return new ResponseEntity(jobs, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/status/{projectCode}/summary")
+    public ResponseEntity getProjectStatusSummary(@PathVariable String projectCode, HttpServletRequest servletRequest) {
+        if (!clusterRouter.owns(projectCode, servletRequest)) {
+            return clusterRouter.forward(projectCode, servletRequest, null);
+        }
+
+        return new ResponseEntity(statusUseCase.getProjectStatusSummary(projectCode), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/status/{projectCode}/{jobCode}/history")
+    public ResponseEntity getJobStatusHistory(@PathVariable String projectCode, @PathVariable String jobCode,
+                                              HttpServletRequest servletRequest) {
+        if (!clusterRouter.owns(projectCode, servletRequest)) {
+            return clusterRouter.forward(projectCode, servletRequest, null);
+        }
+
+        return new ResponseEntity(statusUseCase.getJobStatusHistory(projectCode, jobCode), HttpStatus.OK);
     }
 
     @PostMapping(value = "/status/updateList/{projectCode}", consumes = APPLICATION_JSON_VALUE)
     public ResponseEntity updateProjectJobStatusList(
             @PathVariable String projectCode,
-            @Validated @RequestBody ProjectJobStatusList projectJobStatusList
+            @Validated @RequestBody ProjectJobStatusList projectJobStatusList,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            HttpServletRequest servletRequest
     ) {
-        statusUseCase.updateProjectJobs(projectCode, projectJobStatusList.getProjectJobStatusList());
-        return new ResponseEntity(HttpStatus.OK);
+        if (!clusterRouter.owns(projectCode, servletRequest)) {
+            return clusterRouter.forward(projectCode, servletRequest, projectJobStatusList);
+        }
+
+        if (ifMatch == null) {
+            statusUseCase.updateProjectJobs(projectCode, projectJobStatusList.getProjectJobStatusList());
+            return new ResponseEntity(HttpStatus.OK);
+        }
+
+        Project updatedProject = statusUseCase.updateProjectJobs(projectCode,
+                projectJobStatusList.getProjectJobStatusList(), EntityTags.expectedVersion(ifMatch));
+        return new ResponseEntity(EntityTags.headersFor(updatedProject), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/status/updateJobs", consumes = APPLICATION_JSON_VALUE)
+    public ResponseEntity updateJobStatuses(@Validated @RequestBody JobStatusUpdateList jobStatusUpdateList,
+                                            HttpServletRequest servletRequest) {
+        List<JobStatusUpdate> jobStatusUpdates = jobStatusUpdateList.getJobStatusUpdateList();
+        if (clusterRouter.gathers(servletRequest)) {
+            if (jobStatusUpdates.size() > StatusUseCase.MAX_BULK_UPDATE_SIZE) {
+                throw new BulkUpdateTooLargeException();
+            }
+            return new ResponseEntity(clusterRouter.updateJobs(jobStatusUpdates, servletRequest, statusUseCase::updateJobs), HttpStatus.OK);
+        }
+        return new ResponseEntity(statusUseCase.updateJobs(jobStatusUpdates), HttpStatus.OK);
     }
 
     @PostMapping(value = "/status/updateJob/{projectCode}", consumes = APPLICATION_JSON_VALUE)
     public ResponseEntity updateProjectJobStatus(
             @PathVariable String projectCode,
-            @Validated @RequestBody ProjectJobStatus projectJobStatus
+            @Validated @RequestBody ProjectJobStatus projectJobStatus,
+            HttpServletRequest servletRequest
             ) {
-        statusUseCase.updateJob(projectCode, projectJobStatus);
-        return new ResponseEntity(HttpStatus.OK);
+        if (!clusterRouter.owns(projectCode, servletRequest)) {
+            return clusterRouter.forward(projectCode, servletRequest, projectJobStatus);
+        }
+
+        JobStatusUpdateOutcome outcome = statusUseCase.updateJob(projectCode, projectJobStatus);
+        return new ResponseEntity(new JobStatusUpdateResult(projectCode, projectJobStatus.getJobCode(), outcome), HttpStatus.OK);
     }
 }
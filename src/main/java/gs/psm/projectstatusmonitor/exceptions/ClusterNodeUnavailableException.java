@@ -0,0 +1,4 @@
+package gs.psm.projectstatusmonitor.exceptions;
+
+public class ClusterNodeUnavailableException extends RuntimeException {
+}
@@ -0,0 +1,8 @@
+package gs.psm.projectstatusmonitor.exceptions;
+
+public class ProjectPersistenceException extends RuntimeException {
+
+    public ProjectPersistenceException(Throwable cause) {
+        super(cause);
+    }
+}
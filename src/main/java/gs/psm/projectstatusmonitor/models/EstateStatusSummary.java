@@ -0,0 +1,21 @@
+package gs.psm.projectstatusmonitor.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstateStatusSummary {
+
+    private long projectCount;
+
+    private long jobCount;
+
+    private Map<JobStatus, Long> jobStatusCounts;
+}
@@ -0,0 +1,19 @@
+package gs.psm.projectstatusmonitor.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobReference {
+
+    private String projectCode;
+
+    private String jobCode;
+
+    private JobStatus jobStatus;
+}
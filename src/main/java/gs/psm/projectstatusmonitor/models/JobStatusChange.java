@@ -0,0 +1,21 @@
+package gs.psm.projectstatusmonitor.models;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatusChange {
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant changedAt;
+
+    private JobStatus jobStatus;
+}
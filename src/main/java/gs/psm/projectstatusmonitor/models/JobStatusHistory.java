@@ -0,0 +1,23 @@
+package gs.psm.projectstatusmonitor.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatusHistory {
+
+    private String projectCode;
+
+    private String jobCode;
+
+    private long changeCount;
+
+    private List<JobStatusChange> changes;
+}
@@ -0,0 +1,29 @@
+package gs.psm.projectstatusmonitor.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatusUpdate {
+
+    @NotNull
+    private String projectCode;
+
+    @NotNull
+    private String jobCode;
+
+    private String jobName;
+
+    private JobStatus jobStatus;
+
+    public ProjectJobStatus toProjectJobStatus() {
+        return new ProjectJobStatus(jobCode, jobName, jobStatus);
+    }
+}
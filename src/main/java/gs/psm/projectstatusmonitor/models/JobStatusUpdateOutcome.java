@@ -0,0 +1,8 @@
+package gs.psm.projectstatusmonitor.models;
+
+public enum JobStatusUpdateOutcome {
+    UPDATED,
+    UNCHANGED,
+    PROJECT_NOT_FOUND,
+    JOB_NOT_FOUND
+}
@@ -0,0 +1,21 @@
+package gs.psm.projectstatusmonitor.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemoryUsage {
+
+    private long budgetBytes;
+
+    private long estimatedBytes;
+
+    private List<UserMemoryUsage> userMemoryUsageList;
+}
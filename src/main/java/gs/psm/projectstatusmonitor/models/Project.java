@@ -1,8 +1,10 @@
 package gs.psm.projectstatusmonitor.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import javax.validation.Valid;
@@ -24,4 +26,12 @@ public class Project {
 
     @Valid
     private List<ProjectJobStatus> jobStatusList;
+
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private long version;
+
+    public Project(String projectCode, String projectName, List<ProjectJobStatus> jobStatusList) {
+        this(projectCode, projectName, jobStatusList, 0);
+    }
 }
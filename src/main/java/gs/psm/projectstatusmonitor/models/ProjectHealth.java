@@ -0,0 +1,5 @@
+package gs.psm.projectstatusmonitor.models;
+
+public enum ProjectHealth {
+    GREEN, YELLOW, RED
+}
@@ -0,0 +1,23 @@
+package gs.psm.projectstatusmonitor.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectStatusSummary {
+
+    private String projectCode;
+
+    private ProjectHealth health;
+
+    private int jobCount;
+
+    private Map<JobStatus, Integer> jobStatusCounts;
+}
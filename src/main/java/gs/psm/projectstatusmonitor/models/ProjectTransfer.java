@@ -0,0 +1,25 @@
+package gs.psm.projectstatusmonitor.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectTransfer {
+
+    @Valid
+    @NotNull
+    private Project project;
+
+    private long version;
+
+    private List<String> usernames;
+}
@@ -0,0 +1,19 @@
+package gs.psm.projectstatusmonitor.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserMemoryUsage {
+
+    private String username;
+
+    private int projectCount;
+
+    private long estimatedBytes;
+}
@@ -0,0 +1,8 @@
+package gs.psm.projectstatusmonitor.ports;
+
+import gs.psm.projectstatusmonitor.models.EstateStatusSummary;
+
+public interface EstateStatusSummaryRepository {
+
+    EstateStatusSummary getEstateStatusSummary();
+}
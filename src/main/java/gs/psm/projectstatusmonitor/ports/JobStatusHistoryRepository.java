@@ -0,0 +1,8 @@
+package gs.psm.projectstatusmonitor.ports;
+
+import gs.psm.projectstatusmonitor.models.JobStatusHistory;
+
+public interface JobStatusHistoryRepository {
+
+    JobStatusHistory getJobStatusHistory(String projectCode, String jobCode);
+}
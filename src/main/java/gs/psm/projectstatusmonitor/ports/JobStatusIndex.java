@@ -0,0 +1,11 @@
+package gs.psm.projectstatusmonitor.ports;
+
+import gs.psm.projectstatusmonitor.models.JobReference;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+
+import java.util.List;
+
+public interface JobStatusIndex {
+
+    List<JobReference> findJobsByStatus(JobStatus jobStatus);
+}
@@ -0,0 +1,14 @@
+package gs.psm.projectstatusmonitor.ports;
+
+import java.util.Set;
+
+public interface MemoryUsageRepository {
+
+    long getBudgetBytes();
+
+    long getEstimatedBytes();
+
+    long getEstimatedBytes(String projectCode);
+
+    Set<String> getUsernames();
+}
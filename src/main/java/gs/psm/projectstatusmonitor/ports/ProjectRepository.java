@@ -1,5 +1,7 @@
 package gs.psm.projectstatusmonitor.ports;
 
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
 import gs.psm.projectstatusmonitor.models.Project;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
 
@@ -11,17 +13,34 @@ public interface ProjectRepository {
 
     List<Project> listProjects();
 
+    List<Project> listProjects(String afterProjectCode, int limit);
+
     Project getProject(String projectCode);
 
+    /**
+     * The project's job with the given code, the first one if there are several, or null
+     * when either the project or the job does not exist. Found without reading the rest
+     * of the project's jobs.
+     */
+    ProjectJobStatus getJob(String projectCode, String jobCode);
+
     boolean removeProject(String projectCode);
 
     Project updateProject(Project updateProject);
 
+    Project updateProject(Project updateProject, long expectedVersion);
+
     Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList);
 
+    Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion);
+
     Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus);
 
+    List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates);
+
     void associateUserWithProject(String userName, String projectCode);
 
     List<String> getUserAssociatedProjectCodes(String username);
+
+    boolean isUserAssociatedWithProject(String username, String projectCode);
 }
@@ -0,0 +1,8 @@
+package gs.psm.projectstatusmonitor.ports;
+
+import gs.psm.projectstatusmonitor.models.ProjectStatusSummary;
+
+public interface ProjectStatusSummaryRepository {
+
+    ProjectStatusSummary getProjectStatusSummary(String projectCode);
+}
@@ -3,130 +3,407 @@ package gs.psm.projectstatusmonitor.repositories;
 import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
 import gs.psm.projectstatusmonitor.models.Project;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
 import gs.psm.projectstatusmonitor.ports.ProjectRepository;
 
-import javax.validation.Valid;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Thread-safe in-memory repository.
+ *
+ * Writes for a project are serialised on a lock striped by project code, so writes to
+ * different projects do not contend. Every write publishes a new, immutable project:
+ * adding or replacing a project swaps in a new entry, and job updates publish a copy of
+ * the project's {@link JobStatusTable} with the changed slots. Reads go straight to the
+ * concurrent maps without taking any lock and always see whole writes.
+ *
+ * User associations are held as a set of project codes per user together with the
+ * reverse set of users per project, so access checks are a hash lookup and removing a
+ * project drops its associations.
+ *
+ * Project codes are also kept in a concurrent skip list, which gives listings a stable
+ * order by code and lets a page start after any code without walking the ones before it.
+ *
+ * Every write to a project bumps its version under the project's lock, which is what the
+ * conditional updates compare against. A bulk job update takes each project's lock once
+ * for all of that project's updates and counts as a single write to it.
+ *
+ * Project and job codes and names are shared through a bounded {@link StringPool}, so
+ * the copies each request deserializes are not what stays on the heap.
+ *
+ * Job updates that would store exactly what is already there, the same job name and
+ * status or the same job list, are dropped: nothing is written and the version stays,
+ * so layers that react to a new version see no change.
+ *
+ * {@link #listProjects()} hands out a cached unmodifiable list. Writes that add, remove or
+ * replace a project bump a generation counter, and the next read rebuilds the list if the
+ * cached one was built for an older generation. The list reads each entry's current
+ * project, so job updates, which keep their entry, leave it valid.
+ */
 public class InMemoryProjectProjectRepository implements ProjectRepository {
 
-    private Map<String, Project> projectRecords = new HashMap<>();
+    private static final int DEFAULT_LOCK_STRIPES = 64;
+
+    private static final int DEFAULT_STRING_POOL_SIZE = 1 << 16;
+
+    private static final long ANY_VERSION = -1;
+
+    private final Map<String, ProjectEntry> projectRecords = new ConcurrentHashMap<>();
+
+    private final NavigableSet<String> sortedProjectCodes = new ConcurrentSkipListSet<>();
+
+    private final Map<String, Set<String>> userAssociatedProjects = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> projectAssociatedUsers = new ConcurrentHashMap<>();
+
+    private final StripedLocks projectLocks;
+
+    private final StringPool stringPool;
+
+    private final AtomicLong projectListGeneration = new AtomicLong();
+
+    private volatile ProjectListView projectListView = new ProjectListView(0, Collections.emptyList());
+
+    public InMemoryProjectProjectRepository() {
+        this(DEFAULT_LOCK_STRIPES);
+    }
+
+    public InMemoryProjectProjectRepository(int lockStripes) {
+        this(lockStripes, DEFAULT_STRING_POOL_SIZE);
+    }
 
-    private Map<String, List<String>> userAssociatedProjects = new HashMap<>();
+    /**
+     * @param stringPoolSize the number of slots in the pool the stored codes and names are
+     *                       shared through, or 0 to store the strings as they are given
+     */
+    public InMemoryProjectProjectRepository(int lockStripes, int stringPoolSize) {
+        this.projectLocks = new StripedLocks(lockStripes);
+        this.stringPool = new StringPool(stringPoolSize);
+    }
 
     @Override
     public Project addProject(Project addProject) {
+        Lock lock = projectLocks.lockFor(addProject.getProjectCode());
+        lock.lock();
+        try {
+            if (projectRecords.containsKey(addProject.getProjectCode())) {
+                throw new ProjectAlreadyExistsException();
+            }
 
-        Project record = projectRecords.get(addProject.getProjectCode());
-        if (record != null) {
-            throw new ProjectAlreadyExistsException();
+            ProjectEntry entry = new ProjectEntry(addProject, Math.max(1, addProject.getVersion()), stringPool);
+            Project project = entry.project();
+            projectRecords.put(project.getProjectCode(), entry);
+            sortedProjectCodes.add(project.getProjectCode());
+            projectListGeneration.incrementAndGet();
+            return project;
+        } finally {
+            lock.unlock();
         }
-
-        projectRecords.put(addProject.getProjectCode(), addProject);
-        return addProject;
     }
 
     @Override
     public List<Project> listProjects() {
-        return new ArrayList<>(projectRecords.values());
+        ProjectListView view = projectListView;
+        long generation = projectListGeneration.get();
+        if (view.generation == generation) {
+            return view;
+        }
+
+        List<ProjectEntry> entries = new ArrayList<>(projectRecords.size());
+        for (String projectCode : sortedProjectCodes) {
+            ProjectEntry entry = projectRecords.get(projectCode);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+
+        view = new ProjectListView(generation, entries);
+        projectListView = view;
+        return view;
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        Set<String> projectCodes = afterProjectCode == null
+                ? sortedProjectCodes
+                : sortedProjectCodes.tailSet(afterProjectCode, false);
+
+        List<Project> projects = new ArrayList<>(Math.min(limit, projectRecords.size()));
+        Iterator<String> codes = projectCodes.iterator();
+        while (projects.size() < limit && codes.hasNext()) {
+            ProjectEntry entry = projectRecords.get(codes.next());
+            if (entry != null) {
+                projects.add(entry.project());
+            }
+        }
+        return projects;
     }
 
     @Override
     public Project getProject(String projectCode) {
-        return projectRecords.get(projectCode);
+        ProjectEntry entry = projectRecords.get(projectCode);
+        return entry == null ? null : entry.project();
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        ProjectEntry entry = projectRecords.get(projectCode);
+        JobStatusTable jobs = entry == null ? null : entry.jobs();
+        int jobIndex = jobs == null ? -1 : jobs.indexOf(jobCode);
+        return jobIndex == -1 ? null : jobs.get(jobIndex);
     }
 
     @Override
     public boolean removeProject(String projectCode) {
-        Project deletedProject = projectRecords.remove(projectCode);
-        if (deletedProject != null) {
-            return true;
-        }
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            ProjectEntry deletedProject = projectRecords.remove(projectCode);
+            if (deletedProject != null) {
+                sortedProjectCodes.remove(projectCode);
+                projectListGeneration.incrementAndGet();
+                removeAssociations(projectCode);
+                return true;
+            }
 
-        throw new ProjectNotFoundException();
+            throw new ProjectNotFoundException();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public Project updateProject(Project updateProject) {
-        Project oldProject = projectRecords.replace(updateProject.getProjectCode(), updateProject);
-        if (oldProject != null) {
-            return updateProject;
-        }
+        return updateProject(updateProject, ANY_VERSION);
+    }
 
-        throw new ProjectNotFoundException();
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        Lock lock = projectLocks.lockFor(updateProject.getProjectCode());
+        lock.lock();
+        try {
+            ProjectEntry existingEntry = existingEntry(updateProject.getProjectCode(), expectedVersion);
+
+            ProjectEntry entry = new ProjectEntry(updateProject, existingEntry.project().getVersion() + 1, stringPool);
+            projectRecords.put(updateProject.getProjectCode(), entry);
+            projectListGeneration.incrementAndGet();
+            return entry.project();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
-        Project project = projectRecords.get(projectCode);
+        return updateProjectJobs(projectCode, projectJobStatusList, ANY_VERSION);
+    }
 
-        if (project != null) {
-            project.setJobStatusList(projectJobStatusList);
-            return project;
-        }
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            ProjectEntry existingEntry = existingEntry(projectCode, expectedVersion);
+            Project project = existingEntry.project();
+            if (project.getJobStatusList() != null && project.getJobStatusList().equals(projectJobStatusList)) {
+                return project;
+            }
 
-        throw new ProjectNotFoundException();
+            ProjectEntry entry = new ProjectEntry(
+                    new Project(project.getProjectCode(), project.getProjectName(), projectJobStatusList),
+                    project.getVersion() + 1,
+                    stringPool
+            );
+            projectRecords.put(projectCode, entry);
+            projectListGeneration.incrementAndGet();
+            return entry.project();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
-        Project existingProject = projectRecords.get(projectCode);
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            ProjectEntry existingEntry = projectRecords.get(projectCode);
 
-        if (existingProject != null) {
+            if (existingEntry != null) {
 
-            List<ProjectJobStatus> existingProjectJobStatusList = existingProject.getJobStatusList();
+                JobStatusTable jobs = existingEntry.jobs();
+                int jobIndex = jobs == null ? -1 : jobs.indexOf(jobCode);
 
-            if (existingProjectJobStatusList != null && existingProjectJobStatusList.size() > 0) {
+                if (jobIndex != -1) {
+                    if (jobs.holds(jobIndex, projectJobStatus.getJobName(), projectJobStatus.getJobStatus())) {
+                        return existingEntry.project();
+                    }
 
-                Optional<ProjectJobStatus> maybeExistingJobStatus = existingProjectJobStatusList
-                        .stream()
-                        .filter(jobStatus -> jobStatus.getJobCode().equals(jobCode))
-                        .findFirst();
+                    JobStatusTable updatedJobs = jobs.copy();
+                    updatedJobs.replace(jobIndex, projectJobStatus.getJobName(), projectJobStatus.getJobStatus());
+                    return existingEntry.publish(updatedJobs);
+                }
 
-                if (maybeExistingJobStatus.isPresent()) {
-                    ProjectJobStatus existingProjectJobStatus = maybeExistingJobStatus.get();
+                throw new ProjectJobStatusNotFoundException();
+            }
 
-                    existingProjectJobStatus.setJobName(projectJobStatus.getJobName());
-                    existingProjectJobStatus.setJobStatus(projectJobStatus.getJobStatus());
+            throw new ProjectNotFoundException();
+        } finally {
+            lock.unlock();
+        }
+    }
 
-                    return existingProject;
-                }
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        JobStatusUpdateBatch batch = new JobStatusUpdateBatch(jobStatusUpdates);
+
+        for (String projectCode : batch.projectCodes()) {
+            Lock lock = projectLocks.lockFor(projectCode);
+            lock.lock();
+            try {
+                applyJobUpdates(projectCode, batch);
+            } finally {
+                lock.unlock();
             }
+        }
+
+        return batch.results();
+    }
 
-            throw new ProjectJobStatusNotFoundException();
+    private void applyJobUpdates(String projectCode, JobStatusUpdateBatch batch) {
+        ProjectEntry existingEntry = projectRecords.get(projectCode);
+        if (existingEntry == null) {
+            batch.recordProjectNotFound(projectCode);
+            return;
         }
+        batch.recordStoredProjectCode(projectCode, existingEntry.project().getProjectCode());
+
+        JobStatusTable jobs = existingEntry.jobs();
+        JobStatusTable updatedJobs = null;
+        for (int index : batch.updateIndexesFor(projectCode)) {
+            JobStatusUpdate update = batch.update(index);
+            int jobIndex = jobs == null ? -1 : jobs.indexOf(update.getJobCode());
 
-        throw new ProjectNotFoundException();
+            if (jobIndex == -1) {
+                batch.record(index, JobStatusUpdateOutcome.JOB_NOT_FOUND);
+                continue;
+            }
+
+            JobStatusTable currentJobs = updatedJobs == null ? jobs : updatedJobs;
+            if (currentJobs.holds(jobIndex, update.getJobName(), update.getJobStatus())) {
+                batch.record(index, JobStatusUpdateOutcome.UNCHANGED);
+                continue;
+            }
+
+            if (updatedJobs == null) {
+                updatedJobs = jobs.copy();
+            }
+            updatedJobs.replace(jobIndex, update.getJobName(), update.getJobStatus());
+            batch.record(index, JobStatusUpdateOutcome.UPDATED);
+        }
+
+        if (updatedJobs != null) {
+            existingEntry.publish(updatedJobs);
+        }
     }
 
     @Override
     public void associateUserWithProject(String userName, String projectCode) {
-        if (projectRecords.containsKey(projectCode)) {
-            List<String> projectCodes = getUserAssociatedProjectCodes(userName);
-
-            if (projectCodes == null || projectCodes.isEmpty()) {
-                userAssociatedProjects.put(userName, Collections.singletonList(projectCode));
-            } else {
-                if (projectCodes.indexOf(projectCode) == -1) {
-                    projectCodes = new ArrayList<>(projectCodes);
-                    projectCodes.add(projectCode);
-                    userAssociatedProjects.replace(userName, projectCodes);
-                }
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            if (projectRecords.containsKey(projectCode)) {
+                userAssociatedProjects.compute(userName, (user, projectCodes) -> {
+                    Set<String> updatedProjectCodes = projectCodes == null ? ConcurrentHashMap.newKeySet() : projectCodes;
+                    updatedProjectCodes.add(projectCode);
+                    return updatedProjectCodes;
+                });
+                projectAssociatedUsers.computeIfAbsent(projectCode, code -> ConcurrentHashMap.newKeySet()).add(userName);
+                return;
             }
-            return;
-        }
 
-        throw new ProjectNotFoundException();
+            throw new ProjectNotFoundException();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public List<String> getUserAssociatedProjectCodes(String username) {
-        if (userAssociatedProjects.containsKey(username)) {
-            return userAssociatedProjects.get(username);
+        Set<String> projectCodes = userAssociatedProjects.get(username);
+        if (projectCodes != null) {
+            return Collections.unmodifiableList(new ArrayList<>(projectCodes));
         }
 
         return Collections.emptyList();
     }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        Set<String> projectCodes = userAssociatedProjects.get(username);
+        return projectCodes != null && projectCodes.contains(projectCode);
+    }
+
+    public Map<String, Set<String>> getUserAssociations() {
+        return Collections.unmodifiableMap(userAssociatedProjects);
+    }
+
+    private ProjectEntry existingEntry(String projectCode, long expectedVersion) {
+        ProjectEntry existingEntry = projectRecords.get(projectCode);
+        if (existingEntry == null) {
+            throw new ProjectNotFoundException();
+        }
+        if (expectedVersion != ANY_VERSION && existingEntry.project().getVersion() != expectedVersion) {
+            throw new ProjectVersionMismatchException();
+        }
+        return existingEntry;
+    }
+
+    private void removeAssociations(String projectCode) {
+        Set<String> userNames = projectAssociatedUsers.remove(projectCode);
+        if (userNames == null) {
+            return;
+        }
+
+        for (String userName : userNames) {
+            userAssociatedProjects.computeIfPresent(userName, (user, projectCodes) -> {
+                projectCodes.remove(projectCode);
+                return projectCodes.isEmpty() ? null : projectCodes;
+            });
+        }
+    }
+
+    /**
+     * Unmodifiable list of the entries' current projects, for one generation of entries.
+     */
+    private static class ProjectListView extends AbstractList<Project> implements RandomAccess {
+
+        private final long generation;
+
+        private final List<ProjectEntry> entries;
+
+        private ProjectListView(long generation, List<ProjectEntry> entries) {
+            this.generation = generation;
+            this.entries = entries;
+        }
+
+        @Override
+        public Project get(int index) {
+            return entries.get(index).project();
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    }
 }
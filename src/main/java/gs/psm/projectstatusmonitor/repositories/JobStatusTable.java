@@ -0,0 +1,156 @@
+package gs.psm.projectstatusmonitor.repositories;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of a project's jobs, in the order they were supplied, with a jobCode
+ * index so a single job can be found in constant time.
+ *
+ * A table is never changed once the project holding it has been published. Updating jobs
+ * takes a {@link #copy()}, which shares the index, replaces slots in it and publishes it
+ * with a new project, so a reader always sees the jobs and version of a single write. Job
+ * codes and names are taken from a {@link StringPool}, and a replaced job keeps the stored
+ * code, and the stored name when it is unchanged, rather than the caller's copies.
+ *
+ * The jobs are held in a tree of 32-slot nodes, so a copy shares every node with the
+ * table it came from and replacing a slot copies only the nodes on that slot's path: a
+ * single job update costs the same few hundred bytes whether the project has a hundred
+ * jobs or a hundred thousand. A copy remembers the nodes it has copied, so further
+ * replaces along the same path change them in place.
+ */
+class JobStatusTable extends AbstractList<ProjectJobStatus> implements RandomAccess {
+
+    private static final int NODE_BITS = 5;
+
+    private static final int NODE_SLOTS = 1 << NODE_BITS;
+
+    private static final int NODE_MASK = NODE_SLOTS - 1;
+
+    private final int size;
+
+    private final int shift;
+
+    private final Map<String, Integer> jobIndex;
+
+    private final StringPool stringPool;
+
+    private final Object owner;
+
+    private Node root;
+
+    JobStatusTable(List<ProjectJobStatus> projectJobStatusList, StringPool stringPool) {
+        this.stringPool = stringPool;
+        this.owner = null;
+        size = projectJobStatusList.size();
+        jobIndex = new HashMap<>(size * 4 / 3 + 1);
+
+        Node[] level = new Node[Math.max(1, (size + NODE_MASK) >>> NODE_BITS)];
+        for (int leaf = 0; leaf < level.length; leaf++) {
+            level[leaf] = new Node(null, new Object[Math.min(NODE_SLOTS, size - (leaf << NODE_BITS))]);
+        }
+        for (int index = 0; index < size; index++) {
+            ProjectJobStatus job = projectJobStatusList.get(index);
+            String jobCode = stringPool.intern(job.getJobCode());
+            level[index >>> NODE_BITS].slots[index & NODE_MASK] =
+                    new ProjectJobStatus(jobCode, stringPool.intern(job.getJobName()), job.getJobStatus());
+            jobIndex.putIfAbsent(jobCode, index);
+        }
+
+        int levelShift = 0;
+        while (level.length > 1) {
+            Node[] parents = new Node[(level.length + NODE_MASK) >>> NODE_BITS];
+            for (int parent = 0; parent < parents.length; parent++) {
+                Object[] children = new Object[Math.min(NODE_SLOTS, level.length - (parent << NODE_BITS))];
+                System.arraycopy(level, parent << NODE_BITS, children, 0, children.length);
+                parents[parent] = new Node(null, children);
+            }
+            level = parents;
+            levelShift += NODE_BITS;
+        }
+        root = level[0];
+        shift = levelShift;
+    }
+
+    private JobStatusTable(JobStatusTable table) {
+        this.stringPool = table.stringPool;
+        this.size = table.size;
+        this.shift = table.shift;
+        this.jobIndex = table.jobIndex;
+        this.root = table.root;
+        this.owner = new Object();
+    }
+
+    int indexOf(String jobCode) {
+        Integer index = jobIndex.get(jobCode);
+        return index == null ? -1 : index;
+    }
+
+    boolean holds(int index, String jobName, JobStatus jobStatus) {
+        ProjectJobStatus job = get(index);
+        return job.getJobStatus() == jobStatus && Objects.equals(job.getJobName(), jobName);
+    }
+
+    /**
+     * A table with the same jobs whose slots may be replaced until it is published.
+     */
+    JobStatusTable copy() {
+        return new JobStatusTable(this);
+    }
+
+    void replace(int index, String jobName, JobStatus jobStatus) {
+        ProjectJobStatus job = get(index);
+        String storedJobName = Objects.equals(job.getJobName(), jobName) ? job.getJobName() : stringPool.intern(jobName);
+
+        root = owned(root);
+        Node node = root;
+        for (int level = shift; level > 0; level -= NODE_BITS) {
+            int slot = (index >>> level) & NODE_MASK;
+            Node child = owned((Node) node.slots[slot]);
+            node.slots[slot] = child;
+            node = child;
+        }
+        node.slots[index & NODE_MASK] = new ProjectJobStatus(job.getJobCode(), storedJobName, jobStatus);
+    }
+
+    @Override
+    public ProjectJobStatus get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        Node node = root;
+        for (int level = shift; level > 0; level -= NODE_BITS) {
+            node = (Node) node.slots[(index >>> level) & NODE_MASK];
+        }
+        return (ProjectJobStatus) node.slots[index & NODE_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private Node owned(Node node) {
+        return node.owner == owner ? node : new Node(owner, node.slots.clone());
+    }
+
+    private static final class Node {
+
+        private final Object owner;
+
+        private final Object[] slots;
+
+        private Node(Object owner, Object[] slots) {
+            this.owner = owner;
+            this.slots = slots;
+        }
+    }
+}
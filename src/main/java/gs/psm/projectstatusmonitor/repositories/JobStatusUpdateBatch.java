@@ -0,0 +1,101 @@
+package gs.psm.projectstatusmonitor.repositories;
+
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bulk job update grouped by project, so a repository can apply every update for one
+ * project under a single lock acquisition. Outcomes are recorded against the position of
+ * each update and come back in request order, carrying the repository's own copy of a
+ * project code where it recorded one rather than the caller's.
+ */
+public class JobStatusUpdateBatch {
+
+    private final List<JobStatusUpdate> updates;
+
+    private final Map<String, List<Integer>> updateIndexesByProject;
+
+    private final JobStatusUpdateOutcome[] outcomes;
+
+    private final Map<String, String> storedProjectCodes = new HashMap<>();
+
+    public JobStatusUpdateBatch(List<JobStatusUpdate> updates) {
+        this.updates = updates;
+        this.updateIndexesByProject = new LinkedHashMap<>();
+        this.outcomes = new JobStatusUpdateOutcome[updates.size()];
+
+        for (int index = 0; index < updates.size(); index++) {
+            updateIndexesByProject
+                    .computeIfAbsent(updates.get(index).getProjectCode(), code -> new ArrayList<>())
+                    .add(index);
+        }
+    }
+
+    public Set<String> projectCodes() {
+        return updateIndexesByProject.keySet();
+    }
+
+    public List<Integer> updateIndexesFor(String projectCode) {
+        return updateIndexesByProject.getOrDefault(projectCode, Collections.emptyList());
+    }
+
+    public List<JobStatusUpdate> updatesFor(String projectCode) {
+        List<Integer> indexes = updateIndexesFor(projectCode);
+        List<JobStatusUpdate> projectUpdates = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            projectUpdates.add(updates.get(index));
+        }
+        return projectUpdates;
+    }
+
+    public JobStatusUpdate update(int index) {
+        return updates.get(index);
+    }
+
+    public void record(int index, JobStatusUpdateOutcome outcome) {
+        outcomes[index] = outcome;
+    }
+
+    /**
+     * Records the results of applying {@link #updatesFor} the project, in the same order.
+     */
+    public void record(String projectCode, List<JobStatusUpdateResult> results) {
+        List<Integer> indexes = updateIndexesFor(projectCode);
+        for (int update = 0; update < indexes.size(); update++) {
+            outcomes[indexes.get(update)] = results.get(update).getOutcome();
+        }
+    }
+
+    public void recordStoredProjectCode(String projectCode, String storedProjectCode) {
+        storedProjectCodes.put(projectCode, storedProjectCode);
+    }
+
+    public void recordProjectNotFound(String projectCode) {
+        for (int index : updateIndexesFor(projectCode)) {
+            outcomes[index] = JobStatusUpdateOutcome.PROJECT_NOT_FOUND;
+        }
+    }
+
+    public JobStatusUpdateOutcome outcome(int index) {
+        return outcomes[index];
+    }
+
+    public List<JobStatusUpdateResult> results() {
+        List<JobStatusUpdateResult> results = new ArrayList<>(updates.size());
+        for (int index = 0; index < updates.size(); index++) {
+            JobStatusUpdate update = updates.get(index);
+            String projectCode = storedProjectCodes.getOrDefault(update.getProjectCode(), update.getProjectCode());
+            results.add(new JobStatusUpdateResult(projectCode, update.getJobCode(), outcomes[index]));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,40 @@
+package gs.psm.projectstatusmonitor.repositories;
+
+import gs.psm.projectstatusmonitor.models.Project;
+
+/**
+ * Internal bookkeeping for one stored project. The published {@link Project} is handed
+ * straight to readers and never changed; its job list is a {@link JobStatusTable}, or
+ * null when the project was stored without a job list. Job updates publish a new project
+ * over a copy of the table, with the next version, through the volatile field, so the
+ * version a reader sees always belongs to the jobs it sees. The project's code and name,
+ * and those of its jobs, are taken from the repository's {@link StringPool}.
+ */
+class ProjectEntry {
+
+    private volatile Project project;
+
+    ProjectEntry(Project project, long version, StringPool stringPool) {
+        JobStatusTable jobs = project.getJobStatusList() == null ? null : new JobStatusTable(project.getJobStatusList(), stringPool);
+        this.project = new Project(stringPool.intern(project.getProjectCode()), stringPool.intern(project.getProjectName()),
+                jobs, version);
+    }
+
+    Project project() {
+        return project;
+    }
+
+    JobStatusTable jobs() {
+        return (JobStatusTable) project.getJobStatusList();
+    }
+
+    /**
+     * Publishes the updated jobs as the next version of the project. Callers hold the
+     * project's lock.
+     */
+    Project publish(JobStatusTable jobs) {
+        Project current = project;
+        project = new Project(current.getProjectCode(), current.getProjectName(), jobs, current.getVersion() + 1);
+        return project;
+    }
+}
@@ -0,0 +1,43 @@
+package gs.psm.projectstatusmonitor.repositories;
+
+/**
+ * Bounded pool that hands back one shared instance for equal strings, so the codes and
+ * names stored for many projects and jobs do not each keep their own copy.
+ *
+ * The pool is a fixed array of slots indexed by hash code. A string whose slot holds an
+ * equal string is swapped for it; otherwise it takes the slot over, so strings that keep
+ * arriving stay pooled and a collision costs only a missed share. Slots are read and
+ * written without synchronization: strings are immutable, so a racing reader sees either
+ * a whole string or the one before it, and the worst a race can do is miss a share.
+ */
+final class StringPool {
+
+    private final String[] slots;
+
+    private final int mask;
+
+    /**
+     * @param size the number of slots, rounded up to a power of two; 0 turns pooling off
+     */
+    StringPool(int size) {
+        int capacity = size <= 1 ? Math.max(size, 0) : Integer.highestOneBit(size - 1) << 1;
+        slots = new String[capacity];
+        mask = capacity - 1;
+    }
+
+    String intern(String value) {
+        if (value == null || slots.length == 0) {
+            return value;
+        }
+
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        String pooled = slots[index];
+        if (value.equals(pooled)) {
+            return pooled;
+        }
+
+        slots[index] = value;
+        return value;
+    }
+}
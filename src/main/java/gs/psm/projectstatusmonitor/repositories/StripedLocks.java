@@ -0,0 +1,71 @@
+package gs.psm.projectstatusmonitor.repositories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed pool of locks shared out by key hash, so that writes against different
+ * project codes rarely contend while the number of lock objects stays bounded.
+ */
+public class StripedLocks {
+
+    private final Lock[] locks;
+
+    private final int mask;
+
+    public StripedLocks(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+
+        locks = new Lock[size];
+        for (int index = 0; index < size; index++) {
+            locks[index] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public Lock lockFor(String key) {
+        return locks[stripeFor(key)];
+    }
+
+    /**
+     * The distinct locks for a set of keys, in stripe order. Taking them in the order
+     * returned cannot deadlock against another caller doing the same.
+     */
+    public List<Lock> locksFor(Collection<String> keys) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (String key : keys) {
+            stripes.add(stripeFor(key));
+        }
+
+        List<Lock> orderedLocks = new ArrayList<>(stripes.size());
+        for (int stripe : stripes) {
+            orderedLocks.add(locks[stripe]);
+        }
+        return orderedLocks;
+    }
+
+    /**
+     * Every lock, in stripe order, for work that must keep out all writers at once.
+     */
+    public List<Lock> allLocks() {
+        return Collections.unmodifiableList(Arrays.asList(locks));
+    }
+
+    public int size() {
+        return locks.length;
+    }
+
+    private int stripeFor(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
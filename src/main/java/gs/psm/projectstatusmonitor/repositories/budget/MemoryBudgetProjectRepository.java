@@ -0,0 +1,239 @@
+package gs.psm.projectstatusmonitor.repositories.budget;
+
+import gs.psm.projectstatusmonitor.exceptions.MemoryBudgetExceededException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.StripedLocks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Decorator that accounts the estimated size of every project in a
+ * {@link ProjectMemoryBudget} and turns away writes that would take the total past it
+ * with a {@link MemoryBudgetExceededException}, before they reach the delegate.
+ *
+ * Adding a project and replacing a project or its jobs are checked against the budget.
+ * Job status updates are not: they cannot add a job, and a status costs the same whatever
+ * it is. They are still accounted, since they may rename a job or give it its first
+ * status, by the difference between each job before and after the update. The job is
+ * looked up by code beforehand, so a heartbeat costs the same however many jobs its
+ * project has; a bulk update holds the locks of all its projects while it does so. The
+ * projects already in the delegate are accounted when the decorator is created, even past
+ * the budget.
+ *
+ * A decorator that does not enforce the budget only accounts. A follower sits on one, so
+ * the writes it replicates from its leader, which has already admitted them, are counted
+ * without being refused.
+ *
+ * Users are noted as they are associated with projects or their associations are looked
+ * up, so the budget can report usage for each user seen since the start.
+ */
+public class MemoryBudgetProjectRepository implements ProjectRepository, Closeable {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final ProjectRepository delegate;
+
+    private final ProjectMemoryBudget budget;
+
+    private final boolean enforcing;
+
+    private final StripedLocks projectLocks = new StripedLocks(LOCK_STRIPES);
+
+    public MemoryBudgetProjectRepository(ProjectRepository delegate, ProjectMemoryBudget budget) {
+        this(delegate, budget, true);
+    }
+
+    public MemoryBudgetProjectRepository(ProjectRepository delegate, ProjectMemoryBudget budget, boolean enforcing) {
+        this.delegate = delegate;
+        this.budget = budget;
+        this.enforcing = enforcing;
+
+        for (Project project : delegate.listProjects()) {
+            budget.record(project);
+        }
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return budgeted(addProject.getProjectCode(), () -> {
+            admit(addProject);
+            Project project = delegate.addProject(addProject);
+            budget.record(addProject);
+            return project;
+        });
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return delegate.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return delegate.getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return delegate.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        return budgeted(projectCode, () -> {
+            boolean removed = delegate.removeProject(projectCode);
+            budget.release(projectCode);
+            return removed;
+        });
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return budgeted(updateProject.getProjectCode(), () -> {
+            admit(updateProject);
+            return recorded(delegate.updateProject(updateProject));
+        });
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return budgeted(updateProject.getProjectCode(), () -> {
+            admit(updateProject);
+            return recorded(delegate.updateProject(updateProject, expectedVersion));
+        });
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return budgeted(projectCode, () -> {
+            admitJobs(projectCode, projectJobStatusList);
+            return recorded(delegate.updateProjectJobs(projectCode, projectJobStatusList));
+        });
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return budgeted(projectCode, () -> {
+            admitJobs(projectCode, projectJobStatusList);
+            return recorded(delegate.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion));
+        });
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return budgeted(projectCode, () -> {
+            ProjectJobStatus previousJob = delegate.getJob(projectCode, jobCode);
+            Project project = delegate.updateJob(projectCode, jobCode, projectJobStatus);
+            if (previousJob != null) {
+                budget.recordJob(projectCode, previousJob, updated(previousJob, projectJobStatus.getJobName(),
+                        projectJobStatus.getJobStatus()));
+            }
+            return project;
+        });
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        Map<String, Map<String, ProjectJobStatus>> jobsByProject = new HashMap<>();
+        for (JobStatusUpdate update : jobStatusUpdates) {
+            jobsByProject.computeIfAbsent(update.getProjectCode(), code -> new HashMap<>()).put(update.getJobCode(), null);
+        }
+
+        List<Lock> locks = projectLocks.locksFor(jobsByProject.keySet());
+        locks.forEach(Lock::lock);
+        try {
+            jobsByProject.forEach((projectCode, jobs) -> jobs.replaceAll((jobCode, job) -> delegate.getJob(projectCode, jobCode)));
+
+            List<JobStatusUpdateResult> results = delegate.updateJobs(jobStatusUpdates);
+
+            for (int index = 0; index < results.size(); index++) {
+                if (results.get(index).getOutcome() == JobStatusUpdateOutcome.UPDATED) {
+                    JobStatusUpdate update = jobStatusUpdates.get(index);
+                    Map<String, ProjectJobStatus> jobs = jobsByProject.get(update.getProjectCode());
+                    ProjectJobStatus previousJob = jobs.get(update.getJobCode());
+                    ProjectJobStatus job = updated(previousJob, update.getJobName(), update.getJobStatus());
+                    budget.recordJob(update.getProjectCode(), previousJob, job);
+                    jobs.put(update.getJobCode(), job);
+                }
+            }
+            return results;
+        } finally {
+            for (int index = locks.size() - 1; index >= 0; index--) {
+                locks.get(index).unlock();
+            }
+        }
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        delegate.associateUserWithProject(userName, projectCode);
+        budget.userSeen(userName);
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        budget.userSeen(username);
+        return delegate.getUserAssociatedProjectCodes(username);
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        budget.userSeen(username);
+        return delegate.isUserAssociatedWithProject(username, projectCode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    private <T> T budgeted(String projectCode, Supplier<T> operation) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admit(Project project) {
+        if (enforcing) {
+            budget.admit(project);
+        }
+    }
+
+    private void admitJobs(String projectCode, List<ProjectJobStatus> jobs) {
+        if (enforcing) {
+            budget.admitJobs(projectCode, jobs);
+        }
+    }
+
+    private static ProjectJobStatus updated(ProjectJobStatus job, String jobName, JobStatus jobStatus) {
+        return new ProjectJobStatus(job.getJobCode(), jobName, jobStatus);
+    }
+
+    private Project recorded(Project project) {
+        budget.record(project);
+        return project;
+    }
+}
@@ -0,0 +1,144 @@
+package gs.psm.projectstatusmonitor.repositories.budget;
+
+import gs.psm.projectstatusmonitor.exceptions.MemoryBudgetExceededException;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.MemoryUsageRepository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the estimated size of every project, and their running total, against a budget.
+ * A write that would grow a project is admitted only while the total stays within the
+ * budget; one that leaves it the same size or shrinks it always is. The estimates come
+ * from {@link ProjectSizeEstimator}.
+ *
+ * Callers hold the project's lock across admitting a write and recording its result, so
+ * each project's estimate is exact. Writes to different projects are admitted against
+ * the same total without a lock between them, so concurrent writes may together go past
+ * the budget by up to their own size.
+ */
+public class ProjectMemoryBudget implements MemoryUsageRepository {
+
+    private final long budgetBytes;
+
+    private final ProjectSizeEstimator estimator;
+
+    private final Map<String, Footprint> footprints = new ConcurrentHashMap<>();
+
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    private final Set<String> usernames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param historyCapacity the number of status changes kept for each job, which the
+     *                        estimate charges for
+     */
+    public ProjectMemoryBudget(long budgetBytes, int historyCapacity) {
+        this.budgetBytes = budgetBytes;
+        this.estimator = new ProjectSizeEstimator(historyCapacity);
+    }
+
+    @Override
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    @Override
+    public long getEstimatedBytes(String projectCode) {
+        Footprint footprint = footprints.get(projectCode);
+        return footprint == null ? 0 : footprint.totalBytes();
+    }
+
+    @Override
+    public Set<String> getUsernames() {
+        return Collections.unmodifiableSet(usernames);
+    }
+
+    /**
+     * @throws MemoryBudgetExceededException if storing the project would take the total past the budget
+     */
+    void admit(Project project) {
+        admit(project.getProjectCode(),
+                estimator.projectBytes(project) + estimator.jobBytes(project.getJobStatusList()));
+    }
+
+    /**
+     * @throws MemoryBudgetExceededException if replacing the project's jobs would take the total past the budget
+     */
+    void admitJobs(String projectCode, List<ProjectJobStatus> jobs) {
+        Footprint footprint = footprints.get(projectCode);
+        long projectBytes = footprint == null ? 0 : footprint.projectBytes;
+        admit(projectCode, projectBytes + estimator.jobBytes(jobs));
+    }
+
+    void record(Project project) {
+        Footprint footprint = new Footprint(
+                estimator.projectBytes(project),
+                estimator.jobBytes(project.getJobStatusList())
+        );
+        Footprint previous = footprints.put(project.getProjectCode(), footprint);
+        estimatedBytes.addAndGet(footprint.totalBytes() - (previous == null ? 0 : previous.totalBytes()));
+    }
+
+    /**
+     * Accounts one job of a recorded project changing in place, by the difference in size
+     * alone.
+     */
+    void recordJob(String projectCode, ProjectJobStatus previousJob, ProjectJobStatus job) {
+        long growthBytes = estimator.jobBytes(job) - estimator.jobBytes(previousJob);
+        if (growthBytes == 0) {
+            return;
+        }
+
+        Footprint previous = footprints.computeIfPresent(projectCode,
+                (code, footprint) -> new Footprint(footprint.projectBytes, footprint.jobBytes + growthBytes));
+        if (previous != null) {
+            estimatedBytes.addAndGet(growthBytes);
+        }
+    }
+
+    void release(String projectCode) {
+        Footprint previous = footprints.remove(projectCode);
+        if (previous != null) {
+            estimatedBytes.addAndGet(-previous.totalBytes());
+        }
+    }
+
+    void userSeen(String username) {
+        usernames.add(username);
+    }
+
+    private void admit(String projectCode, long projectBytes) {
+        long growthBytes = projectBytes - getEstimatedBytes(projectCode);
+        if (growthBytes > 0 && estimatedBytes.get() + growthBytes > budgetBytes) {
+            throw new MemoryBudgetExceededException();
+        }
+    }
+
+    private static class Footprint {
+
+        private final long projectBytes;
+
+        private final long jobBytes;
+
+        private Footprint(long projectBytes, long jobBytes) {
+            this.projectBytes = projectBytes;
+            this.jobBytes = jobBytes;
+        }
+
+        private long totalBytes() {
+            return projectBytes + jobBytes;
+        }
+    }
+}
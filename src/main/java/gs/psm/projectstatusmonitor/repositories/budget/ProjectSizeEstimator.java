@@ -0,0 +1,112 @@
+package gs.psm.projectstatusmonitor.repositories.budget;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+
+import java.util.List;
+
+/**
+ * Estimates the heap a project takes across everything the service keeps for it, from
+ * the shallow sizes of the objects on a 64-bit JVM with compressed references: a 12 byte
+ * object header, 4 byte references, and every object rounded up to 8 bytes. Hash tables
+ * are charged a slot and a half per entry for the spare room they keep.
+ *
+ * For each project that is the in-memory repository's entry, project, job table and job
+ * index, the history repository's job map and the per-project status counts. For each job
+ * it is the stored job, its index entry, its history ring buffer of the configured
+ * capacity, and its entry in the status index when it has a status.
+ *
+ * Codes and names are counted once per project or job, at two bytes a character, since
+ * the repository pools them and hands the pooled copies to everything else that keeps
+ * them. A string shared by several projects, such as a common job name, is counted in
+ * each of them, so the estimate is high rather than low there.
+ */
+final class ProjectSizeEstimator {
+
+    private static final int OBJECT_HEADER_BYTES = 12;
+
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private static final int REFERENCE_BYTES = 4;
+
+    private static final int STRING_BYTES = 24;
+
+    private static final int HASH_SLOT_BYTES = 6;
+
+    private static final int HASH_NODE_BYTES = 32 + HASH_SLOT_BYTES;
+
+    private static final int HASH_MAP_BYTES = 48 + ARRAY_HEADER_BYTES;
+
+    private static final int CONCURRENT_HASH_MAP_BYTES = 64 + ARRAY_HEADER_BYTES;
+
+    private static final int SKIP_LIST_ENTRY_BYTES = 40;
+
+    private static final int PROJECT_BYTES = align(OBJECT_HEADER_BYTES + 3 * REFERENCE_BYTES + Long.BYTES);
+
+    private static final int PROJECT_ENTRY_BYTES = align(OBJECT_HEADER_BYTES + REFERENCE_BYTES);
+
+    private static final int JOB_TABLE_BYTES = align(OBJECT_HEADER_BYTES + 3 * REFERENCE_BYTES) + ARRAY_HEADER_BYTES + HASH_MAP_BYTES;
+
+    private static final int PROJECT_JOB_STATUS_BYTES = align(OBJECT_HEADER_BYTES + 3 * REFERENCE_BYTES);
+
+    private static final int JOB_REFERENCE_BYTES = align(OBJECT_HEADER_BYTES + 3 * REFERENCE_BYTES);
+
+    private static final int RING_BUFFER_BYTES = align(OBJECT_HEADER_BYTES + 2 * REFERENCE_BYTES + Long.BYTES);
+
+    private static final int STATUS_COUNTS_BYTES = HASH_NODE_BYTES + align(OBJECT_HEADER_BYTES + REFERENCE_BYTES)
+            + align(ARRAY_HEADER_BYTES + Integer.BYTES * (JobStatus.values().length + 1));
+
+    private final long projectOverheadBytes;
+
+    private final long jobOverheadBytes;
+
+    ProjectSizeEstimator(int historyCapacity) {
+        projectOverheadBytes = HASH_NODE_BYTES + SKIP_LIST_ENTRY_BYTES + PROJECT_ENTRY_BYTES + PROJECT_BYTES
+                + HASH_NODE_BYTES + CONCURRENT_HASH_MAP_BYTES
+                + STATUS_COUNTS_BYTES;
+        jobOverheadBytes = REFERENCE_BYTES + PROJECT_JOB_STATUS_BYTES + HASH_NODE_BYTES
+                + HASH_NODE_BYTES + RING_BUFFER_BYTES
+                + align(ARRAY_HEADER_BYTES + (long) Long.BYTES * historyCapacity)
+                + align(ARRAY_HEADER_BYTES + (long) historyCapacity);
+    }
+
+    long projectBytes(Project project) {
+        return projectOverheadBytes + stringBytes(project.getProjectCode()) + stringBytes(project.getProjectName());
+    }
+
+    long jobBytes(List<ProjectJobStatus> jobs) {
+        if (jobs == null) {
+            return 0;
+        }
+
+        long bytes = JOB_TABLE_BYTES;
+        for (ProjectJobStatus job : jobs) {
+            bytes += jobBytes(job);
+        }
+        return bytes;
+    }
+
+    long jobBytes(ProjectJobStatus job) {
+        long bytes = jobOverheadBytes + stringBytes(job.getJobCode()) + stringBytes(job.getJobName());
+        if (job.getJobStatus() != null) {
+            bytes += JOB_REFERENCE_BYTES + HASH_NODE_BYTES;
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return STRING_BYTES + align(ARRAY_HEADER_BYTES + 2L * value.length());
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,191 @@
+package gs.psm.projectstatusmonitor.repositories.caching;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Read-through cache in front of a repository whose project and association lookups are
+ * expensive. Projects, including ones that do not exist, are cached by code and each
+ * user's project codes by user name, as a set so that authorization checks are lookups.
+ * Both caches are size-bounded and evict by recent use and frequency (Caffeine's
+ * W-TinyLFU). Concurrent misses on the same key wait for a single load from the delegate.
+ *
+ * Every mutation is written straight to the delegate and then invalidates the entries it
+ * could have changed. Removing a project drops every cached user association, because
+ * the delegate no longer knows who was associated with it. Listings are not cached.
+ */
+public class CachingProjectRepository implements ProjectRepository, Closeable {
+
+    private final ProjectRepository delegate;
+
+    private final LoadingCache<String, Optional<Project>> projects;
+
+    private final LoadingCache<String, Set<String>> userProjectCodes;
+
+    public CachingProjectRepository(ProjectRepository delegate, long maxProjects, long maxUsers) {
+        this(delegate, maxProjects, maxUsers, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs cache maintenance, including eviction, on the given executor.
+     */
+    CachingProjectRepository(ProjectRepository delegate, long maxProjects, long maxUsers, Executor maintenanceExecutor) {
+        this.delegate = delegate;
+        this.projects = Caffeine.newBuilder()
+                .maximumSize(maxProjects)
+                .executor(maintenanceExecutor)
+                .recordStats()
+                .build(projectCode -> Optional.ofNullable(delegate.getProject(projectCode)));
+        this.userProjectCodes = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .executor(maintenanceExecutor)
+                .recordStats()
+                .build(username -> Collections.unmodifiableSet(new LinkedHashSet<>(delegate.getUserAssociatedProjectCodes(username))));
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        Project project = delegate.addProject(addProject);
+        projects.invalidate(addProject.getProjectCode());
+        return project;
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return delegate.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return projects.get(projectCode).orElse(null);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return delegate.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        try {
+            return delegate.removeProject(projectCode);
+        } finally {
+            projects.invalidate(projectCode);
+            userProjectCodes.invalidateAll();
+        }
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        try {
+            return delegate.updateProject(updateProject);
+        } finally {
+            projects.invalidate(updateProject.getProjectCode());
+        }
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        try {
+            return delegate.updateProject(updateProject, expectedVersion);
+        } finally {
+            projects.invalidate(updateProject.getProjectCode());
+        }
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        try {
+            return delegate.updateProjectJobs(projectCode, projectJobStatusList);
+        } finally {
+            projects.invalidate(projectCode);
+        }
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        try {
+            return delegate.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion);
+        } finally {
+            projects.invalidate(projectCode);
+        }
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        try {
+            return delegate.updateJob(projectCode, jobCode, projectJobStatus);
+        } finally {
+            projects.invalidate(projectCode);
+        }
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        try {
+            return delegate.updateJobs(jobStatusUpdates);
+        } finally {
+            Set<String> projectCodes = new HashSet<>();
+            for (JobStatusUpdate update : jobStatusUpdates) {
+                projectCodes.add(update.getProjectCode());
+            }
+            projects.invalidateAll(projectCodes);
+        }
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        try {
+            delegate.associateUserWithProject(userName, projectCode);
+        } finally {
+            userProjectCodes.invalidate(userName);
+        }
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        return new ArrayList<>(userProjectCodes.get(username));
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return userProjectCodes.get(username).contains(projectCode);
+    }
+
+    public LoadingCache<String, Optional<Project>> projectCache() {
+        return projects;
+    }
+
+    public LoadingCache<String, Set<String>> userProjectCodeCache() {
+        return userProjectCodes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,619 @@
+package gs.psm.projectstatusmonitor.repositories.columnar;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.JobStatusUpdateBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact in-memory repository storing projects and jobs as parallel primitive arrays
+ * rather than object graphs.
+ *
+ * Each job is three columns: the dictionary id of its code, the dictionary id of its
+ * name and its status ordinal as a byte. A project owns a contiguous range of those
+ * columns; a job list that outgrows its range moves to the end, and the abandoned ranges
+ * are compacted away once they make up half of the columns. {@link Project} and
+ * {@link ProjectJobStatus} objects are only built when a caller asks for them.
+ *
+ * User associations are a set of project codes per user plus the reverse set of users
+ * per project, which lets removing a project drop its associations.
+ *
+ * Listings come back in code order from the dictionary ids of the project codes, kept
+ * sorted by code in an int array. New codes go into a small sorted array of recent codes
+ * first, which is merged into the main one when it fills up, so an add shifts at most the
+ * recent codes; a listing walks both in step. A page starts straight after any code by a
+ * binary search of both.
+ *
+ * A single read-write lock guards the columns, so reads run in parallel with each other
+ * but not with writes. A bulk job update takes the write lock once for the whole batch.
+ */
+public class ColumnarProjectRepository implements ProjectRepository {
+
+    private static final JobStatus[] JOB_STATUSES = JobStatus.values();
+
+    private static final int INITIAL_PROJECTS = 64;
+
+    private static final int INITIAL_JOBS = 1024;
+
+    private static final int RECENT_CODES = 1024;
+
+    private static final int NONE = -1;
+
+    private static final long ANY_VERSION = -1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ColumnarStringDictionary dictionary = new ColumnarStringDictionary();
+
+
+    private final Map<String, Set<String>> userAssociatedProjects = new HashMap<>();
+
+    private final Map<String, Set<String>> projectAssociatedUsers = new HashMap<>();
+
+    private int[] slotByCodeId = new int[INITIAL_PROJECTS];
+
+    private int[] sortedCodeIds = new int[INITIAL_PROJECTS];
+
+    private int sortedCodeCount;
+
+    private final int[] recentCodeIds = new int[RECENT_CODES];
+
+    private int recentCodeCount;
+
+    private int[] projectCodes = new int[INITIAL_PROJECTS];
+
+    private int[] projectNames = new int[INITIAL_PROJECTS];
+
+    private int[] jobStarts = new int[INITIAL_PROJECTS];
+
+    private int[] jobCounts = new int[INITIAL_PROJECTS];
+
+    private int[] jobCapacities = new int[INITIAL_PROJECTS];
+
+    private long[] projectVersions = new long[INITIAL_PROJECTS];
+
+    private int projectSlots;
+
+    private int[] freeSlots = new int[INITIAL_PROJECTS];
+
+    private int freeSlotCount;
+
+    private int[] jobCodes = new int[INITIAL_JOBS];
+
+    private int[] jobNames = new int[INITIAL_JOBS];
+
+    private byte[] jobStatuses = new byte[INITIAL_JOBS];
+
+    private int jobsUsed;
+
+    private int abandonedJobs;
+
+    @Override
+    public Project addProject(Project addProject) {
+        lock.writeLock().lock();
+        try {
+            int codeId = intern(addProject.getProjectCode());
+            if (slotByCodeId[codeId] != 0) {
+                throw new ProjectAlreadyExistsException();
+            }
+
+            int slot = allocateProjectSlot();
+            projectCodes[slot] = codeId;
+            jobStarts[slot] = 0;
+            jobCapacities[slot] = 0;
+            projectVersions[slot] = Math.max(1, addProject.getVersion());
+            writeProject(slot, addProject.getProjectName(), addProject.getJobStatusList());
+            slotByCodeId[codeId] = slot + 1;
+            addProjectCode(codeId, addProject.getProjectCode());
+
+            return readProject(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        lock.readLock().lock();
+        try {
+            return readProjects(null, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        lock.readLock().lock();
+        try {
+            return readProjects(afterProjectCode, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        lock.readLock().lock();
+        try {
+            int slot = slotOf(projectCode);
+            return slot == NONE ? null : readProject(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        lock.readLock().lock();
+        try {
+            int slot = slotOf(projectCode);
+            int job = slot == NONE ? NONE : jobOf(slot, jobCode);
+            return job == NONE ? null : readJob(job);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(projectCode);
+            if (slot == NONE) {
+                throw new ProjectNotFoundException();
+            }
+
+            removeAssociations(projectCode);
+            removeProjectCode(projectCode);
+            slotByCodeId[projectCodes[slot]] = 0;
+            projectCodes[slot] = NONE;
+            abandonJobs(slot);
+            releaseProjectSlot(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return updateProject(updateProject, ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            int slot = existingSlot(updateProject.getProjectCode(), expectedVersion);
+
+            projectVersions[slot]++;
+            writeProject(slot, updateProject.getProjectName(), updateProject.getJobStatusList());
+            return readProject(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return updateProjectJobs(projectCode, projectJobStatusList, ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            int slot = existingSlot(projectCode, expectedVersion);
+
+            projectVersions[slot]++;
+            writeJobs(slot, projectJobStatusList);
+            return readProject(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(projectCode);
+            if (slot == NONE) {
+                throw new ProjectNotFoundException();
+            }
+
+            int job = jobOf(slot, jobCode);
+            if (job == NONE) {
+                throw new ProjectJobStatusNotFoundException();
+            }
+
+            jobNames[job] = intern(projectJobStatus.getJobName());
+            jobStatuses[job] = statusOrdinal(projectJobStatus.getJobStatus());
+            projectVersions[slot]++;
+            return readProject(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        JobStatusUpdateBatch batch = new JobStatusUpdateBatch(jobStatusUpdates);
+
+        lock.writeLock().lock();
+        try {
+            for (String projectCode : batch.projectCodes()) {
+                int slot = slotOf(projectCode);
+                if (slot == NONE) {
+                    batch.recordProjectNotFound(projectCode);
+                    continue;
+                }
+
+                boolean updated = false;
+                for (int index : batch.updateIndexesFor(projectCode)) {
+                    JobStatusUpdate update = batch.update(index);
+                    int job = jobOf(slot, update.getJobCode());
+                    if (job == NONE) {
+                        batch.record(index, JobStatusUpdateOutcome.JOB_NOT_FOUND);
+                        continue;
+                    }
+
+                    jobNames[job] = intern(update.getJobName());
+                    jobStatuses[job] = statusOrdinal(update.getJobStatus());
+                    batch.record(index, JobStatusUpdateOutcome.UPDATED);
+                    updated = true;
+                }
+
+                if (updated) {
+                    projectVersions[slot]++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return batch.results();
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        lock.writeLock().lock();
+        try {
+            if (slotOf(projectCode) == NONE) {
+                throw new ProjectNotFoundException();
+            }
+
+            userAssociatedProjects.computeIfAbsent(userName, user -> new LinkedHashSet<>()).add(projectCode);
+            projectAssociatedUsers.computeIfAbsent(projectCode, code -> new HashSet<>()).add(userName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        lock.readLock().lock();
+        try {
+            Set<String> projectCodes = userAssociatedProjects.get(username);
+            if (projectCodes != null) {
+                return Collections.unmodifiableList(new ArrayList<>(projectCodes));
+            }
+
+            return Collections.emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        lock.readLock().lock();
+        try {
+            Set<String> projectCodes = userAssociatedProjects.get(username);
+            return projectCodes != null && projectCodes.contains(projectCode);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeAssociations(String projectCode) {
+        Set<String> userNames = projectAssociatedUsers.remove(projectCode);
+        if (userNames == null) {
+            return;
+        }
+
+        for (String userName : userNames) {
+            Set<String> projectCodes = userAssociatedProjects.get(userName);
+            projectCodes.remove(projectCode);
+            if (projectCodes.isEmpty()) {
+                userAssociatedProjects.remove(userName);
+            }
+        }
+    }
+
+    private List<Project> readProjects(String afterProjectCode, int limit) {
+        int sorted = startAfter(sortedCodeIds, sortedCodeCount, afterProjectCode);
+        int recent = startAfter(recentCodeIds, recentCodeCount, afterProjectCode);
+        String sortedCode = sorted < sortedCodeCount ? lookup(sortedCodeIds[sorted]) : null;
+        String recentCode = recent < recentCodeCount ? lookup(recentCodeIds[recent]) : null;
+
+        List<Project> projects = new ArrayList<>(Math.min(limit, sortedCodeCount + recentCodeCount));
+        while (projects.size() < limit && (sortedCode != null || recentCode != null)) {
+            int codeId;
+            if (recentCode == null || (sortedCode != null && sortedCode.compareTo(recentCode) < 0)) {
+                codeId = sortedCodeIds[sorted++];
+                sortedCode = sorted < sortedCodeCount ? lookup(sortedCodeIds[sorted]) : null;
+            } else {
+                codeId = recentCodeIds[recent++];
+                recentCode = recent < recentCodeCount ? lookup(recentCodeIds[recent]) : null;
+            }
+            projects.add(readProject(slotByCodeId[codeId] - 1));
+        }
+        return projects;
+    }
+
+    private int startAfter(int[] codeIds, int count, String afterProjectCode) {
+        if (afterProjectCode == null) {
+            return 0;
+        }
+
+        int position = searchCodes(codeIds, count, afterProjectCode);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private void addProjectCode(int codeId, String projectCode) {
+        int position = -searchCodes(recentCodeIds, recentCodeCount, projectCode) - 1;
+        System.arraycopy(recentCodeIds, position, recentCodeIds, position + 1, recentCodeCount - position);
+        recentCodeIds[position] = codeId;
+        recentCodeCount++;
+
+        if (recentCodeCount == RECENT_CODES) {
+            mergeRecentCodes();
+        }
+    }
+
+    private void removeProjectCode(String projectCode) {
+        int position = searchCodes(recentCodeIds, recentCodeCount, projectCode);
+        if (position >= 0) {
+            System.arraycopy(recentCodeIds, position + 1, recentCodeIds, position, --recentCodeCount - position);
+            return;
+        }
+
+        position = searchCodes(sortedCodeIds, sortedCodeCount, projectCode);
+        System.arraycopy(sortedCodeIds, position + 1, sortedCodeIds, position, --sortedCodeCount - position);
+    }
+
+    /**
+     * Moves the recent codes into the main array from the back, each one straight to its
+     * final place, so the main array is shifted once in total.
+     */
+    private void mergeRecentCodes() {
+        if (sortedCodeCount + recentCodeCount > sortedCodeIds.length) {
+            sortedCodeIds = Arrays.copyOf(sortedCodeIds, Math.max(sortedCodeCount + recentCodeCount, sortedCodeIds.length * 2));
+        }
+
+        int sortedEnd = sortedCodeCount;
+        for (int recent = recentCodeCount - 1; recent >= 0; recent--) {
+            int codeId = recentCodeIds[recent];
+            int position = -searchCodes(sortedCodeIds, sortedEnd, lookup(codeId)) - 1;
+            System.arraycopy(sortedCodeIds, position, sortedCodeIds, position + recent + 1, sortedEnd - position);
+            sortedCodeIds[position + recent] = codeId;
+            sortedEnd = position;
+        }
+
+        sortedCodeCount += recentCodeCount;
+        recentCodeCount = 0;
+    }
+
+    /**
+     * @return the position of the code among the first count ids, or, as
+     * {@link Arrays#binarySearch(int[], int)} does, -(insertion point) - 1 when it is not there
+     */
+    private int searchCodes(int[] codeIds, int count, String projectCode) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = lookup(codeIds[middle]).compareTo(projectCode);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void writeProject(int slot, String projectName, List<ProjectJobStatus> projectJobStatusList) {
+        projectNames[slot] = intern(projectName);
+        writeJobs(slot, projectJobStatusList);
+    }
+
+    private void writeJobs(int slot, List<ProjectJobStatus> projectJobStatusList) {
+        if (projectJobStatusList == null) {
+            jobCounts[slot] = NONE;
+            return;
+        }
+
+        int jobCount = projectJobStatusList.size();
+        if (jobCount > jobCapacities[slot]) {
+            abandonJobs(slot);
+            jobStarts[slot] = allocateJobs(jobCount);
+            jobCapacities[slot] = jobCount;
+        }
+
+        int job = jobStarts[slot];
+        for (ProjectJobStatus projectJobStatus : projectJobStatusList) {
+            jobCodes[job] = intern(projectJobStatus.getJobCode());
+            jobNames[job] = intern(projectJobStatus.getJobName());
+            jobStatuses[job] = statusOrdinal(projectJobStatus.getJobStatus());
+            job++;
+        }
+        jobCounts[slot] = jobCount;
+    }
+
+    private Project readProject(int slot) {
+        List<ProjectJobStatus> jobList = null;
+
+        if (jobCounts[slot] != NONE) {
+            int jobStart = jobStarts[slot];
+            jobList = new ArrayList<>(jobCounts[slot]);
+            for (int job = jobStart; job < jobStart + jobCounts[slot]; job++) {
+                jobList.add(readJob(job));
+            }
+        }
+
+        return new Project(lookup(projectCodes[slot]), lookup(projectNames[slot]), jobList, projectVersions[slot]);
+    }
+
+    private ProjectJobStatus readJob(int job) {
+        return new ProjectJobStatus(
+                lookup(jobCodes[job]),
+                lookup(jobNames[job]),
+                jobStatuses[job] == NONE ? null : JOB_STATUSES[jobStatuses[job]]
+        );
+    }
+
+    private int existingSlot(String projectCode, long expectedVersion) {
+        int slot = slotOf(projectCode);
+        if (slot == NONE) {
+            throw new ProjectNotFoundException();
+        }
+        if (expectedVersion != ANY_VERSION && projectVersions[slot] != expectedVersion) {
+            throw new ProjectVersionMismatchException();
+        }
+        return slot;
+    }
+
+    private int slotOf(String projectCode) {
+        int codeId = dictionary.find(projectCode);
+        return codeId == NONE ? NONE : slotByCodeId[codeId] - 1;
+    }
+
+    private int jobOf(int slot, String jobCode) {
+        int jobCodeId = dictionary.find(jobCode);
+        int jobEnd = jobStarts[slot] + Math.max(jobCounts[slot], 0);
+        for (int job = jobStarts[slot]; jobCodeId != NONE && job < jobEnd; job++) {
+            if (jobCodes[job] == jobCodeId) {
+                return job;
+            }
+        }
+        return NONE;
+    }
+
+    private int allocateProjectSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+
+        if (projectSlots == projectCodes.length) {
+            int capacity = projectCodes.length * 2;
+            projectCodes = Arrays.copyOf(projectCodes, capacity);
+            projectNames = Arrays.copyOf(projectNames, capacity);
+            jobStarts = Arrays.copyOf(jobStarts, capacity);
+            jobCounts = Arrays.copyOf(jobCounts, capacity);
+            jobCapacities = Arrays.copyOf(jobCapacities, capacity);
+            projectVersions = Arrays.copyOf(projectVersions, capacity);
+        }
+        return projectSlots++;
+    }
+
+    private void releaseProjectSlot(int slot) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private int allocateJobs(int count) {
+        if (abandonedJobs > INITIAL_JOBS && abandonedJobs * 2 > jobsUsed) {
+            compactJobs();
+        }
+
+        if (jobsUsed + count > jobCodes.length) {
+            int capacity = Math.max(jobsUsed + count, jobCodes.length + (jobCodes.length >> 1));
+            jobCodes = Arrays.copyOf(jobCodes, capacity);
+            jobNames = Arrays.copyOf(jobNames, capacity);
+            jobStatuses = Arrays.copyOf(jobStatuses, capacity);
+        }
+
+        int start = jobsUsed;
+        jobsUsed += count;
+        return start;
+    }
+
+    private void abandonJobs(int slot) {
+        abandonedJobs += jobCapacities[slot];
+        jobCapacities[slot] = 0;
+        jobCounts[slot] = Math.min(jobCounts[slot], 0);
+    }
+
+    private void compactJobs() {
+        long[] rangesByStart = new long[projectSlots];
+        int ranges = 0;
+        for (int slot = 0; slot < projectSlots; slot++) {
+            if (projectCodes[slot] != NONE && jobCapacities[slot] != 0) {
+                rangesByStart[ranges++] = ((long) jobStarts[slot] << 32) | slot;
+            }
+        }
+        Arrays.sort(rangesByStart, 0, ranges);
+
+        int compacted = 0;
+        for (int range = 0; range < ranges; range++) {
+            int slot = (int) rangesByStart[range];
+            int jobStart = jobStarts[slot];
+            int jobCount = jobCapacities[slot];
+            System.arraycopy(jobCodes, jobStart, jobCodes, compacted, jobCount);
+            System.arraycopy(jobNames, jobStart, jobNames, compacted, jobCount);
+            System.arraycopy(jobStatuses, jobStart, jobStatuses, compacted, jobCount);
+            jobStarts[slot] = compacted;
+            compacted += jobCount;
+        }
+
+        jobsUsed = compacted;
+        abandonedJobs = 0;
+    }
+
+    private int intern(String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        int id = dictionary.idOf(value);
+        if (id >= slotByCodeId.length) {
+            slotByCodeId = Arrays.copyOf(slotByCodeId, Math.max(id + 1, slotByCodeId.length * 2));
+        }
+        return id;
+    }
+
+    private String lookup(int id) {
+        return id == NONE ? null : dictionary.get(id);
+    }
+
+    private static byte statusOrdinal(JobStatus jobStatus) {
+        return jobStatus == null ? NONE : (byte) jobStatus.ordinal();
+    }
+}
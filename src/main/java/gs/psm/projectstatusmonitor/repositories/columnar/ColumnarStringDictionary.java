@@ -0,0 +1,111 @@
+package gs.psm.projectstatusmonitor.repositories.columnar;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns dense int ids to distinct strings and keeps their UTF-8 bytes packed in a
+ * single array, so a string repeated across thousands of jobs costs one copy plus an int
+ * per use. Lookups go through an open-addressing table of ids.
+ *
+ * Not thread-safe; {@link ColumnarProjectRepository} guards it with its own lock.
+ */
+class ColumnarStringDictionary {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY * 16];
+
+    private int byteCount;
+
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+
+    private int size;
+
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+
+    int idOf(String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        int slot = probe(encoded);
+        if (index[slot] != 0) {
+            return index[slot] - 1;
+        }
+
+        if (byteCount + encoded.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(byteCount + encoded.length, bytes.length * 2));
+        }
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+
+        System.arraycopy(encoded, 0, bytes, byteCount, encoded.length);
+        byteCount += encoded.length;
+
+        int id = size++;
+        offsets[size] = byteCount;
+        index[slot] = id + 1;
+
+        if (size * 2 > index.length) {
+            rehash(index.length * 2);
+        }
+        return id;
+    }
+
+    int find(String value) {
+        return index[probe(value.getBytes(StandardCharsets.UTF_8))] - 1;
+    }
+
+    String get(int id) {
+        return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int probe(byte[] encoded) {
+        int mask = index.length - 1;
+        int slot = hash(encoded, 0, encoded.length) & mask;
+
+        while (index[slot] != 0 && !matches(index[slot] - 1, encoded)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(int id, byte[] encoded) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != encoded.length) {
+            return false;
+        }
+
+        for (int position = 0; position < encoded.length; position++) {
+            if (bytes[start + position] != encoded[position]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+
+        for (int id = 0; id < size; id++) {
+            int slot = hash(bytes, offsets[id], offsets[id + 1]) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = id + 1;
+        }
+        index = rehashed;
+    }
+
+    private static int hash(byte[] source, int from, int to) {
+        int hash = 1;
+        for (int position = from; position < to; position++) {
+            hash = 31 * hash + source[position];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,96 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the repository's model objects. Strings are written as a
+ * length-prefixed UTF-8 byte run and nulls are preserved as a length of -1.
+ */
+public final class BinaryProjectCodec {
+
+    private static final JobStatus[] JOB_STATUSES = JobStatus.values();
+
+    private BinaryProjectCodec() {
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeJob(DataOutput out, ProjectJobStatus job) throws IOException {
+        writeString(out, job.getJobCode());
+        writeString(out, job.getJobName());
+        out.writeByte(job.getJobStatus() == null ? -1 : job.getJobStatus().ordinal());
+    }
+
+    public static ProjectJobStatus readJob(DataInput in) throws IOException {
+        String jobCode = readString(in);
+        String jobName = readString(in);
+        byte jobStatus = in.readByte();
+        return new ProjectJobStatus(jobCode, jobName, jobStatus < 0 ? null : JOB_STATUSES[jobStatus]);
+    }
+
+    public static void writeJobs(DataOutput out, List<ProjectJobStatus> jobs) throws IOException {
+        if (jobs == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(jobs.size());
+        for (ProjectJobStatus job : jobs) {
+            writeJob(out, job);
+        }
+    }
+
+    public static List<ProjectJobStatus> readJobs(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+
+        List<ProjectJobStatus> jobs = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            jobs.add(readJob(in));
+        }
+        return jobs;
+    }
+
+    public static void writeProject(DataOutput out, Project project) throws IOException {
+        writeString(out, project.getProjectCode());
+        writeString(out, project.getProjectName());
+        writeJobs(out, project.getJobStatusList());
+    }
+
+    public static Project readProject(DataInput in) throws IOException {
+        String projectCode = readString(in);
+        String projectName = readString(in);
+        return new Project(projectCode, projectName, readJobs(in));
+    }
+}
@@ -0,0 +1,372 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectPersistenceException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.JobStatusUpdateBatch;
+import gs.psm.projectstatusmonitor.repositories.StripedLocks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps state in a delegate in-memory repository and makes every mutation durable in a
+ * {@link WriteAheadLog} before acknowledging it. The log is replayed into the delegate
+ * when the repository is created.
+ *
+ * A mutation is checked against the delegate's current project, written to the log and
+ * synced, and only then applied, all under the lock of its project. Nothing is visible
+ * in memory that a restart would lose, and a mutation the log could not take is not
+ * applied at all. The log order of any one project matches the order the delegate
+ * applied them in. Writers holding different lock stripes still share group commits;
+ * writers to the same stripe wait for each other's fsync.
+ *
+ * With a {@link SnapshotStore}, recovery loads the latest snapshot and replays only the
+ * log written after it, and checkpoints are taken periodically in the background. A
+ * checkpoint holds every project lock while it rolls the log and copies the live state,
+ * so no mutation can sit synced in the older segment but not yet applied; the snapshot
+ * holds exactly what was logged before the segment it names. Writing the copy out
+ * happens after the locks are released. Mutations that no longer apply on replay are
+ * skipped and logged with their place in the log, since they point at a damaged or
+ * doubly replayed log.
+ *
+ * A bulk job update takes the locks of all its projects, logs each job it will change as
+ * its own update and waits once for all of them, so the whole batch shares a single
+ * fsync. Job updates that would change nothing are not logged; the delegate drops them
+ * and leaves the project's version where it was.
+ *
+ * Conditional updates are logged as plain updates once their version check has passed.
+ * Project versions come back from the snapshot and move forward with every replayed
+ * mutation, so after a restart a project may carry a higher version than before, never
+ * a lower one.
+ */
+public class DurableProjectRepository implements ProjectRepository, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DurableProjectRepository.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final long ANY_VERSION = -1;
+
+    private final InMemoryProjectProjectRepository delegate;
+
+    private final WriteAheadLog writeAheadLog;
+
+    private final SnapshotStore snapshotStore;
+
+    private final StripedLocks projectLocks = new StripedLocks(LOCK_STRIPES);
+
+    private final ScheduledExecutorService checkpointScheduler;
+
+    public DurableProjectRepository(InMemoryProjectProjectRepository delegate, WriteAheadLog writeAheadLog) throws IOException {
+        this(delegate, writeAheadLog, null, 0);
+    }
+
+    public DurableProjectRepository(
+            InMemoryProjectProjectRepository delegate,
+            WriteAheadLog writeAheadLog,
+            SnapshotStore snapshotStore,
+            long checkpointIntervalMillis
+    ) throws IOException {
+        this.delegate = delegate;
+        this.writeAheadLog = writeAheadLog;
+        this.snapshotStore = snapshotStore;
+
+        long replayFrom = snapshotStore == null ? 0 : snapshotStore.loadLatest(delegate);
+        writeAheadLog.replay(replayFrom, this::replay);
+
+        if (snapshotStore != null && checkpointIntervalMillis > 0) {
+            checkpointScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "repository-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointScheduler.scheduleWithFixedDelay(this::checkpointInBackground,
+                    checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            checkpointScheduler = null;
+        }
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return logged(Mutation.addProject(addProject), () -> absent(addProject.getProjectCode()),
+                () -> delegate.addProject(addProject));
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return delegate.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return delegate.getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return delegate.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        return logged(Mutation.removeProject(projectCode), () -> present(projectCode, ANY_VERSION),
+                () -> delegate.removeProject(projectCode));
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return updateProject(updateProject, ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return logged(Mutation.updateProject(updateProject), () -> present(updateProject.getProjectCode(), expectedVersion),
+                () -> delegate.updateProject(updateProject, expectedVersion));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return updateProjectJobs(projectCode, projectJobStatusList, ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return logged(Mutation.updateProjectJobs(projectCode, projectJobStatusList),
+                () -> changesJobs(projectCode, projectJobStatusList, expectedVersion),
+                () -> delegate.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion));
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return logged(Mutation.updateJob(projectCode, jobCode, projectJobStatus),
+                () -> changesJob(projectCode, jobCode, projectJobStatus),
+                () -> delegate.updateJob(projectCode, jobCode, projectJobStatus));
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        JobStatusUpdateBatch batch = new JobStatusUpdateBatch(jobStatusUpdates);
+        List<Lock> locks = projectLocks.locksFor(batch.projectCodes());
+
+        locks.forEach(Lock::lock);
+        try {
+            List<CompletableFuture<Void>> appends = new ArrayList<>();
+            for (String projectCode : batch.projectCodes()) {
+                for (JobStatusUpdate update : changingUpdates(projectCode, batch.updatesFor(projectCode))) {
+                    Mutation mutation = Mutation.updateJob(projectCode, update.getJobCode(), update.toProjectJobStatus());
+                    appends.add(writeAheadLog.append(mutation.encode()));
+                }
+            }
+            awaitDurable(CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])));
+
+            for (String projectCode : batch.projectCodes()) {
+                batch.record(projectCode, delegate.updateJobs(batch.updatesFor(projectCode)));
+            }
+        } finally {
+            for (int index = locks.size() - 1; index >= 0; index--) {
+                locks.get(index).unlock();
+            }
+        }
+
+        return batch.results();
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        logged(Mutation.associateUser(userName, projectCode), () -> present(projectCode, ANY_VERSION), () -> {
+            delegate.associateUserWithProject(userName, projectCode);
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        return delegate.getUserAssociatedProjectCodes(username);
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return delegate.isUserAssociatedWithProject(username, projectCode);
+    }
+
+    /**
+     * Writes a snapshot of the current state and drops the log segments and snapshots
+     * that recovery no longer needs.
+     */
+    public synchronized void checkpoint() throws IOException {
+        long logSequence;
+        List<Project> projects;
+        Map<String, Set<String>> userAssociations = new HashMap<>();
+        List<Lock> locks = projectLocks.allLocks();
+        locks.forEach(Lock::lock);
+        try {
+            logSequence = writeAheadLog.rollSegment();
+            projects = delegate.listProjects();
+            delegate.getUserAssociations().forEach((userName, projectCodes) ->
+                    userAssociations.put(userName, new HashSet<>(projectCodes)));
+        } finally {
+            for (int index = locks.size() - 1; index >= 0; index--) {
+                locks.get(index).unlock();
+            }
+        }
+
+        snapshotStore.write(logSequence, projects, userAssociations);
+        writeAheadLog.deleteSegmentsBefore(snapshotStore.retainLatest());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (checkpointScheduler != null) {
+            checkpointScheduler.shutdown();
+            try {
+                checkpointScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writeAheadLog.close();
+    }
+
+    private void checkpointInBackground() {
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to checkpoint the project repository", e);
+        }
+    }
+
+    private void replay(long segmentSequence, long recordNumber, byte[] payload) {
+        Mutation mutation = Mutation.decode(payload);
+        try {
+            mutation.applyTo(delegate);
+        } catch (ProjectAlreadyExistsException | ProjectNotFoundException | ProjectJobStatusNotFoundException e) {
+            LOGGER.warn("Skipped write-ahead log record {} of segment {}: {} of project {} no longer applies ({})",
+                    recordNumber, segmentSequence, mutation.getType(), mutation.getProjectCode(), e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Under the project's lock, checks the mutation and, unless it would change nothing,
+     * makes it durable before applying it.
+     *
+     * @param check throws what the delegate would throw for the mutation, and otherwise
+     *              tells whether it changes anything
+     */
+    private <T> T logged(Mutation mutation, BooleanSupplier check, Supplier<T> operation) {
+        Lock lock = projectLocks.lockFor(mutation.getProjectCode());
+        lock.lock();
+        try {
+            if (check.getAsBoolean()) {
+                awaitDurable(writeAheadLog.append(mutation.encode()));
+            }
+            return operation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean absent(String projectCode) {
+        if (delegate.getProject(projectCode) != null) {
+            throw new ProjectAlreadyExistsException();
+        }
+        return true;
+    }
+
+    private boolean present(String projectCode, long expectedVersion) {
+        existingProject(projectCode, expectedVersion);
+        return true;
+    }
+
+    private boolean changesJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        Project project = existingProject(projectCode, expectedVersion);
+        return project.getJobStatusList() == null || !project.getJobStatusList().equals(projectJobStatusList);
+    }
+
+    private boolean changesJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        ProjectJobStatus job = delegate.getJob(projectCode, jobCode);
+        if (job == null) {
+            existingProject(projectCode, ANY_VERSION);
+            throw new ProjectJobStatusNotFoundException();
+        }
+        return !holds(job, projectJobStatus.getJobName(), projectJobStatus.getJobStatus());
+    }
+
+    /**
+     * The updates of a bulk job update, for one project, that the delegate will apply
+     * rather than drop, following each job through the earlier updates to it.
+     */
+    private List<JobStatusUpdate> changingUpdates(String projectCode, List<JobStatusUpdate> updates) {
+        Map<String, ProjectJobStatus> updatedJobs = new HashMap<>();
+        List<JobStatusUpdate> changing = new ArrayList<>();
+        for (JobStatusUpdate update : updates) {
+            ProjectJobStatus job = updatedJobs.get(update.getJobCode());
+            if (job == null) {
+                job = delegate.getJob(projectCode, update.getJobCode());
+            }
+            if (job != null && !holds(job, update.getJobName(), update.getJobStatus())) {
+                updatedJobs.put(update.getJobCode(), update.toProjectJobStatus());
+                changing.add(update);
+            }
+        }
+        return changing;
+    }
+
+    private Project existingProject(String projectCode, long expectedVersion) {
+        Project project = delegate.getProject(projectCode);
+        if (project == null) {
+            throw new ProjectNotFoundException();
+        }
+        if (expectedVersion != ANY_VERSION && project.getVersion() != expectedVersion) {
+            throw new ProjectVersionMismatchException();
+        }
+        return project;
+    }
+
+    private static boolean holds(ProjectJobStatus job, String jobName, JobStatus jobStatus) {
+        return Objects.equals(job.getJobName(), jobName) && job.getJobStatus() == jobStatus;
+    }
+
+    private void awaitDurable(CompletableFuture<Void> durable) {
+        try {
+            durable.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProjectPersistenceException(e);
+        } catch (ExecutionException e) {
+            throw new ProjectPersistenceException(e.getCause());
+        }
+    }
+}
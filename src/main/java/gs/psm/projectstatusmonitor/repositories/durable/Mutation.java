@@ -0,0 +1,218 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One state-changing call against a {@link ProjectRepository}, in a form that can be
+ * written to the log and applied again later.
+ */
+public class Mutation {
+
+    public enum Type {
+        ADD_PROJECT, UPDATE_PROJECT, UPDATE_PROJECT_JOBS, UPDATE_JOB, REMOVE_PROJECT, ASSOCIATE_USER, UPDATE_JOBS
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private final Type type;
+
+    private final String projectCode;
+
+    private final Project project;
+
+    private final List<ProjectJobStatus> jobs;
+
+    private final String jobCode;
+
+    private final ProjectJobStatus job;
+
+    private final String userName;
+
+    private Mutation(Type type, String projectCode, Project project, List<ProjectJobStatus> jobs,
+                     String jobCode, ProjectJobStatus job, String userName) {
+        this.type = type;
+        this.projectCode = projectCode;
+        this.project = project;
+        this.jobs = jobs;
+        this.jobCode = jobCode;
+        this.job = job;
+        this.userName = userName;
+    }
+
+    public static Mutation addProject(Project project) {
+        return new Mutation(Type.ADD_PROJECT, project.getProjectCode(), project, null, null, null, null);
+    }
+
+    public static Mutation updateProject(Project project) {
+        return new Mutation(Type.UPDATE_PROJECT, project.getProjectCode(), project, null, null, null, null);
+    }
+
+    public static Mutation updateProjectJobs(String projectCode, List<ProjectJobStatus> jobs) {
+        return new Mutation(Type.UPDATE_PROJECT_JOBS, projectCode, null, jobs, null, null, null);
+    }
+
+    public static Mutation updateJob(String projectCode, String jobCode, ProjectJobStatus job) {
+        return new Mutation(Type.UPDATE_JOB, projectCode, null, null, jobCode, job, null);
+    }
+
+    /**
+     * A bulk job update of one project, carrying only the jobs it changes, which applied
+     * together move the project's version by one.
+     */
+    public static Mutation updateJobs(String projectCode, List<ProjectJobStatus> jobs) {
+        return new Mutation(Type.UPDATE_JOBS, projectCode, null, jobs, null, null, null);
+    }
+
+    public static Mutation removeProject(String projectCode) {
+        return new Mutation(Type.REMOVE_PROJECT, projectCode, null, null, null, null, null);
+    }
+
+    public static Mutation associateUser(String userName, String projectCode) {
+        return new Mutation(Type.ASSOCIATE_USER, projectCode, null, null, null, null, userName);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getProjectCode() {
+        return projectCode;
+    }
+
+    public Project getProject() {
+        return project;
+    }
+
+    public List<ProjectJobStatus> getJobs() {
+        return jobs;
+    }
+
+    public String getJobCode() {
+        return jobCode;
+    }
+
+    public ProjectJobStatus getJob() {
+        return job;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void applyTo(ProjectRepository repository) {
+        switch (type) {
+            case ADD_PROJECT:
+                repository.addProject(project);
+                break;
+            case UPDATE_PROJECT:
+                repository.updateProject(project);
+                break;
+            case UPDATE_PROJECT_JOBS:
+                repository.updateProjectJobs(projectCode, jobs);
+                break;
+            case UPDATE_JOB:
+                repository.updateJob(projectCode, jobCode, job);
+                break;
+            case REMOVE_PROJECT:
+                repository.removeProject(projectCode);
+                break;
+            case ASSOCIATE_USER:
+                repository.associateUserWithProject(userName, projectCode);
+                break;
+            case UPDATE_JOBS:
+                List<JobStatusUpdate> updates = new ArrayList<>(jobs.size());
+                for (ProjectJobStatus changedJob : jobs) {
+                    updates.add(new JobStatusUpdate(projectCode, changedJob.getJobCode(), changedJob.getJobName(),
+                            changedJob.getJobStatus()));
+                }
+                repository.updateJobs(updates);
+                break;
+        }
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        switch (type) {
+            case ADD_PROJECT:
+            case UPDATE_PROJECT:
+                BinaryProjectCodec.writeProject(out, project);
+                break;
+            case UPDATE_PROJECT_JOBS:
+            case UPDATE_JOBS:
+                BinaryProjectCodec.writeString(out, projectCode);
+                BinaryProjectCodec.writeJobs(out, jobs);
+                break;
+            case UPDATE_JOB:
+                BinaryProjectCodec.writeString(out, projectCode);
+                BinaryProjectCodec.writeString(out, jobCode);
+                BinaryProjectCodec.writeJob(out, job);
+                break;
+            case REMOVE_PROJECT:
+                BinaryProjectCodec.writeString(out, projectCode);
+                break;
+            case ASSOCIATE_USER:
+                BinaryProjectCodec.writeString(out, userName);
+                BinaryProjectCodec.writeString(out, projectCode);
+                break;
+        }
+    }
+
+    public static Mutation decode(byte[] payload) {
+        try {
+            return readFrom(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Mutation readFrom(DataInput in) throws IOException {
+        Type type = TYPES[in.readByte()];
+        switch (type) {
+            case ADD_PROJECT:
+                return addProject(BinaryProjectCodec.readProject(in));
+            case UPDATE_PROJECT:
+                return updateProject(BinaryProjectCodec.readProject(in));
+            case UPDATE_PROJECT_JOBS:
+                String projectCode = BinaryProjectCodec.readString(in);
+                return updateProjectJobs(projectCode, BinaryProjectCodec.readJobs(in));
+            case UPDATE_JOB:
+                String jobProjectCode = BinaryProjectCodec.readString(in);
+                String jobCode = BinaryProjectCodec.readString(in);
+                return updateJob(jobProjectCode, jobCode, BinaryProjectCodec.readJob(in));
+            case REMOVE_PROJECT:
+                return removeProject(BinaryProjectCodec.readString(in));
+            case ASSOCIATE_USER:
+                String userName = BinaryProjectCodec.readString(in);
+                return associateUser(userName, BinaryProjectCodec.readString(in));
+            case UPDATE_JOBS:
+                String jobsProjectCode = BinaryProjectCodec.readString(in);
+                return updateJobs(jobsProjectCode, BinaryProjectCodec.readJobs(in));
+            default:
+                throw new IOException("Unknown mutation type " + type);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshots of all projects and user associations, each tagged with the first
+ * write-ahead log segment it does not cover.
+ *
+ * File layout: magic, format version, log sequence, project count, projects each followed
+ * by its version, user count, users with their project codes, then a CRC32 of everything before it. Files are written
+ * under a temporary name and moved into place, so a crash never leaves a half-written
+ * snapshot under a real name.
+ *
+ * Snapshots of format version 1, written before projects had versions, are still read;
+ * their projects start again at version 1. Only the current version is written.
+ */
+public class SnapshotStore {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x50534d53;
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int UNVERSIONED_FORMAT_VERSION = 1;
+
+    private static final int RETAINED_SNAPSHOTS = 2;
+
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    public Path write(long logSequence, List<Project> projects, Map<String, ? extends Collection<String>> userAssociations) throws IOException {
+        Path snapshotPath = snapshotPath(logSequence);
+        Path temporaryPath = directory.resolve(snapshotPath.getFileName() + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(temporaryPath.toFile())) {
+            writeSnapshot(new BufferedOutputStream(file, BUFFER_BYTES), logSequence, projects, userAssociations);
+            file.getFD().sync();
+        }
+
+        Files.move(temporaryPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return snapshotPath;
+    }
+
+    /**
+     * Writes a snapshot in the file layout to any stream, such as a socket to a replica,
+     * and flushes it.
+     */
+    public static void writeSnapshot(OutputStream stream, long logSequence, List<Project> projects,
+                                     Map<String, ? extends Collection<String>> userAssociations) throws IOException {
+        List<Map.Entry<String, ? extends Collection<String>>> users = new ArrayList<>(userAssociations.entrySet());
+
+        CheckedOutputStream checked = new CheckedOutputStream(stream, new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(logSequence);
+
+        out.writeInt(projects.size());
+        for (Project project : projects) {
+            BinaryProjectCodec.writeProject(out, project);
+            out.writeLong(project.getVersion());
+        }
+
+        out.writeInt(users.size());
+        for (Map.Entry<String, ? extends Collection<String>> user : users) {
+            BinaryProjectCodec.writeString(out, user.getKey());
+            List<String> projectCodes = new ArrayList<>(user.getValue());
+            out.writeInt(projectCodes.size());
+            for (String projectCode : projectCodes) {
+                BinaryProjectCodec.writeString(out, projectCode);
+            }
+        }
+
+        out.writeLong(checked.getChecksum().getValue());
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeSnapshot} into the target, returning its log
+     * sequence. The checksum is checked once everything has been read, so a target that
+     * fails the check has already been loaded and should be thrown away.
+     */
+    public static long readSnapshot(InputStream stream, ProjectRepository target) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(stream, new CRC32());
+        DataInputStream in = new DataInputStream(checked);
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a project snapshot");
+        }
+        int formatVersion = in.readInt();
+        if (!isReadable(formatVersion)) {
+            throw new IOException("Unsupported project snapshot format version " + formatVersion);
+        }
+        long logSequence = readBody(in, formatVersion, target);
+
+        long computedChecksum = checked.getChecksum().getValue();
+        if (new DataInputStream(stream).readLong() != computedChecksum) {
+            throw new IOException("Project snapshot checksum mismatch");
+        }
+        return logSequence;
+    }
+
+    /**
+     * Loads the newest snapshot whose checksum and version check out into the target,
+     * returning the log sequence replay should resume from, or 0 when there is none.
+     */
+    public long loadLatest(ProjectRepository target) throws IOException {
+        List<Path> snapshots = listSnapshots();
+
+        for (int index = snapshots.size() - 1; index >= 0; index--) {
+            Path snapshotPath = snapshots.get(index);
+            if (isIntact(snapshotPath)) {
+                return load(snapshotPath, target);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Deletes all but the newest snapshots, returning the log sequence of the oldest one
+     * kept. Log segments before that sequence are no longer needed for recovery.
+     */
+    public long retainLatest() throws IOException {
+        List<Path> snapshots = listSnapshots();
+
+        for (int index = 0; index < snapshots.size() - RETAINED_SNAPSHOTS; index++) {
+            Files.deleteIfExists(snapshots.get(index));
+        }
+
+        int oldestRetained = Math.max(0, snapshots.size() - RETAINED_SNAPSHOTS);
+        return snapshots.isEmpty() ? 0 : sequenceOf(snapshots.get(oldestRetained));
+    }
+
+    private long load(Path snapshotPath, ProjectRepository target) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath), BUFFER_BYTES))) {
+            in.readInt();
+            return readBody(in, in.readInt(), target);
+        }
+    }
+
+    private static long readBody(DataInputStream in, int formatVersion, ProjectRepository target) throws IOException {
+        long logSequence = in.readLong();
+
+        int projectCount = in.readInt();
+        for (int index = 0; index < projectCount; index++) {
+            Project project = BinaryProjectCodec.readProject(in);
+            if (formatVersion != UNVERSIONED_FORMAT_VERSION) {
+                project.setVersion(in.readLong());
+            }
+            target.addProject(project);
+        }
+
+        int userCount = in.readInt();
+        for (int index = 0; index < userCount; index++) {
+            String userName = BinaryProjectCodec.readString(in);
+            int projectCodeCount = in.readInt();
+            for (int code = 0; code < projectCodeCount; code++) {
+                String projectCode = BinaryProjectCodec.readString(in);
+                try {
+                    target.associateUserWithProject(userName, projectCode);
+                } catch (ProjectNotFoundException e) {
+                    // the project was removed while the snapshot was being written
+                }
+            }
+        }
+
+        return logSequence;
+    }
+
+    private boolean isIntact(Path snapshotPath) throws IOException {
+        long size = Files.size(snapshotPath);
+        if (size < 24) {
+            return false;
+        }
+
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotPath), BUFFER_BYTES), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+
+            if (in.readInt() != MAGIC || !isReadable(in.readInt())) {
+                return false;
+            }
+
+            byte[] buffer = new byte[BUFFER_BYTES];
+            long remaining = size - 8 - 8;
+            while (remaining > 0) {
+                int read = checked.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    return false;
+                }
+                remaining -= read;
+            }
+
+            long computedChecksum = checked.getChecksum().getValue();
+            return in.readLong() == computedChecksum;
+        }
+    }
+
+    private static boolean isReadable(int formatVersion) {
+        return formatVersion == FORMAT_VERSION || formatVersion == UNVERSIONED_FORMAT_VERSION;
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String fileName = path.getFileName().toString();
+                return fileName.startsWith(SNAPSHOT_PREFIX) && fileName.endsWith(SNAPSHOT_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private Path snapshotPath(long logSequence) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, logSequence, SNAPSHOT_SUFFIX));
+    }
+
+    private static long sequenceOf(Path snapshotPath) {
+        String fileName = snapshotPath.getFileName().toString();
+        return Long.parseLong(fileName.substring(SNAPSHOT_PREFIX.length(), fileName.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
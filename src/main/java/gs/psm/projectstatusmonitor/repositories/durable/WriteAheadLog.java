@@ -0,0 +1,455 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of opaque records kept as a sequence of segment files in one directory.
+ *
+ * Each record is framed as [length][crc32][payload]. Appends are queued and a single
+ * writer thread drains whatever has accumulated, writes it as one batch and issues one
+ * fsync for the whole batch, so concurrent writers share the cost of syncing. Every
+ * process start writes to a fresh segment; segments roll over once they pass the
+ * configured size, or when a checkpoint asks for a clean cut with {@link #rollSegment()}.
+ *
+ * Records larger than replay accepts are refused when they are appended, rather than being
+ * acknowledged and then read back as a torn tail.
+ *
+ * A batch that fails to write or sync fails every append in it. The writer then cuts the
+ * segment back to the end of the last synced batch, reopening it if the failure closed
+ * the channel, and carries on once that succeeds; until it does, every later batch
+ * retries the repair first and fails if it still cannot be made.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private static final int MAX_BATCH_RECORDS = 4096;
+
+    private static final PendingRecord CLOSE = new PendingRecord(null);
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    private final List<Path> recoveredSegments;
+
+    private final BlockingQueue<PendingRecord> pendingRecords = new LinkedBlockingQueue<>();
+
+    private final Object lifecycleLock = new Object();
+
+    private final Thread writerThread;
+
+    private final AtomicLong appendedRecords = new AtomicLong();
+
+    private final AtomicLong syncs = new AtomicLong();
+
+    private boolean closed;
+
+    private IOException failure;
+
+    private FileChannel segment;
+
+    private long segmentSequence;
+
+    private long segmentSize;
+
+    private ByteBuffer batchBuffer = ByteBuffer.allocate(64 * 1024);
+
+    public WriteAheadLog(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+
+        Files.createDirectories(directory);
+        recoveredSegments = listSegments();
+
+        long lastSequence = recoveredSegments.isEmpty() ? 0 : sequenceOf(recoveredSegments.get(recoveredSegments.size() - 1));
+        openSegment(lastSequence + 1);
+
+        writerThread = new Thread(this::writeLoop, "write-ahead-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Feeds every intact record written by earlier runs to the consumer, oldest first. A
+     * record torn by a crash at the end of the newest earlier segment is cut off there.
+     */
+    public long replay(Consumer<byte[]> consumer) throws IOException {
+        return replay(0, consumer);
+    }
+
+    public long replay(long fromSequence, Consumer<byte[]> consumer) throws IOException {
+        return replay(fromSequence, (segmentSequence, recordNumber, payload) -> consumer.accept(payload));
+    }
+
+    /**
+     * As {@link #replay(Consumer)}, skipping segments older than the given sequence
+     * because a snapshot already covers them, and telling the consumer where each record
+     * sits in the log.
+     */
+    public long replay(long fromSequence, RecordConsumer consumer) throws IOException {
+        long replayed = 0;
+
+        for (int index = 0; index < recoveredSegments.size(); index++) {
+            Path segmentPath = recoveredSegments.get(index);
+            if (sequenceOf(segmentPath) < fromSequence) {
+                continue;
+            }
+            long[] counts = replaySegment(segmentPath, sequenceOf(segmentPath), consumer);
+            replayed += counts[1];
+
+            if (counts[0] < Files.size(segmentPath)) {
+                if (index != recoveredSegments.size() - 1) {
+                    throw new IOException("Corrupt write-ahead log segment " + segmentPath);
+                }
+                try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+                    channel.truncate(counts[0]);
+                    channel.force(true);
+                }
+            }
+        }
+
+        return replayed;
+    }
+
+    /**
+     * Queues a record, completing once it is synced.
+     *
+     * @throws IllegalArgumentException if the record is larger than replay would accept
+     */
+    public CompletableFuture<Void> append(byte[] payload) {
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Write-ahead log record of " + payload.length
+                    + " bytes exceeds the limit of " + MAX_RECORD_BYTES + " bytes");
+        }
+        PendingRecord record = new PendingRecord(payload);
+
+        synchronized (lifecycleLock) {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            pendingRecords.add(record);
+        }
+
+        return record.completion;
+    }
+
+    /**
+     * Closes the current segment and starts a new one, returning the new segment's
+     * sequence. Every record appended before this call lands in an older segment.
+     */
+    public long rollSegment() throws IOException {
+        PendingRecord roll = new PendingRecord(null);
+
+        synchronized (lifecycleLock) {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            pendingRecords.add(roll);
+        }
+
+        try {
+            return roll.rolledTo.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Deletes segments, from this or earlier runs, that are older than the given sequence.
+     */
+    public void deleteSegmentsBefore(long sequence) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path segmentPath : (Iterable<Path>) files::iterator) {
+                if (isSegment(segmentPath) && sequenceOf(segmentPath) < sequence) {
+                    Files.deleteIfExists(segmentPath);
+                }
+            }
+        }
+    }
+
+    public long getAppendedRecords() {
+        return appendedRecords.get();
+    }
+
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lifecycleLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pendingRecords.add(CLOSE);
+        }
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+
+        while (true) {
+            try {
+                batch.add(pendingRecords.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            pendingRecords.drainTo(batch, MAX_BATCH_RECORDS - 1);
+
+            int batchStart = 0;
+            for (int index = 0; index < batch.size(); index++) {
+                PendingRecord record = batch.get(index);
+                if (record.payload != null) {
+                    continue;
+                }
+
+                writeBatch(batch.subList(batchStart, index));
+                batchStart = index + 1;
+
+                if (record == CLOSE) {
+                    return;
+                }
+                roll(record);
+            }
+            writeBatch(batch.subList(batchStart, batch.size()));
+            batch.clear();
+        }
+    }
+
+    private void roll(PendingRecord roll) {
+        try {
+            recover();
+            segment.close();
+            openSegment(segmentSequence + 1);
+            roll.rolledTo.complete(segmentSequence);
+        } catch (IOException e) {
+            failed(e);
+            roll.rolledTo.completeExceptionally(e);
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            recover();
+
+            ByteBuffer buffer = fillBatchBuffer(batch);
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(false);
+            segmentSize += buffer.limit();
+        } catch (IOException e) {
+            failed(e);
+            for (PendingRecord record : batch) {
+                record.completion.completeExceptionally(e);
+            }
+            return;
+        }
+
+        syncs.incrementAndGet();
+        appendedRecords.addAndGet(batch.size());
+        for (PendingRecord record : batch) {
+            record.completion.complete(null);
+        }
+
+        if (segmentSize >= segmentBytes) {
+            try {
+                segment.close();
+                openSegment(segmentSequence + 1);
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+    }
+
+    private void failed(IOException e) {
+        failure = e;
+        try {
+            recover();
+        } catch (IOException retryLater) {
+            e.addSuppressed(retryLater);
+        }
+    }
+
+    /**
+     * After a failure, drops whatever part of the failed batch reached the segment so the
+     * segment ends with the last synced record again, and clears the failure.
+     */
+    private void recover() throws IOException {
+        if (failure == null) {
+            return;
+        }
+
+        if (!segment.isOpen()) {
+            segment = FileChannel.open(segmentPath(segmentSequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        segment.truncate(segmentSize);
+        segment.position(segmentSize);
+        segment.force(true);
+        failure = null;
+    }
+
+    private ByteBuffer fillBatchBuffer(List<PendingRecord> batch) {
+        int batchBytes = 0;
+        for (PendingRecord record : batch) {
+            batchBytes += RECORD_HEADER_BYTES + record.payload.length;
+        }
+        if (batchBuffer.capacity() < batchBytes) {
+            batchBuffer = ByteBuffer.allocate(Math.max(batchBytes, batchBuffer.capacity() * 2));
+        }
+
+        CRC32 checksum = new CRC32();
+        batchBuffer.clear();
+        for (PendingRecord record : batch) {
+            checksum.reset();
+            checksum.update(record.payload, 0, record.payload.length);
+            batchBuffer.putInt(record.payload.length);
+            batchBuffer.putInt((int) checksum.getValue());
+            batchBuffer.put(record.payload);
+        }
+        batchBuffer.flip();
+        return batchBuffer;
+    }
+
+    private long[] replaySegment(Path segmentPath, long segmentSequence, RecordConsumer consumer) throws IOException {
+        long validBytes = 0;
+        long records = 0;
+        CRC32 checksum = new CRC32();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath), 256 * 1024))) {
+            while (true) {
+                byte[] payload;
+                int expectedChecksum;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    expectedChecksum = in.readInt();
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                checksum.reset();
+                checksum.update(payload, 0, payload.length);
+                if ((int) checksum.getValue() != expectedChecksum) {
+                    break;
+                }
+
+                consumer.accept(segmentSequence, records, payload);
+                validBytes += RECORD_HEADER_BYTES + payload.length;
+                records++;
+            }
+        }
+
+        return new long[]{validBytes, records};
+    }
+
+    private void openSegment(long sequence) throws IOException {
+        segmentSequence = sequence;
+        segmentSize = 0;
+        segment = FileChannel.open(segmentPath(sequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(WriteAheadLog::isSegment)
+                    .sorted()
+                    .forEach(segments::add);
+        }
+
+        List<Path> keptSegments = new ArrayList<>(segments.size());
+        for (Path segmentPath : segments) {
+            boolean newest = segmentPath.equals(segments.get(segments.size() - 1));
+            if (Files.size(segmentPath) == 0 && !newest) {
+                Files.delete(segmentPath);
+            } else {
+                keptSegments.add(segmentPath);
+            }
+        }
+        return keptSegments;
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private static boolean isSegment(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path segmentPath) {
+        String fileName = segmentPath.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Receives replayed records together with their segment's sequence and their position
+     * in that segment, counting from 0.
+     */
+    public interface RecordConsumer {
+
+        void accept(long segmentSequence, long recordNumber, byte[] payload);
+    }
+
+    private static class PendingRecord {
+
+        private final byte[] payload;
+
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private final CompletableFuture<Long> rolledTo = new CompletableFuture<>();
+
+        private PendingRecord(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+}
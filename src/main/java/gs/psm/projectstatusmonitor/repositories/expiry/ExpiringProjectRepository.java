@@ -0,0 +1,477 @@
+package gs.psm.projectstatusmonitor.repositories.expiry;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.StripedLocks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Decorator that removes projects nobody has written to for longer than a time-to-live,
+ * so projects of short-lived branches do not stay in the repository forever. A removed
+ * project goes through the delegate's {@link ProjectRepository#removeProject}, so its jobs
+ * and anything indexed from them go with it.
+ *
+ * A project is touched by every write to it that succeeds, including job updates that
+ * change nothing; reads do not touch it.
+ *
+ * Given a file, the last write to every project is saved to it on {@link #close()}, and
+ * read back when the decorator is created, so restarts do not keep a persistent delegate's
+ * projects alive. Saving writes out every project, so a sweep only saves when a tenth of
+ * the time-to-live has passed since the last save and a project has been touched or
+ * removed since. A crash loses the touches since the last save, so those projects may
+ * expire up to a tenth of their time-to-live early. Projects the file does not know, and
+ * all of them without a file, are touched when the decorator is created.
+ *
+ * Each project has one entry in a queue ordered by the time it is due to expire, written
+ * when the project is first touched. A touch only records the time, so a sweep looks at
+ * the due entries alone: a project touched since its entry was queued is queued again for
+ * its new expiry time, and one that was not is removed. A project is checked and removed
+ * under its lock, so a write racing the sweep either lands first and keeps the project or
+ * finds it gone. A project whose removal fails stays queued and is tried again on a
+ * later sweep.
+ */
+public class ExpiringProjectRepository implements ProjectRepository, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExpiringProjectRepository.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final int LAST_WRITES_FORMAT_VERSION = 1;
+
+    private static final int SAVES_PER_TIME_TO_LIVE = 10;
+
+    private final ProjectRepository delegate;
+
+    private final long timeToLiveMillis;
+
+    private final long sweepIntervalMillis;
+
+    private final Clock clock;
+
+    private final Path lastWritesFile;
+
+    private final StripedLocks projectLocks = new StripedLocks(LOCK_STRIPES);
+
+    private final Map<String, TouchedProject> touchedProjects = new ConcurrentHashMap<>();
+
+    private final PriorityQueue<TouchedProject> expiries = new PriorityQueue<>();
+
+    private final LongAdder evictedProjects = new LongAdder();
+
+    private final ScheduledExecutorService sweepScheduler;
+
+    private volatile boolean lastWritesChanged;
+
+    private long lastSavedMillis;
+
+    public ExpiringProjectRepository(ProjectRepository delegate, long timeToLiveMillis, long sweepIntervalMillis, Clock clock) {
+        this(delegate, timeToLiveMillis, sweepIntervalMillis, clock, null);
+    }
+
+    /**
+     * @param lastWritesFile where the last write to each project is kept across restarts,
+     *                       or null to treat every start as a write to every project
+     */
+    public ExpiringProjectRepository(
+            ProjectRepository delegate,
+            long timeToLiveMillis,
+            long sweepIntervalMillis,
+            Clock clock,
+            Path lastWritesFile
+    ) {
+        this.delegate = delegate;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.clock = clock;
+        this.lastWritesFile = lastWritesFile;
+        this.lastSavedMillis = clock.millis();
+
+        Map<String, Long> lastWrites = loadLastWrites();
+        for (Project project : delegate.listProjects()) {
+            Long lastWriteMillis = lastWrites.get(project.getProjectCode());
+            if (lastWriteMillis == null) {
+                touched(project.getProjectCode());
+            } else {
+                TouchedProject touchedProject = new TouchedProject(project.getProjectCode(), lastWriteMillis);
+                touchedProjects.put(project.getProjectCode(), touchedProject);
+                queue(touchedProject, lastWriteMillis + timeToLiveMillis);
+            }
+        }
+
+        sweepScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "repository-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweepScheduler.scheduleWithFixedDelay(this::sweepInBackground,
+                sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return touching(addProject.getProjectCode(), () -> delegate.addProject(addProject));
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return delegate.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return delegate.getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return delegate.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            boolean removed;
+            try {
+                removed = delegate.removeProject(projectCode);
+            } catch (ProjectNotFoundException e) {
+                touchedProjects.remove(projectCode);
+                throw e;
+            }
+            touchedProjects.remove(projectCode);
+            lastWritesChanged = true;
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return touching(updateProject.getProjectCode(), () -> delegate.updateProject(updateProject));
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return touching(updateProject.getProjectCode(), () -> delegate.updateProject(updateProject, expectedVersion));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return touching(projectCode, () -> delegate.updateProjectJobs(projectCode, projectJobStatusList));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return touching(projectCode, () -> delegate.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion));
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return touching(projectCode, () -> delegate.updateJob(projectCode, jobCode, projectJobStatus));
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        Set<String> projectCodes = new HashSet<>();
+        for (JobStatusUpdate update : jobStatusUpdates) {
+            projectCodes.add(update.getProjectCode());
+        }
+
+        List<Lock> locks = projectLocks.locksFor(projectCodes);
+        locks.forEach(Lock::lock);
+        try {
+            List<JobStatusUpdateResult> results = delegate.updateJobs(jobStatusUpdates);
+            for (JobStatusUpdateResult result : results) {
+                if (result.getOutcome() == JobStatusUpdateOutcome.UPDATED
+                        || result.getOutcome() == JobStatusUpdateOutcome.UNCHANGED) {
+                    touched(result.getProjectCode());
+                }
+            }
+            return results;
+        } finally {
+            for (int index = locks.size() - 1; index >= 0; index--) {
+                locks.get(index).unlock();
+            }
+        }
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        delegate.associateUserWithProject(userName, projectCode);
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        return delegate.getUserAssociatedProjectCodes(username);
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return delegate.isUserAssociatedWithProject(username, projectCode);
+    }
+
+    /**
+     * Removes every project whose time-to-live has run out.
+     *
+     * @return the number of projects removed
+     */
+    public int sweep() {
+        long nowMillis = clock.millis();
+        int evicted = 0;
+
+        TouchedProject touchedProject;
+        while ((touchedProject = dueExpiry(nowMillis)) != null) {
+            if (expired(touchedProject, nowMillis)) {
+                evicted++;
+            }
+        }
+
+        evictedProjects.add(evicted);
+        if (lastWritesChanged && nowMillis - lastSavedMillis >= timeToLiveMillis / SAVES_PER_TIME_TO_LIVE) {
+            lastSavedMillis = nowMillis;
+            saveLastWrites();
+        }
+        return evicted;
+    }
+
+    public long evictedProjectCount() {
+        return evictedProjects.sum();
+    }
+
+    public int liveProjectCount() {
+        return touchedProjects.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sweepScheduler.shutdown();
+        try {
+            sweepScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            saveLastWrites();
+        } finally {
+            if (delegate instanceof Closeable) {
+                ((Closeable) delegate).close();
+            }
+        }
+    }
+
+    private void sweepInBackground() {
+        try {
+            int evicted = sweep();
+            if (evicted > 0) {
+                LOGGER.info("Removed {} projects not written to in the last {} ms", evicted, timeToLiveMillis);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Removing expired projects failed", e);
+        }
+    }
+
+    private <T> T touching(String projectCode, Supplier<T> operation) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            T result = operation.get();
+            touched(projectCode);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void touched(String projectCode) {
+        long nowMillis = clock.millis();
+        TouchedProject touchedProject = touchedProjects.get(projectCode);
+        if (touchedProject != null) {
+            touchedProject.lastTouchedMillis = nowMillis;
+        } else {
+            touchedProject = new TouchedProject(projectCode, nowMillis);
+            touchedProjects.put(projectCode, touchedProject);
+            queue(touchedProject, nowMillis + timeToLiveMillis);
+        }
+
+        if (!lastWritesChanged) {
+            lastWritesChanged = true;
+        }
+    }
+
+    /**
+     * Takes the queued project whose expiry is the earliest, if that time has come. Its
+     * entry leaves the queue; {@link #expired} queues it again if it is still alive.
+     */
+    private TouchedProject dueExpiry(long nowMillis) {
+        synchronized (expiries) {
+            TouchedProject touchedProject = expiries.peek();
+            if (touchedProject == null || touchedProject.expiresAtMillis > nowMillis) {
+                return null;
+            }
+            return expiries.poll();
+        }
+    }
+
+    /**
+     * Removes the project if it has not been touched since its time-to-live began. An
+     * entry left behind by a project removed, and perhaps added again, since it was
+     * queued is dropped.
+     */
+    private boolean expired(TouchedProject touchedProject, long nowMillis) {
+        String projectCode = touchedProject.projectCode;
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            if (touchedProjects.get(projectCode) != touchedProject) {
+                return false;
+            }
+
+            long expiresAtMillis = touchedProject.lastTouchedMillis + timeToLiveMillis;
+            if (expiresAtMillis > nowMillis) {
+                queue(touchedProject, expiresAtMillis);
+                return false;
+            }
+
+            boolean removed;
+            try {
+                removed = delegate.removeProject(projectCode);
+            } catch (ProjectNotFoundException e) {
+                removed = false;
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to remove expired project {}, retrying on a later sweep", projectCode, e);
+                queue(touchedProject, nowMillis + sweepIntervalMillis);
+                return false;
+            }
+            touchedProjects.remove(projectCode);
+            lastWritesChanged = true;
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Long> loadLastWrites() {
+        Map<String, Long> lastWrites = new HashMap<>();
+        if (lastWritesFile == null || !Files.exists(lastWritesFile)) {
+            return lastWrites;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(lastWritesFile)))) {
+            int formatVersion = in.readInt();
+            if (formatVersion != LAST_WRITES_FORMAT_VERSION) {
+                throw new IOException("Unsupported last writes format version " + formatVersion);
+            }
+            int projects = in.readInt();
+            for (int project = 0; project < projects; project++) {
+                lastWrites.put(in.readUTF(), in.readLong());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the last writes to projects from " + lastWritesFile, e);
+        }
+        return lastWrites;
+    }
+
+    /**
+     * Replaces the file with the current last writes, through a temporary file so that a
+     * crash leaves either the old or the new one whole. A touch made while the file is
+     * being written, or a failure to write it, marks the last writes changed again.
+     */
+    private void saveLastWrites() {
+        if (lastWritesFile == null) {
+            return;
+        }
+
+        lastWritesChanged = false;
+
+        List<TouchedProject> projects = new ArrayList<>(touchedProjects.values());
+        Path temporaryFile = lastWritesFile.resolveSibling(lastWritesFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(lastWritesFile.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(temporaryFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+                out.writeInt(LAST_WRITES_FORMAT_VERSION);
+                out.writeInt(projects.size());
+                for (TouchedProject project : projects) {
+                    out.writeUTF(project.projectCode);
+                    out.writeLong(project.lastTouchedMillis);
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporaryFile, lastWritesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            lastWritesChanged = true;
+            throw new UncheckedIOException("Failed to save the last writes to projects to " + lastWritesFile, e);
+        }
+    }
+
+    private void queue(TouchedProject touchedProject, long expiresAtMillis) {
+        synchronized (expiries) {
+            touchedProject.expiresAtMillis = expiresAtMillis;
+            expiries.add(touchedProject);
+        }
+    }
+
+    private static class TouchedProject implements Comparable<TouchedProject> {
+
+        private final String projectCode;
+
+        private volatile long lastTouchedMillis;
+
+        private long expiresAtMillis;
+
+        private TouchedProject(String projectCode, long lastTouchedMillis) {
+            this.projectCode = projectCode;
+            this.lastTouchedMillis = lastTouchedMillis;
+        }
+
+        @Override
+        public int compareTo(TouchedProject other) {
+            return Long.compare(expiresAtMillis, other.expiresAtMillis);
+        }
+    }
+}
@@ -0,0 +1,569 @@
+package gs.psm.projectstatusmonitor.repositories.jdbc;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectPersistenceException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.JobStatusUpdateBatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Repository backed by an embedded database over JDBC, by default H2 in file mode, with
+ * projects, jobs and user associations in separate tables.
+ *
+ * Replacing a project's jobs deletes its job rows and inserts the new list as a single
+ * JDBC batch. Updating one job is a single-row UPDATE of that job plus a bump of the
+ * project's version, rather than a rewrite of the project. Every statement is prepared
+ * once and reused for the life of the repository.
+ *
+ * The repository works over one connection: calls are serialised on a lock and each
+ * write commits as its own transaction. Removing a project cascades to its jobs and
+ * associations. Listings come back in project code order.
+ */
+public class JdbcProjectRepository implements ProjectRepository, Closeable {
+
+    private static final long ANY_VERSION = -1;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS project (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "project_code VARCHAR NOT NULL UNIQUE, " +
+                    "project_name VARCHAR, " +
+                    "has_jobs BOOLEAN NOT NULL, " +
+                    "version BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS job (" +
+                    "project_id BIGINT NOT NULL REFERENCES project(id) ON DELETE CASCADE, " +
+                    "job_index INT NOT NULL, " +
+                    "job_code VARCHAR NOT NULL, " +
+                    "job_name VARCHAR, " +
+                    "job_status VARCHAR, " +
+                    "PRIMARY KEY (project_id, job_index))",
+            "CREATE INDEX IF NOT EXISTS job_by_code ON job(project_id, job_code)",
+            "CREATE TABLE IF NOT EXISTS user_project (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "username VARCHAR NOT NULL, " +
+                    "project_id BIGINT NOT NULL REFERENCES project(id) ON DELETE CASCADE, " +
+                    "UNIQUE (username, project_id))"
+    };
+
+    private static final String SELECT_PROJECT_ROW =
+            "SELECT id, project_name, has_jobs, version FROM project WHERE project_code = ?";
+
+    private static final String SELECT_JOBS =
+            "SELECT job_code, job_name, job_status FROM job WHERE project_id = ? ORDER BY job_index";
+
+    private static final String SELECT_JOB =
+            "SELECT j.job_code, j.job_name, j.job_status FROM job j JOIN project p ON p.id = j.project_id " +
+                    "WHERE p.project_code = ? AND j.job_code = ? ORDER BY j.job_index LIMIT 1";
+
+    private static final String SELECT_ALL_PROJECTS =
+            "SELECT p.project_code, p.project_name, p.has_jobs, p.version, j.job_code, j.job_name, j.job_status " +
+                    "FROM project p LEFT JOIN job j ON j.project_id = p.id " +
+                    "ORDER BY p.project_code, j.job_index";
+
+    private static final String SELECT_FIRST_PROJECTS =
+            "SELECT p.project_code, p.project_name, p.has_jobs, p.version, j.job_code, j.job_name, j.job_status " +
+                    "FROM (SELECT * FROM project ORDER BY project_code LIMIT ?) p " +
+                    "LEFT JOIN job j ON j.project_id = p.id " +
+                    "ORDER BY p.project_code, j.job_index";
+
+    private static final String SELECT_PROJECTS_AFTER =
+            "SELECT p.project_code, p.project_name, p.has_jobs, p.version, j.job_code, j.job_name, j.job_status " +
+                    "FROM (SELECT * FROM project WHERE project_code > ? ORDER BY project_code LIMIT ?) p " +
+                    "LEFT JOIN job j ON j.project_id = p.id " +
+                    "ORDER BY p.project_code, j.job_index";
+
+    private static final String INSERT_PROJECT =
+            "INSERT INTO project (project_code, project_name, has_jobs, version) VALUES (?, ?, ?, ?)";
+
+    private static final String UPDATE_PROJECT =
+            "UPDATE project SET project_name = ?, has_jobs = ?, version = ? WHERE id = ?";
+
+    private static final String UPDATE_PROJECT_JOB_LIST =
+            "UPDATE project SET has_jobs = ?, version = ? WHERE id = ?";
+
+    private static final String BUMP_PROJECT_VERSION =
+            "UPDATE project SET version = version + 1 WHERE id = ?";
+
+    private static final String DELETE_PROJECT =
+            "DELETE FROM project WHERE project_code = ?";
+
+    private static final String INSERT_JOB =
+            "INSERT INTO job (project_id, job_index, job_code, job_name, job_status) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String DELETE_JOBS =
+            "DELETE FROM job WHERE project_id = ?";
+
+    private static final String UPDATE_JOB =
+            "UPDATE job SET job_name = ?, job_status = ? " +
+                    "WHERE project_id = ? AND job_index = " +
+                    "(SELECT MIN(job_index) FROM job WHERE project_id = ? AND job_code = ?)";
+
+    private static final String SELECT_ASSOCIATION =
+            "SELECT 1 FROM user_project WHERE username = ? AND project_id = ?";
+
+    private static final String INSERT_ASSOCIATION =
+            "INSERT INTO user_project (username, project_id) VALUES (?, ?)";
+
+    private static final String SELECT_USER_PROJECT_CODES =
+            "SELECT p.project_code FROM user_project u JOIN project p ON p.id = u.project_id " +
+                    "WHERE u.username = ? ORDER BY u.id";
+
+    private static final String SELECT_USER_PROJECT =
+            "SELECT 1 FROM user_project u JOIN project p ON p.id = u.project_id " +
+                    "WHERE u.username = ? AND p.project_code = ?";
+
+    private final Connection connection;
+
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    private final Lock lock = new ReentrantLock();
+
+    public JdbcProjectRepository(String url) throws SQLException {
+        this(DriverManager.getConnection(url));
+    }
+
+    public JdbcProjectRepository(Connection connection) throws SQLException {
+        this.connection = connection;
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        }
+        connection.commit();
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return inTransaction(() -> {
+            if (projectRow(addProject.getProjectCode()) != null) {
+                throw new ProjectAlreadyExistsException();
+            }
+
+            long version = Math.max(1, addProject.getVersion());
+            PreparedStatement insert = statement(INSERT_PROJECT);
+            insert.setString(1, addProject.getProjectCode());
+            insert.setString(2, addProject.getProjectName());
+            insert.setBoolean(3, addProject.getJobStatusList() != null);
+            insert.setLong(4, version);
+            insert.executeUpdate();
+
+            insertJobs(projectRow(addProject.getProjectCode()).id, addProject.getJobStatusList());
+            return copyOf(addProject.getProjectCode(), addProject.getProjectName(), addProject.getJobStatusList(), version);
+        });
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return inTransaction(() -> readProjects(statement(SELECT_ALL_PROJECTS)));
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return inTransaction(() -> {
+            PreparedStatement select;
+            if (afterProjectCode == null) {
+                select = statement(SELECT_FIRST_PROJECTS);
+                select.setInt(1, limit);
+            } else {
+                select = statement(SELECT_PROJECTS_AFTER);
+                select.setString(1, afterProjectCode);
+                select.setInt(2, limit);
+            }
+            return readProjects(select);
+        });
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return inTransaction(() -> {
+            ProjectRow row = projectRow(projectCode);
+            return row == null ? null : readProject(projectCode, row);
+        });
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return inTransaction(() -> {
+            PreparedStatement select = statement(SELECT_JOB);
+            select.setString(1, projectCode);
+            select.setString(2, jobCode);
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new ProjectJobStatus(resultSet.getString(1), resultSet.getString(2), jobStatus(resultSet.getString(3)));
+            }
+        });
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        return inTransaction(() -> {
+            PreparedStatement delete = statement(DELETE_PROJECT);
+            delete.setString(1, projectCode);
+            if (delete.executeUpdate() == 0) {
+                throw new ProjectNotFoundException();
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return updateProject(updateProject, ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return inTransaction(() -> {
+            ProjectRow row = existingRow(updateProject.getProjectCode(), expectedVersion);
+            long version = row.version + 1;
+
+            PreparedStatement update = statement(UPDATE_PROJECT);
+            update.setString(1, updateProject.getProjectName());
+            update.setBoolean(2, updateProject.getJobStatusList() != null);
+            update.setLong(3, version);
+            update.setLong(4, row.id);
+            update.executeUpdate();
+
+            replaceJobs(row.id, updateProject.getJobStatusList());
+            return copyOf(updateProject.getProjectCode(), updateProject.getProjectName(), updateProject.getJobStatusList(), version);
+        });
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return updateProjectJobs(projectCode, projectJobStatusList, ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return inTransaction(() -> {
+            ProjectRow row = existingRow(projectCode, expectedVersion);
+            long version = row.version + 1;
+
+            PreparedStatement update = statement(UPDATE_PROJECT_JOB_LIST);
+            update.setBoolean(1, projectJobStatusList != null);
+            update.setLong(2, version);
+            update.setLong(3, row.id);
+            update.executeUpdate();
+
+            replaceJobs(row.id, projectJobStatusList);
+            return copyOf(projectCode, row.projectName, projectJobStatusList, version);
+        });
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return inTransaction(() -> {
+            ProjectRow row = existingRow(projectCode, ANY_VERSION);
+
+            if (!updateJobRow(row.id, jobCode, projectJobStatus.getJobName(), projectJobStatus.getJobStatus())) {
+                throw new ProjectJobStatusNotFoundException();
+            }
+
+            bumpVersion(row.id);
+            return readProject(projectCode, projectRow(projectCode));
+        });
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        JobStatusUpdateBatch batch = new JobStatusUpdateBatch(jobStatusUpdates);
+
+        return inTransaction(() -> {
+            for (String projectCode : batch.projectCodes()) {
+                ProjectRow row = projectRow(projectCode);
+                if (row == null) {
+                    batch.recordProjectNotFound(projectCode);
+                    continue;
+                }
+
+                List<Integer> indexes = batch.updateIndexesFor(projectCode);
+                PreparedStatement update = statement(UPDATE_JOB);
+                for (int index : indexes) {
+                    JobStatusUpdate jobStatusUpdate = batch.update(index);
+                    bindJobUpdate(update, row.id, jobStatusUpdate.getJobCode(),
+                            jobStatusUpdate.getJobName(), jobStatusUpdate.getJobStatus());
+                    update.addBatch();
+                }
+
+                int[] counts = update.executeBatch();
+                boolean updated = false;
+                for (int position = 0; position < indexes.size(); position++) {
+                    boolean jobUpdated = counts[position] > 0;
+                    batch.record(indexes.get(position),
+                            jobUpdated ? JobStatusUpdateOutcome.UPDATED : JobStatusUpdateOutcome.JOB_NOT_FOUND);
+                    updated |= jobUpdated;
+                }
+
+                if (updated) {
+                    bumpVersion(row.id);
+                }
+            }
+            return batch.results();
+        });
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        inTransaction(() -> {
+            ProjectRow row = existingRow(projectCode, ANY_VERSION);
+
+            PreparedStatement select = statement(SELECT_ASSOCIATION);
+            select.setString(1, userName);
+            select.setLong(2, row.id);
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (resultSet.next()) {
+                    return null;
+                }
+            }
+
+            PreparedStatement insert = statement(INSERT_ASSOCIATION);
+            insert.setString(1, userName);
+            insert.setLong(2, row.id);
+            insert.executeUpdate();
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        return inTransaction(() -> {
+            PreparedStatement select = statement(SELECT_USER_PROJECT_CODES);
+            select.setString(1, username);
+
+            List<String> projectCodes = new ArrayList<>();
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    projectCodes.add(resultSet.getString(1));
+                }
+            }
+            return projectCodes;
+        });
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return inTransaction(() -> {
+            PreparedStatement select = statement(SELECT_USER_PROJECT);
+            select.setString(1, username);
+            select.setString(2, projectCode);
+            try (ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next();
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (PreparedStatement statement : statements.values()) {
+                statement.close();
+            }
+            statements.clear();
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T inTransaction(SqlOperation<T> operation) {
+        lock.lock();
+        try {
+            T result = operation.run();
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            rollback(e);
+            throw new ProjectPersistenceException(e);
+        } catch (RuntimeException e) {
+            rollback(e);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rollback(Exception cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private PreparedStatement statement(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    private ProjectRow projectRow(String projectCode) throws SQLException {
+        PreparedStatement select = statement(SELECT_PROJECT_ROW);
+        select.setString(1, projectCode);
+        try (ResultSet resultSet = select.executeQuery()) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            return new ProjectRow(resultSet.getLong(1), resultSet.getString(2), resultSet.getBoolean(3), resultSet.getLong(4));
+        }
+    }
+
+    private ProjectRow existingRow(String projectCode, long expectedVersion) throws SQLException {
+        ProjectRow row = projectRow(projectCode);
+        if (row == null) {
+            throw new ProjectNotFoundException();
+        }
+        if (expectedVersion != ANY_VERSION && row.version != expectedVersion) {
+            throw new ProjectVersionMismatchException();
+        }
+        return row;
+    }
+
+    private Project readProject(String projectCode, ProjectRow row) throws SQLException {
+        List<ProjectJobStatus> jobs = null;
+        if (row.hasJobs) {
+            jobs = new ArrayList<>();
+            PreparedStatement select = statement(SELECT_JOBS);
+            select.setLong(1, row.id);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    jobs.add(new ProjectJobStatus(resultSet.getString(1), resultSet.getString(2), jobStatus(resultSet.getString(3))));
+                }
+            }
+        }
+        return new Project(projectCode, row.projectName, jobs, row.version);
+    }
+
+    private List<Project> readProjects(PreparedStatement select) throws SQLException {
+        List<Project> projects = new ArrayList<>();
+        try (ResultSet resultSet = select.executeQuery()) {
+            Project project = null;
+            while (resultSet.next()) {
+                String projectCode = resultSet.getString(1);
+                if (project == null || !project.getProjectCode().equals(projectCode)) {
+                    project = new Project(projectCode, resultSet.getString(2),
+                            resultSet.getBoolean(3) ? new ArrayList<>() : null, resultSet.getLong(4));
+                    projects.add(project);
+                }
+
+                String jobCode = resultSet.getString(5);
+                if (jobCode != null && project.getJobStatusList() != null) {
+                    project.getJobStatusList().add(new ProjectJobStatus(jobCode, resultSet.getString(6), jobStatus(resultSet.getString(7))));
+                }
+            }
+        }
+        return projects;
+    }
+
+    private void replaceJobs(long projectId, List<ProjectJobStatus> jobs) throws SQLException {
+        PreparedStatement delete = statement(DELETE_JOBS);
+        delete.setLong(1, projectId);
+        delete.executeUpdate();
+
+        insertJobs(projectId, jobs);
+    }
+
+    private void insertJobs(long projectId, List<ProjectJobStatus> jobs) throws SQLException {
+        if (jobs == null || jobs.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement insert = statement(INSERT_JOB);
+        for (int index = 0; index < jobs.size(); index++) {
+            ProjectJobStatus job = jobs.get(index);
+            insert.setLong(1, projectId);
+            insert.setInt(2, index);
+            insert.setString(3, job.getJobCode());
+            insert.setString(4, job.getJobName());
+            insert.setString(5, job.getJobStatus() == null ? null : job.getJobStatus().name());
+            insert.addBatch();
+        }
+        insert.executeBatch();
+    }
+
+    private boolean updateJobRow(long projectId, String jobCode, String jobName, JobStatus jobStatus) throws SQLException {
+        PreparedStatement update = statement(UPDATE_JOB);
+        bindJobUpdate(update, projectId, jobCode, jobName, jobStatus);
+        return update.executeUpdate() > 0;
+    }
+
+    private void bindJobUpdate(PreparedStatement update, long projectId, String jobCode, String jobName, JobStatus jobStatus)
+            throws SQLException {
+        update.setString(1, jobName);
+        update.setString(2, jobStatus == null ? null : jobStatus.name());
+        update.setLong(3, projectId);
+        update.setLong(4, projectId);
+        update.setString(5, jobCode);
+    }
+
+    private void bumpVersion(long projectId) throws SQLException {
+        PreparedStatement update = statement(BUMP_PROJECT_VERSION);
+        update.setLong(1, projectId);
+        update.executeUpdate();
+    }
+
+    private static Project copyOf(String projectCode, String projectName, List<ProjectJobStatus> jobs, long version) {
+        return new Project(projectCode, projectName, jobs == null ? null : new ArrayList<>(jobs), version);
+    }
+
+    private static JobStatus jobStatus(String name) {
+        return name == null ? null : JobStatus.valueOf(name);
+    }
+
+    @FunctionalInterface
+    private interface SqlOperation<T> {
+
+        T run() throws SQLException;
+    }
+
+    private static class ProjectRow {
+
+        private final long id;
+
+        private final String projectName;
+
+        private final boolean hasJobs;
+
+        private final long version;
+
+        private ProjectRow(long id, String projectName, boolean hasJobs, long version) {
+            this.id = id;
+            this.projectName = projectName;
+            this.hasJobs = hasJobs;
+            this.version = version;
+        }
+    }
+}
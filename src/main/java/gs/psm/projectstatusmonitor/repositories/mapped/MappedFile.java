@@ -0,0 +1,107 @@
+package gs.psm.projectstatusmonitor.repositories.mapped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file addressed by long offsets and mapped into memory in fixed-size chunks, so it can
+ * grow past the 2GB limit of a single mapping. Callers lay records out so that none
+ * crosses a chunk boundary.
+ */
+class MappedFile implements Closeable {
+
+    private final FileChannel channel;
+
+    private final int chunkBits;
+
+    private final int chunkMask;
+
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    MappedFile(Path path, int chunkBits) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1 << chunkBits) - 1;
+
+        ensureCapacity(Math.max(channel.size(), 1));
+    }
+
+    int chunkSize() {
+        return 1 << chunkBits;
+    }
+
+    synchronized void ensureCapacity(long bytes) throws IOException {
+        int requiredChunks = (int) ((bytes + chunkMask) >>> chunkBits);
+        if (requiredChunks <= chunks.length) {
+            return;
+        }
+
+        MappedByteBuffer[] grown = Arrays.copyOf(chunks, requiredChunks);
+        for (int chunk = chunks.length; chunk < requiredChunks; chunk++) {
+            grown[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, (long) chunk << chunkBits, chunkSize());
+        }
+        chunks = grown;
+    }
+
+    byte getByte(long address) {
+        return chunk(address).get(offset(address));
+    }
+
+    void putByte(long address, byte value) {
+        chunk(address).put(offset(address), value);
+    }
+
+    int getInt(long address) {
+        return chunk(address).getInt(offset(address));
+    }
+
+    void putInt(long address, int value) {
+        chunk(address).putInt(offset(address), value);
+    }
+
+    long getLong(long address) {
+        return chunk(address).getLong(offset(address));
+    }
+
+    void putLong(long address, long value) {
+        chunk(address).putLong(offset(address), value);
+    }
+
+    void getBytes(long address, byte[] destination) {
+        ByteBuffer view = chunk(address).duplicate();
+        view.position(offset(address));
+        view.get(destination);
+    }
+
+    void putBytes(long address, byte[] source) {
+        ByteBuffer view = chunk(address).duplicate();
+        view.position(offset(address));
+        view.put(source);
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private MappedByteBuffer chunk(long address) {
+        return chunks[(int) (address >>> chunkBits)];
+    }
+
+    private int offset(long address) {
+        return (int) (address & chunkMask);
+    }
+}
@@ -0,0 +1,645 @@
+package gs.psm.projectstatusmonitor.repositories.mapped;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectPersistenceException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.JobStatusUpdateBatch;
+import gs.psm.projectstatusmonitor.repositories.StripedLocks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Repository that keeps every project, job and user association off the Java heap in
+ * memory-mapped files, so heap use does not grow with the estate and the data is simply
+ * mapped again after a restart. Domain objects are only built when a caller asks for them.
+ *
+ * Records are fixed-width slots that refer to strings by their id in a
+ * {@link MappedStringDictionary}:
+ * <ul>
+ *     <li>project slot: live flag, code id, name id, job count (-1 for no job list),
+ *     first job slot, the number of job slots reserved, the head of its association
+ *     chain and its version</li>
+ *     <li>job slot: code id, name id, status ordinal (-1 for none)</li>
+ *     <li>association slot: project code id (-1 once the project is removed), user id,
+ *     and the next slots of the same user and of the same project</li>
+ * </ul>
+ * A per-string-id table maps a project code to its project slot and a user name to the
+ * head of that user's association chain; each project slot heads the chain of its users.
+ * Access checks walk the project's chain, which stays short however many projects a user
+ * has. Slots of removed projects and their associations, and job ranges outgrown by a
+ * longer job list, are not reused.
+ *
+ * The only per-project state on the heap is a sorted set of project codes, rebuilt from
+ * the project slots on open, which gives listings a stable order and lets a page start
+ * straight after any code.
+ */
+public class MappedProjectRepository implements ProjectRepository, Closeable {
+
+    private static final int MAGIC = 0x50534d4d;
+
+    private static final int FORMAT_VERSION = 3;
+
+    private static final int DEFAULT_CHUNK_BITS = 26;
+
+    private static final int META_CHUNK_BITS = 12;
+
+    private static final long META_MAGIC = 0;
+
+    private static final long META_VERSION = 4;
+
+    private static final long META_PROJECT_SLOTS = 8;
+
+    private static final long META_JOB_SLOTS = 16;
+
+    private static final long META_ASSOCIATION_SLOTS = 24;
+
+    private static final int PROJECT_SLOT_BYTES = 64;
+
+    private static final int PROJECT_LIVE = 0;
+
+    private static final int PROJECT_CODE = 4;
+
+    private static final int PROJECT_NAME = 8;
+
+    private static final int PROJECT_JOB_COUNT = 12;
+
+    private static final int PROJECT_JOB_START = 16;
+
+    private static final int PROJECT_JOB_CAPACITY = 24;
+
+    private static final int PROJECT_ASSOCIATIONS = 28;
+
+    private static final int PROJECT_VERSION = 32;
+
+    private static final int JOB_SLOT_BYTES = 16;
+
+    private static final int JOB_CODE = 0;
+
+    private static final int JOB_NAME = 4;
+
+    private static final int JOB_STATUS = 8;
+
+    private static final int ASSOCIATION_SLOT_BYTES = 16;
+
+    private static final int ASSOCIATION_PROJECT_CODE = 0;
+
+    private static final int ASSOCIATION_USER = 4;
+
+    private static final int ASSOCIATION_NEXT_FOR_USER = 8;
+
+    private static final int ASSOCIATION_NEXT_FOR_PROJECT = 12;
+
+    private static final int STRING_REF_BYTES = 8;
+
+    private static final int STRING_REF_PROJECT = 0;
+
+    private static final int STRING_REF_ASSOCIATIONS = 4;
+
+    private static final JobStatus[] JOB_STATUSES = JobStatus.values();
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final long ANY_VERSION = -1;
+
+    private final MappedFile meta;
+
+    private final MappedStringDictionary dictionary;
+
+    private final MappedFile projects;
+
+    private final MappedFile jobs;
+
+    private final MappedFile associations;
+
+    private final MappedFile stringRefs;
+
+    private final StripedLocks projectLocks = new StripedLocks(LOCK_STRIPES);
+
+    private final NavigableSet<String> sortedProjectCodes = new ConcurrentSkipListSet<>();
+
+    private final Object allocationLock = new Object();
+
+    private final Object associationLock = new Object();
+
+    public MappedProjectRepository(Path directory) throws IOException {
+        this(directory, DEFAULT_CHUNK_BITS);
+    }
+
+    public MappedProjectRepository(Path directory, int chunkBits) throws IOException {
+        Files.createDirectories(directory);
+
+        meta = new MappedFile(directory.resolve("repository.meta"), META_CHUNK_BITS);
+        if (meta.getInt(META_MAGIC) == 0) {
+            meta.putInt(META_VERSION, FORMAT_VERSION);
+            meta.putInt(META_MAGIC, MAGIC);
+        } else if (meta.getInt(META_MAGIC) != MAGIC || meta.getInt(META_VERSION) != FORMAT_VERSION) {
+            throw new IOException("Unsupported mapped repository format in " + directory);
+        }
+
+        dictionary = new MappedStringDictionary(directory, chunkBits);
+        projects = new MappedFile(directory.resolve("projects.dat"), chunkBits);
+        jobs = new MappedFile(directory.resolve("jobs.dat"), chunkBits);
+        associations = new MappedFile(directory.resolve("associations.dat"), chunkBits);
+        stringRefs = new MappedFile(directory.resolve("string-refs.dat"), chunkBits);
+
+        int projectSlots = meta.getInt(META_PROJECT_SLOTS);
+        for (int slot = 0; slot < projectSlots; slot++) {
+            if (projects.getByte(projectAddress(slot) + PROJECT_LIVE) != 0) {
+                sortedProjectCodes.add(dictionary.get(projects.getInt(projectAddress(slot) + PROJECT_CODE)));
+            }
+        }
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        Lock lock = projectLocks.lockFor(addProject.getProjectCode());
+        lock.lock();
+        try {
+            int codeId = intern(addProject.getProjectCode());
+            if (projectSlotOf(codeId) != -1) {
+                throw new ProjectAlreadyExistsException();
+            }
+
+            int slot = allocateProjectSlot();
+            long address = projectAddress(slot);
+            projects.putInt(address + PROJECT_CODE, codeId);
+            projects.putInt(address + PROJECT_JOB_CAPACITY, 0);
+            projects.putInt(address + PROJECT_ASSOCIATIONS, 0);
+            projects.putLong(address + PROJECT_VERSION, Math.max(1, addProject.getVersion()));
+            writeProject(slot, addProject.getProjectName(), addProject.getJobStatusList());
+            projects.putByte(address + PROJECT_LIVE, (byte) 1);
+            stringRefs.putInt(stringRefAddress(codeId) + STRING_REF_PROJECT, slot + 1);
+            sortedProjectCodes.add(addProject.getProjectCode());
+
+            return readProject(slot);
+        } catch (IOException e) {
+            throw new ProjectPersistenceException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return listProjects(null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        Set<String> projectCodes = afterProjectCode == null
+                ? sortedProjectCodes
+                : sortedProjectCodes.tailSet(afterProjectCode, false);
+
+        List<Project> projectList = new ArrayList<>();
+        Iterator<String> codes = projectCodes.iterator();
+        while (projectList.size() < limit && codes.hasNext()) {
+            Project project = getProject(codes.next());
+            if (project != null) {
+                projectList.add(project);
+            }
+        }
+        return projectList;
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            int slot = projectSlotOf(dictionary.find(projectCode));
+            return slot == -1 ? null : readProject(slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            int slot = projectSlotOf(dictionary.find(projectCode));
+            long jobAddress = slot == -1 ? -1 : jobAddressOf(slot, jobCode);
+            return jobAddress == -1 ? null : readJob(jobAddress);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            int codeId = dictionary.find(projectCode);
+            int slot = projectSlotOf(codeId);
+            if (slot == -1) {
+                throw new ProjectNotFoundException();
+            }
+
+            synchronized (associationLock) {
+                int next = projects.getInt(projectAddress(slot) + PROJECT_ASSOCIATIONS);
+                while (next != 0) {
+                    associations.putInt(associationAddress(next - 1) + ASSOCIATION_PROJECT_CODE, -1);
+                    next = associations.getInt(associationAddress(next - 1) + ASSOCIATION_NEXT_FOR_PROJECT);
+                }
+            }
+
+            projects.putByte(projectAddress(slot) + PROJECT_LIVE, (byte) 0);
+            stringRefs.putInt(stringRefAddress(codeId) + STRING_REF_PROJECT, 0);
+            sortedProjectCodes.remove(projectCode);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return updateProject(updateProject, ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        Lock lock = projectLocks.lockFor(updateProject.getProjectCode());
+        lock.lock();
+        try {
+            int slot = existingSlot(updateProject.getProjectCode(), expectedVersion);
+
+            bumpVersion(slot);
+            writeProject(slot, updateProject.getProjectName(), updateProject.getJobStatusList());
+            return readProject(slot);
+        } catch (IOException e) {
+            throw new ProjectPersistenceException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return updateProjectJobs(projectCode, projectJobStatusList, ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            int slot = existingSlot(projectCode, expectedVersion);
+
+            bumpVersion(slot);
+            writeJobs(slot, projectJobStatusList);
+            return readProject(slot);
+        } catch (IOException e) {
+            throw new ProjectPersistenceException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            int slot = projectSlotOf(dictionary.find(projectCode));
+            if (slot == -1) {
+                throw new ProjectNotFoundException();
+            }
+
+            long jobAddress = jobAddressOf(slot, jobCode);
+            if (jobAddress == -1) {
+                throw new ProjectJobStatusNotFoundException();
+            }
+
+            jobs.putInt(jobAddress + JOB_NAME, intern(projectJobStatus.getJobName()));
+            jobs.putByte(jobAddress + JOB_STATUS, statusOrdinal(projectJobStatus.getJobStatus()));
+            bumpVersion(slot);
+            return readProject(slot);
+        } catch (IOException e) {
+            throw new ProjectPersistenceException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        JobStatusUpdateBatch batch = new JobStatusUpdateBatch(jobStatusUpdates);
+
+        for (String projectCode : batch.projectCodes()) {
+            Lock lock = projectLocks.lockFor(projectCode);
+            lock.lock();
+            try {
+                applyJobUpdates(projectCode, batch);
+            } catch (IOException e) {
+                throw new ProjectPersistenceException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return batch.results();
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            int codeId = dictionary.find(projectCode);
+            int projectSlot = projectSlotOf(codeId);
+            if (projectSlot == -1) {
+                throw new ProjectNotFoundException();
+            }
+
+            int userId = intern(userName);
+            if (findAssociation(projectSlot, userId)) {
+                return;
+            }
+
+            synchronized (associationLock) {
+                long userRef = stringRefAddress(userId) + STRING_REF_ASSOCIATIONS;
+                long projectRef = projectAddress(projectSlot) + PROJECT_ASSOCIATIONS;
+
+                int slot = meta.getInt(META_ASSOCIATION_SLOTS);
+                associations.ensureCapacity(associationAddress(slot + 1));
+                associations.putInt(associationAddress(slot) + ASSOCIATION_PROJECT_CODE, codeId);
+                associations.putInt(associationAddress(slot) + ASSOCIATION_USER, userId);
+                associations.putInt(associationAddress(slot) + ASSOCIATION_NEXT_FOR_USER, stringRefs.getInt(userRef));
+                associations.putInt(associationAddress(slot) + ASSOCIATION_NEXT_FOR_PROJECT, projects.getInt(projectRef));
+                meta.putInt(META_ASSOCIATION_SLOTS, slot + 1);
+                stringRefs.putInt(userRef, slot + 1);
+                projects.putInt(projectRef, slot + 1);
+            }
+        } catch (IOException e) {
+            throw new ProjectPersistenceException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        int userId = dictionary.find(username);
+        if (userId == -1) {
+            return Collections.emptyList();
+        }
+
+        List<String> projectCodes = new ArrayList<>();
+        synchronized (associationLock) {
+            int next = stringRefs.getInt(stringRefAddress(userId) + STRING_REF_ASSOCIATIONS);
+            while (next != 0) {
+                int codeId = associations.getInt(associationAddress(next - 1) + ASSOCIATION_PROJECT_CODE);
+                if (codeId != -1) {
+                    projectCodes.add(dictionary.get(codeId));
+                }
+                next = associations.getInt(associationAddress(next - 1) + ASSOCIATION_NEXT_FOR_USER);
+            }
+        }
+
+        Collections.reverse(projectCodes);
+        return projectCodes;
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        int userId = dictionary.find(username);
+        if (userId == -1) {
+            return false;
+        }
+
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            int projectSlot = projectSlotOf(dictionary.find(projectCode));
+            return projectSlot != -1 && findAssociation(projectSlot, userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void force() {
+        dictionary.force();
+        projects.force();
+        jobs.force();
+        associations.force();
+        stringRefs.force();
+        meta.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        dictionary.close();
+        projects.close();
+        jobs.close();
+        associations.close();
+        stringRefs.close();
+        meta.close();
+    }
+
+    private int existingSlot(String projectCode, long expectedVersion) {
+        int slot = projectSlotOf(dictionary.find(projectCode));
+        if (slot == -1) {
+            throw new ProjectNotFoundException();
+        }
+        if (expectedVersion != ANY_VERSION && projects.getLong(projectAddress(slot) + PROJECT_VERSION) != expectedVersion) {
+            throw new ProjectVersionMismatchException();
+        }
+        return slot;
+    }
+
+    private void applyJobUpdates(String projectCode, JobStatusUpdateBatch batch) throws IOException {
+        int slot = projectSlotOf(dictionary.find(projectCode));
+        if (slot == -1) {
+            batch.recordProjectNotFound(projectCode);
+            return;
+        }
+
+        boolean updated = false;
+        for (int index : batch.updateIndexesFor(projectCode)) {
+            JobStatusUpdate update = batch.update(index);
+            long jobAddress = jobAddressOf(slot, update.getJobCode());
+            if (jobAddress == -1) {
+                batch.record(index, JobStatusUpdateOutcome.JOB_NOT_FOUND);
+                continue;
+            }
+
+            jobs.putInt(jobAddress + JOB_NAME, intern(update.getJobName()));
+            jobs.putByte(jobAddress + JOB_STATUS, statusOrdinal(update.getJobStatus()));
+            batch.record(index, JobStatusUpdateOutcome.UPDATED);
+            updated = true;
+        }
+
+        if (updated) {
+            bumpVersion(slot);
+        }
+    }
+
+    private ProjectJobStatus readJob(long jobAddress) {
+        byte status = jobs.getByte(jobAddress + JOB_STATUS);
+        return new ProjectJobStatus(
+                lookup(jobs.getInt(jobAddress + JOB_CODE)),
+                lookup(jobs.getInt(jobAddress + JOB_NAME)),
+                status < 0 ? null : JOB_STATUSES[status]
+        );
+    }
+
+    private long jobAddressOf(int slot, String jobCode) {
+        int jobCodeId = dictionary.find(jobCode);
+        long address = projectAddress(slot);
+        int jobCount = projects.getInt(address + PROJECT_JOB_COUNT);
+        long jobStart = projects.getLong(address + PROJECT_JOB_START);
+
+        for (int job = 0; jobCodeId != -1 && job < jobCount; job++) {
+            long jobAddress = (jobStart + job) * JOB_SLOT_BYTES;
+            if (jobs.getInt(jobAddress + JOB_CODE) == jobCodeId) {
+                return jobAddress;
+            }
+        }
+        return -1;
+    }
+
+    private void bumpVersion(int slot) {
+        long address = projectAddress(slot) + PROJECT_VERSION;
+        projects.putLong(address, projects.getLong(address) + 1);
+    }
+
+    private boolean findAssociation(int projectSlot, int userId) {
+        int next = projects.getInt(projectAddress(projectSlot) + PROJECT_ASSOCIATIONS);
+        while (next != 0) {
+            if (associations.getInt(associationAddress(next - 1) + ASSOCIATION_USER) == userId) {
+                return true;
+            }
+            next = associations.getInt(associationAddress(next - 1) + ASSOCIATION_NEXT_FOR_PROJECT);
+        }
+        return false;
+    }
+
+    private void writeProject(int slot, String projectName, List<ProjectJobStatus> projectJobStatusList) throws IOException {
+        projects.putInt(projectAddress(slot) + PROJECT_NAME, intern(projectName));
+        writeJobs(slot, projectJobStatusList);
+    }
+
+    private void writeJobs(int slot, List<ProjectJobStatus> projectJobStatusList) throws IOException {
+        long address = projectAddress(slot);
+        if (projectJobStatusList == null) {
+            projects.putInt(address + PROJECT_JOB_COUNT, -1);
+            return;
+        }
+
+        int jobCount = projectJobStatusList.size();
+        long jobStart = projects.getLong(address + PROJECT_JOB_START);
+        if (jobCount > projects.getInt(address + PROJECT_JOB_CAPACITY)) {
+            jobStart = allocateJobSlots(jobCount);
+            projects.putLong(address + PROJECT_JOB_START, jobStart);
+            projects.putInt(address + PROJECT_JOB_CAPACITY, jobCount);
+        }
+
+        for (int job = 0; job < jobCount; job++) {
+            ProjectJobStatus projectJobStatus = projectJobStatusList.get(job);
+            long jobAddress = (jobStart + job) * JOB_SLOT_BYTES;
+            jobs.putInt(jobAddress + JOB_CODE, intern(projectJobStatus.getJobCode()));
+            jobs.putInt(jobAddress + JOB_NAME, intern(projectJobStatus.getJobName()));
+            jobs.putByte(jobAddress + JOB_STATUS, statusOrdinal(projectJobStatus.getJobStatus()));
+        }
+        projects.putInt(address + PROJECT_JOB_COUNT, jobCount);
+    }
+
+    private Project readProject(int slot) {
+        long address = projectAddress(slot);
+        int jobCount = projects.getInt(address + PROJECT_JOB_COUNT);
+        List<ProjectJobStatus> jobList = null;
+
+        if (jobCount >= 0) {
+            long jobStart = projects.getLong(address + PROJECT_JOB_START);
+            jobList = new ArrayList<>(jobCount);
+            for (int job = 0; job < jobCount; job++) {
+                jobList.add(readJob((jobStart + job) * JOB_SLOT_BYTES));
+            }
+        }
+
+        return new Project(
+                lookup(projects.getInt(address + PROJECT_CODE)),
+                lookup(projects.getInt(address + PROJECT_NAME)),
+                jobList,
+                projects.getLong(address + PROJECT_VERSION)
+        );
+    }
+
+    private int allocateProjectSlot() throws IOException {
+        synchronized (allocationLock) {
+            int slot = meta.getInt(META_PROJECT_SLOTS);
+            projects.ensureCapacity(projectAddress(slot + 1));
+            meta.putInt(META_PROJECT_SLOTS, slot + 1);
+            return slot;
+        }
+    }
+
+    private long allocateJobSlots(int count) throws IOException {
+        synchronized (allocationLock) {
+            long start = meta.getLong(META_JOB_SLOTS);
+            jobs.ensureCapacity((start + count) * JOB_SLOT_BYTES);
+            meta.putLong(META_JOB_SLOTS, start + count);
+            return start;
+        }
+    }
+
+    private int projectSlotOf(int codeId) {
+        if (codeId == -1) {
+            return -1;
+        }
+        return stringRefs.getInt(stringRefAddress(codeId) + STRING_REF_PROJECT) - 1;
+    }
+
+    private int intern(String value) throws IOException {
+        if (value == null) {
+            return -1;
+        }
+
+        int id = dictionary.idOf(value);
+        stringRefs.ensureCapacity(stringRefAddress(id + 1));
+        return id;
+    }
+
+    private String lookup(int id) {
+        return id == -1 ? null : dictionary.get(id);
+    }
+
+    private static byte statusOrdinal(JobStatus jobStatus) {
+        return jobStatus == null ? -1 : (byte) jobStatus.ordinal();
+    }
+
+    private static long projectAddress(int slot) {
+        return (long) slot * PROJECT_SLOT_BYTES;
+    }
+
+    private static long associationAddress(int slot) {
+        return (long) slot * ASSOCIATION_SLOT_BYTES;
+    }
+
+    private static long stringRefAddress(int id) {
+        return (long) id * STRING_REF_BYTES;
+    }
+}
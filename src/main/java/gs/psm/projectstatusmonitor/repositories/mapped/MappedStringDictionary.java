@@ -0,0 +1,186 @@
+package gs.psm.projectstatusmonitor.repositories.mapped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Persistent dictionary assigning dense int ids to distinct strings, kept entirely in
+ * memory-mapped files: the UTF-8 bytes of every string, an id to offset table and an
+ * open-addressing hash table from string to id. Nothing is rebuilt on open.
+ *
+ * When the hash table fills up a table twice the size is written after the old one in
+ * the same file and the header switched over to it.
+ */
+class MappedStringDictionary implements Closeable {
+
+    private static final long META_STRING_COUNT = 0;
+
+    private static final long META_STRING_BYTES = 8;
+
+    private static final long META_INDEX_BASE = 16;
+
+    private static final long META_INDEX_CAPACITY = 24;
+
+    private static final int META_CHUNK_BITS = 12;
+
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+    private final MappedFile meta;
+
+    private final MappedFile strings;
+
+    private final MappedFile offsets;
+
+    private final MappedFile index;
+
+    MappedStringDictionary(Path directory, int chunkBits) throws IOException {
+        meta = new MappedFile(directory.resolve("strings.meta"), META_CHUNK_BITS);
+        strings = new MappedFile(directory.resolve("strings.dat"), chunkBits);
+        offsets = new MappedFile(directory.resolve("string-offsets.dat"), chunkBits);
+        index = new MappedFile(directory.resolve("string-index.dat"), chunkBits);
+
+        if (indexCapacity() == 0) {
+            index.ensureCapacity(INITIAL_INDEX_CAPACITY * 4L);
+            meta.putLong(META_INDEX_BASE, 0);
+            meta.putInt(META_INDEX_CAPACITY, INITIAL_INDEX_CAPACITY);
+        }
+    }
+
+    synchronized int idOf(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long slotAddress = probe(bytes);
+
+        int entry = index.getInt(slotAddress);
+        if (entry != 0) {
+            return entry - 1;
+        }
+
+        int id = size();
+        long address = append(bytes);
+        offsets.ensureCapacity((id + 1) * 8L);
+        offsets.putLong(id * 8L, address);
+        index.putInt(slotAddress, id + 1);
+        meta.putInt(META_STRING_COUNT, id + 1);
+
+        if ((long) size() * 2 > indexCapacity()) {
+            growIndex();
+        }
+        return id;
+    }
+
+    synchronized int find(String value) {
+        int entry = index.getInt(probe(value.getBytes(StandardCharsets.UTF_8)));
+        return entry - 1;
+    }
+
+    String get(int id) {
+        long address = offsets.getLong(id * 8L);
+        byte[] bytes = new byte[strings.getInt(address)];
+        strings.getBytes(address + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return meta.getInt(META_STRING_COUNT);
+    }
+
+    void force() {
+        strings.force();
+        offsets.force();
+        index.force();
+        meta.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        strings.close();
+        offsets.close();
+        index.close();
+        meta.close();
+    }
+
+    private long probe(byte[] bytes) {
+        long base = meta.getLong(META_INDEX_BASE);
+        int mask = indexCapacity() - 1;
+        int slot = hash(bytes) & mask;
+
+        while (true) {
+            long slotAddress = base + slot * 4L;
+            int entry = index.getInt(slotAddress);
+            if (entry == 0 || matches(entry - 1, bytes)) {
+                return slotAddress;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean matches(int id, byte[] bytes) {
+        long address = offsets.getLong(id * 8L);
+        if (strings.getInt(address) != bytes.length) {
+            return false;
+        }
+
+        for (int position = 0; position < bytes.length; position++) {
+            if (strings.getByte(address + 4 + position) != bytes[position]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long append(byte[] bytes) throws IOException {
+        int chunkSize = strings.chunkSize();
+        if (bytes.length + 4 > chunkSize) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes does not fit in a dictionary chunk");
+        }
+
+        long address = meta.getLong(META_STRING_BYTES);
+        if ((address & (chunkSize - 1)) + 4 + bytes.length > chunkSize) {
+            address = (address | (chunkSize - 1)) + 1;
+        }
+
+        strings.ensureCapacity(address + 4 + bytes.length);
+        strings.putInt(address, bytes.length);
+        strings.putBytes(address + 4, bytes);
+        meta.putLong(META_STRING_BYTES, address + 4 + bytes.length);
+        return address;
+    }
+
+    private void growIndex() throws IOException {
+        long oldBase = meta.getLong(META_INDEX_BASE);
+        int newCapacity = indexCapacity() * 2;
+        long newBase = oldBase + indexCapacity() * 4L;
+        int mask = newCapacity - 1;
+
+        index.ensureCapacity(newBase + newCapacity * 4L);
+
+        for (int id = 0; id < size(); id++) {
+            long address = offsets.getLong(id * 8L);
+            byte[] bytes = new byte[strings.getInt(address)];
+            strings.getBytes(address + 4, bytes);
+
+            int slot = hash(bytes) & mask;
+            while (index.getInt(newBase + slot * 4L) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index.putInt(newBase + slot * 4L, id + 1);
+        }
+
+        meta.putLong(META_INDEX_BASE, newBase);
+        meta.putInt(META_INDEX_CAPACITY, newCapacity);
+    }
+
+    private int indexCapacity() {
+        return meta.getInt(META_INDEX_CAPACITY);
+    }
+
+    private static int hash(byte[] bytes) {
+        int hash = 1;
+        for (byte value : bytes) {
+            hash = 31 * hash + value;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,481 @@
+package gs.psm.projectstatusmonitor.repositories.replication;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectPersistenceException;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.durable.Mutation;
+import gs.psm.projectstatusmonitor.repositories.durable.SnapshotStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Decorator that makes this node a follower of a {@link LeaderProjectRepository}. Reads are
+ * served from the delegate, which a background thread keeps up to date by applying the
+ * leader's log in order. Writes are forwarded to the leader, and return once the delegate
+ * has caught up with them, so a caller reads its own writes here. If that takes longer
+ * than a few seconds the write still returns, and may briefly not be visible yet.
+ *
+ * The delegate must only be written through this follower. Every project-level mutation
+ * comes with the version it left its project at on the leader; a mutation that fails, or
+ * leaves a different version here, means the delegate has drifted from the leader, and
+ * the follower reconnects to start over from a snapshot.
+ *
+ * A snapshot is loaded into a scratch repository and then reconciled into the delegate:
+ * projects the leader no longer has are removed, and projects that differ in content or
+ * version are replaced, so decorators on the delegate see ordinary writes. Readers may see the delegate part way
+ * through a reconcile.
+ *
+ * A write that cannot reach the leader fails with a {@link ProjectPersistenceException}
+ * and is not retried, since the leader may already have applied it.
+ */
+public class FollowerProjectRepository implements ProjectRepository, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FollowerProjectRepository.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private static final int SUBSCRIPTION_TIMEOUT_MILLIS = 5000;
+
+    private static final int WRITE_TIMEOUT_MILLIS = 30_000;
+
+    private static final long READ_YOUR_WRITES_TIMEOUT_MILLIS = 5000;
+
+    private static final long MIN_RECONNECT_DELAY_MILLIS = 100;
+
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 5000;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final ProjectRepository delegate;
+
+    private final String leaderHost;
+
+    private final int leaderPort;
+
+    private final String secret;
+
+    private final Queue<LeaderConnection> idleConnections = new ConcurrentLinkedQueue<>();
+
+    private final Object applied = new Object();
+
+    private final Thread subscriptionThread;
+
+    private long appliedEpoch;
+
+    private long appliedSequence;
+
+    private volatile long leaderSequence;
+
+    private volatile Socket subscription;
+
+    private volatile boolean closed;
+
+    /**
+     * @param secret the cluster secret the leader checks connections against
+     */
+    public FollowerProjectRepository(ProjectRepository delegate, String leaderHost, int leaderPort, String secret) {
+        ReplicationProtocol.requireSecret(secret);
+        this.secret = secret;
+        this.delegate = delegate;
+        this.leaderHost = leaderHost;
+        this.leaderPort = leaderPort;
+
+        subscriptionThread = new Thread(this::follow, "replication-follower");
+        subscriptionThread.setDaemon(true);
+        subscriptionThread.start();
+    }
+
+    public long appliedSequence() {
+        synchronized (applied) {
+            return appliedSequence;
+        }
+    }
+
+    /**
+     * The leader's last sequence as of the latest frame it sent.
+     */
+    public long leaderSequence() {
+        return leaderSequence;
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return forwarded(Mutation.addProject(addProject), addProject.getVersion(), ReplicationProtocol.ANY_VERSION);
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return delegate.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return delegate.getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return delegate.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        return forward(out -> writeMutation(out, Mutation.removeProject(projectCode), 0, ReplicationProtocol.ANY_VERSION),
+                DataInput::readBoolean);
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return forwarded(Mutation.updateProject(updateProject), 0, ReplicationProtocol.ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return forwarded(Mutation.updateProject(updateProject), 0, expectedVersion);
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return forwarded(Mutation.updateProjectJobs(projectCode, projectJobStatusList), 0, ReplicationProtocol.ANY_VERSION);
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return forwarded(Mutation.updateProjectJobs(projectCode, projectJobStatusList), 0, expectedVersion);
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return forwarded(Mutation.updateJob(projectCode, jobCode, projectJobStatus), 0, ReplicationProtocol.ANY_VERSION);
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        return forward(out -> {
+            out.writeByte(ReplicationProtocol.REQUEST_JOB_UPDATES);
+            ReplicationProtocol.writeUpdates(out, jobStatusUpdates);
+        }, ReplicationProtocol::readResults);
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        forward(out -> writeMutation(out, Mutation.associateUser(userName, projectCode), 0, ReplicationProtocol.ANY_VERSION),
+                in -> null);
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        return delegate.getUserAssociatedProjectCodes(username);
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return delegate.isUserAssociatedWithProject(username, projectCode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket current = subscription;
+        if (current != null) {
+            current.close();
+        }
+        subscriptionThread.interrupt();
+        try {
+            subscriptionThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        closeIdleConnections();
+
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    private Project forwarded(Mutation mutation, long projectVersion, long expectedVersion) {
+        return forward(out -> writeMutation(out, mutation, projectVersion, expectedVersion),
+                ReplicationProtocol::readVersionedProject);
+    }
+
+    private static void writeMutation(DataOutputStream out, Mutation mutation, long projectVersion, long expectedVersion)
+            throws IOException {
+        out.writeByte(ReplicationProtocol.REQUEST_MUTATION);
+        out.writeLong(projectVersion);
+        out.writeLong(expectedVersion);
+        mutation.writeTo(out);
+    }
+
+    private <T> T forward(RequestWriter request, ResultReader<T> result) {
+        LeaderConnection connection = idleConnections.poll();
+        try {
+            if (connection == null) {
+                connection = new LeaderConnection(connect(ReplicationProtocol.ROLE_WRITE, WRITE_TIMEOUT_MILLIS));
+            }
+            request.writeTo(connection.out);
+            connection.out.flush();
+
+            int status = connection.in.readByte();
+            if (status != ReplicationProtocol.STATUS_OK) {
+                idleConnections.offer(connection);
+                throw ReplicationProtocol.exceptionFor(status);
+            }
+
+            long epoch = connection.in.readLong();
+            long sequence = connection.in.readLong();
+            T value = result.readFrom(connection.in);
+            idleConnections.offer(connection);
+
+            awaitApplied(epoch, sequence);
+            return value;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new ProjectPersistenceException(e);
+        }
+    }
+
+    private void awaitApplied(long epoch, long sequence) {
+        long deadline = System.currentTimeMillis() + READ_YOUR_WRITES_TIMEOUT_MILLIS;
+        synchronized (applied) {
+            long remaining = READ_YOUR_WRITES_TIMEOUT_MILLIS;
+            while ((appliedEpoch != epoch || appliedSequence < sequence) && remaining > 0) {
+                try {
+                    applied.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void follow() {
+        long reconnectDelayMillis = MIN_RECONNECT_DELAY_MILLIS;
+
+        while (!closed) {
+            try (Socket socket = connect(ReplicationProtocol.ROLE_SUBSCRIBE, SUBSCRIPTION_TIMEOUT_MILLIS)) {
+                subscription = socket;
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                synchronized (applied) {
+                    out.writeLong(appliedEpoch);
+                    out.writeLong(appliedSequence);
+                }
+                out.flush();
+
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+                reconnectDelayMillis = MIN_RECONNECT_DELAY_MILLIS;
+                while (!closed) {
+                    applyFrame(in);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                LOGGER.warn("Lost the replication stream from {}:{}, reconnecting in {} ms",
+                        leaderHost, leaderPort, reconnectDelayMillis, e);
+                closeIdleConnections();
+            }
+
+            try {
+                Thread.sleep(reconnectDelayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+        }
+    }
+
+    private void applyFrame(DataInputStream in) throws IOException {
+        int frame = in.readByte();
+        switch (frame) {
+            case ReplicationProtocol.FRAME_MUTATION:
+                long sequence = in.readLong();
+                long version = in.readLong();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                applyMutation(Mutation.decode(payload), version);
+                advance(appliedEpoch(), sequence);
+                break;
+            case ReplicationProtocol.FRAME_SNAPSHOT:
+                long epoch = in.readLong();
+                in.readLong();
+                InMemoryProjectProjectRepository staging = new InMemoryProjectProjectRepository(1, 0);
+                long snapshotSequence = SnapshotStore.readSnapshot(in, staging);
+                reconcile(staging);
+                advance(epoch, snapshotSequence);
+                break;
+            case ReplicationProtocol.FRAME_HEARTBEAT:
+                leaderSequence = in.readLong();
+                break;
+            default:
+                throw new IOException("Unknown replication frame " + frame);
+        }
+    }
+
+    private void applyMutation(Mutation mutation, long version) throws IOException {
+        try {
+            if (mutation.getType() == Mutation.Type.ADD_PROJECT) {
+                mutation.getProject().setVersion(version);
+            }
+            mutation.applyTo(delegate);
+        } catch (ProjectAlreadyExistsException | ProjectNotFoundException | ProjectJobStatusNotFoundException e) {
+            throw diverged(mutation);
+        }
+
+        if (version != 0) {
+            Project project = delegate.getProject(mutation.getProjectCode());
+            if (project == null || project.getVersion() != version) {
+                throw diverged(mutation);
+            }
+        }
+    }
+
+    private IOException diverged(Mutation mutation) {
+        synchronized (applied) {
+            appliedEpoch = 0;
+            appliedSequence = 0;
+        }
+        return new IOException("Project " + mutation.getProjectCode() + " has drifted from the leader");
+    }
+
+    private void reconcile(InMemoryProjectProjectRepository snapshot) {
+        Map<String, Project> leaderProjects = snapshot.listProjects().stream()
+                .collect(Collectors.toMap(Project::getProjectCode, Function.identity()));
+
+        for (Project project : delegate.listProjects()) {
+            if (!leaderProjects.containsKey(project.getProjectCode())) {
+                delegate.removeProject(project.getProjectCode());
+            }
+        }
+
+        for (Project project : leaderProjects.values()) {
+            Project existing = delegate.getProject(project.getProjectCode());
+            if (project.equals(existing) && existing.getVersion() == project.getVersion()) {
+                continue;
+            }
+            if (existing != null) {
+                delegate.removeProject(project.getProjectCode());
+            }
+            delegate.addProject(project);
+        }
+
+        for (Map.Entry<String, Set<String>> user : snapshot.getUserAssociations().entrySet()) {
+            for (String projectCode : user.getValue()) {
+                delegate.associateUserWithProject(user.getKey(), projectCode);
+            }
+        }
+    }
+
+    private long appliedEpoch() {
+        synchronized (applied) {
+            return appliedEpoch;
+        }
+    }
+
+    private void advance(long epoch, long sequence) {
+        synchronized (applied) {
+            appliedEpoch = epoch;
+            appliedSequence = sequence;
+            applied.notifyAll();
+        }
+        leaderSequence = Math.max(leaderSequence, sequence);
+    }
+
+    /**
+     * Drops pooled write connections, which are likely as dead as the stream if the leader
+     * has gone away.
+     */
+    private void closeIdleConnections() {
+        LeaderConnection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private Socket connect(int role, int readTimeoutMillis) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(leaderHost, leaderPort), CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(readTimeoutMillis);
+            socket.setTcpNoDelay(true);
+
+            byte[] challenge = new byte[ReplicationProtocol.CHALLENGE_BYTES];
+            new DataInputStream(socket.getInputStream()).readFully(challenge);
+            OutputStream out = socket.getOutputStream();
+            out.write(role);
+            out.write(ReplicationProtocol.proof(secret, role, challenge));
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private interface RequestWriter {
+
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private interface ResultReader<T> {
+
+        T readFrom(DataInputStream in) throws IOException;
+    }
+
+    private static final class LeaderConnection {
+
+        private final Socket socket;
+
+        private final DataInputStream in;
+
+        private final DataOutputStream out;
+
+        private LeaderConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closing
+            }
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package gs.psm.projectstatusmonitor.repositories.replication;
+
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.StripedLocks;
+import gs.psm.projectstatusmonitor.repositories.durable.Mutation;
+import gs.psm.projectstatusmonitor.repositories.durable.SnapshotStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Decorator that makes this node the leader of a replicated repository. Every write that
+ * changes something is appended to a {@link ReplicationLog} as a {@link Mutation}, and
+ * followers subscribed over TCP are streamed the log in order.
+ *
+ * A write is applied and appended under the lock of its project, so the log order of any
+ * one project matches the order the delegate applied them in. Writes the delegate drops as
+ * unchanged leave the version where it was and are not appended. Conditional updates are
+ * appended as plain updates once their version check has passed. A bulk job update is
+ * appended as one mutation per project it changed, carrying only that project's changed
+ * jobs, so a heartbeat costs the log one job rather than a copy of its project, and each
+ * project's version moves by one on the followers as it did here.
+ *
+ * A follower from another epoch, or whose position has dropped out of the log, is sent a
+ * snapshot first. The snapshot is encoded while every project lock is held, so it holds
+ * exactly the mutations up to the sequence it is tagged with; writes wait for it. The
+ * epoch is chosen at random when the leader starts, so followers of a restarted leader
+ * always start over from a snapshot.
+ *
+ * Followers forward their writes over the same port. They are applied to the repository
+ * given to {@link #forwardWritesTo}, which defaults to this one, and answered with the
+ * sequence that covers them so the follower can wait to see its own write.
+ *
+ * The port only accepts nodes that prove they hold the cluster secret, and is bound to the
+ * given address alone, so it can be kept off networks clients reach.
+ */
+public class LeaderProjectRepository implements ProjectRepository, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeaderProjectRepository.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final int STREAM_BATCH = 512;
+
+    private static final long HEARTBEAT_MILLIS = 1000;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5000;
+
+    private final ProjectRepository delegate;
+
+    private final Supplier<Map<String, ? extends Collection<String>>> userAssociations;
+
+    private final ReplicationLog log;
+
+    private final long epoch;
+
+    private final String secret;
+
+    private final StripedLocks projectLocks = new StripedLocks(LOCK_STRIPES);
+
+    private final ServerSocket serverSocket;
+
+    private final Thread acceptThread;
+
+    private final ExecutorService connectionHandlers;
+
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong snapshotCount = new AtomicLong();
+
+    private volatile ProjectRepository writeTarget = this;
+
+    private volatile boolean closed;
+
+    /**
+     * @param userAssociations every user's associated project codes, as held by the delegate;
+     *                         read for snapshots only
+     * @param logCapacity      the most mutations the replication log holds
+     * @param logCapacityBytes the most encoded mutation bytes the replication log holds
+     * @param bindAddress      the address followers connect to
+     * @param port             the port followers connect to, or 0 for any free port
+     * @param secret           the cluster secret followers must prove they hold
+     */
+    public LeaderProjectRepository(
+            ProjectRepository delegate,
+            Supplier<Map<String, ? extends Collection<String>>> userAssociations,
+            int logCapacity,
+            long logCapacityBytes,
+            String bindAddress,
+            int port,
+            String secret
+    ) throws IOException {
+        ReplicationProtocol.requireSecret(secret);
+        this.secret = secret;
+        this.delegate = delegate;
+        this.userAssociations = userAssociations;
+        this.log = new ReplicationLog(logCapacity, logCapacityBytes);
+
+        long randomEpoch;
+        do {
+            randomEpoch = ThreadLocalRandom.current().nextLong();
+        } while (randomEpoch == 0);
+        this.epoch = randomEpoch;
+
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+
+        connectionHandlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "replication-leader-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        acceptThread = new Thread(this::acceptConnections, "replication-leader-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Sets the repository writes forwarded by followers are applied to, so they pass
+     * through the same decorators as writes made on this node.
+     */
+    public void forwardWritesTo(ProjectRepository writeTarget) {
+        this.writeTarget = writeTarget;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long lastSequence() {
+        return log.lastSequence();
+    }
+
+    public long logBytes() {
+        return log.retainedBytes();
+    }
+
+    public long snapshotCount() {
+        return snapshotCount.get();
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return replicated(addProject.getProjectCode(), () -> delegate.addProject(addProject), Mutation::addProject);
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return delegate.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return delegate.getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return delegate.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            boolean removed = delegate.removeProject(projectCode);
+            log.append(Mutation.removeProject(projectCode).encode(), 0);
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return replicated(updateProject.getProjectCode(), () -> delegate.updateProject(updateProject),
+                project -> Mutation.updateProject(updateProject));
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return replicated(updateProject.getProjectCode(), () -> delegate.updateProject(updateProject, expectedVersion),
+                project -> Mutation.updateProject(updateProject));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return replicated(projectCode, () -> delegate.updateProjectJobs(projectCode, projectJobStatusList),
+                project -> Mutation.updateProjectJobs(projectCode, projectJobStatusList));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return replicated(projectCode, () -> delegate.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion),
+                project -> Mutation.updateProjectJobs(projectCode, projectJobStatusList));
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return replicated(projectCode, () -> delegate.updateJob(projectCode, jobCode, projectJobStatus),
+                project -> Mutation.updateJob(projectCode, jobCode, projectJobStatus));
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        Set<String> projectCodes = new LinkedHashSet<>();
+        for (JobStatusUpdate update : jobStatusUpdates) {
+            projectCodes.add(update.getProjectCode());
+        }
+
+        List<Lock> locks = projectLocks.locksFor(projectCodes);
+        locks.forEach(Lock::lock);
+        try {
+            List<JobStatusUpdateResult> results = delegate.updateJobs(jobStatusUpdates);
+
+            Map<String, List<ProjectJobStatus>> changedJobs = new LinkedHashMap<>();
+            for (int index = 0; index < results.size(); index++) {
+                if (results.get(index).getOutcome() == JobStatusUpdateOutcome.UPDATED) {
+                    JobStatusUpdate update = jobStatusUpdates.get(index);
+                    changedJobs.computeIfAbsent(update.getProjectCode(), projectCode -> new ArrayList<>())
+                            .add(update.toProjectJobStatus());
+                }
+            }
+            for (Map.Entry<String, List<ProjectJobStatus>> changed : changedJobs.entrySet()) {
+                Project project = delegate.getProject(changed.getKey());
+                log.append(Mutation.updateJobs(changed.getKey(), changed.getValue()).encode(), project.getVersion());
+            }
+            return results;
+        } finally {
+            for (int index = locks.size() - 1; index >= 0; index--) {
+                locks.get(index).unlock();
+            }
+        }
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            delegate.associateUserWithProject(userName, projectCode);
+            log.append(Mutation.associateUser(userName, projectCode).encode(), 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        return delegate.getUserAssociatedProjectCodes(username);
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return delegate.isUserAssociatedWithProject(username, projectCode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket connection : connections) {
+            closeQuietly(connection);
+        }
+        connectionHandlers.shutdownNow();
+        try {
+            acceptThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    private Project replicated(String projectCode, Supplier<Project> operation, Function<Project, Mutation> mutation) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            Project existing = delegate.getProject(projectCode);
+            long previousVersion = existing == null ? 0 : existing.getVersion();
+
+            Project result = operation.get();
+            if (result.getVersion() != previousVersion) {
+                log.append(mutation.apply(result).encode(), result.getVersion());
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                connectionHandlers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.error("Failed to accept a replication connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+
+            int role = authenticate(socket, in, out);
+            if (role == ReplicationProtocol.ROLE_SUBSCRIBE) {
+                serveSubscriber(in, out);
+            } else if (role == ReplicationProtocol.ROLE_WRITE) {
+                serveWriter(in, out);
+            } else {
+                throw new IOException("Unknown replication role " + role);
+            }
+        } catch (EOFException | SocketException e) {
+            // the follower went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                LOGGER.error("Replication connection from {} failed", socket.getRemoteSocketAddress(), e);
+            }
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Challenges the connecting node to prove it holds the cluster secret, returning the
+     * role it asked for.
+     */
+    private int authenticate(Socket socket, DataInputStream in, DataOutputStream out) throws IOException {
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        byte[] challenge = ReplicationProtocol.challenge();
+        out.write(challenge);
+        out.flush();
+
+        int role = in.readByte();
+        byte[] proof = new byte[ReplicationProtocol.PROOF_BYTES];
+        in.readFully(proof);
+        if (!MessageDigest.isEqual(proof, ReplicationProtocol.proof(secret, role, challenge))) {
+            throw new IOException("Rejected a replication connection without the cluster secret");
+        }
+
+        socket.setSoTimeout(0);
+        return role;
+    }
+
+    private void serveSubscriber(DataInputStream in, DataOutputStream out) throws IOException, InterruptedException {
+        long followerEpoch = in.readLong();
+        long position = in.readLong();
+        boolean fromLog = followerEpoch == epoch;
+
+        while (!closed) {
+            List<ReplicationLog.Entry> entries = fromLog ? log.readAfter(position, STREAM_BATCH) : null;
+            if (entries == null) {
+                position = sendSnapshot(out);
+                fromLog = true;
+                continue;
+            }
+
+            if (entries.isEmpty()) {
+                log.awaitAfter(position, HEARTBEAT_MILLIS);
+                if (log.lastSequence() == position) {
+                    out.writeByte(ReplicationProtocol.FRAME_HEARTBEAT);
+                    out.writeLong(position);
+                    out.flush();
+                }
+                continue;
+            }
+
+            for (ReplicationLog.Entry entry : entries) {
+                out.writeByte(ReplicationProtocol.FRAME_MUTATION);
+                out.writeLong(entry.sequence);
+                out.writeLong(entry.version);
+                out.writeInt(entry.mutation.length);
+                out.write(entry.mutation);
+                position = entry.sequence;
+            }
+            out.flush();
+        }
+    }
+
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream(BUFFER_BYTES);
+        long sequence;
+
+        List<Lock> locks = projectLocks.allLocks();
+        locks.forEach(Lock::lock);
+        try {
+            sequence = log.lastSequence();
+            SnapshotStore.writeSnapshot(snapshot, sequence, delegate.listProjects(), userAssociations.get());
+        } finally {
+            for (int index = locks.size() - 1; index >= 0; index--) {
+                locks.get(index).unlock();
+            }
+        }
+
+        out.writeByte(ReplicationProtocol.FRAME_SNAPSHOT);
+        out.writeLong(epoch);
+        out.writeLong(sequence);
+        snapshot.writeTo(out);
+        out.flush();
+        snapshotCount.incrementAndGet();
+        return sequence;
+    }
+
+    private void serveWriter(DataInputStream in, DataOutputStream out) throws IOException {
+        int request;
+        while ((request = in.read()) != -1) {
+            ResultWriter result;
+            try {
+                result = applyForwarded(request, in);
+            } catch (RuntimeException e) {
+                int status = ReplicationProtocol.statusFor(e);
+                if (status == ReplicationProtocol.STATUS_FAILED) {
+                    LOGGER.error("Failed to apply a write forwarded by a follower", e);
+                }
+                out.writeByte(status);
+                out.flush();
+                continue;
+            }
+
+            out.writeByte(ReplicationProtocol.STATUS_OK);
+            out.writeLong(epoch);
+            out.writeLong(log.lastSequence());
+            result.writeTo(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads a forwarded request in full, then applies it. Only exceptions thrown by the
+     * write itself are unchecked; a request that cannot be read ends the connection.
+     */
+    private ResultWriter applyForwarded(int request, DataInputStream in) throws IOException {
+        if (request == ReplicationProtocol.REQUEST_JOB_UPDATES) {
+            List<JobStatusUpdate> updates = ReplicationProtocol.readUpdates(in);
+            List<JobStatusUpdateResult> results = writeTarget.updateJobs(updates);
+            return out -> ReplicationProtocol.writeResults(out, results);
+        }
+        if (request != ReplicationProtocol.REQUEST_MUTATION) {
+            throw new IOException("Unknown replication request " + request);
+        }
+
+        long projectVersion = in.readLong();
+        long expectedVersion = in.readLong();
+        Mutation mutation = Mutation.readFrom(in);
+        boolean conditional = expectedVersion != ReplicationProtocol.ANY_VERSION;
+
+        switch (mutation.getType()) {
+            case ADD_PROJECT:
+                mutation.getProject().setVersion(projectVersion);
+                return projectResult(writeTarget.addProject(mutation.getProject()));
+            case UPDATE_PROJECT:
+                return projectResult(conditional
+                        ? writeTarget.updateProject(mutation.getProject(), expectedVersion)
+                        : writeTarget.updateProject(mutation.getProject()));
+            case UPDATE_PROJECT_JOBS:
+                return projectResult(conditional
+                        ? writeTarget.updateProjectJobs(mutation.getProjectCode(), mutation.getJobs(), expectedVersion)
+                        : writeTarget.updateProjectJobs(mutation.getProjectCode(), mutation.getJobs()));
+            case UPDATE_JOB:
+                return projectResult(writeTarget.updateJob(mutation.getProjectCode(), mutation.getJobCode(), mutation.getJob()));
+            case REMOVE_PROJECT:
+                boolean removed = writeTarget.removeProject(mutation.getProjectCode());
+                return out -> out.writeBoolean(removed);
+            case ASSOCIATE_USER:
+                writeTarget.associateUserWithProject(mutation.getUserName(), mutation.getProjectCode());
+                return out -> {
+                };
+            default:
+                throw new IOException("Unknown mutation type " + mutation.getType());
+        }
+    }
+
+    private static ResultWriter projectResult(Project project) {
+        return out -> ReplicationProtocol.writeVersionedProject(out, project);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closing
+        }
+    }
+
+    private interface ResultWriter {
+
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,122 @@
+package gs.psm.projectstatusmonitor.repositories.replication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The leader's most recent mutations, numbered from 1 in the order they were applied and
+ * held in a fixed ring. Besides the ring's entry count, the mutations held are capped by
+ * their encoded size, dropping the oldest first; the newest is always kept. A follower
+ * whose position has been dropped can no longer be served from the log and has to catch
+ * up from a snapshot instead.
+ */
+final class ReplicationLog {
+
+    private final Entry[] entries;
+
+    private final long capacityBytes;
+
+    private long retainedBytes;
+
+    private long firstSequence = 1;
+
+    private long lastSequence;
+
+    ReplicationLog(int capacity, long capacityBytes) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Replication log capacity must be at least 1");
+        }
+        if (capacityBytes < 1) {
+            throw new IllegalArgumentException("Replication log byte capacity must be at least 1");
+        }
+        entries = new Entry[capacity];
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * @param version the version the mutation left its project at, or 0 when it has none
+     */
+    synchronized long append(byte[] mutation, long version) {
+        lastSequence++;
+        if (lastSequence - firstSequence == entries.length) {
+            dropFirst();
+        }
+        entries[slotOf(lastSequence)] = new Entry(lastSequence, version, mutation);
+        retainedBytes += mutation.length;
+        while (retainedBytes > capacityBytes && firstSequence < lastSequence) {
+            dropFirst();
+        }
+        notifyAll();
+        return lastSequence;
+    }
+
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * The encoded size of the mutations held.
+     */
+    synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * Up to {@code limit} entries after the given sequence, or null when those entries are
+     * no longer held.
+     */
+    synchronized List<Entry> readAfter(long afterSequence, int limit) {
+        if (afterSequence > lastSequence || afterSequence + 1 < firstSequence) {
+            return null;
+        }
+        if (afterSequence == lastSequence) {
+            return Collections.emptyList();
+        }
+
+        long last = Math.min(lastSequence, afterSequence + limit);
+        List<Entry> read = new ArrayList<>((int) (last - afterSequence));
+        for (long sequence = afterSequence + 1; sequence <= last; sequence++) {
+            read.add(entries[slotOf(sequence)]);
+        }
+        return read;
+    }
+
+    /**
+     * Waits until something is appended after the given sequence, or the timeout passes.
+     */
+    synchronized void awaitAfter(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (lastSequence <= sequence && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    private void dropFirst() {
+        int slot = slotOf(firstSequence);
+        retainedBytes -= entries[slot].mutation.length;
+        entries[slot] = null;
+        firstSequence++;
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (sequence % entries.length);
+    }
+
+    static final class Entry {
+
+        final long sequence;
+
+        final long version;
+
+        final byte[] mutation;
+
+        private Entry(long sequence, long version, byte[] mutation) {
+            this.sequence = sequence;
+            this.version = version;
+            this.mutation = mutation;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package gs.psm.projectstatusmonitor.repositories.replication;
+
+import gs.psm.projectstatusmonitor.exceptions.DuplicateJobCodeException;
+import gs.psm.projectstatusmonitor.exceptions.MemoryBudgetExceededException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectPersistenceException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.repositories.durable.BinaryProjectCodec;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format shared by {@link LeaderProjectRepository} and {@link FollowerProjectRepository}.
+ *
+ * Every connection opens with a handshake. The leader sends a random challenge, and the
+ * connecting node answers with a role byte and an HMAC-SHA256 of the role and challenge
+ * keyed with the cluster secret, so the secret never crosses the wire and an answer cannot
+ * be replayed. The leader closes connections whose answer does not match.
+ *
+ * A subscriber sends the leader epoch and the
+ * last sequence it applied, then reads frames: a mutation with its sequence and the
+ * version it left its project at; a snapshot, preceded by the epoch and sequence it
+ * covers; or, when there is nothing to send, a heartbeat with the leader's last sequence.
+ *
+ * A writer sends requests one at a time, each a request byte and its arguments. The
+ * leader answers with a status byte and, on success, its epoch, the sequence that covers
+ * the write, and the result. Statuses other than success stand for the exception the
+ * write threw on the leader.
+ */
+final class ReplicationProtocol {
+
+    static final int CHALLENGE_BYTES = 16;
+
+    static final int PROOF_BYTES = 32;
+
+    static final int ROLE_SUBSCRIBE = 1;
+
+    static final int ROLE_WRITE = 2;
+
+    static final int FRAME_MUTATION = 1;
+
+    static final int FRAME_SNAPSHOT = 2;
+
+    static final int FRAME_HEARTBEAT = 3;
+
+    static final int REQUEST_MUTATION = 1;
+
+    static final int REQUEST_JOB_UPDATES = 2;
+
+    static final int STATUS_OK = 0;
+
+    static final int STATUS_PROJECT_NOT_FOUND = 1;
+
+    static final int STATUS_PROJECT_ALREADY_EXISTS = 2;
+
+    static final int STATUS_JOB_NOT_FOUND = 3;
+
+    static final int STATUS_VERSION_MISMATCH = 4;
+
+    static final int STATUS_DUPLICATE_JOB_CODE = 5;
+
+    static final int STATUS_MEMORY_BUDGET_EXCEEDED = 6;
+
+    static final int STATUS_FAILED = 7;
+
+    static final long ANY_VERSION = -1;
+
+    private static final JobStatusUpdateOutcome[] OUTCOMES = JobStatusUpdateOutcome.values();
+
+    private static final String PROOF_ALGORITHM = "HmacSHA256";
+
+    private static final SecureRandom CHALLENGES = new SecureRandom();
+
+    private ReplicationProtocol() {
+    }
+
+    static void requireSecret(String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Replication needs a cluster secret");
+        }
+    }
+
+    static byte[] challenge() {
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        CHALLENGES.nextBytes(challenge);
+        return challenge;
+    }
+
+    /**
+     * The answer to a challenge for the role, which only a node holding the secret can give.
+     */
+    static byte[] proof(String secret, int role, byte[] challenge) {
+        try {
+            Mac mac = Mac.getInstance(PROOF_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), PROOF_ALGORITHM));
+            mac.update((byte) role);
+            return mac.doFinal(challenge);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(PROOF_ALGORITHM + " is not available", e);
+        }
+    }
+
+    static int statusFor(RuntimeException exception) {
+        if (exception instanceof ProjectNotFoundException) {
+            return STATUS_PROJECT_NOT_FOUND;
+        }
+        if (exception instanceof ProjectAlreadyExistsException) {
+            return STATUS_PROJECT_ALREADY_EXISTS;
+        }
+        if (exception instanceof ProjectJobStatusNotFoundException) {
+            return STATUS_JOB_NOT_FOUND;
+        }
+        if (exception instanceof ProjectVersionMismatchException) {
+            return STATUS_VERSION_MISMATCH;
+        }
+        if (exception instanceof DuplicateJobCodeException) {
+            return STATUS_DUPLICATE_JOB_CODE;
+        }
+        if (exception instanceof MemoryBudgetExceededException) {
+            return STATUS_MEMORY_BUDGET_EXCEEDED;
+        }
+        return STATUS_FAILED;
+    }
+
+    static RuntimeException exceptionFor(int status) {
+        switch (status) {
+            case STATUS_PROJECT_NOT_FOUND:
+                return new ProjectNotFoundException();
+            case STATUS_PROJECT_ALREADY_EXISTS:
+                return new ProjectAlreadyExistsException();
+            case STATUS_JOB_NOT_FOUND:
+                return new ProjectJobStatusNotFoundException();
+            case STATUS_VERSION_MISMATCH:
+                return new ProjectVersionMismatchException();
+            case STATUS_DUPLICATE_JOB_CODE:
+                return new DuplicateJobCodeException();
+            case STATUS_MEMORY_BUDGET_EXCEEDED:
+                return new MemoryBudgetExceededException();
+            default:
+                return new ProjectPersistenceException(new IOException("The leader failed to apply the write"));
+        }
+    }
+
+    static void writeVersionedProject(DataOutput out, Project project) throws IOException {
+        BinaryProjectCodec.writeProject(out, project);
+        out.writeLong(project.getVersion());
+    }
+
+    static Project readVersionedProject(DataInput in) throws IOException {
+        Project project = BinaryProjectCodec.readProject(in);
+        project.setVersion(in.readLong());
+        return project;
+    }
+
+    static void writeUpdates(DataOutput out, List<JobStatusUpdate> updates) throws IOException {
+        out.writeInt(updates.size());
+        for (JobStatusUpdate update : updates) {
+            BinaryProjectCodec.writeString(out, update.getProjectCode());
+            BinaryProjectCodec.writeJob(out, update.toProjectJobStatus());
+        }
+    }
+
+    static List<JobStatusUpdate> readUpdates(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<JobStatusUpdate> updates = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            String projectCode = BinaryProjectCodec.readString(in);
+            ProjectJobStatus job = BinaryProjectCodec.readJob(in);
+            updates.add(new JobStatusUpdate(projectCode, job.getJobCode(), job.getJobName(), job.getJobStatus()));
+        }
+        return updates;
+    }
+
+    static void writeResults(DataOutput out, List<JobStatusUpdateResult> results) throws IOException {
+        out.writeInt(results.size());
+        for (JobStatusUpdateResult result : results) {
+            BinaryProjectCodec.writeString(out, result.getProjectCode());
+            BinaryProjectCodec.writeString(out, result.getJobCode());
+            out.writeByte(result.getOutcome().ordinal());
+        }
+    }
+
+    static List<JobStatusUpdateResult> readResults(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<JobStatusUpdateResult> results = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            String projectCode = BinaryProjectCodec.readString(in);
+            String jobCode = BinaryProjectCodec.readString(in);
+            results.add(new JobStatusUpdateResult(projectCode, jobCode, OUTCOMES[in.readByte()]));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,264 @@
+package gs.psm.projectstatusmonitor.repositories.sharded;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectPersistenceException;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Splits projects across independent shards by a hash of the project code. Each shard is
+ * a complete repository with its own storage and locks, so writes to projects on
+ * different shards never touch the same structure.
+ *
+ * A project's jobs and user associations live on the project's shard. Listings and the
+ * project codes of a user are gathered from every shard in parallel; listings are merged
+ * back into project code order. A bulk job update is split by shard, applied on each
+ * shard in parallel and its results put back in request order.
+ */
+public class ShardedProjectRepository implements ProjectRepository, Closeable {
+
+    private final ProjectRepository[] shards;
+
+    private final ExecutorService scatterExecutor;
+
+    public ShardedProjectRepository(int shardCount, IntFunction<ProjectRepository> shardFactory) {
+        shards = new ProjectRepository[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards[shard] = shardFactory.apply(shard);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        scatterExecutor = Executors.newFixedThreadPool(shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "repository-shard-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static int defaultShardCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return shardFor(addProject.getProjectCode()).addProject(addProject);
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return mergeByProjectCode(gather(ProjectRepository::listProjects), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return mergeByProjectCode(gather(shard -> shard.listProjects(afterProjectCode, limit)), limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return shardFor(projectCode).getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return shardFor(projectCode).getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        return shardFor(projectCode).removeProject(projectCode);
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return shardFor(updateProject.getProjectCode()).updateProject(updateProject);
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return shardFor(updateProject.getProjectCode()).updateProject(updateProject, expectedVersion);
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return shardFor(projectCode).updateProjectJobs(projectCode, projectJobStatusList);
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return shardFor(projectCode).updateProjectJobs(projectCode, projectJobStatusList, expectedVersion);
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return shardFor(projectCode).updateJob(projectCode, jobCode, projectJobStatus);
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        List<List<Integer>> indexesByShard = new ArrayList<>(shards.length);
+        List<List<JobStatusUpdate>> updatesByShard = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            indexesByShard.add(new ArrayList<>());
+            updatesByShard.add(new ArrayList<>());
+        }
+        for (int index = 0; index < jobStatusUpdates.size(); index++) {
+            JobStatusUpdate update = jobStatusUpdates.get(index);
+            int shard = shardIndex(update.getProjectCode());
+            indexesByShard.get(shard).add(index);
+            updatesByShard.get(shard).add(update);
+        }
+
+        List<CompletableFuture<List<JobStatusUpdateResult>>> shardResults = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<JobStatusUpdate> shardUpdates = updatesByShard.get(shard);
+            ProjectRepository repository = shards[shard];
+            shardResults.add(shardUpdates.isEmpty()
+                    ? CompletableFuture.completedFuture(Collections.emptyList())
+                    : CompletableFuture.supplyAsync(() -> repository.updateJobs(shardUpdates), scatterExecutor));
+        }
+
+        JobStatusUpdateResult[] results = new JobStatusUpdateResult[jobStatusUpdates.size()];
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<JobStatusUpdateResult> shardResult = join(shardResults.get(shard));
+            List<Integer> indexes = indexesByShard.get(shard);
+            for (int position = 0; position < indexes.size(); position++) {
+                results[indexes.get(position)] = shardResult.get(position);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        shardFor(projectCode).associateUserWithProject(userName, projectCode);
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        List<String> projectCodes = new ArrayList<>();
+        for (List<String> shardProjectCodes : gather(shard -> shard.getUserAssociatedProjectCodes(username))) {
+            projectCodes.addAll(shardProjectCodes);
+        }
+        return projectCodes;
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return shardFor(projectCode).isUserAssociatedWithProject(username, projectCode);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        scatterExecutor.shutdown();
+        for (ProjectRepository shard : shards) {
+            if (shard instanceof Closeable) {
+                ((Closeable) shard).close();
+            }
+        }
+    }
+
+    private ProjectRepository shardFor(String projectCode) {
+        return shards[shardIndex(projectCode)];
+    }
+
+    private int shardIndex(String projectCode) {
+        int hash = projectCode.hashCode();
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % shards.length;
+    }
+
+    private <T> List<T> gather(Function<ProjectRepository, T> query) {
+        if (shards.length == 1) {
+            return Collections.singletonList(query.apply(shards[0]));
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.length);
+        for (ProjectRepository shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), scatterExecutor));
+        }
+
+        List<T> results = new ArrayList<>(shards.length);
+        for (CompletableFuture<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ProjectPersistenceException(e.getCause());
+        }
+    }
+
+    private static List<Project> mergeByProjectCode(List<List<Project>> shardLists, int limit) {
+        PriorityQueue<ShardCursor> cursors = new PriorityQueue<>();
+        int total = 0;
+        for (List<Project> shardList : shardLists) {
+            if (!shardList.isEmpty()) {
+                cursors.add(new ShardCursor(shardList));
+                total += shardList.size();
+            }
+        }
+
+        List<Project> merged = new ArrayList<>(Math.min(total, limit));
+        while (merged.size() < limit && !cursors.isEmpty()) {
+            ShardCursor cursor = cursors.poll();
+            merged.add(cursor.current());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static class ShardCursor implements Comparable<ShardCursor> {
+
+        private final List<Project> projects;
+
+        private int position;
+
+        private ShardCursor(List<Project> projects) {
+            this.projects = projects;
+        }
+
+        private Project current() {
+            return projects.get(position);
+        }
+
+        private boolean advance() {
+            return ++position < projects.size();
+        }
+
+        @Override
+        public int compareTo(ShardCursor other) {
+            return current().getProjectCode().compareTo(other.current().getProjectCode());
+        }
+    }
+}
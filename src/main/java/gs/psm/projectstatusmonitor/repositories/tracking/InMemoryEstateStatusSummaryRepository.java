@@ -0,0 +1,75 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.EstateStatusSummary;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.ports.EstateStatusSummaryRepository;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the projects and jobs across the whole repository, and the jobs in each status,
+ * in {@link LongAdder}s that every change adds to. Writers to different projects add to
+ * separate cells instead of contending on one counter, and a summary sums the cells
+ * without locking, so it may lag writes still in progress.
+ */
+public class InMemoryEstateStatusSummaryRepository implements EstateStatusSummaryRepository, JobStatusListener {
+
+    private static final JobStatus[] STATUSES = JobStatus.values();
+
+    private final LongAdder projectCount = new LongAdder();
+
+    private final LongAdder jobCount = new LongAdder();
+
+    private final LongAdder[] jobStatusCounts = new LongAdder[STATUSES.length];
+
+    public InMemoryEstateStatusSummaryRepository() {
+        for (int status = 0; status < STATUSES.length; status++) {
+            jobStatusCounts[status] = new LongAdder();
+        }
+    }
+
+    @Override
+    public EstateStatusSummary getEstateStatusSummary() {
+        Map<JobStatus, Long> counts = new EnumMap<>(JobStatus.class);
+        for (JobStatus jobStatus : STATUSES) {
+            counts.put(jobStatus, jobStatusCounts[jobStatus.ordinal()].sum());
+        }
+        return new EstateStatusSummary(projectCount.sum(), jobCount.sum(), counts);
+    }
+
+    @Override
+    public void projectAdded(String projectCode) {
+        projectCount.increment();
+    }
+
+    @Override
+    public void projectRemoved(String projectCode) {
+        projectCount.decrement();
+    }
+
+    @Override
+    public void jobAdded(String projectCode, String jobCode, JobStatus jobStatus, long timestampMillis) {
+        jobCount.increment();
+        adjust(jobStatus, 1);
+    }
+
+    @Override
+    public void jobStatusChanged(String projectCode, String jobCode, JobStatus previousStatus, JobStatus jobStatus, long timestampMillis) {
+        adjust(previousStatus, -1);
+        adjust(jobStatus, 1);
+    }
+
+    @Override
+    public void jobRemoved(String projectCode, String jobCode, JobStatus jobStatus) {
+        jobCount.decrement();
+        adjust(jobStatus, -1);
+    }
+
+    private void adjust(JobStatus jobStatus, int delta) {
+        if (jobStatus != null) {
+            jobStatusCounts[jobStatus.ordinal()].add(delta);
+        }
+    }
+}
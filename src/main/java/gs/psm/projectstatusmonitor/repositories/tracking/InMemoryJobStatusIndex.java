@@ -0,0 +1,53 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobReference;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.ports.JobStatusIndex;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The jobs of every project grouped by their current status, kept up to date one change
+ * at a time, so finding the jobs in a status costs the size of the answer rather than a
+ * walk over every job. Jobs without a status are not indexed.
+ */
+public class InMemoryJobStatusIndex implements JobStatusIndex, JobStatusListener {
+
+    private final Map<JobStatus, Set<JobReference>> jobsByStatus = new EnumMap<>(JobStatus.class);
+
+    public InMemoryJobStatusIndex() {
+        for (JobStatus jobStatus : JobStatus.values()) {
+            jobsByStatus.put(jobStatus, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    @Override
+    public List<JobReference> findJobsByStatus(JobStatus jobStatus) {
+        return new ArrayList<>(jobsByStatus.get(jobStatus));
+    }
+
+    @Override
+    public void jobAdded(String projectCode, String jobCode, JobStatus jobStatus, long timestampMillis) {
+        if (jobStatus != null) {
+            jobsByStatus.get(jobStatus).add(new JobReference(projectCode, jobCode, jobStatus));
+        }
+    }
+
+    @Override
+    public void jobStatusChanged(String projectCode, String jobCode, JobStatus previousStatus, JobStatus jobStatus, long timestampMillis) {
+        jobRemoved(projectCode, jobCode, previousStatus);
+        jobAdded(projectCode, jobCode, jobStatus, timestampMillis);
+    }
+
+    @Override
+    public void jobRemoved(String projectCode, String jobCode, JobStatus jobStatus) {
+        if (jobStatus != null) {
+            jobsByStatus.get(jobStatus).remove(new JobReference(projectCode, jobCode, jobStatus));
+        }
+    }
+}
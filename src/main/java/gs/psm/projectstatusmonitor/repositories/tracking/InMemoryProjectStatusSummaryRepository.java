@@ -0,0 +1,87 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.ProjectHealth;
+import gs.psm.projectstatusmonitor.models.ProjectStatusSummary;
+import gs.psm.projectstatusmonitor.ports.ProjectStatusSummaryRepository;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts the jobs of each project by status, adjusting a count or two per job change
+ * rather than recounting the project. A project is red while any job has failed, yellow
+ * while any job is running and green otherwise. Jobs without a status count towards the
+ * project's jobs only.
+ */
+public class InMemoryProjectStatusSummaryRepository implements ProjectStatusSummaryRepository, JobStatusListener {
+
+    private static final JobStatus[] STATUSES = JobStatus.values();
+
+    private static final int NO_STATUS = STATUSES.length;
+
+    private final Map<String, AtomicIntegerArray> projectStatusCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public ProjectStatusSummary getProjectStatusSummary(String projectCode) {
+        AtomicIntegerArray counts = projectStatusCounts.get(projectCode);
+        if (counts == null) {
+            return null;
+        }
+
+        Map<JobStatus, Integer> jobStatusCounts = new EnumMap<>(JobStatus.class);
+        int jobCount = counts.get(NO_STATUS);
+        for (JobStatus jobStatus : STATUSES) {
+            int count = counts.get(jobStatus.ordinal());
+            jobStatusCounts.put(jobStatus, count);
+            jobCount += count;
+        }
+
+        return new ProjectStatusSummary(projectCode, healthOf(jobStatusCounts), jobCount, jobStatusCounts);
+    }
+
+    @Override
+    public void projectAdded(String projectCode) {
+        projectStatusCounts.put(projectCode, new AtomicIntegerArray(STATUSES.length + 1));
+    }
+
+    @Override
+    public void projectRemoved(String projectCode) {
+        projectStatusCounts.remove(projectCode);
+    }
+
+    @Override
+    public void jobAdded(String projectCode, String jobCode, JobStatus jobStatus, long timestampMillis) {
+        adjust(projectCode, jobStatus, 1);
+    }
+
+    @Override
+    public void jobStatusChanged(String projectCode, String jobCode, JobStatus previousStatus, JobStatus jobStatus, long timestampMillis) {
+        adjust(projectCode, previousStatus, -1);
+        adjust(projectCode, jobStatus, 1);
+    }
+
+    @Override
+    public void jobRemoved(String projectCode, String jobCode, JobStatus jobStatus) {
+        adjust(projectCode, jobStatus, -1);
+    }
+
+    private void adjust(String projectCode, JobStatus jobStatus, int delta) {
+        AtomicIntegerArray counts = projectStatusCounts.get(projectCode);
+        if (counts != null) {
+            counts.addAndGet(jobStatus == null ? NO_STATUS : jobStatus.ordinal(), delta);
+        }
+    }
+
+    private static ProjectHealth healthOf(Map<JobStatus, Integer> jobStatusCounts) {
+        if (jobStatusCounts.get(JobStatus.FAILED) > 0) {
+            return ProjectHealth.RED;
+        }
+        if (jobStatusCounts.get(JobStatus.RUNNING) > 0) {
+            return ProjectHealth.YELLOW;
+        }
+        return ProjectHealth.GREEN;
+    }
+}
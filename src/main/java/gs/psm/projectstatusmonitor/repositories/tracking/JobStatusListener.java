@@ -0,0 +1,27 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+
+/**
+ * Receives the changes {@link JobStatusTrackingProjectRepository} sees to the jobs of each
+ * project. A job status of null is a status like any other. Events for a project are
+ * delivered in order, under that project's lock; a removed project's jobs are reported
+ * removed before the project is.
+ */
+public interface JobStatusListener {
+
+    default void projectAdded(String projectCode) {
+    }
+
+    default void projectRemoved(String projectCode) {
+    }
+
+    default void jobAdded(String projectCode, String jobCode, JobStatus jobStatus, long timestampMillis) {
+    }
+
+    default void jobStatusChanged(String projectCode, String jobCode, JobStatus previousStatus, JobStatus jobStatus, long timestampMillis) {
+    }
+
+    default void jobRemoved(String projectCode, String jobCode, JobStatus jobStatus) {
+    }
+}
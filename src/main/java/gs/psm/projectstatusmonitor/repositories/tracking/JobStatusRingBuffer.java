@@ -0,0 +1,56 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusChange;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last few statuses of one job, held as parallel primitive arrays of timestamps and
+ * status ordinals. Recording overwrites the oldest entry once the buffer is full and
+ * allocates nothing.
+ */
+class JobStatusRingBuffer {
+
+    private static final byte NO_STATUS = -1;
+
+    private static final JobStatus[] STATUSES = JobStatus.values();
+
+    private final long[] timestamps;
+
+    private final byte[] statuses;
+
+    private long changeCount;
+
+    JobStatusRingBuffer(int capacity) {
+        timestamps = new long[capacity];
+        statuses = new byte[capacity];
+    }
+
+    synchronized void record(JobStatus jobStatus, long timestampMillis) {
+        int slot = (int) (changeCount % timestamps.length);
+        timestamps[slot] = timestampMillis;
+        statuses[slot] = jobStatus == null ? NO_STATUS : (byte) jobStatus.ordinal();
+        changeCount++;
+    }
+
+    synchronized long changeCount() {
+        return changeCount;
+    }
+
+    /**
+     * The retained changes, oldest first.
+     */
+    synchronized List<JobStatusChange> changes() {
+        int retained = (int) Math.min(changeCount, timestamps.length);
+        List<JobStatusChange> changes = new ArrayList<>(retained);
+        for (long change = changeCount - retained; change < changeCount; change++) {
+            int slot = (int) (change % timestamps.length);
+            byte status = statuses[slot];
+            changes.add(new JobStatusChange(Instant.ofEpochMilli(timestamps[slot]), status == NO_STATUS ? null : STATUSES[status]));
+        }
+        return changes;
+    }
+}
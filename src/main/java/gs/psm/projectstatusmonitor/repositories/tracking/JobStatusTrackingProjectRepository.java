@@ -0,0 +1,344 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.StripedLocks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Decorator that follows the status of every job and tells its {@link JobStatusListener}s
+ * about each job added, removed or moved to a different status, with the time it happened.
+ *
+ * Nothing is kept beside the delegate: each write reads the project from the delegate
+ * first and compares the jobs it had with what the write left; job updates look up only
+ * the jobs they name, by code, rather than reading the whole project. Each write holds its
+ * project's lock from that read until the listeners have seen the change, so listeners
+ * see a project's changes in the order the delegate applied them; a bulk job update takes
+ * the locks of all its projects, in stripe order. Updates that leave a job's status as it
+ * was are not reported. The projects already in the delegate are reported as added when
+ * the decorator is created.
+ *
+ * Listeners are handed the project and job codes of the project the delegate holds, or
+ * that it reports back for a bulk update, rather than the caller's copies, so whatever
+ * they keep shares the strings the delegate pooled instead of holding another copy per
+ * update.
+ *
+ * A write that comes back from the delegate without moving the project's version, a job
+ * update that leaves the job's name and status as they were, or a bulk update item
+ * reported {@link JobStatusUpdateOutcome#UNCHANGED}, is counted as a suppressed no-op and
+ * goes no further.
+ */
+public class JobStatusTrackingProjectRepository implements ProjectRepository, Closeable {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final ProjectRepository delegate;
+
+    private final List<JobStatusListener> listeners;
+
+    private final Clock clock;
+
+    private final StripedLocks projectLocks = new StripedLocks(LOCK_STRIPES);
+
+    private final LongAdder unchangedUpdates = new LongAdder();
+
+    public JobStatusTrackingProjectRepository(ProjectRepository delegate, List<JobStatusListener> listeners, Clock clock) {
+        this.delegate = delegate;
+        this.listeners = new ArrayList<>(listeners);
+        this.clock = clock;
+
+        for (Project project : delegate.listProjects()) {
+            tracked(project.getProjectCode(), () -> {
+                projectAdded(project.getProjectCode(), project.getJobStatusList());
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return tracked(addProject.getProjectCode(), () -> {
+            Project project = delegate.addProject(addProject);
+            projectAdded(project.getProjectCode(), project.getJobStatusList());
+            return project;
+        });
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return delegate.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return delegate.getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return delegate.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        return tracked(projectCode, () -> {
+            Project previous = delegate.getProject(projectCode);
+            boolean removed = delegate.removeProject(projectCode);
+            projectRemoved(projectCode, previous);
+            return removed;
+        });
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return tracked(updateProject.getProjectCode(), () -> {
+            Project previous = delegate.getProject(updateProject.getProjectCode());
+            Project project = delegate.updateProject(updateProject);
+            jobsReplaced(previous, project);
+            return project;
+        });
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return tracked(updateProject.getProjectCode(), () -> {
+            Project previous = delegate.getProject(updateProject.getProjectCode());
+            Project project = delegate.updateProject(updateProject, expectedVersion);
+            jobsReplaced(previous, project);
+            return project;
+        });
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return tracked(projectCode, () -> {
+            Project previous = delegate.getProject(projectCode);
+            Project project = delegate.updateProjectJobs(projectCode, projectJobStatusList);
+            jobsReplaced(previous, project);
+            return project;
+        });
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return tracked(projectCode, () -> {
+            Project previous = delegate.getProject(projectCode);
+            Project project = delegate.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion);
+            jobsReplaced(previous, project);
+            return project;
+        });
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        return tracked(projectCode, () -> {
+            ProjectJobStatus previousJob = delegate.getJob(projectCode, jobCode);
+            Project project = delegate.updateJob(projectCode, jobCode, projectJobStatus);
+            if (previousJob == null) {
+                return project;
+            }
+            if (Objects.equals(previousJob.getJobName(), projectJobStatus.getJobName())
+                    && previousJob.getJobStatus() == projectJobStatus.getJobStatus()) {
+                unchangedUpdates.increment();
+            } else {
+                jobUpdated(project.getProjectCode(), previousJob, projectJobStatus.getJobStatus(), clock.millis());
+            }
+            return project;
+        });
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        Map<String, Set<String>> jobCodesByProject = new HashMap<>();
+        for (JobStatusUpdate update : jobStatusUpdates) {
+            jobCodesByProject.computeIfAbsent(update.getProjectCode(), code -> new HashSet<>()).add(update.getJobCode());
+        }
+
+        List<Lock> locks = projectLocks.locksFor(jobCodesByProject.keySet());
+        locks.forEach(Lock::lock);
+        try {
+            Map<String, Map<String, ProjectJobStatus>> previousJobs = new HashMap<>();
+            jobCodesByProject.forEach((projectCode, jobCodes) -> {
+                Map<String, ProjectJobStatus> jobs = new HashMap<>();
+                for (String jobCode : jobCodes) {
+                    ProjectJobStatus job = delegate.getJob(projectCode, jobCode);
+                    if (job != null) {
+                        jobs.put(jobCode, job);
+                    }
+                }
+                previousJobs.put(projectCode, jobs);
+            });
+
+            List<JobStatusUpdateResult> results = delegate.updateJobs(jobStatusUpdates);
+
+            long timestampMillis = clock.millis();
+            for (int index = 0; index < results.size(); index++) {
+                JobStatusUpdateOutcome outcome = results.get(index).getOutcome();
+                if (outcome == JobStatusUpdateOutcome.UPDATED) {
+                    JobStatusUpdate update = jobStatusUpdates.get(index);
+                    Map<String, ProjectJobStatus> jobs = previousJobs.get(update.getProjectCode());
+                    ProjectJobStatus job = jobs.get(update.getJobCode());
+                    jobs.put(update.getJobCode(), new ProjectJobStatus(job.getJobCode(), job.getJobName(), update.getJobStatus()));
+                    jobUpdated(results.get(index).getProjectCode(), job, update.getJobStatus(), timestampMillis);
+                } else if (outcome == JobStatusUpdateOutcome.UNCHANGED) {
+                    unchangedUpdates.increment();
+                }
+            }
+            return results;
+        } finally {
+            for (int index = locks.size() - 1; index >= 0; index--) {
+                locks.get(index).unlock();
+            }
+        }
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        delegate.associateUserWithProject(userName, projectCode);
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        return delegate.getUserAssociatedProjectCodes(username);
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        return delegate.isUserAssociatedWithProject(username, projectCode);
+    }
+
+    /**
+     * Job updates dropped because they would not have changed anything.
+     */
+    public long unchangedUpdateCount() {
+        return unchangedUpdates.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    private <T> T tracked(String projectCode, Supplier<T> operation) {
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void projectAdded(String projectCode, List<ProjectJobStatus> jobs) {
+        Map<String, ProjectJobStatus> jobsByCode = jobsByCode(jobs);
+
+        long timestampMillis = clock.millis();
+        for (JobStatusListener listener : listeners) {
+            listener.projectAdded(projectCode);
+            for (ProjectJobStatus job : jobsByCode.values()) {
+                listener.jobAdded(projectCode, job.getJobCode(), job.getJobStatus(), timestampMillis);
+            }
+        }
+    }
+
+    private void projectRemoved(String projectCode, Project previous) {
+        Map<String, ProjectJobStatus> previousJobs = jobsByCode(jobsOf(previous));
+
+        for (JobStatusListener listener : listeners) {
+            for (ProjectJobStatus job : previousJobs.values()) {
+                listener.jobRemoved(projectCode, job.getJobCode(), job.getJobStatus());
+            }
+            listener.projectRemoved(projectCode);
+        }
+    }
+
+    private void jobsReplaced(Project previous, Project project) {
+        if (!versionMoved(previous, project)) {
+            return;
+        }
+
+        String projectCode = project.getProjectCode();
+        Map<String, ProjectJobStatus> previousJobs = jobsByCode(jobsOf(previous));
+        Map<String, ProjectJobStatus> jobs = jobsByCode(project.getJobStatusList());
+
+        long timestampMillis = clock.millis();
+        for (JobStatusListener listener : listeners) {
+            for (ProjectJobStatus previousJob : previousJobs.values()) {
+                if (!jobs.containsKey(previousJob.getJobCode())) {
+                    listener.jobRemoved(projectCode, previousJob.getJobCode(), previousJob.getJobStatus());
+                }
+            }
+            for (ProjectJobStatus job : jobs.values()) {
+                ProjectJobStatus previousJob = previousJobs.get(job.getJobCode());
+                if (previousJob == null) {
+                    listener.jobAdded(projectCode, job.getJobCode(), job.getJobStatus(), timestampMillis);
+                } else if (previousJob.getJobStatus() != job.getJobStatus()) {
+                    listener.jobStatusChanged(projectCode, job.getJobCode(), previousJob.getJobStatus(), job.getJobStatus(), timestampMillis);
+                }
+            }
+        }
+    }
+
+    private void jobUpdated(String projectCode, ProjectJobStatus previousJob, JobStatus jobStatus, long timestampMillis) {
+        if (previousJob.getJobStatus() == jobStatus) {
+            return;
+        }
+
+        for (JobStatusListener listener : listeners) {
+            listener.jobStatusChanged(projectCode, previousJob.getJobCode(), previousJob.getJobStatus(), jobStatus, timestampMillis);
+        }
+    }
+
+    private boolean versionMoved(Project previous, Project project) {
+        if (previous != null && previous.getVersion() == project.getVersion()) {
+            unchangedUpdates.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private static List<ProjectJobStatus> jobsOf(Project project) {
+        return project == null ? null : project.getJobStatusList();
+    }
+
+    /**
+     * The jobs in the list by code, in list order and keeping the first of any duplicates.
+     */
+    private static Map<String, ProjectJobStatus> jobsByCode(List<ProjectJobStatus> jobs) {
+        if (jobs == null) {
+            return new LinkedHashMap<>();
+        }
+
+        Map<String, ProjectJobStatus> jobsByCode = new LinkedHashMap<>();
+        for (ProjectJobStatus job : jobs) {
+            jobsByCode.putIfAbsent(job.getJobCode(), job);
+        }
+        return jobsByCode;
+    }
+}
@@ -0,0 +1,76 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusHistory;
+import gs.psm.projectstatusmonitor.ports.JobStatusHistoryRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the status history of every job in a fixed size {@link JobStatusRingBuffer}, so
+ * the memory held per job is bounded however often it changes. A job's history starts
+ * with the status it was added with and ends when the job or its project is removed.
+ */
+public class RingBufferJobStatusHistoryRepository implements JobStatusHistoryRepository, JobStatusListener {
+
+    private final int capacity;
+
+    private final Map<String, Map<String, JobStatusRingBuffer>> projectHistories = new ConcurrentHashMap<>();
+
+    public RingBufferJobStatusHistoryRepository(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be at least 1");
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public JobStatusHistory getJobStatusHistory(String projectCode, String jobCode) {
+        Map<String, JobStatusRingBuffer> jobHistories = projectHistories.get(projectCode);
+        JobStatusRingBuffer history = jobHistories == null ? null : jobHistories.get(jobCode);
+        if (history == null) {
+            return null;
+        }
+
+        synchronized (history) {
+            return new JobStatusHistory(projectCode, jobCode, history.changeCount(), history.changes());
+        }
+    }
+
+    @Override
+    public void projectAdded(String projectCode) {
+        projectHistories.put(projectCode, new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public void projectRemoved(String projectCode) {
+        projectHistories.remove(projectCode);
+    }
+
+    @Override
+    public void jobAdded(String projectCode, String jobCode, JobStatus jobStatus, long timestampMillis) {
+        JobStatusRingBuffer history = new JobStatusRingBuffer(capacity);
+        history.record(jobStatus, timestampMillis);
+        projectHistories.computeIfAbsent(projectCode, code -> new ConcurrentHashMap<>()).put(jobCode, history);
+    }
+
+    @Override
+    public void jobStatusChanged(String projectCode, String jobCode, JobStatus previousStatus, JobStatus jobStatus, long timestampMillis) {
+        Map<String, JobStatusRingBuffer> jobHistories = projectHistories.get(projectCode);
+        JobStatusRingBuffer history = jobHistories == null ? null : jobHistories.get(jobCode);
+        if (history == null) {
+            jobAdded(projectCode, jobCode, jobStatus, timestampMillis);
+            return;
+        }
+        history.record(jobStatus, timestampMillis);
+    }
+
+    @Override
+    public void jobRemoved(String projectCode, String jobCode, JobStatus jobStatus) {
+        Map<String, JobStatusRingBuffer> jobHistories = projectHistories.get(projectCode);
+        if (jobHistories != null) {
+            jobHistories.remove(jobCode);
+        }
+    }
+}
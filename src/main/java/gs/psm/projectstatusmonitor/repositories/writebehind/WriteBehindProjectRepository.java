@@ -0,0 +1,540 @@
+package gs.psm.projectstatusmonitor.repositories.writebehind;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.JobStatusUpdateBatch;
+import gs.psm.projectstatusmonitor.repositories.StripedLocks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Decorator that keeps a full copy of the projects in memory, serves every read from it
+ * and writes mutations through to the delegate repository in the background, so request
+ * latency does not include the delegate's disk or database writes.
+ *
+ * A mutation is applied to the in-memory copy and queued under the lock of its project,
+ * so the delegate sees each project's mutations in the order they were made. Job updates
+ * are not queued individually: the job is marked dirty, and a flush sends the current
+ * status of every dirty job as one bulk update, so repeated updates to a job between
+ * flushes reach the delegate once. Job updates the in-memory copy drops as unchanged are
+ * neither queued nor marked dirty. Project versions are those of the in-memory copy and
+ * restart from the delegate's after a restart.
+ *
+ * Flushes run on a fixed interval, as soon as the queue holds the maximum number of
+ * pending mutations, and synchronously on {@link #close()}. A writer reserves room for
+ * everything it may queue, a whole bulk update at once, before applying anything, and
+ * blocks until the queue has that room. User associations are read from the delegate
+ * the first time a user is seen, after flushing anything still queued.
+ *
+ * A mutation the delegate rejects because it no longer applies there, such as removing a
+ * project it does not have, is logged and dropped. Any other failure stops the flush:
+ * the failed mutation, everything after it and every dirty job go back to the front of
+ * the queue, merged with whatever was queued meanwhile, and {@link #flush()} throws.
+ * Background flushes then back off, doubling the wait after each failure up to a
+ * minute, before retrying.
+ */
+public class WriteBehindProjectRepository implements ProjectRepository, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindProjectRepository.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final long MAX_RETRY_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ProjectRepository delegate;
+
+    private final InMemoryProjectProjectRepository projects = new InMemoryProjectProjectRepository();
+
+    private final StripedLocks projectLocks = new StripedLocks(LOCK_STRIPES);
+
+    private final int maxPendingMutations;
+
+    private final Lock pendingLock = new ReentrantLock();
+
+    private final Condition pendingBelowLimit = pendingLock.newCondition();
+
+    private List<Consumer<ProjectRepository>> pendingMutations = new ArrayList<>();
+
+    private Map<String, Set<String>> pendingJobUpdates = new LinkedHashMap<>();
+
+    private int pendingJobUpdateCount;
+
+    private int reservedMutations;
+
+    private final Lock flushLock = new ReentrantLock();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicLong flushCount = new AtomicLong();
+
+    private final AtomicLong flushTimeNanos = new AtomicLong();
+
+    private final long flushIntervalNanos;
+
+    private int failedFlushes;
+
+    private long retryNotBeforeNanos;
+
+    private final Set<String> loadedUsers = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService flushScheduler;
+
+    public WriteBehindProjectRepository(ProjectRepository delegate, int maxPendingMutations, long flushIntervalMillis) {
+        this.delegate = delegate;
+        this.maxPendingMutations = maxPendingMutations;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+        for (Project project : delegate.listProjects()) {
+            projects.addProject(project);
+        }
+
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "repository-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flushInBackground,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Project addProject(Project addProject) {
+        return written(addProject.getProjectCode(),
+                () -> projects.addProject(addProject),
+                repository -> repository.addProject(addProject));
+    }
+
+    @Override
+    public List<Project> listProjects() {
+        return projects.listProjects();
+    }
+
+    @Override
+    public List<Project> listProjects(String afterProjectCode, int limit) {
+        return projects.listProjects(afterProjectCode, limit);
+    }
+
+    @Override
+    public Project getProject(String projectCode) {
+        return projects.getProject(projectCode);
+    }
+
+    @Override
+    public ProjectJobStatus getJob(String projectCode, String jobCode) {
+        return projects.getJob(projectCode, jobCode);
+    }
+
+    @Override
+    public boolean removeProject(String projectCode) {
+        return written(projectCode,
+                () -> projects.removeProject(projectCode),
+                repository -> repository.removeProject(projectCode));
+    }
+
+    @Override
+    public Project updateProject(Project updateProject) {
+        return written(updateProject.getProjectCode(),
+                () -> projects.updateProject(updateProject),
+                repository -> repository.updateProject(updateProject));
+    }
+
+    @Override
+    public Project updateProject(Project updateProject, long expectedVersion) {
+        return written(updateProject.getProjectCode(),
+                () -> projects.updateProject(updateProject, expectedVersion),
+                repository -> repository.updateProject(updateProject));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        return writtenIfChanged(projectCode,
+                () -> projects.updateProjectJobs(projectCode, projectJobStatusList),
+                repository -> repository.updateProjectJobs(projectCode, projectJobStatusList));
+    }
+
+    @Override
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        return writtenIfChanged(projectCode,
+                () -> projects.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion),
+                repository -> repository.updateProjectJobs(projectCode, projectJobStatusList));
+    }
+
+    @Override
+    public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+        reserve(1);
+
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            long previousVersion = versionOf(projectCode);
+            Project project = projects.updateJob(projectCode, jobCode, projectJobStatus);
+            if (project.getVersion() != previousVersion) {
+                markJobsDirty(projectCode, Collections.singletonList(jobCode));
+            }
+            return project;
+        } finally {
+            lock.unlock();
+            release(1);
+        }
+    }
+
+    @Override
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        reserve(jobStatusUpdates.size());
+        try {
+            JobStatusUpdateBatch batch = new JobStatusUpdateBatch(jobStatusUpdates);
+
+            for (String projectCode : batch.projectCodes()) {
+                Lock lock = projectLocks.lockFor(projectCode);
+                lock.lock();
+                try {
+                    batch.record(projectCode, projects.updateJobs(batch.updatesFor(projectCode)));
+
+                    List<String> updatedJobCodes = new ArrayList<>();
+                    for (int index : batch.updateIndexesFor(projectCode)) {
+                        if (batch.outcome(index) == JobStatusUpdateOutcome.UPDATED) {
+                            updatedJobCodes.add(batch.update(index).getJobCode());
+                        }
+                    }
+                    markJobsDirty(projectCode, updatedJobCodes);
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            return batch.results();
+        } finally {
+            release(jobStatusUpdates.size());
+        }
+    }
+
+    @Override
+    public void associateUserWithProject(String userName, String projectCode) {
+        ensureUserLoaded(userName);
+
+        written(projectCode, () -> {
+            projects.associateUserWithProject(userName, projectCode);
+            return null;
+        }, repository -> repository.associateUserWithProject(userName, projectCode));
+    }
+
+    @Override
+    public List<String> getUserAssociatedProjectCodes(String username) {
+        ensureUserLoaded(username);
+        return projects.getUserAssociatedProjectCodes(username);
+    }
+
+    @Override
+    public boolean isUserAssociatedWithProject(String username, String projectCode) {
+        ensureUserLoaded(username);
+        return projects.isUserAssociatedWithProject(username, projectCode);
+    }
+
+    /**
+     * Writes every queued mutation and dirty job to the delegate before returning, or
+     * puts back what it could not write and rethrows the delegate's failure.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Consumer<ProjectRepository>> mutations;
+            Map<String, Set<String>> jobUpdates;
+
+            pendingLock.lock();
+            try {
+                if (pendingMutations.isEmpty() && pendingJobUpdates.isEmpty()) {
+                    return;
+                }
+                mutations = pendingMutations;
+                jobUpdates = pendingJobUpdates;
+                pendingMutations = new ArrayList<>();
+                pendingJobUpdates = new LinkedHashMap<>();
+                pendingJobUpdateCount = 0;
+                pendingBelowLimit.signalAll();
+            } finally {
+                pendingLock.unlock();
+            }
+
+            long start = System.nanoTime();
+            for (int index = 0; index < mutations.size(); index++) {
+                try {
+                    mutations.get(index).accept(delegate);
+                } catch (ProjectAlreadyExistsException | ProjectNotFoundException | ProjectJobStatusNotFoundException e) {
+                    LOGGER.error("Dropped a project mutation the delegate repository no longer accepts", e);
+                } catch (RuntimeException e) {
+                    requeue(mutations.subList(index, mutations.size()), jobUpdates);
+                    throw e;
+                }
+            }
+
+            try {
+                List<JobStatusUpdate> currentJobs = currentJobStatuses(jobUpdates);
+                if (!currentJobs.isEmpty()) {
+                    delegate.updateJobs(currentJobs);
+                }
+            } catch (RuntimeException e) {
+                requeue(Collections.emptyList(), jobUpdates);
+                throw e;
+            }
+
+            flushCount.incrementAndGet();
+            flushTimeNanos.addAndGet(System.nanoTime() - start);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int pendingMutationCount() {
+        pendingLock.lock();
+        try {
+            return pendingMutations.size() + pendingJobUpdateCount;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    public long flushCount() {
+        return flushCount.get();
+    }
+
+    public long flushTimeNanos() {
+        return flushTimeNanos.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            flush();
+        } finally {
+            if (delegate instanceof Closeable) {
+                ((Closeable) delegate).close();
+            }
+        }
+    }
+
+    private <T> T written(String projectCode, Supplier<T> operation, Consumer<ProjectRepository> mutation) {
+        reserve(1);
+
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            T result = operation.get();
+            enqueue(mutation);
+            return result;
+        } finally {
+            lock.unlock();
+            release(1);
+        }
+    }
+
+    private Project writtenIfChanged(String projectCode, Supplier<Project> operation, Consumer<ProjectRepository> mutation) {
+        reserve(1);
+
+        Lock lock = projectLocks.lockFor(projectCode);
+        lock.lock();
+        try {
+            long previousVersion = versionOf(projectCode);
+            Project result = operation.get();
+            if (result.getVersion() != previousVersion) {
+                enqueue(mutation);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+            release(1);
+        }
+    }
+
+    private void enqueue(Consumer<ProjectRepository> mutation) {
+        pendingLock.lock();
+        try {
+            pendingMutations.add(mutation);
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private long versionOf(String projectCode) {
+        Project project = projects.getProject(projectCode);
+        return project == null ? 0 : project.getVersion();
+    }
+
+    private void markJobsDirty(String projectCode, List<String> jobCodes) {
+        if (jobCodes.isEmpty()) {
+            return;
+        }
+
+        pendingLock.lock();
+        try {
+            addDirtyJobs(projectCode, jobCodes);
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private void addDirtyJobs(String projectCode, Collection<String> jobCodes) {
+        Set<String> dirtyJobCodes = pendingJobUpdates.computeIfAbsent(projectCode, code -> new HashSet<>());
+        for (String jobCode : jobCodes) {
+            if (dirtyJobCodes.add(jobCode)) {
+                pendingJobUpdateCount++;
+            }
+        }
+    }
+
+    /**
+     * Puts mutations and dirty jobs a flush could not write back in front of anything
+     * queued since.
+     */
+    private void requeue(List<Consumer<ProjectRepository>> mutations, Map<String, Set<String>> jobUpdates) {
+        pendingLock.lock();
+        try {
+            List<Consumer<ProjectRepository>> requeued = new ArrayList<>(mutations);
+            requeued.addAll(pendingMutations);
+            pendingMutations = requeued;
+
+            for (Map.Entry<String, Set<String>> dirtyProject : jobUpdates.entrySet()) {
+                addDirtyJobs(dirtyProject.getKey(), dirtyProject.getValue());
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the queue has room for the given number of mutations on top of what is
+     * queued and reserved, and reserves it. A reservation larger than the whole queue only
+     * waits for the queue to empty.
+     */
+    private void reserve(int mutations) {
+        pendingLock.lock();
+        try {
+            while (true) {
+                int used = pendingMutations.size() + pendingJobUpdateCount + reservedMutations;
+                if (used == 0 || used + mutations <= maxPendingMutations) {
+                    break;
+                }
+                requestFlush();
+                pendingBelowLimit.awaitUninterruptibly();
+            }
+            reservedMutations += mutations;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private void release(int mutations) {
+        pendingLock.lock();
+        try {
+            reservedMutations -= mutations;
+            pendingBelowLimit.signalAll();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            flushScheduler.execute(this::flushInBackground);
+        }
+    }
+
+    private void flushInBackground() {
+        flushRequested.set(false);
+        if (failedFlushes > 0 && System.nanoTime() - retryNotBeforeNanos < 0) {
+            return;
+        }
+
+        try {
+            flush();
+            failedFlushes = 0;
+        } catch (RuntimeException e) {
+            failedFlushes++;
+            long backoff = flushIntervalNanos;
+            for (int failure = 1; failure < failedFlushes && backoff < MAX_RETRY_BACKOFF_NANOS; failure++) {
+                backoff *= 2;
+            }
+            backoff = Math.min(backoff, MAX_RETRY_BACKOFF_NANOS);
+            retryNotBeforeNanos = System.nanoTime() + backoff;
+            LOGGER.error("Failed to flush the write-behind project repository, retrying in {} ms",
+                    TimeUnit.NANOSECONDS.toMillis(backoff), e);
+        }
+    }
+
+    private List<JobStatusUpdate> currentJobStatuses(Map<String, Set<String>> jobUpdates) {
+        List<JobStatusUpdate> currentJobs = new ArrayList<>();
+
+        for (Map.Entry<String, Set<String>> dirtyProject : jobUpdates.entrySet()) {
+            Project project = projects.getProject(dirtyProject.getKey());
+            if (project == null || project.getJobStatusList() == null) {
+                continue;
+            }
+
+            Set<String> dirtyJobCodes = new HashSet<>(dirtyProject.getValue());
+            for (ProjectJobStatus job : project.getJobStatusList()) {
+                if (dirtyJobCodes.remove(job.getJobCode())) {
+                    currentJobs.add(new JobStatusUpdate(project.getProjectCode(), job.getJobCode(), job.getJobName(), job.getJobStatus()));
+                }
+            }
+        }
+        return currentJobs;
+    }
+
+    private void ensureUserLoaded(String username) {
+        if (loadedUsers.contains(username)) {
+            return;
+        }
+
+        synchronized (loadedUsers) {
+            if (loadedUsers.contains(username)) {
+                return;
+            }
+
+            flush();
+            for (String projectCode : delegate.getUserAssociatedProjectCodes(username)) {
+                try {
+                    projects.associateUserWithProject(username, projectCode);
+                } catch (ProjectNotFoundException e) {
+                    // removed after the flush above; the removal is queued for the delegate
+                }
+            }
+            loadedUsers.add(username);
+        }
+    }
+}
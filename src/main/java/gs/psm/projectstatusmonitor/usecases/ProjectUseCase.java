@@ -2,28 +2,43 @@ package gs.psm.projectstatusmonitor.usecases;
 
 import gs.psm.projectstatusmonitor.exceptions.DeleteProjectException;
 import gs.psm.projectstatusmonitor.exceptions.DuplicateJobCodeException;
+import gs.psm.projectstatusmonitor.exceptions.InvalidPageRequestException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
 import gs.psm.projectstatusmonitor.exceptions.UserActionNotAllowedException;
+import gs.psm.projectstatusmonitor.models.MemoryUsage;
 import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectPage;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.models.UserMemoryUsage;
+import gs.psm.projectstatusmonitor.ports.MemoryUsageRepository;
 import gs.psm.projectstatusmonitor.ports.ProjectRepository;
 
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class ProjectUseCase {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private ProjectRepository projectRepository;
 
     private ProjectJobStatusHelper projectJobStatusHelper;
 
+    private MemoryUsageRepository memoryUsageRepository;
+
     public ProjectUseCase(
             ProjectRepository projectRepository,
-            ProjectJobStatusHelper projectJobStatusHelper
+            ProjectJobStatusHelper projectJobStatusHelper,
+            MemoryUsageRepository memoryUsageRepository
     ) {
         this.projectRepository = projectRepository;
         this.projectJobStatusHelper = projectJobStatusHelper;
+        this.memoryUsageRepository = memoryUsageRepository;
     }
 
     public void addProject(Project project, String username) {
@@ -44,6 +59,58 @@ public class ProjectUseCase {
         return projectRepository.listProjects();
     }
 
+    public ProjectPage listProjects(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException();
+        }
+
+        List<Project> projects = projectRepository.listProjects(decodeCursor(cursor), limit + 1);
+
+        if (projects.size() > limit) {
+            projects = projects.subList(0, limit);
+            return new ProjectPage(projects, encodeCursor(projects.get(limit - 1).getProjectCode()));
+        }
+
+        return new ProjectPage(projects, null);
+    }
+
+    /**
+     * Merges the same page read from several nodes, each holding a share of the projects,
+     * into the page a single node holding all of them would return.
+     */
+    public ProjectPage mergeProjectPages(List<ProjectPage> pages, int limit) {
+        List<List<Project>> projectLists = new ArrayList<>();
+        boolean more = false;
+        for (ProjectPage page : pages) {
+            projectLists.add(page.getProjects());
+            more |= page.getNextCursor() != null;
+        }
+        List<Project> projects = mergeProjects(projectLists);
+
+        if (projects.size() > limit) {
+            projects = new ArrayList<>(projects.subList(0, limit));
+            more = true;
+        }
+
+        return new ProjectPage(projects, more ? encodeCursor(projects.get(projects.size() - 1).getProjectCode()) : null);
+    }
+
+    /**
+     * Merges the projects read from several nodes into one list sorted by code. A project
+     * more than one node holds, as it may while it is handed over, is listed once, at the
+     * highest version among them.
+     */
+    public List<Project> mergeProjects(List<List<Project>> projectLists) {
+        Map<String, Project> projectsByCode = new TreeMap<>();
+        for (List<Project> projects : projectLists) {
+            for (Project project : projects) {
+                projectsByCode.merge(project.getProjectCode(), project,
+                        (held, other) -> other.getVersion() > held.getVersion() ? other : held);
+            }
+        }
+        return new ArrayList<>(projectsByCode.values());
+    }
+
     public Project getProject(String projectCode,String username) {
         if (isUserAssociatedWithProjectCode(username, projectCode)) {
             Project foundProject = projectRepository.getProject(projectCode);
@@ -71,26 +138,68 @@ public class ProjectUseCase {
     }
 
     public void updateProject(Project project, String username) {
-        if (isUserAssociatedWithProjectCode(username, project.getProjectCode())) {
+        checkProjectUpdate(project, username);
+
+        projectRepository.updateProject(project);
+    }
 
-            List<ProjectJobStatus> jobs = project.getJobStatusList();
+    public Project updateProject(Project project, String username, long expectedVersion) {
+        checkProjectUpdate(project, username);
+
+        return projectRepository.updateProject(project, expectedVersion);
+    }
 
-            if (jobs != null && jobs.size() > 0) {
-                if (!projectJobStatusHelper.containsNoDuplicateJobCodes(jobs)) {
-                    throw new DuplicateJobCodeException();
-                }
+    private void checkProjectUpdate(Project project, String username) {
+        if (!isUserAssociatedWithProjectCode(username, project.getProjectCode())) {
+            throw new UserActionNotAllowedException();
+        }
+
+        List<ProjectJobStatus> jobs = project.getJobStatusList();
+
+        if (jobs != null && jobs.size() > 0) {
+            if (!projectJobStatusHelper.containsNoDuplicateJobCodes(jobs)) {
+                throw new DuplicateJobCodeException();
             }
+        }
+    }
 
-            projectRepository.updateProject(project);
-            return;
+    public MemoryUsage getMemoryUsage() {
+        List<UserMemoryUsage> userMemoryUsageList = new ArrayList<>();
+        for (String username : memoryUsageRepository.getUsernames()) {
+            List<String> projectCodes = projectRepository.getUserAssociatedProjectCodes(username);
+            if (projectCodes.isEmpty()) {
+                continue;
+            }
+
+            long estimatedBytes = 0;
+            for (String projectCode : projectCodes) {
+                estimatedBytes += memoryUsageRepository.getEstimatedBytes(projectCode);
+            }
+            userMemoryUsageList.add(new UserMemoryUsage(username, projectCodes.size(), estimatedBytes));
         }
+        userMemoryUsageList.sort(Comparator.comparingLong(UserMemoryUsage::getEstimatedBytes).reversed());
 
-        throw new UserActionNotAllowedException();
+        return new MemoryUsage(memoryUsageRepository.getBudgetBytes(), memoryUsageRepository.getEstimatedBytes(),
+                userMemoryUsageList);
     }
 
-    private boolean isUserAssociatedWithProjectCode(String username, String projectCode) {
-        List<String> associatedProjectCodes = projectRepository.getUserAssociatedProjectCodes(username);
+    private String encodeCursor(String projectCode) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(projectCode.getBytes(StandardCharsets.UTF_8));
+    }
 
-        return associatedProjectCodes.contains(projectCode);
+    private String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException();
+        }
+    }
+
+    private boolean isUserAssociatedWithProjectCode(String username, String projectCode) {
+        return projectRepository.isUserAssociatedWithProject(username, projectCode);
     }
 }
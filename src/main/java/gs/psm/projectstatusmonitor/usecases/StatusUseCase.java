@@ -1,51 +1,176 @@
 package gs.psm.projectstatusmonitor.usecases;
 
+import gs.psm.projectstatusmonitor.exceptions.BulkUpdateTooLargeException;
 import gs.psm.projectstatusmonitor.exceptions.DuplicateJobCodeException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.models.EstateStatusSummary;
+import gs.psm.projectstatusmonitor.models.JobReference;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusHistory;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
 import gs.psm.projectstatusmonitor.models.Project;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.models.ProjectStatusSummary;
+import gs.psm.projectstatusmonitor.ports.EstateStatusSummaryRepository;
+import gs.psm.projectstatusmonitor.ports.JobStatusHistoryRepository;
+import gs.psm.projectstatusmonitor.ports.JobStatusIndex;
 import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectStatusSummaryRepository;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class StatusUseCase {
 
+    public static final int MAX_BULK_UPDATE_SIZE = 10000;
+
     private ProjectRepository projectRepository;
 
     private ProjectJobStatusHelper projectJobStatusHelper;
 
+    private JobStatusHistoryRepository jobStatusHistoryRepository;
+
+    private JobStatusIndex jobStatusIndex;
+
+    private ProjectStatusSummaryRepository projectStatusSummaryRepository;
+
+    private EstateStatusSummaryRepository estateStatusSummaryRepository;
+
     public StatusUseCase(
             ProjectRepository projectRepository,
-            ProjectJobStatusHelper projectJobStatusHelper
+            ProjectJobStatusHelper projectJobStatusHelper,
+            JobStatusHistoryRepository jobStatusHistoryRepository,
+            JobStatusIndex jobStatusIndex,
+            ProjectStatusSummaryRepository projectStatusSummaryRepository,
+            EstateStatusSummaryRepository estateStatusSummaryRepository
     ) {
         this.projectRepository = projectRepository;
         this.projectJobStatusHelper = projectJobStatusHelper;
+        this.jobStatusHistoryRepository = jobStatusHistoryRepository;
+        this.jobStatusIndex = jobStatusIndex;
+        this.projectStatusSummaryRepository = projectStatusSummaryRepository;
+        this.estateStatusSummaryRepository = estateStatusSummaryRepository;
     }
 
     public List<ProjectJobStatus> getJobStatus(String projectCode) {
+        return getProjectStatus(projectCode).getJobStatusList();
+    }
+
+    public Project getProjectStatus(String projectCode) {
         Project project = projectRepository.getProject(projectCode);
 
         if (project != null) {
-            return project.getJobStatusList();
+            return project;
+        }
+
+        throw new ProjectNotFoundException();
+    }
+
+    public EstateStatusSummary getEstateStatusSummary() {
+        return estateStatusSummaryRepository.getEstateStatusSummary();
+    }
+
+    /**
+     * Adds up the estate summaries of several nodes, each covering only the projects it holds.
+     */
+    public EstateStatusSummary mergeEstateStatusSummaries(List<EstateStatusSummary> summaries) {
+        long projectCount = 0;
+        long jobCount = 0;
+        Map<JobStatus, Long> jobStatusCounts = new EnumMap<>(JobStatus.class);
+        for (EstateStatusSummary summary : summaries) {
+            projectCount += summary.getProjectCount();
+            jobCount += summary.getJobCount();
+            if (summary.getJobStatusCounts() != null) {
+                summary.getJobStatusCounts().forEach((jobStatus, count) -> jobStatusCounts.merge(jobStatus, count, Long::sum));
+            }
+        }
+        return new EstateStatusSummary(projectCount, jobCount, jobStatusCounts);
+    }
+
+    public ProjectStatusSummary getProjectStatusSummary(String projectCode) {
+        ProjectStatusSummary projectStatusSummary = projectStatusSummaryRepository.getProjectStatusSummary(projectCode);
+
+        if (projectStatusSummary != null) {
+            return projectStatusSummary;
         }
 
         throw new ProjectNotFoundException();
     }
 
+    public JobStatusHistory getJobStatusHistory(String projectCode, String jobCode) {
+        JobStatusHistory jobStatusHistory = jobStatusHistoryRepository.getJobStatusHistory(projectCode, jobCode);
+
+        if (jobStatusHistory != null) {
+            return jobStatusHistory;
+        }
+
+        getProjectStatus(projectCode);
+        throw new ProjectJobStatusNotFoundException();
+    }
+
+    public List<JobReference> getJobsByStatus(List<JobStatus> jobStatuses) {
+        List<JobReference> jobs = new ArrayList<>();
+        for (JobStatus jobStatus : new HashSet<>(jobStatuses)) {
+            jobs.addAll(jobStatusIndex.findJobsByStatus(jobStatus));
+        }
+        return jobs;
+    }
+
     public void updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList) {
+        checkNoDuplicateJobCodes(projectJobStatusList);
+
+        projectRepository.updateProjectJobs(projectCode, projectJobStatusList);
+    }
+
+    public Project updateProjectJobs(String projectCode, List<ProjectJobStatus> projectJobStatusList, long expectedVersion) {
+        checkNoDuplicateJobCodes(projectJobStatusList);
+
+        return projectRepository.updateProjectJobs(projectCode, projectJobStatusList, expectedVersion);
+    }
 
+    public List<JobStatusUpdateResult> updateJobs(List<JobStatusUpdate> jobStatusUpdates) {
+        if (jobStatusUpdates.size() > MAX_BULK_UPDATE_SIZE) {
+            throw new BulkUpdateTooLargeException();
+        }
+
+        if (jobStatusUpdates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return projectRepository.updateJobs(jobStatusUpdates);
+    }
+
+    private void checkNoDuplicateJobCodes(List<ProjectJobStatus> projectJobStatusList) {
         if (projectJobStatusList.size() > 0) {
             if (!projectJobStatusHelper.containsNoDuplicateJobCodes(projectJobStatusList)) {
                 throw new DuplicateJobCodeException();
             }
         }
-
-        projectRepository.updateProjectJobs(projectCode, projectJobStatusList);
     }
 
-    public void updateJob(String projectCode, ProjectJobStatus projectJobStatus) {
-        projectRepository.updateJob(projectCode, projectJobStatus.getJobCode(), projectJobStatus);
+    /**
+     * Updates one job through the repository's bulk path, whose per-job outcome says
+     * whether the update changed anything.
+     */
+    public JobStatusUpdateOutcome updateJob(String projectCode, ProjectJobStatus projectJobStatus) {
+        JobStatusUpdate update = new JobStatusUpdate(projectCode, projectJobStatus.getJobCode(),
+                projectJobStatus.getJobName(), projectJobStatus.getJobStatus());
+        JobStatusUpdateOutcome outcome = projectRepository.updateJobs(Collections.singletonList(update)).get(0).getOutcome();
+
+        if (outcome == JobStatusUpdateOutcome.PROJECT_NOT_FOUND) {
+            throw new ProjectNotFoundException();
+        }
+        if (outcome == JobStatusUpdateOutcome.JOB_NOT_FOUND) {
+            throw new ProjectJobStatusNotFoundException();
+        }
+        return outcome;
     }
 }
@@ -0,0 +1,266 @@
+package gs.psm.projectstatusmonitor.cluster;
+
+import gs.psm.projectstatusmonitor.ProjectStatusMonitorApplication;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateList;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.models.ProjectPage;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs several nodes of the application on localhost ports, each with its own repository.
+ */
+public class ClusterRouterTest {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    private final TestRestTemplate restTemplate = new TestRestTemplate("test_username", "test_password");
+
+    @After
+    public void stopNodes() {
+        for (int index = nodes.size() - 1; index >= 0; index--) {
+            nodes.get(index).close();
+        }
+    }
+
+    @Test
+    public void everyNode_answersForEveryProject_whicheverNodeHoldsIt() throws Exception {
+        List<String> urls = Arrays.asList(freeUrl(), freeUrl());
+        startNode(urls.get(0), urls);
+        startNode(urls.get(1), urls);
+
+        for (int project = 0; project < 20; project++) {
+            ResponseEntity<Void> response = restTemplate.postForEntity(urls.get(project % 2) + "/project/add",
+                    createProject("code" + project), Void.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        }
+
+        for (String url : urls) {
+            ResponseEntity<Project> response = restTemplate.getForEntity(url + "/project/code7", Project.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody().getProjectCode()).isEqualTo("code7");
+            assertThat(response.getHeaders().getETag()).isEqualTo("\"1\"");
+        }
+
+        assertThat(localProjectCodes(urls.get(0))).isNotEmpty();
+        assertThat(localProjectCodes(urls.get(1))).isNotEmpty();
+        assertThat(localProjectCodes(urls.get(0)).size() + localProjectCodes(urls.get(1)).size()).isEqualTo(20);
+
+        ResponseEntity<List<JobStatusUpdateResult>> updated = restTemplate.exchange(urls.get(0) + "/status/updateJobs",
+                HttpMethod.POST, new HttpEntity<>(new JobStatusUpdateList(Arrays.asList(
+                        new JobStatusUpdate("code1", "job", "name", JobStatus.FAILED),
+                        new JobStatusUpdate("code2", "job", "name", JobStatus.FAILED),
+                        new JobStatusUpdate("missing", "job", "name", JobStatus.FAILED)
+                ))), new ParameterizedTypeReference<List<JobStatusUpdateResult>>() {
+                });
+        assertThat(updated.getBody()).extracting(JobStatusUpdateResult::getOutcome).containsExactly(
+                JobStatusUpdateOutcome.UPDATED, JobStatusUpdateOutcome.UPDATED, JobStatusUpdateOutcome.PROJECT_NOT_FOUND);
+
+        assertThat(restTemplate.getForObject(urls.get(1) + "/status/code2", ProjectJobStatus[].class)[0].getJobStatus())
+                .isEqualTo(JobStatus.FAILED);
+    }
+
+    @Test
+    public void everyNode_listsTheProjectsOfTheWholeCluster() throws Exception {
+        List<String> urls = Arrays.asList(freeUrl(), freeUrl());
+        startNode(urls.get(0), urls);
+        startNode(urls.get(1), urls);
+
+        Set<String> codes = new HashSet<>();
+        for (int project = 0; project < 20; project++) {
+            restTemplate.postForEntity(urls.get(0) + "/project/add", createProject("code" + project), Void.class);
+            codes.add("code" + project);
+        }
+
+        for (String url : urls) {
+            Project[] projects = restTemplate.getForObject(url + "/project/list", Project[].class);
+            assertThat(projects).extracting(Project::getProjectCode).isSorted().containsOnlyElementsOf(codes).hasSize(20);
+
+            List<String> paged = new ArrayList<>();
+            ProjectPage page = restTemplate.getForObject(url + "/project/list?limit=7", ProjectPage.class);
+            paged.addAll(codesOf(page));
+            while (page.getNextCursor() != null) {
+                page = restTemplate.getForObject(url + "/project/list?limit=7&cursor=" + page.getNextCursor(), ProjectPage.class);
+                paged.addAll(codesOf(page));
+            }
+            assertThat(paged).isSorted().containsOnlyElementsOf(codes).hasSize(20);
+        }
+    }
+
+    @Test
+    public void owned_leavesOutTheProjectsAnotherNodeOwnsOnTheRing() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node1", "node2"), VIRTUAL_NODES);
+        List<Project> projects = new ArrayList<>();
+        List<String> ownedCodes = new ArrayList<>();
+        for (int project = 0; project < 20; project++) {
+            projects.add(createProject("code" + project));
+            if (ring.ownerOf("code" + project).equals("node1")) {
+                ownedCodes.add("code" + project);
+            }
+        }
+
+        try (ClusterRouter router = new ClusterRouter("node1", ring,
+                new FencingProjectRepository(new InMemoryProjectProjectRepository()), Collections::emptyMap, "", "")) {
+            assertThat(router.owned(projects)).extracting(Project::getProjectCode).containsExactlyElementsOf(ownedCodes);
+        }
+        assertThat(ownedCodes.size()).isBetween(1, 19);
+    }
+
+    @Test
+    public void aJoiningNode_takesOverOnlyTheProjectsItNowOwns() throws Exception {
+        List<String> urls = Arrays.asList(freeUrl(), freeUrl(), freeUrl());
+        startNode(urls.get(0), urls.subList(0, 2));
+        startNode(urls.get(1), urls.subList(0, 2));
+
+        for (int project = 0; project < 40; project++) {
+            restTemplate.postForEntity(urls.get(0) + "/project/add", createProject("code" + project), Void.class);
+        }
+        restTemplate.postForEntity(urls.get(0) + "/status/updateJob/code3",
+                new ProjectJobStatus("job", "name", JobStatus.FAILED), Void.class);
+        Set<String> before0 = localProjectCodes(urls.get(0));
+        Set<String> before1 = localProjectCodes(urls.get(1));
+
+        startNode(urls.get(2), urls);
+
+        ConsistentHashRing ring = new ConsistentHashRing(urls, VIRTUAL_NODES);
+        Set<String> after0 = localProjectCodes(urls.get(0));
+        Set<String> after1 = localProjectCodes(urls.get(1));
+        Set<String> after2 = localProjectCodes(urls.get(2));
+
+        assertThat(after2).isNotEmpty();
+        assertThat(before0).containsAll(after0);
+        assertThat(before1).containsAll(after1);
+        assertThat(after0.size() + after1.size() + after2.size()).isEqualTo(40);
+        for (String code : after2) {
+            assertThat(ring.ownerOf(code)).isEqualTo(urls.get(2));
+        }
+
+        for (String url : urls) {
+            ResponseEntity<Project> response = restTemplate.getForEntity(url + "/project/code3", Project.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getETag()).isEqualTo("\"2\"");
+        }
+        assertThat(restTemplate.withBasicAuth("test_username2", "test_password2")
+                .getForEntity(urls.get(0) + "/project/" + after2.iterator().next(), Void.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void clusterEndpoints_refuseUsersOtherThanTheClusterUser() throws Exception {
+        List<String> urls = Arrays.asList(freeUrl());
+        startNode(urls.get(0), urls);
+
+        ResponseEntity<Void> response = new TestRestTemplate("test_username2", "test_password2")
+                .postForEntity(urls.get(0) + "/cluster/join?node=http://localhost:1", null, Void.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForObject(urls.get(0) + "/cluster/nodes", String[].class)).containsExactly(urls.get(0));
+    }
+
+    @Test
+    public void aClientClaimingToBeANode_isStillRoutedAndGathered() throws Exception {
+        List<String> urls = Arrays.asList(freeUrl(), freeUrl());
+        startNode(urls.get(0), urls);
+        startNode(urls.get(1), urls);
+
+        for (int project = 0; project < 20; project++) {
+            restTemplate.postForEntity(urls.get(0) + "/project/add", createProject("code" + project), Void.class);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ClusterRouter.FORWARDED_HEADER, "client");
+        headers.set(ClusterRouter.NODE_CREDENTIAL_HEADER, "guess");
+        Project[] projects = restTemplate.exchange(urls.get(0) + "/project/list", HttpMethod.GET, new HttpEntity<>(headers), Project[].class)
+                .getBody();
+        assertThat(projects).hasSize(20);
+
+        String remoteCode = localProjectCodes(urls.get(1)).iterator().next();
+        ResponseEntity<Project> response = restTemplate.exchange(urls.get(0) + "/project/" + remoteCode, HttpMethod.GET,
+                new HttpEntity<>(headers), Project.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getProjectCode()).isEqualTo(remoteCode);
+    }
+
+    /**
+     * The projects a node holds itself, asked for as if by another node so it does not
+     * gather them from the rest of the cluster.
+     */
+    private Set<String> localProjectCodes(String url) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ClusterRouter.FORWARDED_HEADER, "test");
+        headers.set(ClusterRouter.NODE_CREDENTIAL_HEADER, ClusterRouter.nodeCredential("test_username", "test_password"));
+        Project[] projects = restTemplate.exchange(url + "/project/list", HttpMethod.GET, new HttpEntity<>(headers), Project[].class)
+                .getBody();
+
+        Set<String> codes = new HashSet<>();
+        for (Project project : projects) {
+            codes.add(project.getProjectCode());
+        }
+        return codes;
+    }
+
+    private List<String> codesOf(ProjectPage page) {
+        List<String> codes = new ArrayList<>();
+        for (Project project : page.getProjects()) {
+            codes.add(project.getProjectCode());
+        }
+        return codes;
+    }
+
+    private void startNode(String self, List<String> clusterNodes) {
+        nodes.add(new SpringApplicationBuilder(ProjectStatusMonitorApplication.class).run(
+                "--server.port=" + self.substring(self.lastIndexOf(':') + 1),
+                "--spring.jmx.enabled=false",
+                "--cluster.enabled=true",
+                "--cluster.self=" + self,
+                "--cluster.nodes=" + String.join(",", clusterNodes),
+                "--cluster.virtual-nodes=" + VIRTUAL_NODES,
+                "--cluster.username=test_username",
+                "--cluster.password=test_password"
+        ));
+    }
+
+    private static String freeUrl() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return "http://localhost:" + socket.getLocalPort();
+        }
+    }
+
+    private Project createProject(String code) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(Arrays.asList(
+                        new ProjectJobStatus("job", "name", JobStatus.RUNNING)
+                ))
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package gs.psm.projectstatusmonitor.cluster;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEY_COUNT = 10_000;
+
+    @Test
+    public void ownerOf_isTheSameWhateverOrderTheNodesAreGivenIn() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-a", "node-b", "node-c"), 64);
+        ConsistentHashRing reordered = new ConsistentHashRing(Arrays.asList("node-c", "node-a", "node-b", "node-a"), 64);
+
+        assertThat(reordered.getNodes()).containsExactly("node-a", "node-b", "node-c");
+        for (int key = 0; key < KEY_COUNT; key++) {
+            assertThat(reordered.ownerOf("code" + key)).isEqualTo(ring.ownerOf("code" + key));
+        }
+    }
+
+    @Test
+    public void withNode_onlyMovesKeysToTheNewNode() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-a", "node-b", "node-c"), 128);
+        ConsistentHashRing joined = ring.withNode("node-d");
+
+        int moved = 0;
+        for (int key = 0; key < KEY_COUNT; key++) {
+            String before = ring.ownerOf("code" + key);
+            String after = joined.ownerOf("code" + key);
+            if (!before.equals(after)) {
+                assertThat(after).isEqualTo("node-d");
+                moved++;
+            }
+        }
+
+        assertThat(joined.contains("node-d")).isTrue();
+        assertThat(moved).isBetween(KEY_COUNT / 8, KEY_COUNT * 3 / 8);
+    }
+
+    @Test
+    public void ownerOf_spreadsKeysEvenlyAcrossTheNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-a", "node-b", "node-c", "node-d"), 128);
+
+        Map<String, Integer> keysByNode = new HashMap<>();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            keysByNode.merge(ring.ownerOf("code" + key), 1, Integer::sum);
+        }
+
+        assertThat(keysByNode).hasSize(4);
+        for (int keys : keysByNode.values()) {
+            assertThat(keys).isBetween(KEY_COUNT / 4 * 7 / 10, KEY_COUNT / 4 * 13 / 10);
+        }
+    }
+}
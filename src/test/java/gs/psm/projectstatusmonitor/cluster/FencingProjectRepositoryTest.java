@@ -0,0 +1,100 @@
+package gs.psm.projectstatusmonitor.cluster;
+
+import gs.psm.projectstatusmonitor.exceptions.ClusterNodeUnavailableException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class FencingProjectRepositoryTest extends ProjectRepositoryTest {
+
+    @Override
+    public ProjectRepository createInstance() {
+        return new FencingProjectRepository(new InMemoryProjectProjectRepository());
+    }
+
+    @Test
+    public void writesToAFencedProject_failUntilItIsUnfenced_whileReadsCarryOn() {
+        FencingProjectRepository repository = new FencingProjectRepository(new InMemoryProjectProjectRepository());
+        repository.addProject(createProject("code1"));
+        repository.addProject(createProject("code2"));
+
+        assertThat(repository.fence(Arrays.asList("code1", "code2"))).containsExactly("code1", "code2");
+        assertThat(repository.fence(Collections.singletonList("code1"))).isEmpty();
+
+        try {
+            repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.FAILED));
+            fail("Expected the write to a fenced project to be refused");
+        } catch (ClusterNodeUnavailableException e) {
+            // the project is being handed over
+        }
+        try {
+            repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code2", "job-1", "name", JobStatus.FAILED)));
+            fail("Expected the write to a fenced project to be refused");
+        } catch (ClusterNodeUnavailableException e) {
+            // the project is being handed over
+        }
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(1);
+
+        repository.removeFenced("code1");
+        repository.unfence(Arrays.asList("code1", "code2"));
+
+        assertThat(repository.getProject("code1")).isNull();
+        assertThat(repository.updateJob("code2", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.FAILED)).getVersion())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void fence_waitsForWritesThatAreUnderWay() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch finishWrite = new CountDownLatch(1);
+        FencingProjectRepository repository = new FencingProjectRepository(new InMemoryProjectProjectRepository() {
+            @Override
+            public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+                writing.countDown();
+                try {
+                    finishWrite.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.updateJob(projectCode, jobCode, projectJobStatus);
+            }
+        });
+        repository.addProject(createProject("code1"));
+
+        CompletableFuture<Project> write = CompletableFuture.supplyAsync(() ->
+                repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.FAILED)));
+        writing.await();
+        CompletableFuture<Void> fence = CompletableFuture.runAsync(() -> repository.fence(Collections.singletonList("code1")));
+
+        Thread.sleep(100);
+        assertThat(fence.isDone()).isFalse();
+
+        finishWrite.countDown();
+        fence.get(5, TimeUnit.SECONDS);
+
+        assertThat(write.get().getVersion()).isEqualTo(2);
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(2);
+    }
+
+    private Project createProject(String code) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(Collections.singletonList(new ProjectJobStatus("job-1", "name", JobStatus.RUNNING)))
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package gs.psm.projectstatusmonitor.controllers;
+
+import gs.psm.projectstatusmonitor.ProjectStatusMonitorApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.support.BasicAuthenticationInterceptor;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Compares job updates per second over HTTP when each job is sent to
+ * /status/updateJob/{projectCode} with when the same updates are batched into
+ * /status/updateJobs, against a running application with basic auth enabled.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gs.psm.projectstatusmonitor.controllers.BulkStatusUpdateBenchmark
+ */
+public class BulkStatusUpdateBenchmark {
+
+    private static final int PROJECTS = 50;
+
+    private static final int JOBS_PER_PROJECT = 20;
+
+    private static final int SINGLE_UPDATES = 300;
+
+    private static final int BULK_UPDATES = 200_000;
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private static final String[] STATUSES = {"RUNNING", "PASSED", "FAILED"};
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = SpringApplication.run(ProjectStatusMonitorApplication.class,
+                "--server.port=0", "--auth.username=benchmark", "--auth.password=benchmark", "--logging.level.root=WARN");
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            RestTemplate restTemplate = new RestTemplate();
+            restTemplate.getInterceptors().add(new BasicAuthenticationInterceptor("benchmark", "benchmark"));
+
+            for (int project = 0; project < PROJECTS; project++) {
+                restTemplate.postForEntity(baseUrl + "/project/add", json(projectJson(project)), Void.class);
+            }
+
+            for (int warmup = 0; warmup < 3; warmup++) {
+                runSingleUpdates(restTemplate, baseUrl, SINGLE_UPDATES / 10);
+                runBulkUpdates(restTemplate, baseUrl, BULK_UPDATES / 10);
+            }
+
+            long singleStart = System.nanoTime();
+            runSingleUpdates(restTemplate, baseUrl, SINGLE_UPDATES);
+            double singleRate = SINGLE_UPDATES / ((System.nanoTime() - singleStart) / 1e9);
+
+            long bulkStart = System.nanoTime();
+            runBulkUpdates(restTemplate, baseUrl, BULK_UPDATES);
+            double bulkRate = BULK_UPDATES / ((System.nanoTime() - bulkStart) / 1e9);
+
+            System.out.printf("one request per job: %,.0f updates/s%n", singleRate);
+            System.out.printf("bulk, %d per request: %,.0f updates/s (%.1fx)%n", BATCH_SIZE, bulkRate, bulkRate / singleRate);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void runSingleUpdates(RestTemplate restTemplate, String baseUrl, int updates) {
+        for (int update = 0; update < updates; update++) {
+            restTemplate.postForEntity(baseUrl + "/status/updateJob/project-" + (update % PROJECTS),
+                    json(jobJson(update)), Void.class);
+        }
+    }
+
+    private static void runBulkUpdates(RestTemplate restTemplate, String baseUrl, int updates) {
+        for (int batchStart = 0; batchStart < updates; batchStart += BATCH_SIZE) {
+            StringBuilder body = new StringBuilder("{\"jobStatusUpdateList\":[");
+            for (int update = batchStart; update < batchStart + BATCH_SIZE; update++) {
+                if (update > batchStart) {
+                    body.append(',');
+                }
+                String job = jobJson(update);
+                body.append("{\"projectCode\":\"project-").append(update % PROJECTS).append("\",").append(job.substring(1));
+            }
+            body.append("]}");
+            restTemplate.postForEntity(baseUrl + "/status/updateJobs", json(body.toString()), String.class);
+        }
+    }
+
+    private static String projectJson(int project) {
+        StringBuilder jobs = new StringBuilder();
+        for (int job = 0; job < JOBS_PER_PROJECT; job++) {
+            if (job > 0) {
+                jobs.append(',');
+            }
+            jobs.append("{\"jobCode\":\"job-").append(job).append("\",\"jobName\":\"Job ").append(job)
+                    .append("\",\"jobStatus\":\"UNKNOWN\"}");
+        }
+        return "{\"projectCode\":\"project-" + project + "\",\"projectName\":\"Project " + project
+                + "\",\"jobStatusList\":[" + jobs + "]}";
+    }
+
+    private static String jobJson(int update) {
+        int job = (update / PROJECTS) % JOBS_PER_PROJECT;
+        return "{\"jobCode\":\"job-" + job + "\",\"jobName\":\"Job " + job + "\",\"jobStatus\":\""
+                + STATUSES[update % STATUSES.length] + "\"}";
+    }
+
+    private static HttpEntity<String> json(String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body, headers);
+    }
+}
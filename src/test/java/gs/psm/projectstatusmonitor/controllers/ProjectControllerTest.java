@@ -1,19 +1,26 @@
 package gs.psm.projectstatusmonitor.controllers;
 
+import gs.psm.projectstatusmonitor.cluster.ClusterRouter;
 import gs.psm.projectstatusmonitor.exceptions.*;
+import gs.psm.projectstatusmonitor.models.MemoryUsage;
 import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectPage;
+import gs.psm.projectstatusmonitor.models.UserMemoryUsage;
 import gs.psm.projectstatusmonitor.usecases.ProjectUseCase;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -22,6 +29,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class ProjectControllerTest {
@@ -31,12 +39,17 @@ public class ProjectControllerTest {
     @Mock
     private ProjectUseCase projectUseCase;
 
+    @Mock
+    private ClusterRouter clusterRouter;
+
     @InjectMocks
     private ProjectController projectController;
 
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
+        when(clusterRouter.owns(any(), any())).thenReturn(true);
+        when(clusterRouter.owned(any())).thenAnswer(invocation -> invocation.getArgument(0));
         mockMvc = MockMvcBuilders
                 .standaloneSetup(projectController)
                 .setControllerAdvice(ControllerAdvice.class)
@@ -155,6 +168,33 @@ public class ProjectControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void add_POST_whenTheMemoryBudgetIsExhausted_returns507() throws Exception {
+        doThrow(new MemoryBudgetExceededException()).when(projectUseCase).addProject(any(), eq("username"));
+
+        mockMvc.perform(post("/project/add")
+                .with(httpBasic("username", "password"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(buildProjectAsJson("code")))
+                .andExpect(status().isInsufficientStorage());
+    }
+
+    @Test
+    public void usage_GET_returnsTheEstimatedMemoryUsageOfEachUser() throws Exception {
+        when(projectUseCase.getMemoryUsage()).thenReturn(new MemoryUsage(1000L, 300L,
+                Collections.singletonList(new UserMemoryUsage("username", 2, 300L))));
+
+        MvcResult response = mockMvc
+                .perform(get("/estate/usage"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "{\"budgetBytes\":1000,\"estimatedBytes\":300,\"userMemoryUsageList\":" +
+                        "[{\"username\":\"username\",\"projectCount\":2,\"estimatedBytes\":300}]}"
+        );
+    }
+
     @Test
     public void list_GET_whenThereAreNoProjects_returnsAnEmptyList() throws Exception {
         when(projectUseCase.listProjects()).thenReturn(Collections.emptyList());
@@ -191,6 +231,90 @@ public class ProjectControllerTest {
         );
     }
 
+    @Test
+    public void list_GET_withALimit_returnsAPageOfProjectsAndTheNextCursor() throws Exception {
+        when(projectUseCase.listProjects(null, 2)).thenReturn(new ProjectPage(
+                Arrays.asList(createProject(0), createProject(1)), "Y29kZTE"));
+
+        MvcResult response = mockMvc
+                .perform(get("/project/list").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "{\"projects\":[" +
+                        "{\"projectCode\":\"code0\",\"projectName\":\"name0\",\"jobStatusList\":null}," +
+                        "{\"projectCode\":\"code1\",\"projectName\":\"name1\",\"jobStatusList\":null}" +
+                "],\"nextCursor\":\"Y29kZTE\"}"
+        );
+    }
+
+    @Test
+    public void list_GET_acrossSeveralNodes_mergesThePageOfEveryNode() throws Exception {
+        ProjectPage localPage = new ProjectPage(Collections.singletonList(createProject(1)), null);
+        ProjectPage nodePage = new ProjectPage(Collections.singletonList(createProject(0)), null);
+        when(projectUseCase.listProjects(null, 2)).thenReturn(localPage);
+        when(clusterRouter.gathers(any())).thenReturn(true);
+        when(clusterRouter.gather(any(), any())).thenReturn(Collections.singletonList(nodePage));
+        when(projectUseCase.mergeProjectPages(Arrays.asList(nodePage, localPage), 2)).thenReturn(
+                new ProjectPage(Arrays.asList(createProject(0), createProject(1)), null));
+
+        MvcResult response = mockMvc
+                .perform(get("/project/list").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "{\"projects\":[" +
+                        "{\"projectCode\":\"code0\",\"projectName\":\"name0\",\"jobStatusList\":null}," +
+                        "{\"projectCode\":\"code1\",\"projectName\":\"name1\",\"jobStatusList\":null}" +
+                "],\"nextCursor\":null}"
+        );
+    }
+
+    @Test
+    public void list_GET_withoutALimit_acrossSeveralNodes_mergesTheOwnedProjectsOfEveryNode() throws Exception {
+        List<Project> localProjects = Arrays.asList(createProject(1), createProject(2));
+        List<Project> ownedProjects = Collections.singletonList(createProject(1));
+        List<Project> nodeProjects = Collections.singletonList(createProject(0));
+        when(projectUseCase.listProjects()).thenReturn(localProjects);
+        when(clusterRouter.owned(localProjects)).thenReturn(ownedProjects);
+        when(clusterRouter.gathers(any())).thenReturn(true);
+        when(clusterRouter.gather(any(), any())).thenReturn(Collections.singletonList(nodeProjects));
+        when(projectUseCase.mergeProjects(Arrays.asList(nodeProjects, ownedProjects))).thenReturn(
+                Arrays.asList(createProject(0), createProject(1)));
+
+        MvcResult response = mockMvc
+                .perform(get("/project/list"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "[" +
+                        "{\"projectCode\":\"code0\",\"projectName\":\"name0\",\"jobStatusList\":null}," +
+                        "{\"projectCode\":\"code1\",\"projectName\":\"name1\",\"jobStatusList\":null}" +
+                "]"
+        );
+    }
+
+    @Test
+    public void list_GET_withOnlyACursor_usesTheDefaultPageSize() throws Exception {
+        when(projectUseCase.listProjects("Y29kZTE", 100)).thenReturn(new ProjectPage(Collections.emptyList(), null));
+
+        mockMvc.perform(get("/project/list").param("cursor", "Y29kZTE"))
+                .andExpect(status().isOk());
+
+        verify(projectUseCase, times(1)).listProjects("Y29kZTE", 100);
+    }
+
+    @Test
+    public void list_GET_whenThePageRequestIsInvalid_returns400() throws Exception {
+        when(projectUseCase.listProjects(null, 0)).thenThrow(new InvalidPageRequestException());
+
+        mockMvc.perform(get("/project/list").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void project_GET_whenTheProjectCodeExists_returnsTheProject() throws Exception {
         String projectCode = "code";
@@ -209,6 +333,35 @@ public class ProjectControllerTest {
                 .isEqualTo("{\"projectCode\":\"code1\",\"projectName\":\"name1\",\"jobStatusList\":null}");
     }
 
+    @Test
+    public void project_GET_whenTheProjectCodeExists_returnsTheProjectVersionAsTheETag() throws Exception {
+        Project expectedProject = createProject(1);
+        expectedProject.setVersion(7);
+
+        when(projectUseCase.getProject("code1", "username")).thenReturn(expectedProject);
+
+        mockMvc.perform(get("/project/code1")
+                .with(httpBasic("username", "password")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""));
+    }
+
+    @Test
+    public void project_GET_whenAnotherNodeOwnsTheProject_returnsThatNodesResponse() throws Exception {
+        when(clusterRouter.owns(eq("code1"), any())).thenReturn(false);
+        when(clusterRouter.forward(eq("code1"), any(), isNull())).thenReturn(
+                new ResponseEntity<>("{\"projectCode\":\"code1\"}".getBytes(), HttpStatus.OK));
+
+        MvcResult response = mockMvc
+                .perform(get("/project/code1")
+                .with(httpBasic("username", "password")))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo("{\"projectCode\":\"code1\"}");
+        verify(projectUseCase, never()).getProject(any(), any());
+    }
+
     @Test
     public void project_GET_whenTheProjectCodeDoesNotExist_returns400() throws Exception {
         when(projectUseCase.getProject("notFoundCode", "username")).thenThrow(new ProjectNotFoundException());
@@ -323,6 +476,48 @@ public class ProjectControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void update_POST_withAnIfMatchHeader_updatesTheProjectAtThatVersion_andReturnsTheNewETag() throws Exception {
+        Project updatedProject = createProject(1);
+        updatedProject.setVersion(4);
+
+        when(projectUseCase.updateProject(any(), eq("username"), eq(3L))).thenReturn(updatedProject);
+
+        mockMvc.perform(post("/project/update")
+                .with(httpBasic("username", "password"))
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(buildProjectAsJson("code1")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+
+        verify(projectUseCase, never()).updateProject(any(), eq("username"));
+    }
+
+    @Test
+    public void update_POST_withAnIfMatchHeader_whenTheProjectHasChanged_returns412() throws Exception {
+        when(projectUseCase.updateProject(any(), eq("username"), eq(3L))).thenThrow(new ProjectVersionMismatchException());
+
+        mockMvc.perform(post("/project/update")
+                .with(httpBasic("username", "password"))
+                .header("If-Match", "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(buildProjectAsJson("code1")))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void update_POST_withAnIfMatchHeaderThatIsNotAProjectVersion_returns412() throws Exception {
+        mockMvc.perform(post("/project/update")
+                .with(httpBasic("username", "password"))
+                .header("If-Match", "\"abc\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(buildProjectAsJson("code1")))
+                .andExpect(status().isPreconditionFailed());
+
+        verifyZeroInteractions(projectUseCase);
+    }
+
     private String buildProjectAsJson(String projectCode) {
         return "{" +
                 "\"projectCode\": \"" + projectCode + "\"," +
@@ -1,29 +1,51 @@
 package gs.psm.projectstatusmonitor.controllers;
 
+import gs.psm.projectstatusmonitor.cluster.ClusterRouter;
+import gs.psm.projectstatusmonitor.exceptions.BulkUpdateTooLargeException;
 import gs.psm.projectstatusmonitor.exceptions.DuplicateJobCodeException;
+import gs.psm.projectstatusmonitor.exceptions.MemoryBudgetExceededException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.EstateStatusSummary;
+import gs.psm.projectstatusmonitor.models.JobReference;
 import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusChange;
+import gs.psm.projectstatusmonitor.models.JobStatusHistory;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectHealth;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.models.ProjectStatusSummary;
 import gs.psm.projectstatusmonitor.usecases.StatusUseCase;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class StatusControllerTest {
@@ -33,12 +55,16 @@ public class StatusControllerTest {
     @Mock
     private StatusUseCase statusUseCase;
 
+    @Mock
+    private ClusterRouter clusterRouter;
+
     @InjectMocks
     private StatusController statusController;
 
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
+        when(clusterRouter.owns(any(), any())).thenReturn(true);
         mockMvc = MockMvcBuilders
                 .standaloneSetup(statusController)
                 .setControllerAdvice(ControllerAdvice.class)
@@ -47,12 +73,25 @@ public class StatusControllerTest {
 
     @Test
     public void status_GET_callsTheStatusUseCase() throws Exception {
-        when(statusUseCase.getJobStatus("code1")).thenReturn(Collections.emptyList());
+        when(statusUseCase.getProjectStatus("code1")).thenReturn(new Project("code1", "name1", Collections.emptyList()));
 
         mockMvc.perform(get("/status/code1"))
                 .andExpect(status().isOk());
 
-        verify(statusUseCase, times(1)).getJobStatus("code1");
+        verify(statusUseCase, times(1)).getProjectStatus("code1");
+    }
+
+    @Test
+    public void status_GET_givenProjectCodesNamedLikeTheEstateEndpoints_returnsThoseProjects() throws Exception {
+        for (String projectCode : Arrays.asList("summary", "byStatus")) {
+            when(statusUseCase.getProjectStatus(projectCode)).thenReturn(new Project(projectCode, "name1", Collections.emptyList()));
+
+            mockMvc.perform(get("/status/" + projectCode))
+                    .andExpect(status().isOk());
+
+            verify(statusUseCase, times(1)).getProjectStatus(projectCode);
+        }
+        verify(statusUseCase, never()).getEstateStatusSummary();
     }
 
     @Test
@@ -64,7 +103,7 @@ public class StatusControllerTest {
         projectJobStatusList.add(createJobStatus("job-code-2", "job2", JobStatus.PASSED));
         projectJobStatusList.add(createJobStatus("job-code-3", "job3", JobStatus.FAILED));
 
-        when(statusUseCase.getJobStatus(projectCode)).thenReturn(projectJobStatusList);
+        when(statusUseCase.getProjectStatus(projectCode)).thenReturn(new Project(projectCode, "name1", projectJobStatusList));
 
         MvcResult response = mockMvc
                 .perform(get("/status/" + projectCode))
@@ -82,11 +121,128 @@ public class StatusControllerTest {
         );
     }
 
+    @Test
+    public void estateSummary_GET_returnsTheCountsAcrossAllProjects() throws Exception {
+        EnumMap<JobStatus, Long> counts = new EnumMap<>(JobStatus.class);
+        counts.put(JobStatus.FAILED, 1L);
+        counts.put(JobStatus.PASSED, 4L);
+        when(statusUseCase.getEstateStatusSummary()).thenReturn(new EstateStatusSummary(2, 5, counts));
+
+        MvcResult response = mockMvc
+                .perform(get("/estate/summary"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "{\"projectCount\":2,\"jobCount\":5,\"jobStatusCounts\":{\"PASSED\":4,\"FAILED\":1}}");
+        verify(statusUseCase, never()).getProjectStatus(anyString());
+    }
+
+    @Test
+    public void estateSummary_GET_acrossSeveralNodes_addsUpEveryNodesSummary() throws Exception {
+        EstateStatusSummary localSummary = new EstateStatusSummary(1, 1, new EnumMap<>(JobStatus.class));
+        EstateStatusSummary nodeSummary = new EstateStatusSummary(2, 4, new EnumMap<>(JobStatus.class));
+        when(statusUseCase.getEstateStatusSummary()).thenReturn(localSummary);
+        when(clusterRouter.gathers(any())).thenReturn(true);
+        when(clusterRouter.gather(any(), any())).thenReturn(Collections.singletonList(nodeSummary));
+        when(statusUseCase.mergeEstateStatusSummaries(Arrays.asList(nodeSummary, localSummary)))
+                .thenReturn(new EstateStatusSummary(3, 5, new EnumMap<>(JobStatus.class)));
+
+        MvcResult response = mockMvc
+                .perform(get("/estate/summary"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "{\"projectCount\":3,\"jobCount\":5,\"jobStatusCounts\":{}}");
+    }
+
+    @Test
+    public void statusSummary_GET_returnsTheProjectsHealthAndJobCountsByStatus() throws Exception {
+        EnumMap<JobStatus, Integer> counts = new EnumMap<>(JobStatus.class);
+        counts.put(JobStatus.RUNNING, 1);
+        counts.put(JobStatus.PASSED, 2);
+        when(statusUseCase.getProjectStatusSummary("code1"))
+                .thenReturn(new ProjectStatusSummary("code1", ProjectHealth.YELLOW, 3, counts));
+
+        MvcResult response = mockMvc
+                .perform(get("/status/code1/summary"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "{\"projectCode\":\"code1\",\"health\":\"YELLOW\",\"jobCount\":3,\"jobStatusCounts\":{\"RUNNING\":1,\"PASSED\":2}}");
+    }
+
+    @Test
+    public void statusSummary_GET_givenAProjectCodeThatDoesNotExist_returns400() throws Exception {
+        when(statusUseCase.getProjectStatusSummary("code1")).thenThrow(new ProjectNotFoundException());
+
+        mockMvc.perform(get("/status/code1/summary"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void statusByStatus_GET_givenSeveralStatuses_returnsTheJobsInThoseStatuses() throws Exception {
+        when(statusUseCase.getJobsByStatus(Arrays.asList(JobStatus.FAILED, JobStatus.RUNNING))).thenReturn(Arrays.asList(
+                new JobReference("code1", "job-code-1", JobStatus.FAILED),
+                new JobReference("code2", "job-code-1", JobStatus.RUNNING)));
+
+        MvcResult response = mockMvc
+                .perform(get("/estate/byStatus/FAILED,RUNNING"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "[" +
+                        "{\"projectCode\":\"code1\",\"jobCode\":\"job-code-1\",\"jobStatus\":\"FAILED\"}," +
+                        "{\"projectCode\":\"code2\",\"jobCode\":\"job-code-1\",\"jobStatus\":\"RUNNING\"}" +
+                        "]"
+        );
+    }
+
+    @Test
+    public void statusByStatus_GET_givenAnUnknownStatus_returns400() throws Exception {
+        mockMvc.perform(get("/estate/byStatus/BROKEN"))
+                .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(statusUseCase);
+    }
+
+    @Test
+    public void statusHistory_GET_returnsTheJobsStatusChangesOldestFirst() throws Exception {
+        when(statusUseCase.getJobStatusHistory("code1", "job-code-1")).thenReturn(new JobStatusHistory("code1", "job-code-1", 2,
+                Arrays.asList(
+                        new JobStatusChange(Instant.parse("2018-11-01T10:00:00Z"), JobStatus.RUNNING),
+                        new JobStatusChange(Instant.parse("2018-11-01T10:05:00Z"), JobStatus.FAILED)
+                )));
+
+        MvcResult response = mockMvc
+                .perform(get("/status/code1/job-code-1/history"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "{\"projectCode\":\"code1\",\"jobCode\":\"job-code-1\",\"changeCount\":2,\"changes\":[" +
+                        "{\"changedAt\":\"2018-11-01T10:00:00Z\",\"jobStatus\":\"RUNNING\"}," +
+                        "{\"changedAt\":\"2018-11-01T10:05:00Z\",\"jobStatus\":\"FAILED\"}" +
+                        "]}"
+        );
+    }
+
+    @Test
+    public void statusHistory_GET_givenAJobThatDoesNotExist_returns400() throws Exception {
+        when(statusUseCase.getJobStatusHistory("code1", "job-code-1")).thenThrow(new ProjectJobStatusNotFoundException());
+
+        mockMvc.perform(get("/status/code1/job-code-1/history"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void status_GET_givenAProjectCodeThatDoesNotExist_returns400() throws Exception {
         String projectCode = "code1";
 
-        when(statusUseCase.getJobStatus(projectCode)).thenThrow(new ProjectNotFoundException());
+        when(statusUseCase.getProjectStatus(projectCode)).thenThrow(new ProjectNotFoundException());
 
         mockMvc.perform(get("/status/" + projectCode))
                 .andExpect(status().isBadRequest());
@@ -111,6 +267,107 @@ public class StatusControllerTest {
         verify(statusUseCase, times(1)).updateProjectJobs(projectCode, projectJobStatusList);
     }
 
+    @Test
+    public void status_GET_givenAProjectCodeThatExists_returnsTheProjectVersionAsTheETag() throws Exception {
+        Project project = new Project("code1", "name1", Collections.emptyList());
+        project.setVersion(2);
+
+        when(statusUseCase.getProjectStatus("code1")).thenReturn(project);
+
+        mockMvc.perform(get("/status/code1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""));
+    }
+
+    @Test
+    public void statusUpdateList_POST_withAnIfMatchHeader_updatesTheJobsAtThatVersion_andReturnsTheNewETag() throws Exception {
+        String projectCode = "projectCode";
+        Project updatedProject = new Project(projectCode, "name1", Collections.emptyList());
+        updatedProject.setVersion(6);
+
+        when(statusUseCase.updateProjectJobs(eq(projectCode), anyList(), eq(5L))).thenReturn(updatedProject);
+
+        mockMvc.perform(post("/status/updateList/" + projectCode)
+                .header("If-Match", "\"5\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(buildProjectJobStatusListAsJson()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"6\""));
+
+        verify(statusUseCase, never()).updateProjectJobs(eq(projectCode), anyList());
+    }
+
+    @Test
+    public void statusUpdateList_POST_withAnIfMatchHeader_whenTheProjectHasChanged_returns412() throws Exception {
+        String projectCode = "projectCode";
+
+        when(statusUseCase.updateProjectJobs(eq(projectCode), anyList(), eq(5L))).thenThrow(new ProjectVersionMismatchException());
+
+        mockMvc.perform(post("/status/updateList/" + projectCode)
+                .header("If-Match", "\"5\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(buildProjectJobStatusListAsJson()))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void statusUpdateList_POST_whenTheMemoryBudgetIsExhausted_returns507() throws Exception {
+        String projectCode = "projectCode";
+
+        doThrow(new MemoryBudgetExceededException()).when(statusUseCase).updateProjectJobs(eq(projectCode), anyList());
+
+        mockMvc.perform(post("/status/updateList/" + projectCode)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(buildProjectJobStatusListAsJson()))
+                .andExpect(status().isInsufficientStorage());
+    }
+
+    @Test
+    public void statusUpdateJobs_POST_givenUpdatesForSeveralProjects_returnsTheResultOfEachUpdate() throws Exception {
+        List<JobStatusUpdate> updates = Arrays.asList(
+                new JobStatusUpdate("code1", "job-1", "name-1", JobStatus.PASSED),
+                new JobStatusUpdate("code2", "job-1", null, JobStatus.FAILED));
+
+        when(statusUseCase.updateJobs(updates)).thenReturn(Arrays.asList(
+                new JobStatusUpdateResult("code1", "job-1", JobStatusUpdateOutcome.UPDATED),
+                new JobStatusUpdateResult("code2", "job-1", JobStatusUpdateOutcome.PROJECT_NOT_FOUND)));
+
+        MvcResult response = mockMvc.perform(post("/status/updateJobs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"jobStatusUpdateList\": [" +
+                        "{\"projectCode\": \"code1\", \"jobCode\": \"job-1\", \"jobName\": \"name-1\", \"jobStatus\": \"PASSED\"}," +
+                        "{\"projectCode\": \"code2\", \"jobCode\": \"job-1\", \"jobStatus\": \"FAILED\"}" +
+                        "]}"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo(
+                "[" +
+                        "{\"projectCode\":\"code1\",\"jobCode\":\"job-1\",\"outcome\":\"UPDATED\"}," +
+                        "{\"projectCode\":\"code2\",\"jobCode\":\"job-1\",\"outcome\":\"PROJECT_NOT_FOUND\"}" +
+                "]");
+    }
+
+    @Test
+    public void statusUpdateJobs_POST_givenAnUpdateWithoutAProjectCode_returns400() throws Exception {
+        mockMvc.perform(post("/status/updateJobs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"jobStatusUpdateList\": [{\"jobCode\": \"job-1\", \"jobStatus\": \"PASSED\"}]}"))
+                .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(statusUseCase);
+    }
+
+    @Test
+    public void statusUpdateJobs_POST_givenTooManyUpdates_returns413() throws Exception {
+        when(statusUseCase.updateJobs(anyList())).thenThrow(new BulkUpdateTooLargeException());
+
+        mockMvc.perform(post("/status/updateJobs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"jobStatusUpdateList\": []}"))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
     @Test
     public void statusUpdateList_POST_givenAProjectCodeThatExists_andAnEmptyProjectJobStatusList_returns200() throws Exception {
         String projectCode = "projectCode";
@@ -198,6 +455,37 @@ public class StatusControllerTest {
         verify(statusUseCase, times(1)).updateJob(projectCode, projectJobStatus);
     }
 
+    @Test
+    public void statusUpdateJob_POST_whenAnotherNodeOwnsTheProject_returnsThatNodesResponse() throws Exception {
+        when(clusterRouter.owns(eq("code"), any())).thenReturn(false);
+        when(clusterRouter.forward(eq("code"), any(), any())).thenReturn(
+                new ResponseEntity<>("{\"outcome\":\"UNCHANGED\"}".getBytes(), HttpStatus.OK));
+
+        MvcResult response = mockMvc
+                .perform(post("/status/updateJob/code")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"jobCode\":\"job\",\"jobName\":\"name\",\"jobStatus\":\"PASSED\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString()).isEqualTo("{\"outcome\":\"UNCHANGED\"}");
+        verify(statusUseCase, never()).updateJob(any(), any());
+    }
+
+    @Test
+    public void statusUpdateJob_POST_returnsWhetherTheUpdateChangedTheJob() throws Exception {
+        when(statusUseCase.updateJob(eq("projectCode"), any())).thenReturn(JobStatusUpdateOutcome.UNCHANGED);
+
+        MvcResult response = mockMvc.perform(post("/status/updateJob/projectCode")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(buildProjectJobStatusAsJson()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(response.getResponse().getContentAsString())
+                .isEqualTo("{\"projectCode\":\"projectCode\",\"jobCode\":\"jobCode\",\"outcome\":\"UNCHANGED\"}");
+    }
+
     @Test
     public void statusUpdateJob_POST_givenAProjectJobStatus_withAnInvalidJobCode_returns400() throws Exception {
         String projectCode = "projectCode";
@@ -3,7 +3,11 @@ package gs.psm.projectstatusmonitor.ports;
 import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
 import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
 import gs.psm.projectstatusmonitor.models.Project;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
 import org.junit.Before;
@@ -100,6 +104,28 @@ public abstract class ProjectRepositoryTest {
         assertThat(returnedProject).isNull();
     }
 
+    @Test
+    public void getJob_givenAJobCodeThatExists_returnsTheJobAsLastUpdated() {
+        addProjectToRepository(1, Arrays.asList(
+                createJobStatus("code-1", "name-1", JobStatus.PASSED),
+                createJobStatus("code-2", "name-2", JobStatus.PASSED)
+        ));
+        repository.updateJob("code1", "code-2", createJobStatus("code-2", "new-name-2", JobStatus.FAILED));
+
+        assertThat(repository.getJob("code1", "code-1")).isEqualTo(createJobStatus("code-1", "name-1", JobStatus.PASSED));
+        assertThat(repository.getJob("code1", "code-2")).isEqualTo(createJobStatus("code-2", "new-name-2", JobStatus.FAILED));
+    }
+
+    @Test
+    public void getJob_givenAProjectOrJobCodeThatDoesNotExist_returnsNull() {
+        addProjectToRepository(1, Collections.singletonList(createJobStatus("code-1", "name-1", JobStatus.PASSED)));
+        addProjectToRepository(2);
+
+        assertThat(repository.getJob("code1", "code-5")).isNull();
+        assertThat(repository.getJob("code2", "code-1")).isNull();
+        assertThat(repository.getJob("notExisting", "code-1")).isNull();
+    }
+
     @Test
     public void removeProject_givenAProjectCodeThatExists_returnsTrue() {
         String projectCode = "code1";
@@ -256,6 +282,74 @@ public abstract class ProjectRepositoryTest {
         repository.updateJob("code1", "code-5", updatedProjectJobStatus);
     }
 
+    @Test
+    public void updateJob_givenAJobCodeThatExists_keepsTheOrderOfTheJobsInTheProject() {
+        List<ProjectJobStatus> initialProjectJobStatusList = new ArrayList<>();
+
+        initialProjectJobStatusList.add(createJobStatus("code-3", "name-3", JobStatus.PASSED));
+        initialProjectJobStatusList.add(createJobStatus("code-1", "name-1", JobStatus.PASSED));
+        initialProjectJobStatusList.add(createJobStatus("code-2", "name-2", JobStatus.PASSED));
+
+        addProjectToRepository(1, initialProjectJobStatusList);
+
+        repository.updateJob("code1", "code-1", createJobStatus("code-1", "new-name-1", JobStatus.FAILED));
+
+        assertThat(repository.getProject("code1").getJobStatusList()).containsExactly(
+                createJobStatus("code-3", "name-3", JobStatus.PASSED),
+                createJobStatus("code-1", "new-name-1", JobStatus.FAILED),
+                createJobStatus("code-2", "name-2", JobStatus.PASSED)
+        );
+    }
+
+    @Test
+    public void updateJob_afterUpdateProjectJobs_findsTheJobsOfTheNewList() {
+        List<ProjectJobStatus> oldProjectJobStatusList = new ArrayList<>();
+        oldProjectJobStatusList.add(createJobStatus("old-code-1", "old-name-1", JobStatus.PASSED));
+
+        addProjectToRepository(1, oldProjectJobStatusList);
+
+        List<ProjectJobStatus> newProjectJobStatusList = new ArrayList<>();
+        newProjectJobStatusList.add(createJobStatus("new-code-1", "new-name-1", JobStatus.PASSED));
+        newProjectJobStatusList.add(createJobStatus("new-code-2", "new-name-2", JobStatus.PASSED));
+
+        repository.updateProjectJobs("code1", newProjectJobStatusList);
+
+        Project updatedProject = repository.updateJob("code1", "new-code-2", createJobStatus("new-code-2", "new-name-2", JobStatus.FAILED));
+
+        assertThat(updatedProject.getJobStatusList()).containsExactly(
+                createJobStatus("new-code-1", "new-name-1", JobStatus.PASSED),
+                createJobStatus("new-code-2", "new-name-2", JobStatus.FAILED)
+        );
+    }
+
+    @Test(expected = ProjectJobStatusNotFoundException.class)
+    public void updateJob_afterUpdateProjectJobs_givenAJobCodeOnlyInTheOldList_throwsProjectJobStatusNotFoundException() {
+        List<ProjectJobStatus> oldProjectJobStatusList = new ArrayList<>();
+        oldProjectJobStatusList.add(createJobStatus("old-code-1", "old-name-1", JobStatus.PASSED));
+
+        addProjectToRepository(1, oldProjectJobStatusList);
+
+        repository.updateProjectJobs("code1", Collections.singletonList(createJobStatus("new-code-1", "new-name-1", JobStatus.PASSED)));
+
+        repository.updateJob("code1", "old-code-1", createJobStatus("old-code-1", "old-name-1", JobStatus.FAILED));
+    }
+
+    @Test
+    public void updateJob_afterUpdateProject_findsTheJobsOfTheUpdatedProject() {
+        addProjectToRepository(1);
+
+        repository.updateProject(Project.builder()
+                .projectCode("code1")
+                .projectName("newName")
+                .jobStatusList(Collections.singletonList(createJobStatus("code-1", "name-1", JobStatus.RUNNING)))
+                .build());
+
+        Project updatedProject = repository.updateJob("code1", "code-1", createJobStatus("code-1", "name-1", JobStatus.PASSED));
+
+        assertThat(updatedProject.getProjectName()).isEqualTo("newName");
+        assertThat(updatedProject.getJobStatusList()).containsExactly(createJobStatus("code-1", "name-1", JobStatus.PASSED));
+    }
+
     @Test(expected = ProjectNotFoundException.class)
     public void associateUserWithProject_whenProjectCodeDoesNotExist_throwsProjectNotFoundException() {
         repository.associateUserWithProject("username", "codeNotFound");
@@ -309,6 +403,252 @@ public abstract class ProjectRepositoryTest {
         assertThat(projectCodes.size()).isEqualTo(0);
     }
 
+    @Test
+    public void isUserAssociatedWithProject_whenUserIsAssociatedWithTheProject_returnsTrue() {
+        addProjectToRepository(1);
+        addProjectToRepository(2);
+
+        repository.associateUserWithProject("username", "code1");
+
+        assertThat(repository.isUserAssociatedWithProject("username", "code1")).isTrue();
+        assertThat(repository.isUserAssociatedWithProject("username", "code2")).isFalse();
+    }
+
+    @Test
+    public void isUserAssociatedWithProject_whenUserOrProjectIsUnknown_returnsFalse() {
+        addProjectToRepository(1);
+
+        repository.associateUserWithProject("username", "code1");
+
+        assertThat(repository.isUserAssociatedWithProject("otherUsername", "code1")).isFalse();
+        assertThat(repository.isUserAssociatedWithProject("username", "codeNotFound")).isFalse();
+    }
+
+    @Test
+    public void removeProject_removesTheUserAssociationsWithThatProject() {
+        addProjectToRepository(1);
+        addProjectToRepository(2);
+
+        repository.associateUserWithProject("username", "code1");
+        repository.associateUserWithProject("username", "code2");
+        repository.associateUserWithProject("otherUsername", "code1");
+        repository.removeProject("code1");
+
+        assertThat(repository.getUserAssociatedProjectCodes("username")).containsExactly("code2");
+        assertThat(repository.getUserAssociatedProjectCodes("otherUsername")).isEmpty();
+        assertThat(repository.isUserAssociatedWithProject("username", "code1")).isFalse();
+    }
+
+    @Test
+    public void removeProject_thenAddingItAgain_doesNotRestoreTheOldAssociations() {
+        addProjectToRepository(1);
+
+        repository.associateUserWithProject("username", "code1");
+        repository.removeProject("code1");
+        repository.addProject(Project.builder().projectCode("code1").projectName("name1").build());
+
+        assertThat(repository.isUserAssociatedWithProject("username", "code1")).isFalse();
+        assertThat(repository.getUserAssociatedProjectCodes("username")).isEmpty();
+    }
+
+    @Test
+    public void listProjects_returnsTheProjectsInProjectCodeOrder() {
+        addProjectToRepository(3);
+        addProjectToRepository(1);
+        addProjectToRepository(2);
+
+        assertThat(repository.listProjects()).extracting(Project::getProjectCode).containsExactly("code1", "code2", "code3");
+    }
+
+    @Test
+    public void listProjectsPage_withoutACursor_returnsTheFirstProjectsInProjectCodeOrder() {
+        addProjectToRepository(3);
+        addProjectToRepository(1);
+        addProjectToRepository(2);
+
+        assertThat(repository.listProjects(null, 2)).extracting(Project::getProjectCode).containsExactly("code1", "code2");
+    }
+
+    @Test
+    public void listProjectsPage_afterAProjectCode_returnsTheProjectsAfterIt() {
+        addProjectToRepository(1);
+        addProjectToRepository(2);
+        addProjectToRepository(3);
+        addProjectToRepository(4);
+
+        assertThat(repository.listProjects("code2", 10)).extracting(Project::getProjectCode).containsExactly("code3", "code4");
+        assertThat(repository.listProjects("code4", 10)).isEmpty();
+    }
+
+    @Test
+    public void listProjectsPage_afterAProjectCodeThatWasRemoved_continuesFromWhereItWas() {
+        addProjectToRepository(1);
+        addProjectToRepository(2);
+        addProjectToRepository(3);
+
+        repository.removeProject("code2");
+        addProjectToRepository(0);
+
+        assertThat(repository.listProjects("code2", 10)).extracting(Project::getProjectCode).containsExactly("code3");
+    }
+
+    @Test
+    public void addProject_startsTheProjectAtVersionOne() {
+        addProjectToRepository(1);
+
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void everyUpdate_increasesTheProjectVersion() {
+        addProjectToRepository(1, Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+
+        assertThat(repository.updateProject(Project.builder()
+                .projectCode("code1")
+                .projectName("renamed")
+                .jobStatusList(Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)))
+                .build()).getVersion()).isEqualTo(2);
+        assertThat(repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED))
+                .getVersion()).isEqualTo(3);
+        assertThat(repository.updateProjectJobs("code1", Collections.emptyList()).getVersion()).isEqualTo(4);
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(4);
+    }
+
+    @Test
+    public void updateProject_givenTheCurrentVersion_updatesTheProjectAndReturnsTheNextVersion() {
+        addProjectToRepository(1);
+
+        Project updated = repository.updateProject(Project.builder().projectCode("code1").projectName("renamed").build(), 1);
+
+        assertThat(updated.getVersion()).isEqualTo(2);
+        assertThat(repository.getProject("code1").getProjectName()).isEqualTo("renamed");
+    }
+
+    @Test
+    public void updateProject_givenAnOutOfDateVersion_throwsProjectVersionMismatchException_andLeavesTheProjectUnchanged() {
+        addProjectToRepository(1);
+        repository.updateProject(Project.builder().projectCode("code1").projectName("renamed").build());
+
+        try {
+            repository.updateProject(Project.builder().projectCode("code1").projectName("stale").build(), 1);
+            throw new AssertionError("expected ProjectVersionMismatchException");
+        } catch (ProjectVersionMismatchException e) {
+            assertThat(repository.getProject("code1").getProjectName()).isEqualTo("renamed");
+            assertThat(repository.getProject("code1").getVersion()).isEqualTo(2);
+        }
+    }
+
+    @Test(expected = ProjectNotFoundException.class)
+    public void updateProject_givenAVersion_andAProjectCodeThatDoesNotExist_throwsProjectNotFoundException() {
+        repository.updateProject(Project.builder().projectCode("code1").projectName("name1").build(), 1);
+    }
+
+    @Test
+    public void updateProjectJobs_givenTheCurrentVersion_replacesTheJobsAndReturnsTheNextVersion() {
+        addProjectToRepository(1, Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+
+        Project updated = repository.updateProjectJobs("code1",
+                Collections.singletonList(createJobStatus("job-2", "name-2", JobStatus.PASSED)), 1);
+
+        assertThat(updated.getVersion()).isEqualTo(2);
+        assertThat(repository.getProject("code1").getJobStatusList())
+                .containsExactly(createJobStatus("job-2", "name-2", JobStatus.PASSED));
+    }
+
+    @Test
+    public void updateProjectJobs_givenAnOutOfDateVersion_throwsProjectVersionMismatchException_andLeavesTheJobsUnchanged() {
+        addProjectToRepository(1, Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+
+        try {
+            repository.updateProjectJobs("code1", Collections.emptyList(), 1);
+            throw new AssertionError("expected ProjectVersionMismatchException");
+        } catch (ProjectVersionMismatchException e) {
+            assertThat(repository.getProject("code1").getJobStatusList())
+                    .containsExactly(createJobStatus("job-1", "name-1", JobStatus.PASSED));
+            assertThat(repository.getProject("code1").getVersion()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void aProjectRead_keepsTheVersionOfTheJobsItWasReadWith_acrossLaterJobUpdates() {
+        addProjectToRepository(1, Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        Project read = repository.getProject("code1");
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+
+        assertThat(read.getVersion()).isEqualTo(1);
+        assertThat(read.getJobStatusList()).containsExactly(createJobStatus("job-1", "name-1", JobStatus.RUNNING));
+        try {
+            repository.updateProjectJobs("code1", Collections.emptyList(), read.getVersion());
+            throw new AssertionError("expected ProjectVersionMismatchException");
+        } catch (ProjectVersionMismatchException e) {
+            Project current = repository.getProject("code1");
+            assertThat(repository.updateProjectJobs("code1", Collections.emptyList(), current.getVersion()).getVersion())
+                    .isEqualTo(current.getVersion() + 1);
+        }
+    }
+
+    @Test
+    public void updateJobs_acrossSeveralProjects_updatesEachJob_andReturnsAResultPerUpdateInRequestOrder() {
+        addProjectToRepository(1, Arrays.asList(
+                createJobStatus("job-1", "name-1", JobStatus.RUNNING),
+                createJobStatus("job-2", "name-2", JobStatus.RUNNING)));
+        addProjectToRepository(2, Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+
+        List<JobStatusUpdateResult> results = repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-2", "name-2", JobStatus.PASSED),
+                new JobStatusUpdate("code2", "job-1", "name-1", JobStatus.FAILED),
+                new JobStatusUpdate("code1", "job-1", "renamed", JobStatus.PASSED)));
+
+        assertThat(results).containsExactly(
+                new JobStatusUpdateResult("code1", "job-2", JobStatusUpdateOutcome.UPDATED),
+                new JobStatusUpdateResult("code2", "job-1", JobStatusUpdateOutcome.UPDATED),
+                new JobStatusUpdateResult("code1", "job-1", JobStatusUpdateOutcome.UPDATED));
+        assertThat(repository.getProject("code1").getJobStatusList()).containsExactly(
+                createJobStatus("job-1", "renamed", JobStatus.PASSED),
+                createJobStatus("job-2", "name-2", JobStatus.PASSED));
+        assertThat(repository.getProject("code2").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.FAILED));
+    }
+
+    @Test
+    public void updateJobs_givenUnknownProjectsAndJobs_reportsThem_andStillAppliesTheOtherUpdates() {
+        addProjectToRepository(1, Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        addProjectToRepository(2);
+
+        List<JobStatusUpdateResult> results = repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("missing", "job-1", "name-1", JobStatus.PASSED),
+                new JobStatusUpdate("code1", "job-9", "name-9", JobStatus.PASSED),
+                new JobStatusUpdate("code2", "job-1", "name-1", JobStatus.PASSED),
+                new JobStatusUpdate("code1", "job-1", "name-1", JobStatus.PASSED)));
+
+        assertThat(results).extracting(JobStatusUpdateResult::getOutcome).containsExactly(
+                JobStatusUpdateOutcome.PROJECT_NOT_FOUND,
+                JobStatusUpdateOutcome.JOB_NOT_FOUND,
+                JobStatusUpdateOutcome.JOB_NOT_FOUND,
+                JobStatusUpdateOutcome.UPDATED);
+        assertThat(repository.getProject("code1").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        assertThat(repository.getProject("missing")).isNull();
+    }
+
+    @Test
+    public void updateJobs_increasesTheVersionOfEachProjectItChanged() {
+        addProjectToRepository(1, Arrays.asList(
+                createJobStatus("job-1", "name-1", JobStatus.RUNNING),
+                createJobStatus("job-2", "name-2", JobStatus.RUNNING)));
+        addProjectToRepository(2, Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-1", "name-1", JobStatus.PASSED),
+                new JobStatusUpdate("code1", "job-2", "name-2", JobStatus.PASSED),
+                new JobStatusUpdate("code2", "job-9", "name-9", JobStatus.PASSED)));
+
+        assertThat(repository.getProject("code1").getVersion()).isGreaterThan(1);
+        assertThat(repository.getProject("code2").getVersion()).isEqualTo(1);
+    }
+
     private void addProjectToRepository(int increment) {
         Project newProject = Project.builder()
                 .projectCode("code" + increment)
@@ -0,0 +1,331 @@
+package gs.psm.projectstatusmonitor.repositories;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectAlreadyExistsException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryProjectProjectRepositoryConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private InMemoryProjectProjectRepository repository;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        repository = new InMemoryProjectProjectRepository();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 30000)
+    public void updateJob_whenManyThreadsUpdateDifferentJobsOfTheSameProject_noUpdateIsLost() throws Exception {
+        int jobsPerThread = 250;
+        repository.addProject(createProject("code", createJobs(THREADS * jobsPerThread, "name", JobStatus.RUNNING)));
+
+        runConcurrently(thread -> {
+            for (int job = 0; job < jobsPerThread; job++) {
+                String jobCode = "job-" + (thread * jobsPerThread + job);
+                repository.updateJob("code", jobCode, createJobStatus(jobCode, "name", JobStatus.PASSED));
+            }
+        });
+
+        List<ProjectJobStatus> jobs = repository.getProject("code").getJobStatusList();
+
+        assertThat(jobs.size()).isEqualTo(THREADS * jobsPerThread);
+        assertThat(jobs).allMatch(job -> job.getJobStatus() == JobStatus.PASSED);
+    }
+
+    @Test(timeout = 30000)
+    public void updateJob_whileOtherThreadsRead_readersOnlySeeWholeWrites() throws Exception {
+        repository.addProject(createProject("code", createJobs(10, "name-0", JobStatus.RUNNING)));
+        AtomicBoolean tornRead = new AtomicBoolean(false);
+
+        runConcurrently(thread -> {
+            for (int iteration = 0; iteration < 2000; iteration++) {
+                if (thread % 2 == 0) {
+                    String jobName = "name-" + iteration;
+                    repository.updateJob("code", "job-" + (iteration % 10), createJobStatus("job-" + (iteration % 10), jobName, JobStatus.FAILED));
+                } else {
+                    for (ProjectJobStatus job : repository.getProject("code").getJobStatusList()) {
+                        boolean initial = job.getJobName().equals("name-0") && job.getJobStatus() == JobStatus.RUNNING;
+                        boolean updated = job.getJobStatus() == JobStatus.FAILED;
+                        if (!initial && !updated) {
+                            tornRead.set(true);
+                        }
+                    }
+                }
+            }
+        });
+
+        assertThat(tornRead.get()).isFalse();
+        assertThat(repository.getProject("code").getJobStatusList().size()).isEqualTo(10);
+    }
+
+    @Test(timeout = 30000)
+    public void updateJob_whileOtherThreadsRead_readersSeeTheVersionOfTheJobsTheyRead() throws Exception {
+        repository.addProject(createProject("code", createJobs(10, "version-1", JobStatus.RUNNING)));
+        AtomicBoolean mismatchedRead = new AtomicBoolean(false);
+
+        runConcurrently(thread -> {
+            for (int iteration = 0; iteration < 2000; iteration++) {
+                if (thread == 0) {
+                    String jobCode = "job-" + (iteration % 10);
+                    repository.updateJob("code", jobCode, createJobStatus(jobCode, "version-" + (iteration + 2), JobStatus.FAILED));
+                } else {
+                    Project project = repository.getProject("code");
+                    long newestJob = 1;
+                    for (ProjectJobStatus job : project.getJobStatusList()) {
+                        newestJob = Math.max(newestJob, Long.parseLong(job.getJobName().substring("version-".length())));
+                    }
+                    if (newestJob != project.getVersion()) {
+                        mismatchedRead.set(true);
+                    }
+                }
+            }
+        });
+
+        assertThat(mismatchedRead.get()).isFalse();
+        assertThat(repository.getProject("code").getVersion()).isEqualTo(2001);
+    }
+
+    @Test(timeout = 30000)
+    public void updateProjectJobs_whileOtherThreadsUpdateJobsAndRead_readersNeverSeeAMixOfTwoJobLists() throws Exception {
+        repository.addProject(createProject("code", createJobs(50, "generation-0-", "name", JobStatus.RUNNING)));
+        AtomicBoolean mixedRead = new AtomicBoolean(false);
+        AtomicInteger generation = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (int iteration = 0; iteration < 500; iteration++) {
+                if (thread == 0) {
+                    String prefix = "generation-" + generation.incrementAndGet() + "-";
+                    repository.updateProjectJobs("code", createJobs(50, prefix, "name", JobStatus.RUNNING));
+                } else if (thread % 2 == 0) {
+                    String jobCode = repository.getProject("code").getJobStatusList().get(iteration % 50).getJobCode();
+                    try {
+                        repository.updateJob("code", jobCode, createJobStatus(jobCode, "name", JobStatus.PASSED));
+                    } catch (ProjectJobStatusNotFoundException e) {
+                        // the job list was replaced between the read and the update
+                    }
+                } else {
+                    List<ProjectJobStatus> jobs = repository.getProject("code").getJobStatusList();
+                    String jobCode = jobs.get(0).getJobCode();
+                    String prefix = jobCode.substring(0, jobCode.lastIndexOf("job-"));
+                    for (ProjectJobStatus job : jobs) {
+                        if (!job.getJobCode().startsWith(prefix)) {
+                            mixedRead.set(true);
+                        }
+                    }
+                    if (jobs.size() != 50) {
+                        mixedRead.set(true);
+                    }
+                }
+            }
+        });
+
+        assertThat(mixedRead.get()).isFalse();
+        assertThat(repository.getProject("code").getJobStatusList().size()).isEqualTo(50);
+    }
+
+    @Test(timeout = 30000)
+    public void removeProject_whenManyThreadsRemoveTheSameProject_exactlyOneSucceeds() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            String projectCode = "code-" + round;
+            repository.addProject(createProject(projectCode, createJobs(3, "name", JobStatus.PASSED)));
+            AtomicInteger removed = new AtomicInteger();
+            AtomicInteger notFound = new AtomicInteger();
+
+            runConcurrently(thread -> {
+                try {
+                    if (repository.removeProject(projectCode)) {
+                        removed.incrementAndGet();
+                    }
+                } catch (ProjectNotFoundException e) {
+                    notFound.incrementAndGet();
+                }
+            });
+
+            assertThat(removed.get()).isEqualTo(1);
+            assertThat(notFound.get()).isEqualTo(THREADS - 1);
+            assertThat(repository.getProject(projectCode)).isNull();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void removeProject_whileOtherThreadsUpdateIt_theProjectIsGoneAndLaterUpdatesFail() throws Exception {
+        repository.addProject(createProject("code", createJobs(5, "name", JobStatus.RUNNING)));
+        AtomicInteger updatesAfterRemoval = new AtomicInteger();
+        AtomicBoolean removed = new AtomicBoolean(false);
+
+        runConcurrently(thread -> {
+            for (int iteration = 0; iteration < 1000; iteration++) {
+                if (thread == 0 && iteration == 500) {
+                    repository.removeProject("code");
+                    removed.set(true);
+                } else if (thread != 0) {
+                    boolean removedBeforeUpdate = removed.get();
+                    try {
+                        repository.updateJob("code", "job-1", createJobStatus("job-1", "name", JobStatus.PASSED));
+                        if (removedBeforeUpdate) {
+                            updatesAfterRemoval.incrementAndGet();
+                        }
+                    } catch (ProjectNotFoundException e) {
+                        // expected once the project has been removed
+                    }
+                }
+            }
+        });
+
+        assertThat(updatesAfterRemoval.get()).isEqualTo(0);
+        assertThat(repository.getProject("code")).isNull();
+        assertThat(repository.listProjects()).isEmpty();
+    }
+
+    @Test(timeout = 30000)
+    public void addProject_whenManyThreadsAddTheSameProject_exactlyOneSucceeds() throws Exception {
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger alreadyExists = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            try {
+                repository.addProject(createProject("code", createJobs(1, "name-" + thread, JobStatus.PASSED)));
+                added.incrementAndGet();
+            } catch (ProjectAlreadyExistsException e) {
+                alreadyExists.incrementAndGet();
+            }
+        });
+
+        assertThat(added.get()).isEqualTo(1);
+        assertThat(alreadyExists.get()).isEqualTo(THREADS - 1);
+    }
+
+    @Test(timeout = 30000)
+    public void associateUserWithProject_whenManyThreadsAssociateTheSameUser_noAssociationIsLost() throws Exception {
+        int projectsPerThread = 100;
+        for (int project = 0; project < THREADS * projectsPerThread; project++) {
+            repository.addProject(createProject("code-" + project, null));
+        }
+
+        runConcurrently(thread -> {
+            for (int project = 0; project < projectsPerThread; project++) {
+                repository.associateUserWithProject("username", "code-" + (thread * projectsPerThread + project));
+            }
+        });
+
+        assertThat(repository.getUserAssociatedProjectCodes("username").size()).isEqualTo(THREADS * projectsPerThread);
+    }
+
+    @Test(timeout = 30000)
+    public void removeProject_whileOtherThreadsAssociateUsers_leavesNoDanglingAssociations() throws Exception {
+        int projectsPerThread = 100;
+        for (int project = 0; project < THREADS * projectsPerThread; project++) {
+            repository.addProject(createProject("code-" + project, null));
+        }
+
+        runConcurrently(thread -> {
+            for (int project = 0; project < THREADS * projectsPerThread; project++) {
+                String projectCode = "code-" + project;
+                if (project % THREADS == thread) {
+                    repository.removeProject(projectCode);
+                    continue;
+                }
+                try {
+                    repository.associateUserWithProject("user-" + thread, projectCode);
+                } catch (ProjectNotFoundException e) {
+                    // removed by its owning thread first
+                }
+            }
+        });
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertThat(repository.getUserAssociatedProjectCodes("user-" + thread)).isEmpty();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void listProjects_whileOtherThreadsAddProjects_showsEveryProjectOnceTheWritersFinish() throws Exception {
+        int projectsPerThread = 200;
+
+        runConcurrently(thread -> {
+            for (int project = 0; project < projectsPerThread; project++) {
+                repository.addProject(createProject("code-" + thread + "-" + project, null));
+                repository.listProjects();
+            }
+        });
+
+        assertThat(repository.listProjects()).hasSize(THREADS * projectsPerThread);
+    }
+
+    private void runConcurrently(ThreadBody body) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNumber = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                body.run(threadNumber);
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private Project createProject(String code, List<ProjectJobStatus> jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs)
+                .build();
+    }
+
+    private List<ProjectJobStatus> createJobs(int count, String name, JobStatus status) {
+        return createJobs(count, "", name, status);
+    }
+
+    private List<ProjectJobStatus> createJobs(int count, String codePrefix, String name, JobStatus status) {
+        List<ProjectJobStatus> jobs = new ArrayList<>();
+        for (int job = 0; job < count; job++) {
+            jobs.add(createJobStatus(codePrefix + "job-" + job, name, status));
+        }
+        return jobs;
+    }
+
+    private ProjectJobStatus createJobStatus(String code, String name, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName(name)
+                .jobStatus(status)
+                .build();
+    }
+
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
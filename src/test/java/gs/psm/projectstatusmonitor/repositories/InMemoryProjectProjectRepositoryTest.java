@@ -1,7 +1,19 @@
 package gs.psm.projectstatusmonitor.repositories;
 
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
 import gs.psm.projectstatusmonitor.ports.ProjectRepository;
 import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class InMemoryProjectProjectRepositoryTest extends ProjectRepositoryTest {
 
@@ -9,4 +21,112 @@ public class InMemoryProjectProjectRepositoryTest extends ProjectRepositoryTest
     public ProjectRepository createInstance() {
         return new InMemoryProjectProjectRepository();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void listProjects_withoutInterveningWrites_returnsTheSameCachedList() {
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+        repository.addProject(createProject("code1"));
+
+        assertThat(repository.listProjects()).isSameAs(repository.listProjects());
+    }
+
+    @Test
+    public void listProjects_afterAProjectIsAddedUpdatedOrRemoved_reflectsTheChange() {
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+        repository.addProject(createProject("code1"));
+        List<Project> before = repository.listProjects();
+
+        repository.addProject(createProject("code2"));
+        assertThat(repository.listProjects()).extracting(Project::getProjectCode).containsExactlyInAnyOrder("code1", "code2");
+
+        repository.updateProjectJobs("code2", Collections.emptyList());
+        assertThat(repository.listProjects()).filteredOn(project -> project.getProjectCode().equals("code2"))
+                .extracting(Project::getJobStatusList).containsExactly(Collections.emptyList());
+
+        repository.removeProject("code1");
+        assertThat(repository.listProjects()).extracting(Project::getProjectCode).containsExactly("code2");
+        assertThat(before).extracting(Project::getProjectCode).containsExactly("code1");
+    }
+
+    @Test
+    public void listProjects_afterAJobUpdate_showsTheNewJobStatus() {
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+        repository.addProject(Project.builder()
+                .projectCode("code1")
+                .projectName("name")
+                .jobStatusList(Collections.singletonList(new ProjectJobStatus("job-1", "name-1", JobStatus.RUNNING)))
+                .build());
+        repository.listProjects();
+
+        repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name-1", JobStatus.PASSED));
+
+        assertThat(repository.listProjects().get(0).getJobStatusList())
+                .containsExactly(new ProjectJobStatus("job-1", "name-1", JobStatus.PASSED));
+    }
+
+    @Test
+    public void aProjectReadBeforeAJobUpdate_keepsTheJobsAndVersionItWasReadWith() {
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+        repository.addProject(Project.builder()
+                .projectCode("code1")
+                .projectName("name")
+                .jobStatusList(Collections.singletonList(new ProjectJobStatus("job-1", "name-1", JobStatus.RUNNING)))
+                .build());
+        Project before = repository.getProject("code1");
+
+        repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name-1", JobStatus.PASSED));
+        repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code1", "job-1", "name-1", JobStatus.FAILED)));
+
+        assertThat(before.getVersion()).isEqualTo(1);
+        assertThat(before.getJobStatusList()).containsExactly(new ProjectJobStatus("job-1", "name-1", JobStatus.RUNNING));
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    public void jobUpdatesThatChangeNothing_keepTheVersionAndTheCachedList() {
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+        List<ProjectJobStatus> jobs = Collections.singletonList(new ProjectJobStatus("job-1", "name-1", JobStatus.RUNNING));
+        repository.addProject(Project.builder().projectCode("code1").projectName("name").jobStatusList(jobs).build());
+        List<Project> before = repository.listProjects();
+
+        repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name-1", JobStatus.RUNNING));
+        repository.updateProjectJobs("code1", jobs, 1);
+        List<JobStatusUpdateResult> results = repository.updateJobs(
+                Collections.singletonList(new JobStatusUpdate("code1", "job-1", "name-1", JobStatus.RUNNING)));
+
+        assertThat(results).extracting(JobStatusUpdateResult::getOutcome).containsExactly(JobStatusUpdateOutcome.UNCHANGED);
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(1);
+        assertThat(repository.listProjects()).isSameAs(before);
+    }
+
+    @Test
+    public void storedCodesAndNames_equalAcrossProjectsAndUpdates_shareOneInstance() {
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+        repository.addProject(new Project("code1", new String("name"), Collections.singletonList(
+                new ProjectJobStatus(new String("job-1"), new String("build"), JobStatus.RUNNING))));
+        repository.addProject(new Project("code2", new String("name"), Collections.singletonList(
+                new ProjectJobStatus(new String("job-1"), new String("build"), JobStatus.RUNNING))));
+        repository.updateJob("code2", "job-1", new ProjectJobStatus(new String("job-1"), new String("build"), JobStatus.PASSED));
+
+        ProjectJobStatus first = repository.getProject("code1").getJobStatusList().get(0);
+        ProjectJobStatus second = repository.getProject("code2").getJobStatusList().get(0);
+
+        assertThat(second.getJobCode()).isSameAs(first.getJobCode());
+        assertThat(second.getJobName()).isSameAs(first.getJobName());
+        assertThat(repository.getProject("code2").getProjectName()).isSameAs(repository.getProject("code1").getProjectName());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void listProjects_returnsAnUnmodifiableList() {
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+
+        repository.listProjects().add(createProject("code1"));
+    }
+
+    private Project createProject(String code) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package gs.psm.projectstatusmonitor.repositories;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class JobStatusTableTest {
+
+    private static final int UPDATES = 1000;
+
+    @Test
+    public void copy_thenReplace_changesOnlyTheCopy() {
+        List<ProjectJobStatus> jobs = createJobs(5000);
+        JobStatusTable table = new JobStatusTable(jobs, new StringPool(0));
+
+        JobStatusTable copy = table.copy();
+        copy.replace(0, "renamed", JobStatus.FAILED);
+        copy.replace(4097, "name", JobStatus.PASSED);
+        copy.replace(4098, "name", JobStatus.PASSED);
+
+        assertThat(table).isEqualTo(jobs);
+        assertThat(copy.get(0)).isEqualTo(new ProjectJobStatus("job-0", "renamed", JobStatus.FAILED));
+        assertThat(copy.get(4097)).isEqualTo(new ProjectJobStatus("job-4097", "name", JobStatus.PASSED));
+        assertThat(copy.subList(1, 4097)).isEqualTo(jobs.subList(1, 4097));
+        assertThat(copy.indexOf("job-4098")).isEqualTo(4098);
+    }
+
+    @Test
+    public void aSingleJobUpdate_allocatesAboutTheSame_howeverManyJobsTheProjectHas() {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long smallProject = bytesPerUpdate(threads, 100);
+        long largeProject = bytesPerUpdate(threads, 100_000);
+
+        assertThat(largeProject).isLessThan(2048);
+        assertThat(largeProject).isLessThan(smallProject * 4);
+    }
+
+    private static long bytesPerUpdate(com.sun.management.ThreadMXBean threads, int jobCount) {
+        JobStatusTable table = new JobStatusTable(createJobs(jobCount), new StringPool(0));
+        for (int warmUp = 0; warmUp < UPDATES; warmUp++) {
+            table = update(table, warmUp % jobCount);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int update = 0; update < UPDATES; update++) {
+            table = update(table, (update * 7919) % jobCount);
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / UPDATES;
+    }
+
+    private static JobStatusTable update(JobStatusTable table, int index) {
+        JobStatusTable copy = table.copy();
+        copy.replace(index, "name", copy.get(index).getJobStatus() == JobStatus.PASSED ? JobStatus.FAILED : JobStatus.PASSED);
+        return copy;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) threads : null;
+    }
+
+    private static List<ProjectJobStatus> createJobs(int count) {
+        List<ProjectJobStatus> jobs = new ArrayList<>(count);
+        for (int job = 0; job < count; job++) {
+            jobs.add(new ProjectJobStatus("job-" + job, "name", JobStatus.RUNNING));
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,75 @@
+package gs.psm.projectstatusmonitor.repositories;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap held by an in-memory repository of 1M jobs, with and without the
+ * string pool. Every project runs the same set of jobs, and every code and name is a
+ * fresh string, as it would be after deserializing a request; the job lists are then
+ * replaced once more with fresh copies, as a CI server reporting in would.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gs.psm.projectstatusmonitor.repositories.StringPoolHeapBenchmark
+ */
+public class StringPoolHeapBenchmark {
+
+    private static final int PROJECTS = 20_000;
+
+    private static final int JOBS_PER_PROJECT = 50;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final int DEFAULT_STRING_POOL_SIZE = 1 << 16;
+
+    public static void main(String[] args) {
+        long unpooled = retainedBytes(0);
+        long pooled = retainedBytes(DEFAULT_STRING_POOL_SIZE);
+
+        System.out.printf("jobs: %,d%n", PROJECTS * JOBS_PER_PROJECT);
+        System.out.printf("without pool: %,d MB%n", unpooled >> 20);
+        System.out.printf("with pool:    %,d MB (%.0f%% less)%n", pooled >> 20, 100.0 * (unpooled - pooled) / unpooled);
+    }
+
+    private static long retainedBytes(int stringPoolSize) {
+        long before = usedHeap();
+
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository(LOCK_STRIPES, stringPoolSize);
+        for (int project = 0; project < PROJECTS; project++) {
+            repository.addProject(new Project(fresh("project-" + project), fresh("Project " + project), createJobs(project)));
+        }
+        for (int project = 0; project < PROJECTS; project++) {
+            repository.updateProjectJobs("project-" + project, createJobs(project + 1));
+        }
+
+        long retained = usedHeap() - before;
+        if (repository.listProjects().size() != PROJECTS) {
+            throw new IllegalStateException();
+        }
+        return retained;
+    }
+
+    private static List<ProjectJobStatus> createJobs(int seed) {
+        List<ProjectJobStatus> jobs = new ArrayList<>(JOBS_PER_PROJECT);
+        for (int job = 0; job < JOBS_PER_PROJECT; job++) {
+            jobs.add(new ProjectJobStatus(fresh("job-" + job), fresh("Pipeline stage " + job),
+                    JobStatus.values()[(seed + job) % JobStatus.values().length]));
+        }
+        return jobs;
+    }
+
+    private static String fresh(String value) {
+        return new String(value.toCharArray());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int collection = 0; collection < 3; collection++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,243 @@
+package gs.psm.projectstatusmonitor.repositories.budget;
+
+import gs.psm.projectstatusmonitor.exceptions.MemoryBudgetExceededException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.InMemoryEstateStatusSummaryRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.InMemoryJobStatusIndex;
+import gs.psm.projectstatusmonitor.repositories.tracking.InMemoryProjectStatusSummaryRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.JobStatusListener;
+import gs.psm.projectstatusmonitor.repositories.tracking.JobStatusTrackingProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.RingBufferJobStatusHistoryRepository;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemoryBudgetProjectRepositoryTest extends ProjectRepositoryTest {
+
+    private static final int HISTORY_CAPACITY = 16;
+
+    @Override
+    public ProjectRepository createInstance() {
+        return new MemoryBudgetProjectRepository(new InMemoryProjectProjectRepository(), new ProjectMemoryBudget(Long.MAX_VALUE, HISTORY_CAPACITY));
+    }
+
+    @Test
+    public void writes_keepTheEstimateOfEachProjectAndTheTotal() {
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(Long.MAX_VALUE, HISTORY_CAPACITY);
+        ProjectRepository repository = new MemoryBudgetProjectRepository(new InMemoryProjectProjectRepository(), budget);
+
+        repository.addProject(createProject("code1", 1));
+        repository.addProject(createProject("code2", 1));
+        long oneJobBytes = budget.getEstimatedBytes("code1");
+
+        repository.updateProjectJobs("code1", createJobs(10));
+        long tenJobBytes = budget.getEstimatedBytes("code1");
+
+        assertThat(tenJobBytes).isGreaterThan(oneJobBytes);
+        assertThat(budget.getEstimatedBytes()).isEqualTo(tenJobBytes + oneJobBytes);
+
+        repository.removeProject("code1");
+
+        assertThat(budget.getEstimatedBytes("code1")).isZero();
+        assertThat(budget.getEstimatedBytes()).isEqualTo(oneJobBytes);
+    }
+
+    @Test
+    public void addProject_pastTheBudget_isRejectedBeforeReachingTheDelegate() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(estimatedBytesOf(createProject("code1", 10)) + 1, HISTORY_CAPACITY);
+        ProjectRepository repository = new MemoryBudgetProjectRepository(delegate, budget);
+        repository.addProject(createProject("code1", 10));
+
+        try {
+            repository.addProject(createProject("code2", 1));
+            throw new AssertionError("Expected the budget to be exceeded");
+        } catch (MemoryBudgetExceededException e) {
+            // expected
+        }
+
+        assertThat(delegate.getProject("code2")).isNull();
+    }
+
+    @Test
+    public void updateProjectJobs_thatGrowAProjectPastTheBudget_areRejected_butThoseThatShrinkItAreNot() {
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(estimatedBytesOf(createProject("code1", 10)), HISTORY_CAPACITY);
+        ProjectRepository repository = new MemoryBudgetProjectRepository(new InMemoryProjectProjectRepository(), budget);
+        repository.addProject(createProject("code1", 10));
+
+        try {
+            repository.updateProjectJobs("code1", createJobs(11));
+            throw new AssertionError("Expected the budget to be exceeded");
+        } catch (MemoryBudgetExceededException e) {
+            // expected
+        }
+        repository.updateProjectJobs("code1", createJobs(2));
+
+        assertThat(repository.getProject("code1").getJobStatusList()).hasSize(2);
+        assertThat(budget.getEstimatedBytes()).isLessThan(budget.getBudgetBytes());
+    }
+
+    @Test
+    public void create_accountsTheProjectsAlreadyInTheDelegate_evenPastTheBudget() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        delegate.addProject(createProject("code1", 10));
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(1, HISTORY_CAPACITY);
+
+        new MemoryBudgetProjectRepository(delegate, budget);
+
+        assertThat(budget.getEstimatedBytes()).isEqualTo(estimatedBytesOf(createProject("code1", 10)));
+    }
+
+    @Test
+    public void userLookups_noteTheUsersForTheUsageReport() {
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(Long.MAX_VALUE, HISTORY_CAPACITY);
+        ProjectRepository repository = new MemoryBudgetProjectRepository(new InMemoryProjectProjectRepository(), budget);
+        repository.addProject(createProject("code1", 1));
+
+        repository.associateUserWithProject("user1", "code1");
+        repository.isUserAssociatedWithProject("user2", "code1");
+
+        assertThat(budget.getUsernames()).containsExactlyInAnyOrder("user1", "user2");
+    }
+
+    @Test
+    public void updateJobs_accountTheProjectsTheyChanged() {
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(Long.MAX_VALUE, HISTORY_CAPACITY);
+        ProjectRepository repository = new MemoryBudgetProjectRepository(new InMemoryProjectProjectRepository(), budget);
+        repository.addProject(createProject("code1", 1));
+        long before = budget.getEstimatedBytes("code1");
+
+        repository.updateJobs(Collections.singletonList(
+                new JobStatusUpdate("code1", "job-0", "a much longer name for the job", JobStatus.PASSED)));
+
+        assertThat(budget.getEstimatedBytes("code1")).isGreaterThan(before);
+        assertThat(budget.getEstimatedBytes()).isEqualTo(budget.getEstimatedBytes("code1"));
+    }
+
+    @Test
+    public void jobUpdates_readNoProject_andKeepTheEstimateARecordOfTheWholeProjectGives() {
+        AtomicInteger projectReads = new AtomicInteger();
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository() {
+            @Override
+            public Project getProject(String projectCode) {
+                projectReads.incrementAndGet();
+                return super.getProject(projectCode);
+            }
+        };
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(Long.MAX_VALUE, HISTORY_CAPACITY);
+        ProjectRepository repository = new MemoryBudgetProjectRepository(delegate, budget);
+        repository.addProject(createProject("code1", 100));
+        projectReads.set(0);
+
+        repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "a much longer name for the job", JobStatus.PASSED));
+        repository.updateJob("code1", "job-2", new ProjectJobStatus("job-2", "name-2", null));
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-3", "n", JobStatus.FAILED),
+                new JobStatusUpdate("code1", "job-3", "another name for the job", JobStatus.PASSED),
+                new JobStatusUpdate("code1", "job-2", "name-2", JobStatus.FAILED),
+                new JobStatusUpdate("code1", "job-4", "name-4", JobStatus.RUNNING)));
+
+        assertThat(projectReads.get()).isZero();
+        assertThat(budget.getEstimatedBytes("code1")).isEqualTo(estimatedBytesOf(delegate.getProject("code1")));
+        assertThat(budget.getEstimatedBytes()).isEqualTo(budget.getEstimatedBytes("code1"));
+    }
+
+    @Test
+    public void aDecoratorThatDoesNotEnforce_accountsWritesPastTheBudget() {
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(1, HISTORY_CAPACITY);
+        ProjectRepository repository = new MemoryBudgetProjectRepository(new InMemoryProjectProjectRepository(), budget, false);
+
+        repository.addProject(createProject("code1", 10));
+
+        assertThat(budget.getEstimatedBytes()).isEqualTo(estimatedBytesOf(createProject("code1", 10)));
+    }
+
+    @Test
+    public void estimate_isWithinAFifthOfTheHeapTheProjectsTakeAcrossTheTrackingStructures() {
+        int projects = 2000;
+        int jobsPerProject = 25;
+        long heapBefore = usedHeapBytes();
+
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(Long.MAX_VALUE, HISTORY_CAPACITY);
+        List<JobStatusListener> listeners = Arrays.asList(
+                new RingBufferJobStatusHistoryRepository(HISTORY_CAPACITY),
+                new InMemoryJobStatusIndex(),
+                new InMemoryProjectStatusSummaryRepository(),
+                new InMemoryEstateStatusSummaryRepository());
+        ProjectRepository repository = new MemoryBudgetProjectRepository(
+                new JobStatusTrackingProjectRepository(new InMemoryProjectProjectRepository(), listeners, Clock.systemUTC()), budget);
+
+        for (int project = 0; project < projects; project++) {
+            List<ProjectJobStatus> jobs = new ArrayList<>();
+            for (int job = 0; job < jobsPerProject; job++) {
+                jobs.add(new ProjectJobStatus("job-" + project + "-" + job, "Build step " + project + "/" + job, JobStatus.RUNNING));
+            }
+            repository.addProject(new Project("project-" + project, "Project " + project, jobs));
+        }
+        for (int project = 0; project < projects; project++) {
+            for (int job = 0; job < jobsPerProject; job += 2) {
+                repository.updateJob("project-" + project, "job-" + project + "-" + job,
+                        new ProjectJobStatus("job-" + project + "-" + job, "Build step " + project + "/" + job, JobStatus.PASSED));
+            }
+        }
+
+        long measuredBytes = usedHeapBytes() - heapBefore;
+
+        assertThat(repository.listProjects()).hasSize(projects);
+        assertThat(budget.getEstimatedBytes()).isBetween(measuredBytes * 4 / 5, measuredBytes * 6 / 5);
+    }
+
+    /**
+     * The lowest heap use seen over several full collections, which leaves out garbage a
+     * single collection may not have reclaimed yet.
+     */
+    private static long usedHeapBytes() {
+        long lowest = Long.MAX_VALUE;
+        for (int collection = 0; collection < 5; collection++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Runtime runtime = Runtime.getRuntime();
+            lowest = Math.min(lowest, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return lowest;
+    }
+
+    private long estimatedBytesOf(Project project) {
+        ProjectMemoryBudget budget = new ProjectMemoryBudget(Long.MAX_VALUE, HISTORY_CAPACITY);
+        budget.record(project);
+        return budget.getEstimatedBytes();
+    }
+
+    private Project createProject(String code, int jobCount) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(createJobs(jobCount))
+                .build();
+    }
+
+    private List<ProjectJobStatus> createJobs(int jobCount) {
+        List<ProjectJobStatus> jobs = new ArrayList<>();
+        for (int job = 0; job < jobCount; job++) {
+            jobs.add(new ProjectJobStatus("job-" + job, "name-" + job, JobStatus.RUNNING));
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,154 @@
+package gs.psm.projectstatusmonitor.repositories.caching;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CachingProjectRepositoryTest extends ProjectRepositoryTest {
+
+    @Override
+    public ProjectRepository createInstance() {
+        return new CachingProjectRepository(new InMemoryProjectProjectRepository(), 1000, 1000);
+    }
+
+    @Test
+    public void getProject_repeatedly_loadsFromTheDelegateOnce() {
+        InMemoryProjectProjectRepository delegate = spy(new InMemoryProjectProjectRepository());
+        delegate.addProject(createProject("code1"));
+        CachingProjectRepository repository = new CachingProjectRepository(delegate, 1000, 1000);
+
+        for (int read = 0; read < 5; read++) {
+            assertThat(repository.getProject("code1").getProjectCode()).isEqualTo("code1");
+        }
+
+        verify(delegate, times(1)).getProject("code1");
+        assertThat(repository.projectCache().stats().hitCount()).isEqualTo(4);
+        assertThat(repository.projectCache().stats().missCount()).isEqualTo(1);
+    }
+
+    @Test(timeout = 10000)
+    public void getProject_whenManyCallersMissAtOnce_loadsFromTheDelegateOnce() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository() {
+            @Override
+            public Project getProject(String projectCode) {
+                loads.incrementAndGet();
+                loadStarted.countDown();
+                try {
+                    releaseLoad.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getProject(projectCode);
+            }
+        };
+        delegate.addProject(createProject("code1"));
+        CachingProjectRepository repository = new CachingProjectRepository(delegate, 1000, 1000);
+
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Project>> results = new ArrayList<>();
+            for (int caller = 0; caller < callers; caller++) {
+                results.add(executor.submit(() -> repository.getProject("code1")));
+            }
+            loadStarted.await();
+            Thread.sleep(100);
+            releaseLoad.countDown();
+
+            for (Future<Project> result : results) {
+                assertThat(result.get().getProjectCode()).isEqualTo("code1");
+            }
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void everyMutation_invalidatesTheCachedProject() {
+        InMemoryProjectProjectRepository delegate = spy(new InMemoryProjectProjectRepository());
+        CachingProjectRepository repository = new CachingProjectRepository(delegate, 1000, 1000);
+
+        assertThat(repository.getProject("code1")).isNull();
+        repository.addProject(createProject("code1", new ProjectJobStatus("job-1", "name", JobStatus.RUNNING)));
+        assertThat(repository.getProject("code1")).isNotNull();
+
+        repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.PASSED));
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(2);
+
+        repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code1", "job-1", "name", JobStatus.FAILED)));
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(3);
+
+        repository.updateProject(Project.builder().projectCode("code1").projectName("renamed").build());
+        assertThat(repository.getProject("code1").getProjectName()).isEqualTo("renamed");
+
+        repository.removeProject("code1");
+        assertThat(repository.getProject("code1")).isNull();
+
+        verify(delegate, times(6)).getProject("code1");
+    }
+
+    @Test
+    public void userAssociations_areCached_andInvalidatedByAssociatingOrRemovingAProject() {
+        InMemoryProjectProjectRepository delegate = spy(new InMemoryProjectProjectRepository());
+        delegate.addProject(createProject("code1"));
+        delegate.addProject(createProject("code2"));
+        CachingProjectRepository repository = new CachingProjectRepository(delegate, 1000, 1000);
+
+        repository.associateUserWithProject("username", "code1");
+        assertThat(repository.isUserAssociatedWithProject("username", "code1")).isTrue();
+        assertThat(repository.isUserAssociatedWithProject("username", "code2")).isFalse();
+
+        repository.associateUserWithProject("username", "code2");
+        assertThat(repository.getUserAssociatedProjectCodes("username")).containsExactlyInAnyOrder("code1", "code2");
+
+        repository.removeProject("code1");
+        assertThat(repository.getUserAssociatedProjectCodes("username")).containsExactly("code2");
+
+        verify(delegate, times(3)).getUserAssociatedProjectCodes("username");
+    }
+
+    @Test
+    public void projectCache_staysWithinItsMaximumSize() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        CachingProjectRepository repository = new CachingProjectRepository(delegate, 10, 10, Runnable::run);
+
+        for (int project = 0; project < 100; project++) {
+            delegate.addProject(createProject("code" + project));
+            repository.getProject("code" + project);
+        }
+        repository.projectCache().cleanUp();
+
+        assertThat(repository.projectCache().estimatedSize()).isLessThanOrEqualTo(10);
+        assertThat(repository.projectCache().stats().evictionCount()).isGreaterThan(0);
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs.length == 0 ? null : Arrays.asList(jobs))
+                .build();
+    }
+}
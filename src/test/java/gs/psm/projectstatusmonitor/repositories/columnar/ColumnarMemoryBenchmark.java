@@ -0,0 +1,90 @@
+package gs.psm.projectstatusmonitor.repositories.columnar;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares the retained heap per job of the object graph repository with the columnar one
+ * for an estate of 1M jobs. Strings are copied per job, as they are when decoded from
+ * request bodies.
+ *
+ * Each repository is built several times. Every measurement is taken after full
+ * collections repeated until the used heap stops shrinking, while the repository is still
+ * reachable, and the median is reported so one collection that leaves garbage behind does
+ * not skew the result.
+ * Run with a collector whose System.gc() is a full stop-the-world collection:
+ * java -XX:+UseSerialGC -cp target/classes:target/test-classes
+ * gs.psm.projectstatusmonitor.repositories.columnar.ColumnarMemoryBenchmark
+ */
+public class ColumnarMemoryBenchmark {
+
+    private static final int PROJECTS = 50_000;
+
+    private static final int JOBS_PER_PROJECT = 20;
+
+    private static final int ROUNDS = 5;
+
+    private static final int MAX_COLLECTIONS = 10;
+
+    public static void main(String[] args) {
+        double objectGraphBytes = bytesPerJob(InMemoryProjectProjectRepository::new);
+        double columnarBytes = bytesPerJob(ColumnarProjectRepository::new);
+
+        System.out.printf("object graph: %.1f bytes/job%n", objectGraphBytes);
+        System.out.printf("columnar:     %.1f bytes/job%n", columnarBytes);
+        System.out.printf("reduction:    %.1fx%n", objectGraphBytes / columnarBytes);
+    }
+
+    private static double bytesPerJob(Supplier<ProjectRepository> repositorySupplier) {
+        double[] rounds = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = usedHeap();
+            ProjectRepository repository = repositorySupplier.get();
+            for (int project = 0; project < PROJECTS; project++) {
+                repository.addProject(createProject(project));
+            }
+            long after = usedHeap();
+
+            if (repository.getProject("project-0") == null) {
+                throw new IllegalStateException();
+            }
+            rounds[round] = (after - before) / (double) (PROJECTS * JOBS_PER_PROJECT);
+        }
+
+        Arrays.sort(rounds);
+        return rounds[ROUNDS / 2];
+    }
+
+    private static Project createProject(int project) {
+        List<ProjectJobStatus> jobs = new ArrayList<>(JOBS_PER_PROJECT);
+        for (int job = 0; job < JOBS_PER_PROJECT; job++) {
+            jobs.add(new ProjectJobStatus(new String("job-" + job), new String("Job number " + job),
+                    JobStatus.values()[(project + job) % 5]));
+        }
+        return new Project("project-" + project, "Project " + project, jobs);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int collection = 0; collection < MAX_COLLECTIONS; collection++) {
+            memory.gc();
+            long collected = memory.getHeapMemoryUsage().getUsed();
+            if (collected >= used) {
+                break;
+            }
+            used = collected;
+        }
+        return used;
+    }
+}
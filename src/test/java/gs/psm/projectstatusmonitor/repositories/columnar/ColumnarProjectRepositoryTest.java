@@ -0,0 +1,120 @@
+package gs.psm.projectstatusmonitor.repositories.columnar;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarProjectRepositoryTest extends ProjectRepositoryTest {
+
+    @Override
+    public ProjectRepository createInstance() {
+        return new ColumnarProjectRepository();
+    }
+
+    @Test
+    public void updateProjectJobs_growingAndRemovingManyProjects_compactsWithoutLosingJobs() {
+        ColumnarProjectRepository repository = new ColumnarProjectRepository();
+        int projectCount = 200;
+
+        for (int project = 0; project < projectCount; project++) {
+            repository.addProject(createProject("code" + project, 1));
+        }
+        for (int jobCount = 2; jobCount <= 20; jobCount++) {
+            for (int project = 0; project < projectCount; project++) {
+                repository.updateProjectJobs("code" + project, createJobs(project, jobCount));
+            }
+            repository.removeProject("code" + jobCount);
+            repository.addProject(createProject("code" + jobCount, jobCount));
+        }
+
+        for (int project = 0; project < projectCount; project++) {
+            assertThat(repository.getProject("code" + project).getJobStatusList()).isEqualTo(createJobs(project, 20));
+        }
+    }
+
+    @Test
+    public void listProjects_acrossMoreProjectsThanFitAmongTheRecentCodes_comesBackInCodeOrder() {
+        ColumnarProjectRepository repository = new ColumnarProjectRepository();
+        List<String> projectCodes = new ArrayList<>();
+        for (int project = 0; project < 2500; project++) {
+            projectCodes.add("code" + project);
+        }
+        Collections.shuffle(projectCodes, new Random(1));
+
+        for (String projectCode : projectCodes) {
+            repository.addProject(createProject(projectCode, 1));
+        }
+        for (String projectCode : projectCodes.subList(0, 1000)) {
+            repository.removeProject(projectCode);
+        }
+        repository.addProject(createProject("code0a", 1));
+
+        List<String> expected = new ArrayList<>(projectCodes.subList(1000, projectCodes.size()));
+        expected.add("code0a");
+        Collections.sort(expected);
+        assertThat(repository.listProjects()).extracting(Project::getProjectCode).isEqualTo(expected);
+
+        List<String> paged = new ArrayList<>();
+        List<Project> page = repository.listProjects(null, 300);
+        while (!page.isEmpty()) {
+            page.forEach(project -> paged.add(project.getProjectCode()));
+            page = repository.listProjects(paged.get(paged.size() - 1), 300);
+        }
+        assertThat(paged).isEqualTo(expected);
+        assertThat(repository.listProjects(projectCodes.get(0), 1)).extracting(Project::getProjectCode)
+                .containsExactly(expected.get(-Collections.binarySearch(expected, projectCodes.get(0)) - 1));
+    }
+
+    @Test
+    public void updateProjectJobs_withAShorterList_keepsOnlyTheNewJobs() {
+        ColumnarProjectRepository repository = new ColumnarProjectRepository();
+
+        repository.addProject(createProject("code1", 3));
+        repository.updateProjectJobs("code1", createJobs(1, 1));
+
+        assertThat(repository.getProject("code1").getJobStatusList()).isEqualTo(createJobs(1, 1));
+        assertThat(repository.updateProjectJobs("code1", Collections.emptyList()).getJobStatusList()).isEmpty();
+    }
+
+    @Test
+    public void addProject_withNonAsciiNames_roundTripsThem() {
+        ColumnarProjectRepository repository = new ColumnarProjectRepository();
+
+        repository.addProject(Project.builder()
+                .projectCode("projekt-ü")
+                .projectName("プロジェクト")
+                .jobStatusList(Arrays.asList(new ProjectJobStatus("étape", null, JobStatus.CANCELLED)))
+                .build());
+
+        Project project = repository.getProject("projekt-ü");
+        assertThat(project.getProjectName()).isEqualTo("プロジェクト");
+        assertThat(project.getJobStatusList()).containsExactly(new ProjectJobStatus("étape", null, JobStatus.CANCELLED));
+    }
+
+    private Project createProject(String code, int jobCount) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(createJobs(jobCount, jobCount))
+                .build();
+    }
+
+    private List<ProjectJobStatus> createJobs(int seed, int jobCount) {
+        List<ProjectJobStatus> jobs = new ArrayList<>();
+        for (int job = 0; job < jobCount; job++) {
+            jobs.add(new ProjectJobStatus("job-" + job, "name-" + seed, JobStatus.values()[(seed + job) % 5]));
+        }
+        return jobs;
+    }
+}
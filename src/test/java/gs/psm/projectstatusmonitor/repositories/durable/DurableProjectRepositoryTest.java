@@ -0,0 +1,368 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectPersistenceException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class DurableProjectRepositoryTest extends ProjectRepositoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<DurableProjectRepository> openRepositories = new ArrayList<>();
+
+    @Override
+    public ProjectRepository createInstance() {
+        return open(temporaryFolder.getRoot().toPath());
+    }
+
+    @After
+    public void closeRepositories() throws IOException {
+        for (DurableProjectRepository repository : openRepositories) {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void reopen_afterEveryKindOfMutation_rebuildsTheSameState() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        DurableProjectRepository repository = open(directory);
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code3"));
+        repository.associateUserWithProject("username", "code1");
+        repository.associateUserWithProject("username", "code2");
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        repository.updateProjectJobs("code2", Arrays.asList(
+                createJobStatus("job-2", "name-2", JobStatus.FAILED),
+                createJobStatus("job-3", null, null)
+        ));
+        repository.updateProject(Project.builder().projectCode("code3").projectName("renamed").build());
+        repository.removeProject("code1");
+        repository.close();
+
+        DurableProjectRepository reopened = open(directory);
+
+        assertThat(reopened.getProject("code1")).isNull();
+        assertThat(reopened.getProject("code2").getJobStatusList()).containsExactly(
+                createJobStatus("job-2", "name-2", JobStatus.FAILED),
+                createJobStatus("job-3", null, null)
+        );
+        assertThat(reopened.getProject("code3").getProjectName()).isEqualTo("renamed");
+        assertThat(reopened.getProject("code3").getJobStatusList()).isNull();
+        assertThat(reopened.getUserAssociatedProjectCodes("username")).contains("code2");
+    }
+
+    @Test
+    public void reopen_afterABulkJobUpdate_keepsEveryJobItChanged() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        DurableProjectRepository repository = open(directory);
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-1", "name-1", JobStatus.PASSED),
+                new JobStatusUpdate("code2", "job-1", "name-1", JobStatus.FAILED),
+                new JobStatusUpdate("code2", "job-9", "name-9", JobStatus.FAILED)));
+        repository.close();
+
+        DurableProjectRepository reopened = open(directory);
+
+        assertThat(reopened.getProject("code1").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        assertThat(reopened.getProject("code2").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.FAILED));
+    }
+
+    @Test
+    public void jobUpdatesThatChangeNothing_areNotLogged() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024 * 1024);
+        DurableProjectRepository repository = new DurableProjectRepository(new InMemoryProjectProjectRepository(), writeAheadLog);
+        openRepositories.add(repository);
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        long appendedRecords = writeAheadLog.getAppendedRecords();
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.RUNNING));
+        repository.updateProjectJobs("code1", Collections.singletonList(createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code1", "job-1", "name-1", JobStatus.RUNNING)));
+
+        assertThat(writeAheadLog.getAppendedRecords()).isEqualTo(appendedRecords);
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(1);
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+
+        assertThat(writeAheadLog.getAppendedRecords()).isEqualTo(appendedRecords + 1);
+    }
+
+    @Test
+    public void mutationsTheLogFailsToTake_areNotApplied() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        AtomicBoolean logFailing = new AtomicBoolean();
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024 * 1024) {
+            @Override
+            public CompletableFuture<Void> append(byte[] payload) {
+                if (logFailing.get()) {
+                    CompletableFuture<Void> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new IOException("disk full"));
+                    return failed;
+                }
+                return super.append(payload);
+            }
+        };
+        DurableProjectRepository repository = new DurableProjectRepository(new InMemoryProjectProjectRepository(), writeAheadLog);
+        openRepositories.add(repository);
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+
+        logFailing.set(true);
+        try {
+            repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+            fail("expected the update to fail");
+        } catch (ProjectPersistenceException expected) {
+        }
+        try {
+            repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code1", "job-1", "name-1", JobStatus.FAILED)));
+            fail("expected the bulk update to fail");
+        } catch (ProjectPersistenceException expected) {
+        }
+        try {
+            repository.addProject(createProject("code2"));
+            fail("expected the add to fail");
+        } catch (ProjectPersistenceException expected) {
+        }
+
+        assertThat(repository.getProject("code1").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.RUNNING));
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(1);
+        assertThat(repository.getProject("code2")).isNull();
+
+        logFailing.set(false);
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        repository.close();
+
+        assertThat(open(directory).getProject("code1").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.PASSED));
+    }
+
+    @Test
+    public void reopen_afterSeveralRestarts_keepsAppendingToTheSameHistory() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+
+        for (int restart = 0; restart < 3; restart++) {
+            DurableProjectRepository repository = open(directory);
+            repository.addProject(createProject("code" + restart));
+            repository.close();
+        }
+
+        assertThat(open(directory).listProjects()).hasSize(3);
+    }
+
+    @Test
+    public void reopen_afterACheckpoint_loadsTheSnapshotAndReplaysOnlyTheNewerLog() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        DurableProjectRepository repository = open(directory);
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.associateUserWithProject("username", "code1");
+        repository.checkpoint();
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        repository.addProject(createProject("code2"));
+        repository.close();
+
+        DurableProjectRepository reopened = open(directory);
+
+        assertThat(reopened.getProject("code1").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        assertThat(reopened.getProject("code2")).isNotNull();
+        assertThat(reopened.getUserAssociatedProjectCodes("username")).containsExactly("code1");
+    }
+
+    @Test
+    public void reopen_withAndWithoutACheckpoint_neverMovesAProjectVersionBackwards() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        DurableProjectRepository repository = open(directory);
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        repository.checkpoint();
+        long versionBeforeRestart = repository.updateProjectJobs("code1", Collections.emptyList(), 2).getVersion();
+        repository.close();
+
+        DurableProjectRepository reopened = open(directory);
+
+        assertThat(reopened.getProject("code1").getVersion()).isGreaterThanOrEqualTo(versionBeforeRestart);
+        assertThat(reopened.updateProject(Project.builder().projectCode("code1").projectName("renamed").build())
+                .getVersion()).isGreaterThan(versionBeforeRestart);
+    }
+
+    @Test
+    public void checkpoint_removesLogSegmentsThatNoRetainedSnapshotNeeds() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        DurableProjectRepository repository = open(directory);
+
+        for (int checkpoint = 0; checkpoint < 4; checkpoint++) {
+            repository.addProject(createProject("code" + checkpoint));
+            repository.checkpoint();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> fileNames = files.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+
+            assertThat(fileNames.stream().filter(name -> name.startsWith("snapshot-"))).hasSize(2);
+            assertThat(fileNames.stream().filter(name -> name.startsWith("wal-"))).hasSize(2);
+        }
+        repository.close();
+
+        assertThat(open(directory).listProjects()).hasSize(4);
+    }
+
+    @Test(timeout = 60000)
+    public void checkpoint_whileWritersAreRunning_recoversTheStateTheWritersLeftBehind() throws Exception {
+        Path directory = temporaryFolder.newFolder().toPath();
+        DurableProjectRepository repository = open(directory);
+        int writers = 4;
+        int updates = 300;
+
+        for (int writer = 0; writer < writers; writer++) {
+            repository.addProject(createProject("code" + writer, createJobStatus("job-1", "name-0", JobStatus.RUNNING)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            String projectCode = "code" + writer;
+            futures.add(executor.submit(() -> {
+                for (int update = 1; update <= updates; update++) {
+                    repository.updateJob(projectCode, "job-1", createJobStatus("job-1", "name-" + update, JobStatus.PASSED));
+                    if (update % 100 == 0) {
+                        repository.updateProjectJobs(projectCode, Collections.singletonList(
+                                createJobStatus("job-1", "name-" + update, JobStatus.FAILED)));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int checkpoint = 0; checkpoint < 5; checkpoint++) {
+            repository.checkpoint();
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Project> expectedProjects = repository.listProjects();
+        repository.close();
+
+        DurableProjectRepository reopened = open(directory);
+
+        assertThat(reopened.listProjects()).containsExactlyInAnyOrderElementsOf(expectedProjects);
+    }
+
+    @Test(timeout = 60000)
+    public void checkpoint_whileAWriteIsSyncedButNotYetApplied_keepsThatWriteAcrossARestart() throws Exception {
+        Path directory = temporaryFolder.newFolder().toPath();
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch finishApplying = new CountDownLatch(1);
+        DurableProjectRepository repository = open(directory, new InMemoryProjectProjectRepository() {
+            @Override
+            public Project updateJob(String projectCode, String jobCode, ProjectJobStatus projectJobStatus) {
+                applying.countDown();
+                try {
+                    finishApplying.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.updateJob(projectCode, jobCode, projectJobStatus);
+            }
+        });
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+
+        CompletableFuture<Project> write = CompletableFuture.supplyAsync(() ->
+                repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED)));
+        applying.await();
+        CompletableFuture<Void> checkpoint = CompletableFuture.runAsync(() -> {
+            try {
+                repository.checkpoint();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        finishApplying.countDown();
+        write.get();
+        checkpoint.get();
+        repository.close();
+
+        DurableProjectRepository reopened = open(directory);
+
+        assertThat(reopened.getProject("code1").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.PASSED));
+    }
+
+    private DurableProjectRepository open(Path directory) {
+        return open(directory, new InMemoryProjectProjectRepository());
+    }
+
+    private DurableProjectRepository open(Path directory, InMemoryProjectProjectRepository delegate) {
+        try {
+            DurableProjectRepository repository = new DurableProjectRepository(
+                    delegate,
+                    new WriteAheadLog(directory, 1024 * 1024),
+                    new SnapshotStore(directory),
+                    0
+            );
+            openRepositories.add(repository);
+            return repository;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs.length == 0 ? null : Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, String name, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName(name)
+                .jobStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how long startup takes to load a snapshot of a 200k project estate.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gs.psm.projectstatusmonitor.repositories.durable.SnapshotLoadBenchmark
+ */
+public class SnapshotLoadBenchmark {
+
+    private static final int PROJECTS = 200_000;
+
+    private static final int JOBS_PER_PROJECT = 10;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("snapshot-load-benchmark");
+
+        InMemoryProjectProjectRepository source = new InMemoryProjectProjectRepository();
+        for (int project = 0; project < PROJECTS; project++) {
+            source.addProject(createProject(project));
+            source.associateUserWithProject("user-" + (project % 50), "project-" + project);
+        }
+
+        SnapshotStore snapshotStore = new SnapshotStore(directory);
+        long writeStart = System.nanoTime();
+        Path snapshot = snapshotStore.write(1, source.listProjects(), source.getUserAssociations());
+        System.out.printf("wrote %d projects (%d bytes) in %.2fs%n",
+                PROJECTS, Files.size(snapshot), (System.nanoTime() - writeStart) / 1e9);
+
+        for (int run = 0; run < 5; run++) {
+            InMemoryProjectProjectRepository target = new InMemoryProjectProjectRepository();
+            long start = System.nanoTime();
+            snapshotStore.loadLatest(target);
+            System.out.printf("run %d: loaded %d projects in %.2fs%n",
+                    run, target.listProjects().size(), (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static Project createProject(int project) {
+        List<ProjectJobStatus> jobs = new ArrayList<>();
+        for (int job = 0; job < JOBS_PER_PROJECT; job++) {
+            jobs.add(new ProjectJobStatus("job-" + job, "Job job-" + job, JobStatus.values()[job % 5]));
+        }
+        return new Project("project-" + project, "Project " + project, jobs);
+    }
+}
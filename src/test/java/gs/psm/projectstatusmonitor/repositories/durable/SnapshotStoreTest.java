@@ -0,0 +1,166 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SnapshotStore snapshotStore;
+
+    @Before
+    public void setup() throws Exception {
+        snapshotStore = new SnapshotStore(temporaryFolder.getRoot().toPath());
+    }
+
+    @Test
+    public void loadLatest_whenThereAreNoSnapshots_returnsZeroAndLoadsNothing() throws Exception {
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+
+        assertThat(snapshotStore.loadLatest(repository)).isEqualTo(0);
+        assertThat(repository.listProjects()).isEmpty();
+    }
+
+    @Test
+    public void loadLatest_afterWrite_restoresProjectsJobsAndUserAssociations() throws Exception {
+        Project project = new Project("code1", "name1", Arrays.asList(
+                new ProjectJobStatus("job-1", "name-1", JobStatus.FAILED),
+                new ProjectJobStatus("job-2", null, null)
+        ));
+        Project projectWithoutJobs = new Project("code2", "name2", null);
+
+        Map<String, List<String>> userAssociations = new HashMap<>();
+        userAssociations.put("username", Arrays.asList("code1", "code2"));
+
+        snapshotStore.write(7, Arrays.asList(project, projectWithoutJobs), userAssociations);
+
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+
+        assertThat(snapshotStore.loadLatest(repository)).isEqualTo(7);
+        assertThat(repository.getProject("code1")).isEqualTo(project);
+        assertThat(repository.getProject("code2")).isEqualTo(projectWithoutJobs);
+        assertThat(repository.getUserAssociatedProjectCodes("username")).containsExactlyInAnyOrder("code1", "code2");
+    }
+
+    @Test
+    public void loadLatest_afterWrite_restoresTheProjectVersions() throws Exception {
+        snapshotStore.write(2, Collections.singletonList(new Project("code1", "name1", null, 9)), Collections.emptyMap());
+
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+        snapshotStore.loadLatest(repository);
+
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(9);
+    }
+
+    @Test
+    public void loadLatest_ofASnapshotWrittenBeforeProjectsHadVersions_restoresItsProjectsAtVersionOne() throws Exception {
+        Project project = new Project("code1", "name1", Collections.singletonList(
+                new ProjectJobStatus("job-1", "name-1", JobStatus.PASSED)));
+
+        CheckedOutputStream checked = new CheckedOutputStream(
+                Files.newOutputStream(temporaryFolder.getRoot().toPath().resolve("snapshot-00000000000000000004.bin")), new CRC32());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(0x50534d53);
+            out.writeInt(1);
+            out.writeLong(4);
+            out.writeInt(1);
+            BinaryProjectCodec.writeProject(out, project);
+            out.writeInt(1);
+            BinaryProjectCodec.writeString(out, "username");
+            out.writeInt(1);
+            BinaryProjectCodec.writeString(out, "code1");
+            out.writeLong(checked.getChecksum().getValue());
+        }
+
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+
+        assertThat(snapshotStore.loadLatest(repository)).isEqualTo(4);
+        assertThat(repository.getProject("code1")).isEqualTo(project);
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(1);
+        assertThat(repository.getUserAssociatedProjectCodes("username")).containsExactly("code1");
+    }
+
+    @Test
+    public void loadLatest_whenTheNewestSnapshotIsCorrupt_fallsBackToTheOlderSnapshot() throws Exception {
+        snapshotStore.write(3, Collections.singletonList(new Project("old", "old", null)), Collections.emptyMap());
+        Path newest = snapshotStore.write(5, Collections.singletonList(new Project("new", "new", null)), Collections.emptyMap());
+
+        try (RandomAccessFile file = new RandomAccessFile(newest.toFile(), "rw")) {
+            file.seek(30);
+            file.write(0xff);
+        }
+
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+
+        assertThat(snapshotStore.loadLatest(repository)).isEqualTo(3);
+        assertThat(repository.getProject("old")).isNotNull();
+        assertThat(repository.getProject("new")).isNull();
+    }
+
+    @Test
+    public void readSnapshot_ofAWrittenStream_restoresTheProjectsAndReturnsTheSequence() throws Exception {
+        Map<String, List<String>> userAssociations = new HashMap<>();
+        userAssociations.put("username", Collections.singletonList("code1"));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        SnapshotStore.writeSnapshot(stream, 11, Collections.singletonList(new Project("code1", "name1", null, 4)), userAssociations);
+
+        InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+
+        assertThat(SnapshotStore.readSnapshot(new ByteArrayInputStream(stream.toByteArray()), repository)).isEqualTo(11);
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(4);
+        assertThat(repository.getUserAssociatedProjectCodes("username")).containsExactly("code1");
+    }
+
+    @Test(expected = IOException.class)
+    public void readSnapshot_ofACorruptStream_throwsIOException() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        SnapshotStore.writeSnapshot(stream, 11, Collections.singletonList(new Project("code1", "name1", null)), Collections.emptyMap());
+
+        byte[] bytes = stream.toByteArray();
+        bytes[bytes.length - 1] ^= 0xff;
+
+        SnapshotStore.readSnapshot(new ByteArrayInputStream(bytes), new InMemoryProjectProjectRepository());
+    }
+
+    @Test
+    public void retainLatest_keepsTheTwoNewestSnapshotsAndReturnsTheOldestKeptSequence() throws Exception {
+        for (long sequence = 1; sequence <= 4; sequence++) {
+            snapshotStore.write(sequence, Collections.emptyList(), Collections.emptyMap());
+        }
+
+        assertThat(snapshotStore.retainLatest()).isEqualTo(3);
+
+        try (Stream<Path> files = Files.list(temporaryFolder.getRoot().toPath())) {
+            assertThat(files.map(path -> path.getFileName().toString()).collect(Collectors.toList()))
+                    .containsExactlyInAnyOrder("snapshot-00000000000000000003.bin", "snapshot-00000000000000000004.bin");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package gs.psm.projectstatusmonitor.repositories.durable;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Measures how fast a write-ahead log is replayed into an in-memory repository on startup.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gs.psm.projectstatusmonitor.repositories.durable.WriteAheadLogReplayBenchmark
+ */
+public class WriteAheadLogReplayBenchmark {
+
+    private static final int PROJECTS = 1_000;
+
+    private static final int JOBS_PER_PROJECT = 20;
+
+    private static final int JOB_UPDATES = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("wal-replay-benchmark");
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 64 * 1024 * 1024)) {
+            List<CompletableFuture<Void>> appends = new ArrayList<>();
+            for (int project = 0; project < PROJECTS; project++) {
+                appends.add(log.append(Mutation.addProject(createProject(project)).encode()));
+            }
+            for (int update = 0; update < JOB_UPDATES; update++) {
+                String jobCode = "job-" + (update % JOBS_PER_PROJECT);
+                ProjectJobStatus job = new ProjectJobStatus(jobCode, "Job " + jobCode, JobStatus.values()[update % 5]);
+                appends.add(log.append(Mutation.updateJob("project-" + (update % PROJECTS), jobCode, job).encode()));
+            }
+            CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])).get();
+        }
+
+        for (int run = 0; run < 5; run++) {
+            InMemoryProjectProjectRepository repository = new InMemoryProjectProjectRepository();
+            long start = System.nanoTime();
+            long records;
+            try (WriteAheadLog log = new WriteAheadLog(directory, 64 * 1024 * 1024)) {
+                records = log.replay(payload -> Mutation.decode(payload).applyTo(repository));
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("run %d: replayed %d records in %.2fs (%.0f records/s)%n",
+                    run, records, seconds, records / seconds);
+        }
+    }
+
+    private static Project createProject(int project) {
+        List<ProjectJobStatus> jobs = new ArrayList<>();
+        for (int job = 0; job < JOBS_PER_PROJECT; job++) {
+            jobs.add(new ProjectJobStatus("job-" + job, "Job job-" + job, JobStatus.UNKNOWN));
+        }
+        return new Project("project-" + project, "Project " + project, jobs);
+    }
+}
@@ -0,0 +1,269 @@
+package gs.psm.projectstatusmonitor.repositories.expiry;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.tracking.InMemoryJobStatusIndex;
+import gs.psm.projectstatusmonitor.repositories.tracking.JobStatusTrackingProjectRepository;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExpiringProjectRepositoryTest extends ProjectRepositoryTest {
+
+    private static final long TIME_TO_LIVE_MILLIS = 1000;
+
+    private static final long NO_BACKGROUND_SWEEP = 3_600_000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MutableClock clock = new MutableClock();
+
+    private final List<ExpiringProjectRepository> openRepositories = new ArrayList<>();
+
+    @Override
+    public ProjectRepository createInstance() {
+        return open(new InMemoryProjectProjectRepository());
+    }
+
+    @After
+    public void closeRepositories() throws IOException {
+        for (ExpiringProjectRepository repository : openRepositories) {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void sweep_removesOnlyTheProjectsNotWrittenToWithinTheirTimeToLive() {
+        ExpiringProjectRepository repository = open(new InMemoryProjectProjectRepository());
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code3", createJobStatus("job-1", JobStatus.RUNNING)));
+
+        clock.advance(600);
+        repository.updateJob("code2", "job-1", createJobStatus("job-1", JobStatus.PASSED));
+        repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code3", "job-1", "name", JobStatus.RUNNING)));
+        repository.getProject("code1");
+        clock.advance(600);
+
+        assertThat(repository.sweep()).isEqualTo(1);
+        assertThat(repository.listProjects()).extracting(Project::getProjectCode).containsExactlyInAnyOrder("code2", "code3");
+
+        clock.advance(600);
+
+        assertThat(repository.sweep()).isEqualTo(2);
+        assertThat(repository.listProjects()).isEmpty();
+        assertThat(repository.evictedProjectCount()).isEqualTo(3);
+        assertThat(repository.liveProjectCount()).isZero();
+    }
+
+    @Test
+    public void sweep_beforeAnyTimeToLiveHasRunOut_removesNothing() {
+        ExpiringProjectRepository repository = open(new InMemoryProjectProjectRepository());
+        repository.addProject(createProject("code1"));
+
+        clock.advance(TIME_TO_LIVE_MILLIS - 1);
+
+        assertThat(repository.sweep()).isZero();
+        assertThat(repository.getProject("code1")).isNotNull();
+    }
+
+    @Test
+    public void sweep_ofAProjectRemovedAndAddedAgain_goesByItsLatestTouch() {
+        ExpiringProjectRepository repository = open(new InMemoryProjectProjectRepository());
+        repository.addProject(createProject("code1"));
+        repository.removeProject("code1");
+        clock.advance(600);
+        repository.addProject(createProject("code1"));
+
+        clock.advance(600);
+        assertThat(repository.sweep()).isZero();
+
+        clock.advance(600);
+        assertThat(repository.sweep()).isEqualTo(1);
+        assertThat(repository.liveProjectCount()).isZero();
+    }
+
+    @Test
+    public void create_startsTheTimeToLiveOfTheProjectsAlreadyInTheDelegate() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        delegate.addProject(createProject("code1"));
+        ExpiringProjectRepository repository = open(delegate);
+
+        assertThat(repository.liveProjectCount()).isEqualTo(1);
+
+        clock.advance(TIME_TO_LIVE_MILLIS);
+
+        assertThat(repository.sweep()).isEqualTo(1);
+        assertThat(delegate.getProject("code1")).isNull();
+    }
+
+    @Test
+    public void sweep_removesTheProjectsJobsFromTheIndexesBehindIt() {
+        InMemoryJobStatusIndex jobStatusIndex = new InMemoryJobStatusIndex();
+        ExpiringProjectRepository repository = open(new JobStatusTrackingProjectRepository(
+                new InMemoryProjectProjectRepository(), Collections.singletonList(jobStatusIndex), clock));
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.FAILED)));
+
+        clock.advance(TIME_TO_LIVE_MILLIS);
+        repository.sweep();
+
+        assertThat(jobStatusIndex.findJobsByStatus(JobStatus.FAILED)).isEmpty();
+    }
+
+    @Test
+    public void create_withTheLastWritesOfAnEarlierRun_goesByThoseInsteadOfTouchingEveryProject() throws IOException {
+        Path lastWritesFile = temporaryFolder.getRoot().toPath().resolve("expiry").resolve("last-writes");
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        ExpiringProjectRepository earlierRun = open(delegate, lastWritesFile);
+        earlierRun.addProject(createProject("code1"));
+        clock.advance(600);
+        earlierRun.addProject(createProject("code2"));
+        earlierRun.close();
+
+        clock.advance(600);
+        delegate.addProject(createProject("code3"));
+        ExpiringProjectRepository repository = open(delegate, lastWritesFile);
+
+        assertThat(repository.sweep()).isEqualTo(1);
+        assertThat(delegate.listProjects()).extracting(Project::getProjectCode).containsExactlyInAnyOrder("code2", "code3");
+
+        clock.advance(600);
+
+        assertThat(repository.sweep()).isEqualTo(1);
+        assertThat(delegate.listProjects()).extracting(Project::getProjectCode).containsExactly("code3");
+    }
+
+    @Test
+    public void sweep_savesTheLastWritesOnlyOnceATenthOfTheTimeToLiveHasPassed_andOnlyWhenTheyChanged() throws IOException {
+        Path lastWritesFile = temporaryFolder.getRoot().toPath().resolve("last-writes");
+        ExpiringProjectRepository repository = open(new InMemoryProjectProjectRepository(), lastWritesFile);
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+
+        clock.advance(TIME_TO_LIVE_MILLIS / 10 - 1);
+        repository.sweep();
+
+        assertThat(Files.exists(lastWritesFile)).isFalse();
+
+        clock.advance(1);
+        repository.sweep();
+
+        assertThat(Files.exists(lastWritesFile)).isTrue();
+
+        Files.delete(lastWritesFile);
+        clock.advance(TIME_TO_LIVE_MILLIS / 10);
+        repository.sweep();
+
+        assertThat(Files.exists(lastWritesFile)).isFalse();
+
+        repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code1", "job-1", "name", JobStatus.PASSED)));
+        repository.sweep();
+
+        assertThat(Files.exists(lastWritesFile)).isTrue();
+    }
+
+    @Test
+    public void sweep_whenTheDelegateFailsToRemoveAProject_triesItAgainOnALaterSweep() {
+        AtomicBoolean removalsFail = new AtomicBoolean(true);
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository() {
+            @Override
+            public boolean removeProject(String projectCode) {
+                if (removalsFail.get()) {
+                    throw new IllegalStateException("backend unavailable");
+                }
+                return super.removeProject(projectCode);
+            }
+        };
+        ExpiringProjectRepository repository = open(delegate);
+        repository.addProject(createProject("code1"));
+
+        clock.advance(TIME_TO_LIVE_MILLIS);
+
+        assertThat(repository.sweep()).isZero();
+        assertThat(delegate.getProject("code1")).isNotNull();
+        assertThat(repository.liveProjectCount()).isEqualTo(1);
+
+        removalsFail.set(false);
+        clock.advance(NO_BACKGROUND_SWEEP);
+
+        assertThat(repository.sweep()).isEqualTo(1);
+        assertThat(delegate.getProject("code1")).isNull();
+    }
+
+    private ExpiringProjectRepository open(ProjectRepository delegate) {
+        return open(delegate, null);
+    }
+
+    private ExpiringProjectRepository open(ProjectRepository delegate, Path lastWritesFile) {
+        ExpiringProjectRepository repository =
+                new ExpiringProjectRepository(delegate, TIME_TO_LIVE_MILLIS, NO_BACKGROUND_SWEEP, clock, lastWritesFile);
+        openRepositories.add(repository);
+        return repository;
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs.length == 0 ? null : Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName("name")
+                .jobStatus(status)
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile long millis;
+
+        private void advance(long advanceMillis) {
+            millis += advanceMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package gs.psm.projectstatusmonitor.repositories.jdbc;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JdbcProjectRepositoryTest extends ProjectRepositoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<JdbcProjectRepository> openRepositories = new ArrayList<>();
+
+    @Override
+    public ProjectRepository createInstance() {
+        try {
+            return open(temporaryFolder.newFolder().toPath());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @After
+    public void closeRepositories() throws IOException {
+        for (JdbcProjectRepository repository : openRepositories) {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void reopen_keepsProjectsJobsVersionsAndAssociations() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        JdbcProjectRepository repository = open(directory);
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code3"));
+        repository.associateUserWithProject("username", "code1");
+        repository.associateUserWithProject("username", "code2");
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        repository.updateProjectJobs("code2", Arrays.asList(
+                createJobStatus("job-2", "name-2", JobStatus.FAILED),
+                createJobStatus("job-3", null, null)
+        ));
+        repository.removeProject("code3");
+        repository.close();
+
+        JdbcProjectRepository reopened = open(directory);
+
+        assertThat(reopened.getProject("code1").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        assertThat(reopened.getProject("code1").getVersion()).isEqualTo(2);
+        assertThat(reopened.getProject("code2").getJobStatusList()).containsExactly(
+                createJobStatus("job-2", "name-2", JobStatus.FAILED),
+                createJobStatus("job-3", null, null)
+        );
+        assertThat(reopened.getProject("code3")).isNull();
+        assertThat(reopened.getUserAssociatedProjectCodes("username")).containsExactly("code1", "code2");
+    }
+
+    @Test
+    public void listProjects_keepsTheDifferenceBetweenNoJobListAndAnEmptyOne() throws IOException {
+        JdbcProjectRepository repository = open(temporaryFolder.newFolder().toPath());
+
+        repository.addProject(createProject("code1"));
+        repository.addProject(Project.builder().projectCode("code2").projectName("name").jobStatusList(new ArrayList<>()).build());
+
+        assertThat(repository.listProjects()).extracting(Project::getJobStatusList)
+                .containsExactly(null, new ArrayList<>());
+    }
+
+    private JdbcProjectRepository open(Path directory) {
+        try {
+            JdbcProjectRepository repository = new JdbcProjectRepository("jdbc:h2:file:" + directory.resolve("projects"));
+            openRepositories.add(repository);
+            return repository;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs.length == 0 ? null : Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, String name, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName(name)
+                .jobStatus(status)
+                .build();
+    }
+}
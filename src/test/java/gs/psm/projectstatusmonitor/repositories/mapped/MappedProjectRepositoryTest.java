@@ -0,0 +1,156 @@
+package gs.psm.projectstatusmonitor.repositories.mapped;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedProjectRepositoryTest extends ProjectRepositoryTest {
+
+    private static final int SMALL_CHUNK_BITS = 12;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<MappedProjectRepository> openRepositories = new ArrayList<>();
+
+    @Override
+    public ProjectRepository createInstance() {
+        return open(temporaryFolder.getRoot().toPath());
+    }
+
+    @After
+    public void closeRepositories() throws IOException {
+        for (MappedProjectRepository repository : openRepositories) {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void reopen_keepsProjectsJobsAndAssociationsWithoutALoadStep() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        MappedProjectRepository repository = open(directory);
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code3"));
+        repository.associateUserWithProject("username", "code1");
+        repository.associateUserWithProject("username", "code2");
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        repository.updateProjectJobs("code2", Arrays.asList(
+                createJobStatus("job-2", "name-2", JobStatus.FAILED),
+                createJobStatus("job-3", null, null)
+        ));
+        repository.updateProject(Project.builder().projectCode("code3").projectName("renamed").build());
+        repository.removeProject("code1");
+        repository.close();
+
+        MappedProjectRepository reopened = open(directory);
+
+        assertThat(reopened.getProject("code1")).isNull();
+        assertThat(reopened.getProject("code2").getJobStatusList()).containsExactly(
+                createJobStatus("job-2", "name-2", JobStatus.FAILED),
+                createJobStatus("job-3", null, null)
+        );
+        assertThat(reopened.getProject("code3").getProjectName()).isEqualTo("renamed");
+        assertThat(reopened.getProject("code3").getJobStatusList()).isNull();
+        assertThat(reopened.getUserAssociatedProjectCodes("username")).containsExactly("code2");
+    }
+
+    @Test
+    public void reopen_keepsTheProjectVersions() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        MappedProjectRepository repository = open(directory);
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", "name-1", JobStatus.PASSED));
+        repository.close();
+
+        MappedProjectRepository reopened = open(directory);
+
+        assertThat(reopened.getProject("code1").getVersion()).isEqualTo(2);
+        assertThat(reopened.updateProjectJobs("code1", Collections.emptyList(), 2).getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    public void addProject_pastSeveralChunksAndIndexResizes_keepsEveryProjectReachable() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        MappedProjectRepository repository = open(directory);
+        int projectCount = 5000;
+
+        for (int project = 0; project < projectCount; project++) {
+            repository.addProject(createProject("code" + project,
+                    createJobStatus("job-1", "name-" + project, JobStatus.RUNNING),
+                    createJobStatus("job-2", "name-" + project, JobStatus.PASSED)));
+        }
+        repository.close();
+
+        MappedProjectRepository reopened = open(directory);
+
+        assertThat(reopened.listProjects()).hasSize(projectCount);
+        for (int project = 0; project < projectCount; project++) {
+            assertThat(reopened.getProject("code" + project).getJobStatusList().get(0).getJobName())
+                    .isEqualTo("name-" + project);
+        }
+    }
+
+    @Test
+    public void updateProjectJobs_withALongerList_movesTheJobsWithoutDisturbingOtherProjects() {
+        MappedProjectRepository repository = open(temporaryFolder.getRoot().toPath());
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", "name-1", JobStatus.FAILED)));
+        repository.updateProjectJobs("code1", Arrays.asList(
+                createJobStatus("job-1", "name-1", JobStatus.PASSED),
+                createJobStatus("job-2", "name-2", JobStatus.RUNNING),
+                createJobStatus("job-3", "name-3", JobStatus.FAILED)
+        ));
+        repository.updateJob("code1", "job-3", createJobStatus("job-3", "name-3", JobStatus.PASSED));
+
+        assertThat(repository.getProject("code1").getJobStatusList()).extracting(ProjectJobStatus::getJobStatus)
+                .containsExactly(JobStatus.PASSED, JobStatus.RUNNING, JobStatus.PASSED);
+        assertThat(repository.getProject("code2").getJobStatusList())
+                .containsExactly(createJobStatus("job-1", "name-1", JobStatus.FAILED));
+    }
+
+    private MappedProjectRepository open(Path directory) {
+        try {
+            MappedProjectRepository repository = new MappedProjectRepository(directory, SMALL_CHUNK_BITS);
+            openRepositories.add(repository);
+            return repository;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs.length == 0 ? null : Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, String name, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName(name)
+                .jobStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,263 @@
+package gs.psm.projectstatusmonitor.repositories.replication;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectPersistenceException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class FollowerProjectRepositoryTest extends ProjectRepositoryTest {
+
+    private static final int LOG_CAPACITY = 1024;
+
+    private static final long LOG_CAPACITY_BYTES = 1024 * 1024;
+
+    private static final long CATCH_UP_TIMEOUT_MILLIS = 10_000;
+
+    private static final String SECRET = "cluster-secret";
+
+    private final List<Closeable> openRepositories = new ArrayList<>();
+
+    @Override
+    public ProjectRepository createInstance() {
+        return openFollower(openLeader(LOG_CAPACITY, 0));
+    }
+
+    @After
+    public void closeRepositories() throws IOException {
+        for (int index = openRepositories.size() - 1; index >= 0; index--) {
+            openRepositories.get(index).close();
+        }
+    }
+
+    @Test
+    public void writesOnTheLeader_reachEveryFollower_atTheSameVersions() throws Exception {
+        LeaderProjectRepository leader = openLeader(LOG_CAPACITY, 0);
+        FollowerProjectRepository follower1 = openFollower(leader);
+        FollowerProjectRepository follower2 = openFollower(leader);
+
+        leader.addProject(createProject("code1"));
+        leader.addProject(createProject("code2"));
+        leader.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.FAILED));
+        leader.associateUserWithProject("user", "code2");
+        leader.removeProject("code2");
+        leader.addProject(createProject("code2"));
+
+        awaitCaughtUp(follower1, leader);
+        awaitCaughtUp(follower2, leader);
+
+        assertThat(follower1.listProjects()).isEqualTo(leader.listProjects());
+        assertThat(follower2.listProjects()).isEqualTo(leader.listProjects());
+        assertThat(follower1.getProject("code1").getVersion()).isEqualTo(2);
+        assertThat(follower1.isUserAssociatedWithProject("user", "code2")).isFalse();
+    }
+
+    @Test
+    public void writesOnAFollower_areAppliedByTheLeader_andCanBeReadBackOnTheFollowerAtOnce() throws Exception {
+        LeaderProjectRepository leader = openLeader(LOG_CAPACITY, 0);
+        FollowerProjectRepository follower = openFollower(leader);
+        FollowerProjectRepository otherFollower = openFollower(leader);
+
+        Project added = follower.addProject(createProject("code1"));
+        follower.associateUserWithProject("user", "code1");
+
+        assertThat(added.getVersion()).isEqualTo(1);
+        assertThat(follower.getProject("code1")).isEqualTo(leader.getProject("code1"));
+        assertThat(follower.isUserAssociatedWithProject("user", "code1")).isTrue();
+
+        awaitCaughtUp(otherFollower, leader);
+
+        assertThat(otherFollower.getProject("code1")).isEqualTo(leader.getProject("code1"));
+    }
+
+    @Test
+    public void aFollowerWithoutTheClusterSecret_isTurnedAwayForReadsAndWrites() throws Exception {
+        LeaderProjectRepository leader = openLeader(LOG_CAPACITY, 0);
+        FollowerProjectRepository follower = openFollower(leader, "wrong-secret");
+        FollowerProjectRepository trustedFollower = openFollower(leader);
+
+        try {
+            follower.addProject(createProject("code1"));
+            fail("Expected the write to be refused");
+        } catch (ProjectPersistenceException e) {
+            // the leader closed the connection
+        }
+        leader.addProject(createProject("code2"));
+        awaitCaughtUp(trustedFollower, leader);
+
+        assertThat(leader.getProject("code1")).isNull();
+        assertThat(follower.appliedSequence()).isZero();
+        assertThat(follower.listProjects()).isEmpty();
+    }
+
+    @Test
+    public void updateJobs_onAFollower_leavesEveryProjectAtTheLeadersVersion() {
+        LeaderProjectRepository leader = openLeader(LOG_CAPACITY, 0);
+        FollowerProjectRepository follower = openFollower(leader);
+        follower.addProject(createProject("code1"));
+        follower.addProject(createProject("code2"));
+
+        follower.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.FAILED),
+                new JobStatusUpdate("code1", "job-2", "name", JobStatus.PASSED),
+                new JobStatusUpdate("code2", "job-2", "name", JobStatus.PASSED)
+        ));
+
+        assertThat(follower.listProjects()).isEqualTo(leader.listProjects());
+        assertThat(follower.getProject("code1").getVersion()).isEqualTo(2);
+    }
+
+    @Test(expected = ProjectVersionMismatchException.class)
+    public void conditionalUpdate_onAFollower_isCheckedAgainstTheLeadersVersion() {
+        LeaderProjectRepository leader = openLeader(LOG_CAPACITY, 0);
+        FollowerProjectRepository follower = openFollower(leader);
+        follower.addProject(createProject("code1"));
+        leader.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.FAILED));
+
+        follower.updateProjectJobs("code1", new ArrayList<>(), 1);
+    }
+
+    @Test
+    public void aFollowerWhosePositionIsNoLongerInTheLog_catchesUpFromASnapshot() throws Exception {
+        LeaderProjectRepository leader = openLeader(4, 0);
+        for (int project = 0; project < 10; project++) {
+            leader.addProject(createProject("code" + project));
+        }
+        leader.updateJob("code3", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.FAILED));
+        leader.associateUserWithProject("user", "code3");
+
+        FollowerProjectRepository follower = openFollower(leader);
+        awaitCaughtUp(follower, leader);
+
+        assertThat(leader.snapshotCount()).isEqualTo(1);
+        assertThat(follower.listProjects()).isEqualTo(leader.listProjects());
+        assertThat(follower.getProject("code3").getVersion()).isEqualTo(2);
+        assertThat(follower.getUserAssociatedProjectCodes("user")).containsExactly("code3");
+
+        leader.updateJob("code4", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.FAILED));
+        awaitCaughtUp(follower, leader);
+
+        assertThat(follower.getProject("code4")).isEqualTo(leader.getProject("code4"));
+        assertThat(leader.snapshotCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void aFollowerWhosePositionOutgrewTheLogsByteCapacity_catchesUpFromASnapshot() throws Exception {
+        LeaderProjectRepository leader = openLeader(LOG_CAPACITY, 256, 0);
+        for (int project = 0; project < 10; project++) {
+            leader.addProject(createProject("code" + project));
+        }
+        leader.updateJobs(Collections.singletonList(new JobStatusUpdate("code3", "job-1", "name", JobStatus.FAILED)));
+
+        FollowerProjectRepository follower = openFollower(leader);
+        awaitCaughtUp(follower, leader);
+
+        assertThat(leader.snapshotCount()).isEqualTo(1);
+        assertThat(follower.getProject("code3")).isEqualTo(leader.getProject("code3"));
+        assertThat(follower.getProject("code3").getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    public void aSnapshot_replacesAProjectWithTheSameContentAtAStaleVersion() throws Exception {
+        LeaderProjectRepository leader = openLeader(LOG_CAPACITY, 0);
+        leader.addProject(createProject("code1"));
+        leader.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.FAILED));
+        leader.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.RUNNING));
+        InMemoryProjectProjectRepository staleReplica = new InMemoryProjectProjectRepository();
+        staleReplica.addProject(createProject("code1"));
+
+        FollowerProjectRepository follower = openFollower(leader, staleReplica);
+        awaitCaughtUp(follower, leader);
+
+        assertThat(follower.getProject("code1").getVersion()).isEqualTo(3);
+        assertThat(follower.updateProjectJobs("code1", new ArrayList<>(), 3).getVersion()).isEqualTo(4);
+    }
+
+    @Test
+    public void aFollowerOfARestartedLeader_startsOverFromTheNewLeadersState() throws Exception {
+        LeaderProjectRepository leader = openLeader(LOG_CAPACITY, 0);
+        FollowerProjectRepository follower = openFollower(leader);
+        leader.addProject(createProject("old"));
+        awaitCaughtUp(follower, leader);
+
+        int port = leader.getPort();
+        leader.close();
+        LeaderProjectRepository restartedLeader = openLeader(LOG_CAPACITY, port);
+        restartedLeader.addProject(createProject("new"));
+
+        awaitCaughtUp(follower, restartedLeader);
+
+        assertThat(follower.listProjects()).extracting(Project::getProjectCode).containsExactly("new");
+    }
+
+    private void awaitCaughtUp(FollowerProjectRepository follower, LeaderProjectRepository leader) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CATCH_UP_TIMEOUT_MILLIS;
+        while (!follower.listProjects().equals(leader.listProjects()) || follower.appliedSequence() != leader.lastSequence()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("The follower did not catch up with the leader");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private LeaderProjectRepository openLeader(int logCapacity, int port) {
+        return openLeader(logCapacity, LOG_CAPACITY_BYTES, port);
+    }
+
+    private LeaderProjectRepository openLeader(int logCapacity, long logCapacityBytes, int port) {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        try {
+            LeaderProjectRepository leader = new LeaderProjectRepository(delegate, delegate::getUserAssociations, logCapacity,
+                    logCapacityBytes, "127.0.0.1", port, SECRET);
+            openRepositories.add(leader);
+            return leader;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private FollowerProjectRepository openFollower(LeaderProjectRepository leader) {
+        return openFollower(leader, SECRET);
+    }
+
+    private FollowerProjectRepository openFollower(LeaderProjectRepository leader, String secret) {
+        return openFollower(leader, new InMemoryProjectProjectRepository(), secret);
+    }
+
+    private FollowerProjectRepository openFollower(LeaderProjectRepository leader, ProjectRepository delegate) {
+        return openFollower(leader, delegate, SECRET);
+    }
+
+    private FollowerProjectRepository openFollower(LeaderProjectRepository leader, ProjectRepository delegate, String secret) {
+        FollowerProjectRepository follower = new FollowerProjectRepository(delegate, "localhost", leader.getPort(), secret);
+        openRepositories.add(follower);
+        return follower;
+    }
+
+    private Project createProject(String code) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(Arrays.asList(
+                        new ProjectJobStatus("job-1", "name", JobStatus.RUNNING),
+                        new ProjectJobStatus("job-2", "name", JobStatus.RUNNING)
+                ))
+                .build();
+    }
+}
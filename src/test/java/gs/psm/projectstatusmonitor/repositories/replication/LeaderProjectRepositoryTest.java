@@ -0,0 +1,121 @@
+package gs.psm.projectstatusmonitor.repositories.replication;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeaderProjectRepositoryTest extends ProjectRepositoryTest {
+
+    private final List<LeaderProjectRepository> openRepositories = new ArrayList<>();
+
+    @Override
+    public ProjectRepository createInstance() {
+        return open();
+    }
+
+    @After
+    public void closeRepositories() throws IOException {
+        for (LeaderProjectRepository repository : openRepositories) {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void writesThatChangeSomething_areAppendedToTheLog_andThoseThatChangeNothingAreNot() {
+        LeaderProjectRepository repository = open();
+        repository.addProject(createProject("code1"));
+
+        repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.RUNNING));
+        repository.updateJob("code1", "job-1", new ProjectJobStatus("job-1", "name", JobStatus.PASSED));
+        repository.associateUserWithProject("user", "code1");
+
+        assertThat(repository.lastSequence()).isEqualTo(3);
+    }
+
+    @Test
+    public void updateJobs_appendsOneMutationForEachProjectItChanged() {
+        LeaderProjectRepository repository = open();
+        repository.addProject(createProject("code1"));
+        repository.addProject(createProject("code2"));
+        repository.addProject(createProject("code3"));
+
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.FAILED),
+                new JobStatusUpdate("code1", "job-2", "name", JobStatus.FAILED),
+                new JobStatusUpdate("code2", "job-1", "name", JobStatus.FAILED),
+                new JobStatusUpdate("code3", "job-1", "name", JobStatus.RUNNING)
+        ));
+
+        assertThat(repository.lastSequence()).isEqualTo(5);
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    public void updateJobs_appendsOnlyTheChangedJobs_notACopyOfTheirProject() {
+        LeaderProjectRepository repository = open();
+        List<ProjectJobStatus> jobs = new ArrayList<>();
+        for (int job = 0; job < 1000; job++) {
+            jobs.add(new ProjectJobStatus("job-" + job, "name", JobStatus.RUNNING));
+        }
+        repository.addProject(Project.builder().projectCode("code1").projectName("name").jobStatusList(jobs).build());
+        long bytesBeforeUpdate = repository.logBytes();
+
+        repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code1", "job-500", "name", JobStatus.FAILED)));
+
+        assertThat(repository.logBytes() - bytesBeforeUpdate).isLessThan(64);
+        assertThat(repository.getProject("code1").getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    public void theLog_dropsItsOldestMutations_onceTheyOutgrowItsByteCapacity() {
+        LeaderProjectRepository repository = open(256);
+
+        for (int project = 0; project < 20; project++) {
+            repository.addProject(createProject("code" + project));
+        }
+
+        assertThat(repository.lastSequence()).isEqualTo(20);
+        assertThat(repository.logBytes()).isPositive().isLessThanOrEqualTo(256);
+    }
+
+    private LeaderProjectRepository open() {
+        return open(1024 * 1024);
+    }
+
+    private LeaderProjectRepository open(long logCapacityBytes) {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        try {
+            LeaderProjectRepository repository = new LeaderProjectRepository(delegate, delegate::getUserAssociations, 1024,
+                    logCapacityBytes, "127.0.0.1", 0, "cluster-secret");
+            openRepositories.add(repository);
+            return repository;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Project createProject(String code) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(Arrays.asList(
+                        new ProjectJobStatus("job-1", "name", JobStatus.RUNNING),
+                        new ProjectJobStatus("job-2", "name", JobStatus.RUNNING)
+                ))
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package gs.psm.projectstatusmonitor.repositories.sharded;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedProjectRepositoryTest extends ProjectRepositoryTest {
+
+    private static final int SHARDS = 4;
+
+    private final List<ShardedProjectRepository> openRepositories = new ArrayList<>();
+
+    private final List<InMemoryProjectProjectRepository> shards = new ArrayList<>();
+
+    @Override
+    public ProjectRepository createInstance() {
+        return open();
+    }
+
+    @After
+    public void closeRepositories() throws IOException {
+        for (ShardedProjectRepository repository : openRepositories) {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void addProject_spreadsProjectsAcrossTheShards() {
+        ShardedProjectRepository repository = open();
+
+        for (int project = 0; project < 100; project++) {
+            repository.addProject(createProject("code" + project));
+        }
+
+        assertThat(shards).allSatisfy(shard -> assertThat(shard.listProjects()).isNotEmpty());
+        assertThat(shards.stream().mapToInt(shard -> shard.listProjects().size()).sum()).isEqualTo(100);
+    }
+
+    @Test
+    public void listProjects_mergesTheShardsInProjectCodeOrderAndHonoursTheLimit() {
+        ShardedProjectRepository repository = open();
+        List<String> projectCodes = new ArrayList<>();
+        for (int project = 0; project < 50; project++) {
+            projectCodes.add(String.format("code%02d", project));
+            repository.addProject(createProject(projectCodes.get(project)));
+        }
+
+        assertThat(repository.listProjects()).extracting(Project::getProjectCode).isEqualTo(projectCodes);
+        assertThat(repository.listProjects("code09", 5)).extracting(Project::getProjectCode)
+                .containsExactly("code10", "code11", "code12", "code13", "code14");
+    }
+
+    @Test
+    public void updateJobs_acrossShards_returnsTheResultsInRequestOrder() {
+        ShardedProjectRepository repository = open();
+        for (int project = 0; project < 8; project++) {
+            repository.addProject(createProject("code" + project,
+                    new ProjectJobStatus("job-1", "name-1", JobStatus.RUNNING)));
+        }
+
+        List<JobStatusUpdate> updates = new ArrayList<>();
+        for (int project = 7; project >= 0; project--) {
+            updates.add(new JobStatusUpdate("code" + project, "job-1", "name-1", JobStatus.PASSED));
+        }
+        updates.add(2, new JobStatusUpdate("missing", "job-1", "name-1", JobStatus.PASSED));
+        updates.add(5, new JobStatusUpdate("code3", "job-9", "name-9", JobStatus.PASSED));
+
+        List<JobStatusUpdateResult> results = repository.updateJobs(updates);
+
+        assertThat(results).extracting(JobStatusUpdateResult::getProjectCode)
+                .containsExactly("code7", "code6", "missing", "code5", "code4", "code3", "code3", "code2", "code1", "code0");
+        assertThat(results).extracting(JobStatusUpdateResult::getOutcome).containsExactly(
+                JobStatusUpdateOutcome.UPDATED, JobStatusUpdateOutcome.UPDATED, JobStatusUpdateOutcome.PROJECT_NOT_FOUND,
+                JobStatusUpdateOutcome.UPDATED, JobStatusUpdateOutcome.UPDATED, JobStatusUpdateOutcome.JOB_NOT_FOUND,
+                JobStatusUpdateOutcome.UPDATED, JobStatusUpdateOutcome.UPDATED, JobStatusUpdateOutcome.UPDATED,
+                JobStatusUpdateOutcome.UPDATED);
+        assertThat(repository.getProject("code0").getJobStatusList())
+                .containsExactly(new ProjectJobStatus("job-1", "name-1", JobStatus.PASSED));
+    }
+
+    @Test
+    public void getUserAssociatedProjectCodes_gathersTheUsersProjectsFromEveryShard() {
+        ShardedProjectRepository repository = open();
+        for (int project = 0; project < 20; project++) {
+            repository.addProject(createProject("code" + project));
+            repository.associateUserWithProject("username", "code" + project);
+        }
+
+        assertThat(repository.getUserAssociatedProjectCodes("username")).hasSize(20);
+        assertThat(shards.stream().filter(shard -> !shard.getUserAssociatedProjectCodes("username").isEmpty()).count())
+                .isGreaterThan(1);
+    }
+
+    private ShardedProjectRepository open() {
+        shards.clear();
+        ShardedProjectRepository repository = new ShardedProjectRepository(SHARDS, shard -> {
+            InMemoryProjectProjectRepository shardRepository = new InMemoryProjectProjectRepository();
+            shards.add(shardRepository);
+            return shardRepository;
+        });
+        openRepositories.add(repository);
+        return repository;
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs.length == 0 ? null : Arrays.asList(jobs))
+                .build();
+    }
+}
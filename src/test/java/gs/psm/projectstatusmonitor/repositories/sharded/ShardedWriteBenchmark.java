@@ -0,0 +1,99 @@
+package gs.psm.projectstatusmonitor.repositories.sharded;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.columnar.ColumnarProjectRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Measures single job update throughput of one columnar repository, which serialises
+ * writes on a single lock, against the same repository split into one shard per core,
+ * for an increasing number of writer threads.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gs.psm.projectstatusmonitor.repositories.sharded.ShardedWriteBenchmark
+ */
+public class ShardedWriteBenchmark {
+
+    private static final int PROJECTS = 10_000;
+
+    private static final int JOBS_PER_PROJECT = 10;
+
+    private static final long MEASURE_MILLIS = 3_000;
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("cores: %d%n", cores);
+
+        for (int threads = 1; threads <= Math.max(4, cores * 2); threads *= 2) {
+            double single = updatesPerSecond(ColumnarProjectRepository::new, threads);
+            double sharded = updatesPerSecond(
+                    () -> new ShardedProjectRepository(cores, shard -> new ColumnarProjectRepository()), threads);
+            System.out.printf("threads %2d: single %,12.0f updates/s  sharded %,12.0f updates/s  (%.2fx)%n",
+                    threads, single, sharded, sharded / single);
+        }
+    }
+
+    private static double updatesPerSecond(Supplier<ProjectRepository> repositorySupplier, int threads) throws Exception {
+        ProjectRepository repository = repositorySupplier.get();
+        for (int project = 0; project < PROJECTS; project++) {
+            repository.addProject(createProject(project));
+        }
+
+        LongAdder updates = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>(threads);
+        long[] deadline = new long[1];
+        for (int thread = 0; thread < threads; thread++) {
+            Thread writer = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < deadline[0]) {
+                    int job = random.nextInt(JOBS_PER_PROJECT);
+                    repository.updateJob("project-" + random.nextInt(PROJECTS), "job-" + job,
+                            new ProjectJobStatus("job-" + job, "Job number " + job, JobStatus.values()[random.nextInt(5)]));
+                    updates.increment();
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+
+        deadline[0] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MEASURE_MILLIS);
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        close(repository);
+
+        return updates.sum() * 1000.0 / MEASURE_MILLIS;
+    }
+
+    private static void close(ProjectRepository repository) throws IOException {
+        if (repository instanceof Closeable) {
+            ((Closeable) repository).close();
+        }
+    }
+
+    private static Project createProject(int project) {
+        List<ProjectJobStatus> jobs = new ArrayList<>(JOBS_PER_PROJECT);
+        for (int job = 0; job < JOBS_PER_PROJECT; job++) {
+            jobs.add(new ProjectJobStatus("job-" + job, "Job number " + job, JobStatus.values()[(project + job) % 5]));
+        }
+        return new Project("project-" + project, "Project " + project, jobs);
+    }
+}
@@ -0,0 +1,105 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.EstateStatusSummary;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryEstateStatusSummaryRepositoryTest {
+
+    private final InMemoryEstateStatusSummaryRepository summary = new InMemoryEstateStatusSummaryRepository();
+
+    private final ProjectRepository repository = new JobStatusTrackingProjectRepository(
+            new InMemoryProjectProjectRepository(), Collections.singletonList(summary), Clock.systemUTC());
+
+    @Test
+    public void getEstateStatusSummary_countsProjectsAndJobsAcrossTheRepository() {
+        repository.addProject(createProject("code1",
+                createJobStatus("job-1", JobStatus.PASSED),
+                createJobStatus("job-2", JobStatus.FAILED)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", null)));
+        repository.addProject(createProject("code3"));
+
+        EstateStatusSummary estate = summary.getEstateStatusSummary();
+
+        assertThat(estate.getProjectCount()).isEqualTo(3);
+        assertThat(estate.getJobCount()).isEqualTo(3);
+        assertThat(estate.getJobStatusCounts()).containsEntry(JobStatus.PASSED, 1L).containsEntry(JobStatus.FAILED, 1L)
+                .containsEntry(JobStatus.RUNNING, 0L);
+    }
+
+    @Test
+    public void getEstateStatusSummary_followsUpdatesAndRemovals() {
+        repository.addProject(createProject("code1",
+                createJobStatus("job-1", JobStatus.PASSED),
+                createJobStatus("job-2", JobStatus.FAILED)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", JobStatus.RUNNING)));
+
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-2", "name", JobStatus.PASSED),
+                new JobStatusUpdate("code2", "job-1", "name", JobStatus.PASSED)));
+        repository.updateProjectJobs("code1", Collections.singletonList(createJobStatus("job-1", JobStatus.PASSED)));
+        repository.removeProject("code2");
+
+        EstateStatusSummary estate = summary.getEstateStatusSummary();
+
+        assertThat(estate.getProjectCount()).isEqualTo(1);
+        assertThat(estate.getJobCount()).isEqualTo(1);
+        assertThat(estate.getJobStatusCounts()).containsEntry(JobStatus.PASSED, 1L).containsEntry(JobStatus.FAILED, 0L)
+                .containsEntry(JobStatus.RUNNING, 0L);
+    }
+
+    @Test
+    public void getEstateStatusSummary_afterConcurrentWritesToManyProjects_addsUp() throws InterruptedException {
+        int threads = 4;
+        int projectsPerThread = 250;
+        List<Thread> writers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int first = thread * projectsPerThread;
+            writers.add(new Thread(() -> {
+                for (int project = first; project < first + projectsPerThread; project++) {
+                    repository.addProject(createProject("code" + project, createJobStatus("job-1", JobStatus.RUNNING)));
+                    repository.updateJob("code" + project, "job-1", createJobStatus("job-1", JobStatus.PASSED));
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        EstateStatusSummary estate = summary.getEstateStatusSummary();
+
+        assertThat(estate.getProjectCount()).isEqualTo(threads * projectsPerThread);
+        assertThat(estate.getJobStatusCounts()).containsEntry(JobStatus.PASSED, (long) threads * projectsPerThread)
+                .containsEntry(JobStatus.RUNNING, 0L);
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName("name")
+                .jobStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobReference;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryJobStatusIndexTest {
+
+    private final InMemoryJobStatusIndex index = new InMemoryJobStatusIndex();
+
+    private final ProjectRepository repository = new JobStatusTrackingProjectRepository(
+            new InMemoryProjectProjectRepository(), Collections.singletonList(index), Clock.systemUTC());
+
+    @Test
+    public void findJobsByStatus_returnsTheJobsCurrentlyInThatStatusAcrossProjects() {
+        repository.addProject(createProject("code1",
+                createJobStatus("job-1", JobStatus.FAILED),
+                createJobStatus("job-2", JobStatus.PASSED)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", JobStatus.FAILED)));
+
+        assertThat(index.findJobsByStatus(JobStatus.FAILED)).containsExactlyInAnyOrder(
+                new JobReference("code1", "job-1", JobStatus.FAILED),
+                new JobReference("code2", "job-1", JobStatus.FAILED));
+        assertThat(index.findJobsByStatus(JobStatus.RUNNING)).isEmpty();
+    }
+
+    @Test
+    public void findJobsByStatus_followsJobUpdatesReplacementsAndRemovals() {
+        repository.addProject(createProject("code1",
+                createJobStatus("job-1", JobStatus.FAILED),
+                createJobStatus("job-2", JobStatus.FAILED)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", JobStatus.FAILED)));
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.RUNNING));
+        repository.updateProjectJobs("code1", Arrays.asList(
+                createJobStatus("job-1", JobStatus.RUNNING),
+                createJobStatus("job-3", null)));
+        repository.removeProject("code2");
+
+        assertThat(index.findJobsByStatus(JobStatus.FAILED)).isEmpty();
+        assertThat(index.findJobsByStatus(JobStatus.RUNNING)).containsExactly(new JobReference("code1", "job-1", JobStatus.RUNNING));
+    }
+
+    @Test
+    public void findJobsByStatus_afterAProjectUpdate_indexesItsNewJobs() {
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.FAILED)));
+
+        repository.updateProject(createProject("code1", createJobStatus("job-2", JobStatus.CANCELLED)));
+
+        assertThat(index.findJobsByStatus(JobStatus.FAILED)).isEmpty();
+        assertThat(index.findJobsByStatus(JobStatus.CANCELLED)).containsExactly(new JobReference("code1", "job-2", JobStatus.CANCELLED));
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName("name")
+                .jobStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectHealth;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.models.ProjectStatusSummary;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryProjectStatusSummaryRepositoryTest {
+
+    private final InMemoryProjectStatusSummaryRepository summaries = new InMemoryProjectStatusSummaryRepository();
+
+    private final ProjectRepository repository = new JobStatusTrackingProjectRepository(
+            new InMemoryProjectProjectRepository(), Collections.singletonList(summaries), Clock.systemUTC());
+
+    @Test
+    public void getProjectStatusSummary_countsTheProjectsJobsByStatus() {
+        repository.addProject(createProject("code1",
+                createJobStatus("job-1", JobStatus.PASSED),
+                createJobStatus("job-2", JobStatus.PASSED),
+                createJobStatus("job-3", JobStatus.RUNNING),
+                createJobStatus("job-4", null)));
+
+        ProjectStatusSummary summary = summaries.getProjectStatusSummary("code1");
+
+        assertThat(summary.getHealth()).isEqualTo(ProjectHealth.YELLOW);
+        assertThat(summary.getJobCount()).isEqualTo(4);
+        assertThat(summary.getJobStatusCounts()).containsEntry(JobStatus.PASSED, 2).containsEntry(JobStatus.RUNNING, 1)
+                .containsEntry(JobStatus.FAILED, 0);
+    }
+
+    @Test
+    public void getProjectStatusSummary_followsJobChanges() {
+        repository.addProject(createProject("code1",
+                createJobStatus("job-1", JobStatus.PASSED),
+                createJobStatus("job-2", JobStatus.RUNNING)));
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.FAILED));
+        assertThat(summaries.getProjectStatusSummary("code1").getHealth()).isEqualTo(ProjectHealth.RED);
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.PASSED));
+        repository.updateJob("code1", "job-2", createJobStatus("job-2", JobStatus.PASSED));
+        assertThat(summaries.getProjectStatusSummary("code1").getHealth()).isEqualTo(ProjectHealth.GREEN);
+        assertThat(summaries.getProjectStatusSummary("code1").getJobStatusCounts()).containsEntry(JobStatus.PASSED, 2);
+
+        repository.updateProjectJobs("code1", Collections.singletonList(createJobStatus("job-3", JobStatus.CANCELLED)));
+        assertThat(summaries.getProjectStatusSummary("code1").getJobCount()).isEqualTo(1);
+        assertThat(summaries.getProjectStatusSummary("code1").getJobStatusCounts()).containsEntry(JobStatus.PASSED, 0)
+                .containsEntry(JobStatus.CANCELLED, 1);
+    }
+
+    @Test
+    public void getProjectStatusSummary_givenAProjectWithoutJobsOrOneThatIsRemoved() {
+        repository.addProject(Project.builder().projectCode("code1").projectName("name").build());
+        assertThat(summaries.getProjectStatusSummary("code1").getJobCount()).isZero();
+        assertThat(summaries.getProjectStatusSummary("code1").getHealth()).isEqualTo(ProjectHealth.GREEN);
+
+        repository.removeProject("code1");
+        assertThat(summaries.getProjectStatusSummary("code1")).isNull();
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName("name")
+                .jobStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,225 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobStatusTrackingProjectRepositoryTest extends ProjectRepositoryTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.ofEpochMilli(1000), ZoneOffset.UTC);
+
+    private final RecordingListener listener = new RecordingListener();
+
+    @Override
+    public ProjectRepository createInstance() {
+        return new JobStatusTrackingProjectRepository(new InMemoryProjectProjectRepository(),
+                Collections.singletonList(listener), CLOCK);
+    }
+
+    @Test
+    public void create_reportsTheProjectsAlreadyInTheDelegate() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        delegate.addProject(createProject("code1", createJobStatus("job-1", JobStatus.PASSED)));
+
+        new JobStatusTrackingProjectRepository(delegate, Collections.singletonList(listener), CLOCK);
+
+        assertThat(listener.events).containsExactly("project added code1", "job added code1/job-1 PASSED at 1000");
+    }
+
+    @Test
+    public void updateJob_reportsAChangeOfStatusOnly() {
+        ProjectRepository repository = createInstance();
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        listener.events.clear();
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.RUNNING));
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.FAILED));
+
+        assertThat(listener.events).containsExactly("job changed code1/job-1 RUNNING -> FAILED at 1000");
+    }
+
+    @Test
+    public void updateJob_takesThePreviousStatusFromTheDelegate() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        ProjectRepository repository = new JobStatusTrackingProjectRepository(delegate, Collections.singletonList(listener), CLOCK);
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        delegate.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.PASSED));
+        listener.events.clear();
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.FAILED));
+
+        assertThat(listener.events).containsExactly("job changed code1/job-1 PASSED -> FAILED at 1000");
+    }
+
+    @Test
+    public void updateJob_thatFails_reportsNothing() {
+        ProjectRepository repository = createInstance();
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        listener.events.clear();
+
+        try {
+            repository.updateJob("code1", "job-2", createJobStatus("job-2", JobStatus.FAILED));
+        } catch (ProjectJobStatusNotFoundException e) {
+            // expected
+        }
+
+        assertThat(listener.events).isEmpty();
+    }
+
+    @Test
+    public void updateProjectJobs_reportsJobsAddedChangedAndRemoved() {
+        ProjectRepository repository = createInstance();
+        repository.addProject(createProject("code1",
+                createJobStatus("job-1", JobStatus.RUNNING),
+                createJobStatus("job-2", JobStatus.PASSED)));
+        listener.events.clear();
+
+        repository.updateProjectJobs("code1", Arrays.asList(
+                createJobStatus("job-2", JobStatus.FAILED),
+                createJobStatus("job-3", null)));
+
+        assertThat(listener.events).containsExactlyInAnyOrder(
+                "job removed code1/job-1 RUNNING",
+                "job changed code1/job-2 PASSED -> FAILED at 1000",
+                "job added code1/job-3 null at 1000");
+    }
+
+    @Test
+    public void updateJobs_reportsEachUpdatedJobInRequestOrder() {
+        ProjectRepository repository = createInstance();
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        repository.addProject(createProject("code2", createJobStatus("job-1", JobStatus.RUNNING)));
+        listener.events.clear();
+
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code2", "job-1", "name", JobStatus.PASSED),
+                new JobStatusUpdate("code1", "job-9", "name", JobStatus.PASSED),
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.FAILED),
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.PASSED)));
+
+        assertThat(listener.events).containsExactly(
+                "job changed code2/job-1 RUNNING -> PASSED at 1000",
+                "job changed code1/job-1 RUNNING -> FAILED at 1000",
+                "job changed code1/job-1 FAILED -> PASSED at 1000");
+    }
+
+    @Test
+    public void jobUpdatesThatChangeNothing_areCountedAndReportNothing() {
+        JobStatusTrackingProjectRepository repository = (JobStatusTrackingProjectRepository) createInstance();
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        listener.events.clear();
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.RUNNING));
+        repository.updateProjectJobs("code1", Collections.singletonList(createJobStatus("job-1", JobStatus.RUNNING)));
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.RUNNING),
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.PASSED)));
+
+        assertThat(repository.unchangedUpdateCount()).isEqualTo(3);
+        assertThat(listener.events).containsExactly("job changed code1/job-1 RUNNING -> PASSED at 1000");
+    }
+
+    @Test
+    public void jobUpdates_lookUpOnlyTheJobsTheyName_andHandOnTheDelegatesCodes() {
+        AtomicInteger projectReads = new AtomicInteger();
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository() {
+            @Override
+            public Project getProject(String projectCode) {
+                projectReads.incrementAndGet();
+                return super.getProject(projectCode);
+            }
+        };
+        List<String> projectCodes = new ArrayList<>();
+        ProjectRepository repository = new JobStatusTrackingProjectRepository(delegate, Collections.singletonList(new JobStatusListener() {
+            @Override
+            public void jobStatusChanged(String projectCode, String jobCode, JobStatus previousStatus, JobStatus jobStatus, long timestampMillis) {
+                projectCodes.add(projectCode);
+            }
+        }), CLOCK);
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        String storedProjectCode = repository.getProject("code1").getProjectCode();
+        projectReads.set(0);
+
+        repository.updateJob(new String("code1"), "job-1", createJobStatus("job-1", JobStatus.FAILED));
+        repository.updateJobs(Collections.singletonList(new JobStatusUpdate(new String("code1"), "job-1", "name", JobStatus.PASSED)));
+
+        assertThat(projectReads.get()).isZero();
+        assertThat(projectCodes).hasSize(2);
+        assertThat(projectCodes.get(0)).isSameAs(storedProjectCode);
+        assertThat(projectCodes.get(1)).isSameAs(storedProjectCode);
+    }
+
+    @Test
+    public void removeProject_reportsItsJobsRemovedBeforeTheProject() {
+        ProjectRepository repository = createInstance();
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        listener.events.clear();
+
+        repository.removeProject("code1");
+
+        assertThat(listener.events).containsExactly("job removed code1/job-1 RUNNING", "project removed code1");
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs.length == 0 ? null : Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName("name")
+                .jobStatus(status)
+                .build();
+    }
+
+    private static class RecordingListener implements JobStatusListener {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void projectAdded(String projectCode) {
+            events.add("project added " + projectCode);
+        }
+
+        @Override
+        public void projectRemoved(String projectCode) {
+            events.add("project removed " + projectCode);
+        }
+
+        @Override
+        public void jobAdded(String projectCode, String jobCode, JobStatus jobStatus, long timestampMillis) {
+            events.add("job added " + projectCode + "/" + jobCode + " " + jobStatus + " at " + timestampMillis);
+        }
+
+        @Override
+        public void jobStatusChanged(String projectCode, String jobCode, JobStatus previousStatus, JobStatus jobStatus, long timestampMillis) {
+            events.add("job changed " + projectCode + "/" + jobCode + " " + previousStatus + " -> " + jobStatus + " at " + timestampMillis);
+        }
+
+        @Override
+        public void jobRemoved(String projectCode, String jobCode, JobStatus jobStatus) {
+            events.add("job removed " + projectCode + "/" + jobCode + " " + jobStatus);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package gs.psm.projectstatusmonitor.repositories.tracking;
+
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusChange;
+import gs.psm.projectstatusmonitor.models.JobStatusHistory;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RingBufferJobStatusHistoryRepositoryTest {
+
+    private final RingBufferJobStatusHistoryRepository repository = new RingBufferJobStatusHistoryRepository(3);
+
+    @Test
+    public void getJobStatusHistory_returnsTheChangesOldestFirst() {
+        repository.projectAdded("code1");
+        repository.jobAdded("code1", "job-1", JobStatus.RUNNING, 1000);
+        repository.jobStatusChanged("code1", "job-1", JobStatus.RUNNING, JobStatus.FAILED, 2000);
+
+        JobStatusHistory history = repository.getJobStatusHistory("code1", "job-1");
+
+        assertThat(history.getChangeCount()).isEqualTo(2);
+        assertThat(history.getChanges()).containsExactly(
+                new JobStatusChange(Instant.ofEpochMilli(1000), JobStatus.RUNNING),
+                new JobStatusChange(Instant.ofEpochMilli(2000), JobStatus.FAILED));
+    }
+
+    @Test
+    public void getJobStatusHistory_pastTheCapacity_keepsTheLatestChangesAndCountsThemAll() {
+        repository.jobAdded("code1", "job-1", JobStatus.RUNNING, 1000);
+        repository.jobStatusChanged("code1", "job-1", JobStatus.RUNNING, JobStatus.PASSED, 2000);
+        repository.jobStatusChanged("code1", "job-1", JobStatus.PASSED, null, 3000);
+        repository.jobStatusChanged("code1", "job-1", null, JobStatus.FAILED, 4000);
+        repository.jobStatusChanged("code1", "job-1", JobStatus.FAILED, JobStatus.RUNNING, 5000);
+
+        JobStatusHistory history = repository.getJobStatusHistory("code1", "job-1");
+
+        assertThat(history.getChangeCount()).isEqualTo(5);
+        assertThat(history.getChanges()).containsExactly(
+                new JobStatusChange(Instant.ofEpochMilli(3000), null),
+                new JobStatusChange(Instant.ofEpochMilli(4000), JobStatus.FAILED),
+                new JobStatusChange(Instant.ofEpochMilli(5000), JobStatus.RUNNING));
+    }
+
+    @Test
+    public void getJobStatusHistory_afterTheJobOrProjectIsRemoved_returnsNull() {
+        repository.jobAdded("code1", "job-1", JobStatus.RUNNING, 1000);
+        repository.jobAdded("code1", "job-2", JobStatus.RUNNING, 1000);
+
+        repository.jobRemoved("code1", "job-1", JobStatus.RUNNING);
+        assertThat(repository.getJobStatusHistory("code1", "job-1")).isNull();
+        assertThat(repository.getJobStatusHistory("code1", "job-2")).isNotNull();
+
+        repository.projectRemoved("code1");
+        assertThat(repository.getJobStatusHistory("code1", "job-2")).isNull();
+    }
+}
@@ -0,0 +1,256 @@
+package gs.psm.projectstatusmonitor.repositories.writebehind;
+
+import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectRepositoryTest;
+import gs.psm.projectstatusmonitor.repositories.InMemoryProjectProjectRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindProjectRepositoryTest extends ProjectRepositoryTest {
+
+    private static final long NO_BACKGROUND_FLUSH = 3_600_000;
+
+    private final List<WriteBehindProjectRepository> openRepositories = new ArrayList<>();
+
+    @Override
+    public ProjectRepository createInstance() {
+        return open(new InMemoryProjectProjectRepository(), 1000);
+    }
+
+    @After
+    public void closeRepositories() throws IOException {
+        for (WriteBehindProjectRepository repository : openRepositories) {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void mutations_reachTheDelegateOnlyWhenFlushed() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        WriteBehindProjectRepository repository = open(delegate, 1000);
+        assertThat(repository.getUserAssociatedProjectCodes("username")).isEmpty();
+
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        repository.associateUserWithProject("username", "code1");
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.PASSED));
+
+        assertThat(repository.getProject("code1")).isNotNull();
+        assertThat(delegate.getProject("code1")).isNull();
+        assertThat(repository.pendingMutationCount()).isEqualTo(3);
+
+        repository.flush();
+
+        assertThat(delegate.getProject("code1").getJobStatusList()).containsExactly(createJobStatus("job-1", JobStatus.PASSED));
+        assertThat(delegate.getUserAssociatedProjectCodes("username")).containsExactly("code1");
+        assertThat(repository.pendingMutationCount()).isZero();
+        assertThat(repository.flushCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void jobUpdatesThatChangeNothing_areNotQueued() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        WriteBehindProjectRepository repository = open(delegate, 1000);
+        repository.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        repository.flush();
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.RUNNING));
+        repository.updateProjectJobs("code1", Collections.singletonList(createJobStatus("job-1", JobStatus.RUNNING)));
+        repository.updateJobs(Collections.singletonList(new JobStatusUpdate("code1", "job-1", "name", JobStatus.RUNNING)));
+
+        assertThat(repository.pendingMutationCount()).isZero();
+    }
+
+    @Test
+    public void repeatedUpdatesToTheSameJob_areWrittenToTheDelegateOnceWithTheLatestStatus() {
+        InMemoryProjectProjectRepository delegate = spy(new InMemoryProjectProjectRepository());
+        delegate.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING), createJobStatus("job-2", JobStatus.RUNNING)));
+        WriteBehindProjectRepository repository = open(delegate, 1000);
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.FAILED));
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.RUNNING),
+                new JobStatusUpdate("code1", "job-2", "name", JobStatus.PASSED)));
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.PASSED));
+
+        assertThat(repository.pendingMutationCount()).isEqualTo(2);
+        repository.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<JobStatusUpdate>> updates = ArgumentCaptor.forClass(List.class);
+        verify(delegate, times(1)).updateJobs(updates.capture());
+        verify(delegate, never()).updateJob(any(), any(), any());
+        assertThat(updates.getValue()).containsExactly(
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.PASSED),
+                new JobStatusUpdate("code1", "job-2", "name", JobStatus.PASSED));
+    }
+
+    @Test
+    public void jobUpdates_followedByANewJobList_leaveTheDelegateWithTheNewList() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        delegate.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING)));
+        WriteBehindProjectRepository repository = open(delegate, 1000);
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.PASSED));
+        repository.updateProjectJobs("code1", Collections.singletonList(createJobStatus("job-2", JobStatus.FAILED)));
+        repository.flush();
+
+        assertThat(delegate.getProject("code1").getJobStatusList()).containsExactly(createJobStatus("job-2", JobStatus.FAILED));
+    }
+
+    @Test
+    public void close_flushesEverythingStillQueued() throws IOException {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        WriteBehindProjectRepository repository = new WriteBehindProjectRepository(delegate, 1000, NO_BACKGROUND_FLUSH);
+
+        repository.addProject(createProject("code1"));
+        repository.close();
+
+        assertThat(delegate.getProject("code1")).isNotNull();
+    }
+
+    @Test
+    public void writers_whenTheQueueIsFull_waitForAFlushInsteadOfGrowingIt() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        WriteBehindProjectRepository repository = open(delegate, 3);
+
+        for (int project = 0; project < 20; project++) {
+            repository.addProject(createProject("code" + project));
+            assertThat(repository.pendingMutationCount()).isLessThanOrEqualTo(3);
+        }
+
+        repository.flush();
+        assertThat(delegate.listProjects()).hasSize(20);
+    }
+
+    @Test
+    public void startsFromTheDelegatesProjects_andLoadsAUsersAssociationsOnFirstUse() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        delegate.addProject(createProject("code1"));
+        delegate.addProject(createProject("code2"));
+        delegate.associateUserWithProject("username", "code1");
+        WriteBehindProjectRepository repository = open(delegate, 1000);
+
+        repository.associateUserWithProject("username", "code2");
+
+        assertThat(repository.listProjects()).extracting(Project::getProjectCode).containsExactly("code1", "code2");
+        assertThat(repository.getUserAssociatedProjectCodes("username")).containsExactlyInAnyOrder("code1", "code2");
+        assertThat(repository.isUserAssociatedWithProject("username", "code1")).isTrue();
+    }
+
+    @Test
+    public void writers_withABulkUpdate_waitForRoomForTheWholeBatch() {
+        InMemoryProjectProjectRepository delegate = new InMemoryProjectProjectRepository();
+        WriteBehindProjectRepository repository = open(delegate, 4);
+
+        for (int project = 0; project < 3; project++) {
+            repository.addProject(createProject("code" + project, createJobStatus("job-1", JobStatus.RUNNING)));
+        }
+        repository.updateJobs(Arrays.asList(
+                new JobStatusUpdate("code0", "job-1", "name", JobStatus.PASSED),
+                new JobStatusUpdate("code1", "job-1", "name", JobStatus.PASSED),
+                new JobStatusUpdate("code2", "job-1", "name", JobStatus.PASSED)));
+
+        assertThat(repository.pendingMutationCount()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void flush_whenADelegateWriteFails_keepsItAndEverythingAfterItQueuedForTheNextFlush() {
+        InMemoryProjectProjectRepository delegate = spy(new InMemoryProjectProjectRepository());
+        doThrow(new IllegalStateException("unavailable")).doCallRealMethod().when(delegate).removeProject("code1");
+        delegate.addProject(createProject("code1"));
+        WriteBehindProjectRepository repository = open(delegate, 1000);
+
+        repository.removeProject("code1");
+        repository.addProject(createProject("code2"));
+        try {
+            repository.flush();
+            fail("expected the flush to fail");
+        } catch (IllegalStateException expected) {
+        }
+
+        assertThat(delegate.getProject("code2")).isNull();
+        assertThat(repository.pendingMutationCount()).isEqualTo(2);
+
+        repository.addProject(createProject("code3"));
+        repository.flush();
+
+        assertThat(delegate.listProjects()).extracting(Project::getProjectCode).containsExactly("code2", "code3");
+        assertThat(repository.pendingMutationCount()).isZero();
+    }
+
+    @Test
+    public void flush_whenTheBulkJobUpdateFails_keepsTheDirtyJobsQueued() {
+        InMemoryProjectProjectRepository delegate = spy(new InMemoryProjectProjectRepository());
+        delegate.addProject(createProject("code1", createJobStatus("job-1", JobStatus.RUNNING), createJobStatus("job-2", JobStatus.RUNNING)));
+        doThrow(new IllegalStateException("unavailable")).doCallRealMethod().when(delegate).updateJobs(anyList());
+        WriteBehindProjectRepository repository = open(delegate, 1000);
+
+        repository.updateJob("code1", "job-1", createJobStatus("job-1", JobStatus.PASSED));
+        try {
+            repository.flush();
+            fail("expected the flush to fail");
+        } catch (IllegalStateException expected) {
+        }
+        repository.updateJob("code1", "job-2", createJobStatus("job-2", JobStatus.FAILED));
+        repository.flush();
+
+        assertThat(delegate.getProject("code1").getJobStatusList()).containsExactly(
+                createJobStatus("job-1", JobStatus.PASSED),
+                createJobStatus("job-2", JobStatus.FAILED));
+    }
+
+    @Test
+    public void flush_whenTheDelegateNoLongerAcceptsAMutation_dropsItAndCarriesOnWithTheRest() {
+        InMemoryProjectProjectRepository delegate = spy(new InMemoryProjectProjectRepository());
+        doThrow(new ProjectNotFoundException()).when(delegate).removeProject("code1");
+        delegate.addProject(createProject("code1"));
+        WriteBehindProjectRepository repository = open(delegate, 1000);
+
+        repository.removeProject("code1");
+        repository.addProject(createProject("code2"));
+        repository.flush();
+
+        assertThat(delegate.getProject("code2")).isNotNull();
+        assertThat(repository.pendingMutationCount()).isZero();
+        verify(delegate, never()).updateJobs(anyList());
+    }
+
+    private WriteBehindProjectRepository open(ProjectRepository delegate, int maxPendingMutations) {
+        WriteBehindProjectRepository repository = new WriteBehindProjectRepository(delegate, maxPendingMutations, NO_BACKGROUND_FLUSH);
+        openRepositories.add(repository);
+        return repository;
+    }
+
+    private Project createProject(String code, ProjectJobStatus... jobs) {
+        return Project.builder()
+                .projectCode(code)
+                .projectName("name")
+                .jobStatusList(jobs.length == 0 ? null : Arrays.asList(jobs))
+                .build();
+    }
+
+    private ProjectJobStatus createJobStatus(String code, JobStatus status) {
+        return ProjectJobStatus.builder()
+                .jobCode(code)
+                .jobName("name")
+                .jobStatus(status)
+                .build();
+    }
+}
@@ -2,8 +2,12 @@ package gs.psm.projectstatusmonitor.usecases;
 
 import gs.psm.projectstatusmonitor.exceptions.*;
 import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.MemoryUsage;
 import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectPage;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.models.UserMemoryUsage;
+import gs.psm.projectstatusmonitor.ports.MemoryUsageRepository;
 import gs.psm.projectstatusmonitor.ports.ProjectRepository;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,6 +18,7 @@ import org.mockito.MockitoAnnotations;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,6 +32,9 @@ public class ProjectUseCaseTest {
     @Mock
     private ProjectJobStatusHelper projectJobStatusHelper;
 
+    @Mock
+    private MemoryUsageRepository memoryUsageRepository;
+
     @InjectMocks
     private ProjectUseCase projectUseCase;
 
@@ -34,7 +42,7 @@ public class ProjectUseCaseTest {
     public void setup() {
         MockitoAnnotations.initMocks(this);
 
-        projectUseCase = new ProjectUseCase(projectRepository, projectJobStatusHelper);
+        projectUseCase = new ProjectUseCase(projectRepository, projectJobStatusHelper, memoryUsageRepository);
     }
 
     @Test
@@ -186,6 +194,28 @@ public class ProjectUseCaseTest {
         }
     }
 
+    @Test
+    public void getMemoryUsage_reportsEachUserWithProjects_largestFirst() {
+        when(memoryUsageRepository.getBudgetBytes()).thenReturn(10000L);
+        when(memoryUsageRepository.getEstimatedBytes()).thenReturn(700L);
+        when(memoryUsageRepository.getUsernames()).thenReturn(new HashSet<>(Arrays.asList("user1", "user2", "user3")));
+        when(memoryUsageRepository.getEstimatedBytes("code1")).thenReturn(100L);
+        when(memoryUsageRepository.getEstimatedBytes("code2")).thenReturn(200L);
+        when(memoryUsageRepository.getEstimatedBytes("code3")).thenReturn(400L);
+        when(projectRepository.getUserAssociatedProjectCodes("user1")).thenReturn(Arrays.asList("code1", "code2"));
+        when(projectRepository.getUserAssociatedProjectCodes("user2")).thenReturn(Collections.singletonList("code3"));
+        when(projectRepository.getUserAssociatedProjectCodes("user3")).thenReturn(Collections.emptyList());
+
+        MemoryUsage memoryUsage = projectUseCase.getMemoryUsage();
+
+        assertThat(memoryUsage.getBudgetBytes()).isEqualTo(10000L);
+        assertThat(memoryUsage.getEstimatedBytes()).isEqualTo(700L);
+        assertThat(memoryUsage.getUserMemoryUsageList()).containsExactly(
+                new UserMemoryUsage("user2", 1, 400L),
+                new UserMemoryUsage("user1", 2, 300L)
+        );
+    }
+
     @Test
     public void listProjects_callsTheProjectRepository() {
         when(projectRepository.listProjects()).thenReturn(Collections.emptyList());
@@ -223,7 +253,38 @@ public class ProjectUseCaseTest {
     }
 
     @Test
-    public void getProject_callsTheRepositoryToGetTheProjectsAssociatedWithTheUser() {
+    public void listProjectsPage_whenTheRepositoryHasMoreProjects_returnsAPageWithACursorForTheNextOne() {
+        when(projectRepository.listProjects(null, 3)).thenReturn(Arrays.asList(createProject(0), createProject(1), createProject(2)));
+        when(projectRepository.listProjects("code1", 3)).thenReturn(Collections.singletonList(createProject(2)));
+
+        ProjectPage firstPage = projectUseCase.listProjects(null, 2);
+
+        assertThat(firstPage.getProjects()).extracting(Project::getProjectCode).containsExactly("code0", "code1");
+        assertThat(firstPage.getNextCursor()).isNotNull();
+
+        ProjectPage secondPage = projectUseCase.listProjects(firstPage.getNextCursor(), 2);
+
+        assertThat(secondPage.getProjects()).extracting(Project::getProjectCode).containsExactly("code2");
+        assertThat(secondPage.getNextCursor()).isNull();
+    }
+
+    @Test(expected = InvalidPageRequestException.class)
+    public void listProjectsPage_givenALimitBelowOne_throwsInvalidPageRequestException() {
+        projectUseCase.listProjects(null, 0);
+    }
+
+    @Test(expected = InvalidPageRequestException.class)
+    public void listProjectsPage_givenALimitAboveTheMaximum_throwsInvalidPageRequestException() {
+        projectUseCase.listProjects(null, ProjectUseCase.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test(expected = InvalidPageRequestException.class)
+    public void listProjectsPage_givenACursorThatIsNotBase64_throwsInvalidPageRequestException() {
+        projectUseCase.listProjects("not a cursor!", 10);
+    }
+
+    @Test
+    public void getProject_callsTheRepositoryToCheckTheUserIsAssociatedWithTheProject() {
         String projectCode = "codeToDelete";
         String username = "username";
 
@@ -232,12 +293,12 @@ public class ProjectUseCaseTest {
                 .projectName("projectName")
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Arrays.asList(projectCode));
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(true);
         when(projectRepository.getProject(projectCode)).thenReturn(expectedProject);
 
         projectUseCase.getProject(projectCode, username);
 
-        verify(projectRepository, times(1)).getUserAssociatedProjectCodes(username);
+        verify(projectRepository, times(1)).isUserAssociatedWithProject(username, projectCode);
     }
 
     @Test(expected = UserActionNotAllowedException.class)
@@ -245,7 +306,7 @@ public class ProjectUseCaseTest {
         String projectCode = "codeToDelete";
         String username = "username";
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Collections.emptyList());
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(false);
 
         projectUseCase.getProject(projectCode, username);
     }
@@ -260,7 +321,7 @@ public class ProjectUseCaseTest {
                 .projectName("projectName")
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Arrays.asList(projectCode));
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(true);
         when(projectRepository.getProject(projectCode)).thenReturn(expectedProject);
 
         Project returnedProject = projectUseCase.getProject(projectCode ,"username");
@@ -274,24 +335,24 @@ public class ProjectUseCaseTest {
         String projectCode = "codeNotFound";
         String username = "username";
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Arrays.asList(projectCode));
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(true);
         when(projectRepository.getProject(any())).thenReturn(null);
 
         projectUseCase.getProject("codeNotFound", "username");
     }
 
     @Test
-    public void removeProject_callsTheRepositoryToGetTheProjectsAssociatedWithTheUser() {
+    public void removeProject_callsTheRepositoryToCheckTheUserIsAssociatedWithTheProject() {
         String projectCode = "codeToDelete";
         String username = "username";
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Arrays.asList(projectCode));
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(true);
         when(projectRepository.removeProject(projectCode)).thenReturn(true);
 
 
         projectUseCase.removeProject(projectCode, username);
 
-        verify(projectRepository, times(1)).getUserAssociatedProjectCodes(username);
+        verify(projectRepository, times(1)).isUserAssociatedWithProject(username, projectCode);
     }
 
     @Test(expected = UserActionNotAllowedException.class)
@@ -299,7 +360,7 @@ public class ProjectUseCaseTest {
         String projectCode = "codeToDelete";
         String username = "username";
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Collections.emptyList());
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(false);
 
         projectUseCase.removeProject(projectCode, username);
     }
@@ -309,7 +370,7 @@ public class ProjectUseCaseTest {
         String projectCode = "codeToDelete";
         String username = "username";
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Arrays.asList(projectCode));
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(true);
         when(projectRepository.removeProject(projectCode)).thenReturn(true);
 
         projectUseCase.removeProject(projectCode, username);
@@ -322,7 +383,7 @@ public class ProjectUseCaseTest {
         String projectCode = "codeToDelete";
         String username = "username";
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Arrays.asList(projectCode));
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(true);
         when(projectRepository.removeProject(projectCode)).thenReturn(false);
 
         projectUseCase.removeProject(projectCode, username);
@@ -333,24 +394,24 @@ public class ProjectUseCaseTest {
         String projectCode = "codeNotFound";
         String username = "username";
 
-        when(projectRepository.getUserAssociatedProjectCodes(username)).thenReturn(Arrays.asList(projectCode));
+        when(projectRepository.isUserAssociatedWithProject(username, projectCode)).thenReturn(true);
         when(projectRepository.removeProject(projectCode)).thenThrow(new ProjectNotFoundException());
 
         projectUseCase.removeProject(projectCode, username);
     }
 
     @Test
-    public void updateProject_callsTheRepositoryToGetTheProjectsAssociatedWithTheUser() {
+    public void updateProject_callsTheRepositoryToCheckTheUserIsAssociatedWithTheProject() {
         Project project = Project.builder()
                 .projectCode("projectCode")
                 .projectName("projectName")
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes("username")).thenReturn(Collections.singletonList("projectCode"));
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
 
         projectUseCase.updateProject(project, "username");
 
-        verify(projectRepository, times(1)).getUserAssociatedProjectCodes("username");
+        verify(projectRepository, times(1)).isUserAssociatedWithProject("username", "projectCode");
     }
 
     @Test(expected = UserActionNotAllowedException.class)
@@ -360,7 +421,7 @@ public class ProjectUseCaseTest {
                 .projectName("projectName")
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes("username")).thenReturn(Collections.emptyList());
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(false);
 
         projectUseCase.updateProject(project, "username");
     }
@@ -372,7 +433,7 @@ public class ProjectUseCaseTest {
                 .projectName("projectName")
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes("username")).thenReturn(Collections.singletonList("projectCode"));
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
         when(projectRepository.updateProject(project)).thenReturn(project);
 
         projectUseCase.updateProject(project, "username");
@@ -380,6 +441,46 @@ public class ProjectUseCaseTest {
         verify(projectRepository, times(1)).updateProject(project);
     }
 
+    @Test
+    public void updateProject_givenAnExpectedVersion_callsTheProjectRepositoryWithThatVersion_andReturnsTheUpdatedProject() {
+        Project project = Project.builder()
+                .projectCode("projectCode")
+                .projectName("projectName")
+                .build();
+        Project updatedProject = new Project("projectCode", "projectName", null, 3);
+
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
+        when(projectRepository.updateProject(project, 2)).thenReturn(updatedProject);
+
+        assertThat(projectUseCase.updateProject(project, "username", 2)).isSameAs(updatedProject);
+        verify(projectRepository, never()).updateProject(project);
+    }
+
+    @Test(expected = UserActionNotAllowedException.class)
+    public void updateProject_givenAnExpectedVersion_andTheUserIsNotAssociatedWithTheProject_throwsUserActionNotAllowedException() {
+        Project project = Project.builder()
+                .projectCode("projectCode")
+                .projectName("projectName")
+                .build();
+
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(false);
+
+        projectUseCase.updateProject(project, "username", 2);
+    }
+
+    @Test(expected = ProjectVersionMismatchException.class)
+    public void updateProject_givenAnExpectedVersionThatIsOutOfDate_throwsProjectVersionMismatchException() {
+        Project project = Project.builder()
+                .projectCode("projectCode")
+                .projectName("projectName")
+                .build();
+
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
+        when(projectRepository.updateProject(project, 2)).thenThrow(new ProjectVersionMismatchException());
+
+        projectUseCase.updateProject(project, "username", 2);
+    }
+
     @Test
     public void updateProject_givenAProjectWithAProjectCodeThatExists_withNoProjectJobStatusList_doesNotCallTheJobStatusHelper() {
         Project project = Project.builder()
@@ -387,7 +488,7 @@ public class ProjectUseCaseTest {
                 .projectName("projectName")
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes("username")).thenReturn(Collections.singletonList("projectCode"));
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
 
         projectUseCase.updateProject(project, "username");
 
@@ -402,7 +503,7 @@ public class ProjectUseCaseTest {
                 .jobStatusList(Collections.emptyList())
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes("username")).thenReturn(Collections.singletonList("projectCode"));
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
 
         projectUseCase.updateProject(project, "username");
 
@@ -416,7 +517,7 @@ public class ProjectUseCaseTest {
                 .projectName("projectName")
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes("username")).thenReturn(Collections.singletonList("projectCode"));
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
         when(projectRepository.updateProject(project)).thenThrow(new ProjectNotFoundException());
 
         projectUseCase.updateProject(project, "username");
@@ -436,7 +537,7 @@ public class ProjectUseCaseTest {
                 .jobStatusList(projectJobStatusList)
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes("username")).thenReturn(Collections.singletonList("projectCode"));
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
         when(projectJobStatusHelper.containsNoDuplicateJobCodes(projectJobStatusList)).thenReturn(true);
 
         projectUseCase.updateProject(project, "username");
@@ -458,12 +559,52 @@ public class ProjectUseCaseTest {
                 .jobStatusList(projectJobStatusList)
                 .build();
 
-        when(projectRepository.getUserAssociatedProjectCodes("username")).thenReturn(Collections.singletonList("projectCode"));
+        when(projectRepository.isUserAssociatedWithProject("username", "projectCode")).thenReturn(true);
         when(projectJobStatusHelper.containsNoDuplicateJobCodes(projectJobStatusList)).thenReturn(false);
 
         projectUseCase.updateProject(project, "username");
     }
 
+    @Test
+    public void mergeProjectPages_returnsTheFirstProjectsAcrossEveryPage_andAResumableCursor() {
+        ProjectPage page = projectUseCase.mergeProjectPages(Arrays.asList(
+                new ProjectPage(Arrays.asList(createProject(0), createProject(3)), null),
+                new ProjectPage(Arrays.asList(createProject(1), createProject(2)), null)
+        ), 3);
+
+        assertThat(page.getProjects()).extracting(Project::getProjectCode).containsExactly("code0", "code1", "code2");
+        assertThat(page.getNextCursor()).isEqualTo("Y29kZTI");
+    }
+
+    @Test
+    public void mergeProjectPages_whenAnyPageHasMore_returnsACursor() {
+        ProjectPage page = projectUseCase.mergeProjectPages(Arrays.asList(
+                new ProjectPage(Collections.singletonList(createProject(2)), "Y29kZTI"),
+                new ProjectPage(Collections.emptyList(), null)
+        ), 1);
+
+        assertThat(page.getProjects()).extracting(Project::getProjectCode).containsExactly("code2");
+        assertThat(page.getNextCursor()).isEqualTo("Y29kZTI");
+        assertThat(projectUseCase.mergeProjectPages(Collections.singletonList(
+                new ProjectPage(Collections.singletonList(createProject(2)), null)), 1).getNextCursor()).isNull();
+    }
+
+    @Test
+    public void mergeProjects_sortsByCode_andKeepsTheNewestCopyOfAProjectSeveralNodesHold() {
+        Project handedOver = createProject(1);
+        handedOver.setVersion(2);
+        Project stale = createProject(1);
+        stale.setVersion(1);
+
+        List<Project> projects = projectUseCase.mergeProjects(Arrays.asList(
+                Arrays.asList(createProject(2), stale),
+                Arrays.asList(handedOver, createProject(0))
+        ));
+
+        assertThat(projects).extracting(Project::getProjectCode).containsExactly("code0", "code1", "code2");
+        assertThat(projects.get(1)).isSameAs(handedOver);
+    }
+
     private Project createProject(int increment) {
         return Project.builder()
                 .projectCode("code" + increment)
@@ -1,19 +1,38 @@
 package gs.psm.projectstatusmonitor.usecases;
 
+import gs.psm.projectstatusmonitor.exceptions.BulkUpdateTooLargeException;
 import gs.psm.projectstatusmonitor.exceptions.DuplicateJobCodeException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectJobStatusNotFoundException;
 import gs.psm.projectstatusmonitor.exceptions.ProjectNotFoundException;
+import gs.psm.projectstatusmonitor.exceptions.ProjectVersionMismatchException;
+import gs.psm.projectstatusmonitor.models.EstateStatusSummary;
+import gs.psm.projectstatusmonitor.models.JobReference;
 import gs.psm.projectstatusmonitor.models.JobStatus;
+import gs.psm.projectstatusmonitor.models.JobStatusChange;
+import gs.psm.projectstatusmonitor.models.JobStatusHistory;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdate;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateOutcome;
+import gs.psm.projectstatusmonitor.models.JobStatusUpdateResult;
 import gs.psm.projectstatusmonitor.models.Project;
+import gs.psm.projectstatusmonitor.models.ProjectHealth;
 import gs.psm.projectstatusmonitor.models.ProjectJobStatus;
+import gs.psm.projectstatusmonitor.models.ProjectStatusSummary;
+import gs.psm.projectstatusmonitor.ports.EstateStatusSummaryRepository;
+import gs.psm.projectstatusmonitor.ports.JobStatusHistoryRepository;
+import gs.psm.projectstatusmonitor.ports.JobStatusIndex;
 import gs.psm.projectstatusmonitor.ports.ProjectRepository;
+import gs.psm.projectstatusmonitor.ports.ProjectStatusSummaryRepository;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,6 +46,18 @@ public class StatusUseCaseTest {
     @Mock
     private ProjectJobStatusHelper projectJobStatusHelper;
 
+    @Mock
+    private JobStatusHistoryRepository jobStatusHistoryRepository;
+
+    @Mock
+    private JobStatusIndex jobStatusIndex;
+
+    @Mock
+    private ProjectStatusSummaryRepository projectStatusSummaryRepository;
+
+    @Mock
+    private EstateStatusSummaryRepository estateStatusSummaryRepository;
+
     @InjectMocks
     private StatusUseCase statusUseCase;
 
@@ -34,7 +65,8 @@ public class StatusUseCaseTest {
     public void setup() {
         MockitoAnnotations.initMocks(this);
 
-        statusUseCase = new StatusUseCase(projectRepository, projectJobStatusHelper);
+        statusUseCase = new StatusUseCase(projectRepository, projectJobStatusHelper,
+                jobStatusHistoryRepository, jobStatusIndex, projectStatusSummaryRepository, estateStatusSummaryRepository);
     }
 
     @Test
@@ -156,6 +188,107 @@ public class StatusUseCaseTest {
         statusUseCase.updateProjectJobs(projectCode, projectJobStatusList);
     }
 
+    @Test
+    public void getProjectStatus_givenAProjectCodeThatExists_returnsTheProject() {
+        Project project = new Project("projectCode", "projectName", new ArrayList<>(), 4);
+
+        when(projectRepository.getProject("projectCode")).thenReturn(project);
+
+        assertThat(statusUseCase.getProjectStatus("projectCode")).isSameAs(project);
+    }
+
+    @Test(expected = ProjectNotFoundException.class)
+    public void getProjectStatus_givenAProjectCodeThatDoesNotExist_throwsProjectNotFoundException() {
+        when(projectRepository.getProject("projectCode")).thenReturn(null);
+
+        statusUseCase.getProjectStatus("projectCode");
+    }
+
+    @Test
+    public void getEstateStatusSummary_returnsTheRepositorysSummary() {
+        EstateStatusSummary summary = new EstateStatusSummary(2, 5, Collections.emptyMap());
+
+        when(estateStatusSummaryRepository.getEstateStatusSummary()).thenReturn(summary);
+
+        assertThat(statusUseCase.getEstateStatusSummary()).isSameAs(summary);
+    }
+
+    @Test
+    public void getProjectStatusSummary_givenAProjectCodeThatExists_returnsItsSummary() {
+        ProjectStatusSummary summary = new ProjectStatusSummary("projectCode", ProjectHealth.GREEN, 0, Collections.emptyMap());
+
+        when(projectStatusSummaryRepository.getProjectStatusSummary("projectCode")).thenReturn(summary);
+
+        assertThat(statusUseCase.getProjectStatusSummary("projectCode")).isSameAs(summary);
+    }
+
+    @Test(expected = ProjectNotFoundException.class)
+    public void getProjectStatusSummary_givenAProjectCodeThatDoesNotExist_throwsProjectNotFoundException() {
+        statusUseCase.getProjectStatusSummary("projectCode");
+    }
+
+    @Test
+    public void getJobsByStatus_returnsTheIndexedJobsOfEachRequestedStatusOnce() {
+        JobReference failed = new JobReference("projectCode", "code-1", JobStatus.FAILED);
+        JobReference running = new JobReference("projectCode", "code-2", JobStatus.RUNNING);
+
+        when(jobStatusIndex.findJobsByStatus(JobStatus.FAILED)).thenReturn(Collections.singletonList(failed));
+        when(jobStatusIndex.findJobsByStatus(JobStatus.RUNNING)).thenReturn(Collections.singletonList(running));
+
+        assertThat(statusUseCase.getJobsByStatus(Arrays.asList(JobStatus.FAILED, JobStatus.RUNNING, JobStatus.FAILED)))
+                .containsExactlyInAnyOrder(failed, running);
+    }
+
+    @Test
+    public void getJobStatusHistory_givenAJobWithHistory_returnsIt() {
+        JobStatusHistory history = new JobStatusHistory("projectCode", "code-1", 1,
+                Collections.singletonList(new JobStatusChange(Instant.ofEpochMilli(1000), JobStatus.RUNNING)));
+
+        when(jobStatusHistoryRepository.getJobStatusHistory("projectCode", "code-1")).thenReturn(history);
+
+        assertThat(statusUseCase.getJobStatusHistory("projectCode", "code-1")).isSameAs(history);
+    }
+
+    @Test(expected = ProjectJobStatusNotFoundException.class)
+    public void getJobStatusHistory_givenAJobThatDoesNotExist_throwsProjectJobStatusNotFoundException() {
+        when(projectRepository.getProject("projectCode")).thenReturn(new Project("projectCode", "projectName", new ArrayList<>()));
+
+        statusUseCase.getJobStatusHistory("projectCode", "code-1");
+    }
+
+    @Test(expected = ProjectNotFoundException.class)
+    public void getJobStatusHistory_givenAProjectCodeThatDoesNotExist_throwsProjectNotFoundException() {
+        statusUseCase.getJobStatusHistory("projectCode", "code-1");
+    }
+
+    @Test
+    public void updateJobStatusList_givenAnExpectedVersion_callsTheRepositoryWithThatVersion_andReturnsTheUpdatedProject() {
+        String projectCode = "projectCode";
+
+        List<ProjectJobStatus> projectJobStatusList = new ArrayList<>();
+        projectJobStatusList.add(createProjectJobStatus("code-1", "name-1", JobStatus.PASSED));
+        Project updatedProject = new Project(projectCode, "projectName", projectJobStatusList, 5);
+
+        when(projectJobStatusHelper.containsNoDuplicateJobCodes(projectJobStatusList)).thenReturn(true);
+        when(projectRepository.updateProjectJobs(projectCode, projectJobStatusList, 4)).thenReturn(updatedProject);
+
+        assertThat(statusUseCase.updateProjectJobs(projectCode, projectJobStatusList, 4)).isSameAs(updatedProject);
+        verify(projectRepository, never()).updateProjectJobs(projectCode, projectJobStatusList);
+    }
+
+    @Test(expected = ProjectVersionMismatchException.class)
+    public void updateJobStatusList_givenAnExpectedVersionThatIsOutOfDate_throwsProjectVersionMismatchException() {
+        String projectCode = "projectCode";
+
+        List<ProjectJobStatus> projectJobStatusList = new ArrayList<>();
+        projectJobStatusList.add(createProjectJobStatus("code-1", "name-1", JobStatus.PASSED));
+
+        when(projectJobStatusHelper.containsNoDuplicateJobCodes(projectJobStatusList)).thenReturn(true);
+        when(projectRepository.updateProjectJobs(projectCode, projectJobStatusList, 4)).thenThrow(new ProjectVersionMismatchException());
+
+        statusUseCase.updateProjectJobs(projectCode, projectJobStatusList, 4);
+    }
+
     @Test(expected = ProjectNotFoundException.class)
     public void updateJobStatusList_givenAProjectCodeThatDoesNotExist_throwsProjectNotFoundException() {
         String projectCode = "projectCode";
@@ -172,41 +305,105 @@ public class StatusUseCaseTest {
     }
 
     @Test
-    public void updateJob_callsTheRepository() {
+    public void updateJobs_callsTheRepository_andReturnsItsResults() {
+        List<JobStatusUpdate> updates = Collections.singletonList(
+                new JobStatusUpdate("projectCode", "code-1", "name-1", JobStatus.PASSED));
+        List<JobStatusUpdateResult> results = Collections.singletonList(
+                new JobStatusUpdateResult("projectCode", "code-1", JobStatusUpdateOutcome.UPDATED));
+
+        when(projectRepository.updateJobs(updates)).thenReturn(results);
+
+        assertThat(statusUseCase.updateJobs(updates)).isEqualTo(results);
+    }
+
+    @Test
+    public void updateJobs_givenNoUpdates_doesNotCallTheRepository() {
+        assertThat(statusUseCase.updateJobs(Collections.emptyList())).isEmpty();
+
+        verify(projectRepository, never()).updateJobs(any());
+    }
+
+    @Test(expected = BulkUpdateTooLargeException.class)
+    public void updateJobs_givenMoreUpdatesThanTheMaximum_throwsBulkUpdateTooLargeException() {
+        List<JobStatusUpdate> updates = Collections.nCopies(StatusUseCase.MAX_BULK_UPDATE_SIZE + 1,
+                new JobStatusUpdate("projectCode", "code-1", "name-1", JobStatus.PASSED));
+
+        statusUseCase.updateJobs(updates);
+    }
+
+    @Test
+    public void updateJob_callsTheRepositorysBulkUpdate_andReturnsTheOutcome() {
         String projectCode = "projectCode";
         String jobCode = "code-1";
 
         ProjectJobStatus projectJobStatus = createProjectJobStatus(jobCode, "name-1", JobStatus.PASSED);
+        List<JobStatusUpdate> updates = Collections.singletonList(new JobStatusUpdate(projectCode, jobCode, "name-1", JobStatus.PASSED));
 
-        statusUseCase.updateJob(projectCode, projectJobStatus);
+        when(projectRepository.updateJobs(updates)).thenReturn(Collections.singletonList(
+                new JobStatusUpdateResult(projectCode, jobCode, JobStatusUpdateOutcome.UPDATED)));
 
-        verify(projectRepository, times(1)).updateJob(projectCode, jobCode, projectJobStatus);
+        assertThat(statusUseCase.updateJob(projectCode, projectJobStatus)).isEqualTo(JobStatusUpdateOutcome.UPDATED);
+        verify(projectRepository, times(1)).updateJobs(updates);
+    }
+
+    @Test
+    public void updateJob_whenTheJobAlreadyHasThatStatus_returnsUnchanged() {
+        String projectCode = "projectCode";
+        String jobCode = "code-1";
+
+        ProjectJobStatus projectJobStatus = createProjectJobStatus(jobCode, "name-1", JobStatus.RUNNING);
+
+        when(projectRepository.updateJobs(anyList())).thenReturn(Collections.singletonList(
+                new JobStatusUpdateResult(projectCode, jobCode, JobStatusUpdateOutcome.UNCHANGED)));
+
+        assertThat(statusUseCase.updateJob(projectCode, projectJobStatus)).isEqualTo(JobStatusUpdateOutcome.UNCHANGED);
     }
 
     @Test(expected = ProjectNotFoundException.class)
-    public void updateJob_whenRepositoryThrowsProjectNotFoundException_throwsProjectNotFoundException() {
+    public void updateJob_whenRepositoryReportsProjectNotFound_throwsProjectNotFoundException() {
         String projectCode = "projectCode";
         String jobCode = "code-1";
 
         ProjectJobStatus projectJobStatus = createProjectJobStatus(jobCode, "name-1", JobStatus.PASSED);
 
-        when(projectRepository.updateJob(projectCode, jobCode, projectJobStatus)).thenThrow(new ProjectNotFoundException());
+        when(projectRepository.updateJobs(anyList())).thenReturn(Collections.singletonList(
+                new JobStatusUpdateResult(projectCode, jobCode, JobStatusUpdateOutcome.PROJECT_NOT_FOUND)));
 
         statusUseCase.updateJob(projectCode, projectJobStatus);
     }
 
     @Test(expected = ProjectJobStatusNotFoundException.class)
-    public void updateJob_whenRepositoryThrowsProjectJobStatusNotFoundException_throwsProjectJobStatusNotFoundException() {
+    public void updateJob_whenRepositoryReportsJobNotFound_throwsProjectJobStatusNotFoundException() {
         String projectCode = "projectCode";
         String jobCode = "code-1";
 
         ProjectJobStatus projectJobStatus = createProjectJobStatus(jobCode, "name-1", JobStatus.PASSED);
 
-        when(projectRepository.updateJob(projectCode, jobCode, projectJobStatus)).thenThrow(new ProjectJobStatusNotFoundException());
+        when(projectRepository.updateJobs(anyList())).thenReturn(Collections.singletonList(
+                new JobStatusUpdateResult(projectCode, jobCode, JobStatusUpdateOutcome.JOB_NOT_FOUND)));
 
         statusUseCase.updateJob(projectCode, projectJobStatus);
     }
 
+    @Test
+    public void mergeEstateStatusSummaries_addsUpTheCountsOfEverySummary() {
+        EnumMap<JobStatus, Long> firstCounts = new EnumMap<>(JobStatus.class);
+        firstCounts.put(JobStatus.FAILED, 1L);
+        firstCounts.put(JobStatus.PASSED, 2L);
+        EnumMap<JobStatus, Long> secondCounts = new EnumMap<>(JobStatus.class);
+        secondCounts.put(JobStatus.PASSED, 4L);
+
+        EstateStatusSummary summary = statusUseCase.mergeEstateStatusSummaries(Arrays.asList(
+                new EstateStatusSummary(1, 3, firstCounts),
+                new EstateStatusSummary(2, 4, secondCounts)
+        ));
+
+        EnumMap<JobStatus, Long> expectedCounts = new EnumMap<>(JobStatus.class);
+        expectedCounts.put(JobStatus.FAILED, 1L);
+        expectedCounts.put(JobStatus.PASSED, 6L);
+        assertThat(summary).isEqualTo(new EstateStatusSummary(3, 7, expectedCounts));
+    }
+
     private ProjectJobStatus createProjectJobStatus(String code, String name, JobStatus status) {
         return ProjectJobStatus.builder()
                 .jobCode(code)